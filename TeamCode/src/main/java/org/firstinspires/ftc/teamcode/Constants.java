@@ -3,21 +3,109 @@ package org.firstinspires.ftc.teamcode;
 import com.acmerobotics.dashboard.config.Config;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 
+import org.opencv.core.Scalar;
+
 //This class holds all constants, the reason we do this is so we can import all the constants 'statically.'
 // i.e.: To import the drive constants, you would add
 // import static org.firstinspires.ftc.org.firstinspires.ftc.teamcode.Constants.DriveConstants.*;
 
 public class Constants {
 
-    /** State for the subsystems that use PIDs (elbow and linear slide). Can be manual, moving to target, or at target. */
+    /**
+     * State for the subsystems that use PIDs (elbow and linear slide). Can be manual, moving to target, at target,
+     * or holding the target (only the elbow holds).
+     */
     public enum PIDSubsystemState {
         MANUAL,
         MOVING_TO_TARGET,
-        AT_TARGET
+        AT_TARGET,
+        HOLDING
     }
 
+    /** Constants for autonomous. */
+    @Config
     public static class AutoConstants {
+        /** Whether autonomous follows RoadRunner trajectories, instead of stopping after every drive, strafe and turn */
+        public static boolean USE_TRAJECTORIES = true;
+        /** The longest to stay at the spike marks waiting for the distance sensors to agree on one, in milliseconds */
+        public static long SENSE_WAIT = 250;
+        /** How long to wait for our teammate before parking from downstage, in milliseconds */
+        public static long PARK_WAIT = 5000;
+        /** How high the elbow has to be before the robot drives up to the backdrop, in pulses */
+        public static double ELBOW_BACKDROP_CLEARANCE = 6000;
+        /** Whether the drive, strafe and turn routes are read from the route file instead of the route commands */
+        public static boolean USE_ROUTE_FILE = true;
+        /** The route file on the robot, under /sdcard/FIRST, the one built into the app is used if it isn't there */
+        public static final String ROUTE_FILE = "Routes/auto_routes.txt";
+
+        /** The longest to wait for the robot to settle after a movement, in milliseconds */
         public static long DEFAULT_AUTO_WAIT = 250;
+        // The robot has settled once every wheel is slower than this (inches per second) and it is turning slower
+        // than this (degrees per second) for the whole window (milliseconds)
+        public static double SETTLE_WHEEL_SPEED = 1;
+        public static double SETTLE_HEADING_VELOCITY = 3;
+        public static long SETTLE_WINDOW_MS = 100;
+    }
+
+    /** Constants for moving the elbow and slide together. */
+    @Config
+    public static class ArmConstants {
+        // The slide can only be further out than SLIDE_SAFE_POSITION while the elbow is at least at ELBOW_SAFE_POSITION
+        public static double ELBOW_SAFE_POSITION = 3500;
+        public static double SLIDE_SAFE_POSITION = 200;
+
+        // Motion profile limits, in ticks per second (squared)
+        public static double ELBOW_MAX_VELOCITY = 4000;
+        public static double ELBOW_MAX_ACCELERATION = 8000;
+        public static double SLIDE_MAX_VELOCITY = 2000;
+        public static double SLIDE_MAX_ACCELERATION = 6000;
+
+        // Velocity feedforward while following the profiles, in motor power per tick per second
+        public static double ELBOW_KV = 0.0002;
+        public static double SLIDE_KV = 0.00035;
+    }
+
+    /** Constants for the control thread that runs the elbow and slide. */
+    @Config
+    public static class ControlConstants {
+        /** Whether the elbow and slide are controlled on their own thread instead of in the main loop */
+        public static boolean CONTROL_THREAD = true;
+        /** How often the control thread runs, in milliseconds */
+        public static double CONTROL_PERIOD_MS = 5;
+        /** The longest a setpoint from the main loop is carried forward at its velocity, in seconds */
+        public static double MAX_SETPOINT_EXTRAPOLATION = 0.05;
+    }
+
+    /** Constants for the telemetry pipeline. */
+    @Config
+    public static class TelemetryConstants {
+        /**
+         * Whether the teleop robot publishes its telemetry from background threads instead of formatting and sending it
+         * every loop. The loop profiler and the subsystems' printData only show up while this is off
+         */
+        public static boolean PIPELINE = true;
+        // How often the driver station and the dashboard are sent the fields that changed, read when the op mode is
+        // initialized and never below 1 Hz
+        public static double DRIVER_STATION_RATE_HZ = 10;
+        public static double DASHBOARD_RATE_HZ = 50;
+    }
+
+    /** Constants for the buffered motor and servo outputs. */
+    @Config
+    public static class OutputConstants {
+        /** Motor power changes smaller than this are not sent to the hub */
+        public static double MOTOR_POWER_EPSILON = 0.005;
+        /** Servo angle changes (in degrees) smaller than this are not sent to the hub */
+        public static double SERVO_ANGLE_EPSILON = 0.5;
+    }
+
+    /** Constants for the loop profiler. */
+    @Config
+    public static class ProfilingConstants {
+        /** Whether loop sections are timed. Commands are only wrapped if this is true when the robot is built */
+        public static boolean ENABLED = false;
+        /** How often the summary shown on the telemetry is recalculated */
+        public static long PUBLISH_PERIOD_MS = 500;
     }
 
     /** Constants for the BoxSubsystem. */
@@ -39,13 +127,57 @@ public class Constants {
         public static final String GREEN_LEFT_LED_NAME = "greenLeft";
     }
 
+    /** Constants for the camera team prop pipeline. */
+    @Config
+    public static class CameraConstants {
+        public static final String WEBCAM_NAME = "Webcam 1";
+        /** Whether autonomous looks for the team prop with the webcam during init, if the robot has one */
+        public static boolean USE_CAMERA = true;
+        // The resolution the webcam streams at
+        public static final int CAMERA_WIDTH = 640;
+        public static final int CAMERA_HEIGHT = 480;
+
+        // The lowest YCrCb values of the team prop on each alliance, tuned with OpenCVTesting
+        public static Scalar LOWER_RED = new Scalar(79, 91, 167);
+        public static Scalar LOWER_BLUE = new Scalar(23, 78, 184);
+        public static Scalar UPPER = new Scalar(255, 255, 255);
+
+        /** The fraction of a spike mark's region that has to be the team prop's colour for the prop to be on it */
+        public static double DETECTION_THRESHOLD = 0.1;
+        /** How much the spike mark regions are shrunk before they are thresholded, 4 turns 640x480 into 160x120 */
+        public static int DOWNSCALE = 4;
+        // Where the middle and right spike marks are in the frame, as fractions of the frame: x, y, width, height.
+        // The left spike mark can't be seen, the prop is there if it isn't on the other two
+        public static double[] MIDDLE_REGION = {0, 0, 0.5, 1};
+        public static double[] RIGHT_REGION = {0.5, 0, 0.5, 1};
+
+        /**
+         * The confidence the camera's spike mark gets in the spike mark voter when the robot arrives, below
+         * VOTE_THRESHOLD so the distance sensors still have to agree with it, one agreeing sample is enough at 2
+         */
+        public static double CAMERA_VOTE = 2;
+        /** The confidence instead of CAMERA_VOTE when the prop wasn't seen and is only guessed to be on the unseen spike mark */
+        public static double CAMERA_UNSEEN_VOTE = 1;
+    }
+
     /** Constants for the DistanceSensorSubsystem. */
+    @Config
     public static class DistanceSensorConstants {
         public static final String LEFT_DISTANCE_SENSOR_NAME = "leftDistanceSensor";
         public static final String RIGHT_DISTANCE_SENSOR_NAME = "rightDistanceSensor";
 
         /** The threshold (in inches) for the distance sensors to be blocked */
         public static double DISTANCE_THRESHOLD = 7;
+
+        /** How often the sensors are read on the sampling thread, each read takes a few milliseconds. Read when the subsystem is built */
+        public static double SAMPLE_PERIOD_MS = 40;
+        /** How many readings the median is taken over. Read when the subsystem is built */
+        public static int MEDIAN_WINDOW = 5;
+
+        /** How much of the confidence in each spike mark is kept from one sample to the next */
+        public static double VOTE_DECAY = 0.75;
+        /** The confidence a spike mark needs before it is picked, 2.5 takes four samples in a row in a bit over 150 ms */
+        public static double VOTE_THRESHOLD = 2.5;
     }
 
     /** Constants for the DriveSubsystem. */
@@ -69,12 +201,54 @@ public class Constants {
         public static final double DEADZONE = 0.1;
 
         public static final String IMU_NAME = "imu";
+        /** How often the heading service reads the IMU, read when the service is built */
+        public static double HEADING_PERIOD_MS = 10;
+        /** The longest the heading service will extrapolate a reading forward */
+        public static double MAX_HEADING_EXTRAPOLATION_MS = 50;
 
         public static final double AUTO_DRIVE_SPEED = 0.3;
         public static final double AUTO_STRAFE_SPEED = 0.3;
         public static final double AUTO_TURN_SPEED = 0.5;
         public static double AUTO_HEADING_TOLERANCE = 5;
 
+        /** Whether DriveCommand and StrafeCommand follow a motion profile instead of using RUN_TO_POSITION */
+        public static boolean PROFILED_MOVES = true;
+        // Motion profile limits for driving and strafing, in inches per second (squared)
+        public static double PROFILE_DRIVE_MAX_VELOCITY = 40;
+        public static double PROFILE_STRAFE_MAX_VELOCITY = 30;
+        public static double PROFILE_MAX_ACCELERATION = 40;
+        // Feedforward on the profile's velocity and acceleration, and the static friction of the drive base, in motor power
+        public static double PROFILE_KS = 0.05;
+        public static double PROFILE_KV = 0.011;
+        public static double PROFILE_KA = 0.002;
+        // Feedback on the position error (power per inch) and velocity error (power per inch per second)
+        public static double PROFILE_KP = 0.05;
+        public static double PROFILE_KD = 0.002;
+        /** Power per degree used to keep the heading the same while driving or strafing */
+        public static double PROFILE_HEADING_KP = 0.02;
+        // A profiled move finishes once it is within both of these of the end of the move
+        public static double PROFILE_POSITION_TOLERANCE = 0.5;
+        public static double PROFILE_VELOCITY_TOLERANCE = 2;
+        /** How long after the profile ends to keep trying to settle before giving up, in seconds */
+        public static double PROFILE_SETTLE_TIMEOUT = 1;
+
+        /** Whether turns use the profiled heading controller instead of turning at a fixed speed */
+        public static boolean PROFILED_TURNS = true;
+        // Motion profile limits for turning, in degrees per second (squared)
+        public static double TURN_MAX_VELOCITY = 180;
+        public static double TURN_MAX_ACCELERATION = 360;
+        // Feedforward, static friction and PD feedback for turning, in motor power per degree (per second)
+        public static double TURN_KS = 0.06;
+        public static double TURN_KV = 0.0025;
+        public static double TURN_KA = 0.0003;
+        public static double TURN_KP = 0.02;
+        public static double TURN_KD = 0.001;
+        // A profiled turn finishes once it is within both of these of the target
+        public static double TURN_HEADING_TOLERANCE = 1;
+        public static double TURN_VELOCITY_TOLERANCE = 5;
+        /** How long after the turn profile ends to keep trying to settle before giving up, in seconds */
+        public static double TURN_SETTLE_TIMEOUT = 1;
+
         public static final double PULSES_PER_MOTOR_REV = 537.7;
         public static final double DRIVE_GEAR_REDUCTION = 1;
         public static final double WHEEL_DIAMETER_INCHES = 5.51181;
@@ -125,6 +299,32 @@ public class Constants {
 
         /** The tolerance for the PID controller for the elbow. */
         public static final double PID_POWER_TOLERANCE = 0.1;
+
+        /** Whether moves use the profiled controller with gravity feedforward instead of the PID controller */
+        public static boolean PROFILED_ELBOW = true;
+        /** Whether the elbow holds its position against gravity after a move or when the operator lets go */
+        public static boolean HOLD_ELBOW = true;
+
+        // Converts ticks to the angle of the arm, HORIZONTAL_POSITION is where the arm is level. The degrees per tick
+        // come from the hook servo levelling calibration in HangingSubsystem
+        public static double HORIZONTAL_POSITION = 3500;
+        public static double DEGREES_PER_TICK = 0.009;
+
+        /** The power needed to hold the arm level against gravity */
+        public static double ELBOW_KG = 0.12;
+        /** Feedforward on the profile's acceleration, in power per tick per second squared */
+        public static double ELBOW_KA = 0.00002;
+        // Feedback on the position error (power per tick) and velocity error (power per tick per second)
+        public static double ELBOW_KP = 0.002;
+        public static double ELBOW_KD = 0.0001;
+
+        // A profiled move finishes once it is within both of these of the target
+        public static double ELBOW_POSITION_TOLERANCE = 40;
+        public static double ELBOW_VELOCITY_TOLERANCE = 100;
+        /** How long after the profile ends to keep trying to settle before giving up, in seconds */
+        public static double ELBOW_SETTLE_TIMEOUT = 0.5;
+        /** The power used to find the limit switch after a profiled move to zero */
+        public static double ELBOW_HOMING_POWER = 0.3;
     }
 
     /** Constants for the IntakeSubsystem. */
@@ -183,6 +383,55 @@ public class Constants {
         public static final double PID_POWER_TOLERANCE = .3;
     }
 
+    /** Constants for the MatchRecorder. */
+    @Config
+    public static class RecorderConstants {
+        /** Whether every match is recorded, only read when the robot is built */
+        public static boolean ENABLED = true;
+        /** How often the recorded data is written to the file */
+        public static long FLUSH_PERIOD_MS = 100;
+        /** The size of the buffer between the loop and the file, about 100 seconds of records */
+        public static final int BUFFER_SIZE_BYTES = 1 << 20;
+        /** The folder the logs go in, under /sdcard/FIRST */
+        public static final String LOG_FOLDER = "MatchLogs";
+    }
+
+    /** Constants for the simulated robot, only used off the robot. */
+    public static class SimulationConstants {
+        /** How much simulated time passes each loop, in seconds */
+        public static final double SIM_LOOP_DT = 0.02;
+
+        public static final String VOLTAGE_SENSOR_NAME = "Control Hub";
+        public static final double NOMINAL_VOLTAGE = 12;
+
+        // Every motor is modelled as a goBILDA 5203 312 RPM
+        public static final double MOTOR_TICKS_PER_REV = 537.7;
+        public static final double MOTOR_FREE_SPEED_RPM = 312;
+        public static final double MOTOR_STALL_CURRENT = 9.2;
+        public static final double MOTOR_FREE_CURRENT = 0.25;
+        /** How quickly a motor reaches the velocity it wants, in seconds */
+        public static final double MOTOR_TIME_CONSTANT = 0.08;
+
+        /** How far the servos move per second, as a fraction of their range */
+        public static final double SERVO_SPEED = 2;
+
+        // Hard stops of the arm in encoder ticks, the limit switches are pressed within LIMIT_SWITCH_TICKS of zero
+        public static final double ELBOW_MAX_POSITION = 13000;
+        public static final double SLIDE_MAX_POSITION = 3000;
+        public static final double LIMIT_SWITCH_TICKS = 20;
+
+        // Distances between the wheels, in inches
+        public static final double SIM_TRACK_WIDTH = 14;
+        public static final double SIM_WHEEL_BASE = 12;
+
+        /** What the distance sensors read with nothing in front of them, in inches */
+        public static final double DISTANCE_SENSOR_OUT_OF_RANGE = 322;
+        /** Standard deviation of the distance sensor noise, in inches */
+        public static final double DISTANCE_SENSOR_NOISE = 0.3;
+        /** How often a distance reading comes back out of range for no reason */
+        public static final double DISTANCE_SENSOR_OUTLIER_CHANCE = 0.05;
+    }
+
     /** Constants for the WinchSubsystem. */
     public static class WinchConstants {
         public static final String WINCH_MOTOR_NAME = "winchMotor";
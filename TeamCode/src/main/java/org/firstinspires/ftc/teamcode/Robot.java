@@ -10,6 +10,12 @@ import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 import org.firstinspires.ftc.teamcode.commands.CommandManager;
+import org.firstinspires.ftc.teamcode.control.ControlExecutor;
+import org.firstinspires.ftc.teamcode.hardware.HubManager;
+import org.firstinspires.ftc.teamcode.profiling.LoopProfiler;
+import org.firstinspires.ftc.teamcode.profiling.ProfileSection;
+import org.firstinspires.ftc.teamcode.recording.MatchRecorder;
+import org.firstinspires.ftc.teamcode.recording.RecordType;
 import org.firstinspires.ftc.teamcode.subsystems.BoxSubsystem;
 import org.firstinspires.ftc.teamcode.subsystems.DistanceSensorSubsystem;
 import org.firstinspires.ftc.teamcode.subsystems.DriveSubsystem;
@@ -19,6 +25,8 @@ import org.firstinspires.ftc.teamcode.subsystems.HangingSubsystem;
 import org.firstinspires.ftc.teamcode.subsystems.IntakeSubsystem;
 import org.firstinspires.ftc.teamcode.subsystems.LEDSubsystem;
 import org.firstinspires.ftc.teamcode.subsystems.LinearSlideSubsystem;
+import org.firstinspires.ftc.teamcode.telemetry.TelemetryBoard;
+import org.firstinspires.ftc.teamcode.telemetry.TelemetryPublisher;
 
 /**
  * Represents all of the subsystems that make up the robot
@@ -34,6 +42,30 @@ public class Robot {
     /** The gamepad that controls the arm and intake */
     private final GamepadEx operatorGamepad;
 
+    /** Owns the hubs and their bulk read cache */
+    private final HubManager hubManager;
+
+    // Profiler sections for the whole loop and the command scheduler
+    private final ProfileSection runSection = LoopProfiler.section("Robot.run");
+    private final ProfileSection schedulerSection = LoopProfiler.section("CommandScheduler.run");
+
+    /** Runs the elbow and slide control loops on their own thread, null if they run in the main loop */
+    private final ControlExecutor controlExecutor;
+
+    /** The telemetry fields published in the background, null if telemetry is sent from the loop */
+    private final TelemetryBoard telemetryBoard;
+    private final TelemetryPublisher telemetryPublisher;
+
+    // The telemetry slots of the robot itself
+    private int stateSlot;
+    private int headingSlot;
+    private int writesSavedSlot;
+    private int loopTimeSlot;
+    private long lastRunNanos;
+
+    /** Records every loop to a log file, null if recording is turned off */
+    private final MatchRecorder matchRecorder;
+
     /** The box subsystem of the robot */
     private final BoxSubsystem boxSubsystem;
     /** The distance sensor subsystem of the robot */
@@ -86,15 +118,21 @@ public class Robot {
 
         gamepadEx = driverGamepad;
 
+        // Start profiling this op mode from nothing
+        LoopProfiler.reset();
+
+        // Switch the hubs to manual bulk caching before any subsystem reads from them
+        hubManager = new HubManager(opMode.hardwareMap);
+
         // Initialize the subsystems
         boxSubsystem = new BoxSubsystem(opMode.hardwareMap, opMode.telemetry);
         distanceSensorSubsystem = new DistanceSensorSubsystem(opMode.hardwareMap, opMode.telemetry);
-        driveSubsystem = new DriveSubsystem(opMode.hardwareMap, opMode.telemetry);
+        driveSubsystem = new DriveSubsystem(opMode.hardwareMap, opMode.telemetry, hubManager);
         droneSubsystem = new DroneSubsystem(opMode.hardwareMap, opMode.telemetry);
-        elbowSubsystem = new ElbowSubsystem(opMode.hardwareMap, opMode.telemetry);
-        intakeSubsystem = new IntakeSubsystem(opMode.hardwareMap, opMode.telemetry);
-        linearSlideSubsystem = new LinearSlideSubsystem(opMode.hardwareMap, opMode.telemetry);
-        hangingSubsystem = new HangingSubsystem(opMode.hardwareMap, opMode.telemetry);
+        elbowSubsystem = new ElbowSubsystem(opMode.hardwareMap, opMode.telemetry, hubManager);
+        intakeSubsystem = new IntakeSubsystem(opMode.hardwareMap, opMode.telemetry, hubManager);
+        linearSlideSubsystem = new LinearSlideSubsystem(opMode.hardwareMap, opMode.telemetry, hubManager);
+        hangingSubsystem = new HangingSubsystem(opMode.hardwareMap, opMode.telemetry, hubManager);
         ledSubsystem = new LEDSubsystem(opMode.hardwareMap, opMode.telemetry);
 
         // Initialize the command manager
@@ -103,9 +141,36 @@ public class Robot {
         // If we should, then bind the commands
         if (!manualMode) bindCommands();
 
+        // Start recording once the command scheduler has been reset by binding the commands
+        if (Constants.RecorderConstants.ENABLED) {
+            matchRecorder = new MatchRecorder(opMode.getClass().getSimpleName());
+            matchRecorder.start();
+            matchRecorder.recordCommands();
+        }
+        else matchRecorder = null;
+
         // If we should reset the encoders
         if (resetEncoders) resetEncoders();
 
+        // Move the elbow and slide control loops onto their own thread once nothing else will touch the motors
+        if (!manualMode && Constants.ControlConstants.CONTROL_THREAD) {
+            controlExecutor = new ControlExecutor(hubManager, Constants.ControlConstants.CONTROL_PERIOD_MS);
+            elbowSubsystem.runOn(controlExecutor);
+            linearSlideSubsystem.runOn(controlExecutor);
+            controlExecutor.start();
+        }
+        else controlExecutor = null;
+
+        if (!manualMode && Constants.TelemetryConstants.PIPELINE) {
+            telemetryBoard = new TelemetryBoard();
+            registerTelemetry();
+            telemetryPublisher = new TelemetryPublisher(telemetryBoard, opMode.telemetry);
+        }
+        else {
+            telemetryBoard = null;
+            telemetryPublisher = null;
+        }
+
         ledSubsystem.setPink();
     }
 
@@ -123,9 +188,13 @@ public class Robot {
         driveSubsystem.setDefaultCommand(commandManager.getDefaultDriveCommand());
 
         // Press driver BACK to reset gyro
-        Trigger resetGyroTrigger = new Trigger(() -> driverGamepad.getButton(GamepadKeys.Button.BACK));
+        Trigger resetGyroTrigger = new Trigger(() -> driverGamepad.getButton(GamepadKeys.Button.BACK) && !driverGamepad.getButton(GamepadKeys.Button.START));
         resetGyroTrigger.whenActive(commandManager.getResetGyroCommand());
 
+        // Press driver BACK and START together to fully re-initialize the gyro if it stops working, this pauses the robot
+        Trigger reinitializeGyroTrigger = new Trigger(() -> driverGamepad.getButton(GamepadKeys.Button.BACK) && driverGamepad.getButton(GamepadKeys.Button.START));
+        reinitializeGyroTrigger.whenActive(commandManager.getReinitializeGyroCommand());
+
         // Hold right bumper and press driver left dpad while in driving mode to snap to facing left side of field
         Trigger snapLeftTrigger = new Trigger(() -> driverGamepad.getButton(GamepadKeys.Button.RIGHT_BUMPER) && isJoystickClose(-0.5, 0));
         snapLeftTrigger.whenActive(commandManager.getSnapLeftCommand());
@@ -208,23 +277,61 @@ public class Robot {
         driveSubsystem.resetEncoder();
     }
 
-    /** Schedule any commands that run at the start of teleop mode. */
+    /** Schedule any commands that run at the start of teleop mode, and start publishing telemetry. */
     public void start() {
         commandManager.getSetupCommand().schedule();
+        if (telemetryPublisher != null) telemetryPublisher.start();
     }
 
     /**
      * Run the robot, including calling CommandScheduler.getInstance().run(), which polls the gamepad inputs and performs scheduled commands.
-     * Also prints data from the subsystems and updates the telemetry.
+     * Also prints data from the subsystems and updates the telemetry. Clears the bulk cache first so every read this loop is fresh,
+     * and flushes the buffered writes once the commands have run.
      */
     public void run() {
-        if (!manualMode)
+        runSection.begin();
+        hubManager.clearBulkCache();
+
+        if (!manualMode) {
+            schedulerSection.begin();
             CommandScheduler.getInstance().run();
+            schedulerSection.end();
+        }
+
+        // Send the motor and servo writes from this loop, skipping the ones that didn't change
+        hubManager.flushWrites();
 
+        record();
+        if (telemetryBoard != null) {
+            publishTelemetry();
+            runSection.end();
+            return;
+        }
         printData();
+        runSection.end();
+
+        LoopProfiler.printData(opMode.telemetry);
         opMode.telemetry.update();
     }
 
+    /** Stops the background threads started by the subsystems, call this once the op mode loop has ended. */
+    public void stop() {
+        if (telemetryPublisher != null) telemetryPublisher.stop();
+        if (controlExecutor != null) controlExecutor.stop();
+        distanceSensorSubsystem.stopSampling();
+        driveSubsystem.stopHeadingService();
+        if (matchRecorder != null) matchRecorder.stop();
+    }
+
+    /** Records the state of the robot and its subsystems for this loop, if recording is turned on. */
+    public void record() {
+        if (matchRecorder == null) return;
+        matchRecorder.begin(RecordType.ROBOT).putEnum(state).end();
+        elbowSubsystem.record(matchRecorder);
+        linearSlideSubsystem.record(matchRecorder);
+        distanceSensorSubsystem.record(matchRecorder);
+    }
+
     /** Perform things that happen at the start of manual. */
     public void startManual() {
         droneSubsystem.startPosition();
@@ -232,6 +339,8 @@ public class Robot {
 
     /** Controls the elbow, intake, slide, box, drone and drive subsystem manually, without any commands running or PID controllers. */
     public void runManually() {
+        hubManager.clearBulkCache();
+
         boolean usingFieldCentric = !isPressed(driverGamepad.getTrigger(GamepadKeys.Trigger.RIGHT_TRIGGER));
         double speedMultiplier = isPressed(driverGamepad.getTrigger(GamepadKeys.Trigger.LEFT_TRIGGER)) ? 0.3 : 1;
         driveSubsystem.drive(driverGamepad.getLeftY(), driverGamepad.getLeftX(), driverGamepad.getRightX(), usingFieldCentric, speedMultiplier);
@@ -240,6 +349,7 @@ public class Robot {
 
         // Elbow Subsystem (operator)
         // Move left joystick up to move the arm up, down to move down
+        // Nothing holds the arm in manual mode, the scheduler and its PID controllers never run here
         if (isPressed(operatorGamepad.getLeftY())) elbowSubsystem.moveManually(operatorGamepad.getLeftY());
         else elbowSubsystem.stopMotor();
 
@@ -278,19 +388,53 @@ public class Robot {
 
         if (operatorGamepad.getButton(GamepadKeys.Button.LEFT_STICK_BUTTON)) boxSubsystem.disableLights();
 
+        hubManager.flushWrites();
+
+        record();
         printData();
         opMode.telemetry.update();
     }
 
+    /** Adds the fields of the robot and its subsystems to the telemetry board. */
+    private void registerTelemetry() {
+        stateSlot = telemetryBoard.addEnum("Robot state", RobotState.values());
+        headingSlot = telemetryBoard.addNumber("Gyro heading", "%.1f");
+        writesSavedSlot = telemetryBoard.addNumber("Writes saved", "%.0f");
+        loopTimeSlot = telemetryBoard.addNumber("Loop time (ms)", "%.1f");
+        if (controlExecutor != null) controlExecutor.registerTelemetry(telemetryBoard);
+        elbowSubsystem.registerTelemetry(telemetryBoard);
+        linearSlideSubsystem.registerTelemetry(telemetryBoard);
+        distanceSensorSubsystem.registerTelemetry(telemetryBoard);
+    }
+
+    /** Writes this loop's values into the telemetry board, the publisher sends them in the background. */
+    private void publishTelemetry() {
+        long now = System.nanoTime();
+        if (lastRunNanos != 0) telemetryBoard.set(loopTimeSlot, (now - lastRunNanos) / 1e6);
+        lastRunNanos = now;
+
+        telemetryBoard.set(stateSlot, state);
+        telemetryBoard.set(headingSlot, driveSubsystem.getHeading());
+        telemetryBoard.set(writesSavedSlot, hubManager.getSavedWrites());
+        if (controlExecutor != null) controlExecutor.publishTelemetry(telemetryBoard);
+        elbowSubsystem.publishTelemetry(telemetryBoard);
+        linearSlideSubsystem.publishTelemetry(telemetryBoard);
+        distanceSensorSubsystem.publishTelemetry(telemetryBoard);
+        // The profiler adds a slot for each section once it has been timed
+        LoopProfiler.publishTelemetry(telemetryBoard);
+    }
+
     public void printData() {
         opMode.telemetry.addData("Robot state", state);
         opMode.telemetry.addData("Gyro heading: ",  driveSubsystem.getHeading());
-
-//        elbowSubsystem.printData();
-//        linearSlideSubsystem.printData();
-        distanceSensorSubsystem.printData();
-//        boxSubsystem.printData();
-//        intakeSubsystem.printData();
+        opMode.telemetry.addData("Writes saved", hubManager.getSavedWrites());
+        if (controlExecutor != null) controlExecutor.printData(opMode.telemetry);
+
+//        elbowSubsystem.printProfiledData();
+//        linearSlideSubsystem.printProfiledData();
+        distanceSensorSubsystem.printProfiledData();
+//        boxSubsystem.printProfiledData();
+//        intakeSubsystem.printProfiledData();
     }
 
     /**
@@ -337,6 +481,10 @@ public class Robot {
         return false;
     }
 
+    public HubManager getHubManager() {
+        return hubManager;
+    }
+
     public GamepadEx getOperatorGamepad() {
         return operatorGamepad;
     }
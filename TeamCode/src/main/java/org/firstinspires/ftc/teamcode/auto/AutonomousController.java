@@ -3,10 +3,20 @@ package org.firstinspires.ftc.teamcode.auto;
 import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.CommandScheduler;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+import com.qualcomm.robotcore.util.RobotLog;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.Constants.AutoConstants;
+import org.firstinspires.ftc.teamcode.Constants.CameraConstants;
 import org.firstinspires.ftc.teamcode.Robot;
+import org.firstinspires.ftc.teamcode.commands.AwaitCommand;
 import org.firstinspires.ftc.teamcode.commands.CommandManager;
+import org.firstinspires.ftc.teamcode.commands.SettleCommand;
+import org.firstinspires.ftc.teamcode.profiling.LoopProfiler;
+import org.firstinspires.ftc.teamcode.profiling.ProfileSection;
+import org.firstinspires.ftc.teamcode.vision.TeamPropCamera;
+
+import java.io.IOException;
 
 /**
  * A class that is used to move the robot and arm during autonomous.
@@ -29,6 +39,16 @@ public class AutonomousController {
     private AutonomousState state;
 
     private final AutoPosition autoPosition;
+    /** Builds the trajectory routes, null if this auto position still uses the drive, strafe and turn commands */
+    private final TrajectoryRoutes trajectoryRoutes;
+    /** The routes read from the route file, null if we are following trajectories or the file couldn't be used */
+    private final RoutePlan routePlan;
+    /** Picks the spike mark from the distance sensor samples taken on the way to the spike marks */
+    private final SpikeMarkVoter spikeMarkVoter;
+    /** Looks for the team prop during init, null if the camera is turned off or the robot has no webcam */
+    private final TeamPropCamera teamPropCamera;
+
+    private final ProfileSection schedulerSection = LoopProfiler.section("CommandScheduler.run");
 
     /**
      * Constructs a new AutonomousController, which initialized a new robot, command manager, and auto position.
@@ -46,17 +66,56 @@ public class AutonomousController {
 
         commandManager = new CommandManager(robot);
         autoPosition = new AutoPosition(isBlueAlliance, isPlacingYellow, isUpstage, isParkingFromDownstage);
+        trajectoryRoutes = AutoConstants.USE_TRAJECTORIES && TrajectoryRoutes.supports(autoPosition)
+                ? new TrajectoryRoutes(opMode.hardwareMap, robot, autoPosition) : null;
+        spikeMarkVoter = new SpikeMarkVoter(robot.getDistanceSensorSubsystem(), isBlueAlliance);
+        teamPropCamera = CameraConstants.USE_CAMERA ? TeamPropCamera.open(opMode.hardwareMap, isBlueAlliance) : null;
+        routePlan = trajectoryRoutes == null && AutoConstants.USE_ROUTE_FILE ? loadRoutePlan() : null;
+        SettleCommand.resetTotalSaved();
+        AwaitCommand.resetWaiting();
 
         if (isBlueAlliance) robot.getLedSubsystem().setSolidBlue();
         else robot.getLedSubsystem().setSolidRed();
     }
 
     /**
-     * Schedules the first command used in autonomous.
+     * Reads the route file and shows where the routes came from during init. If the file has a mistake in it, the
+     * mistake is shown and the routes built into the code are used instead.
+     *
+     * @return The route plan, or null if the route file couldn't be used
+     */
+    private RoutePlan loadRoutePlan() {
+        try {
+            RoutePlan plan = RoutePlan.load(autoPosition);
+            telemetry.addData("Routes", plan.getSource());
+            return plan;
+        } catch (IOException | RuntimeException e) {
+            RobotLog.ee("AutonomousController", e, "Couldn't use the route file");
+            telemetry.addData("Route file error, using the built in commands", e.getMessage());
+            return null;
+        } finally {
+            telemetry.update();
+        }
+    }
+
+    /**
+     * Gives the voter the spike mark the camera saw during init and closes the camera, then schedules the first
+     * command used in autonomous.
      */
     public void start() {
+        // The camera has been watching the spike marks since init, its last frame votes once the robot arrives
+        if (teamPropCamera != null) {
+            AutoPosition.SpikeMark spikeMark = teamPropCamera.getSpikeMark();
+            if (spikeMark != null) spikeMarkVoter.addCameraVote(spikeMark, teamPropCamera.isSeen());
+            teamPropCamera.close();
+        }
         state = AutonomousState.MOVING_TO_SPIKE_MARKS;
-        scheduleCommand(commandManager.getAutoSetupCommand());
+        if (trajectoryRoutes != null) scheduleCommand(trajectoryRoutes.getSetupCommand(spikeMarkVoter));
+        else if (routePlan != null) scheduleCommand(routePlan.getCommand(RoutePlan.SETUP, autoPosition, robot, spikeMarkVoter));
+        else scheduleCommand(commandManager.getAutoSetupCommand(spikeMarkVoter));
+        // The arm runs next to the drive, so it isn't the current command that the states wait on
+        Command armCommand = trajectoryRoutes != null ? trajectoryRoutes.getArmCommand() : null;
+        if (armCommand != null) CommandScheduler.getInstance().schedule(armCommand);
     }
 
     /**
@@ -64,31 +123,36 @@ public class AutonomousController {
      * Also runs the command scheduler, and updates the telemetry.
      */
     public void run() {
+        robot.getHubManager().clearBulkCache();
+
         switch (state) {
             case MOVING_TO_SPIKE_MARKS:
+                // Vote before the setup command runs, so its sense wait sees this loop's sample
+                spikeMarkVoter.update();
                 if (canContinue()) {
-                    if (robot.getDistanceSensorSubsystem().isLeftBlocked())
-                        autoPosition.setSpikeMark(autoPosition.isBlue ? AutoPosition.SpikeMark.UPSTAGE : AutoPosition.SpikeMark.DOWNSTAGE);
-                    else if (robot.getDistanceSensorSubsystem().isRightBlocked())
-                        autoPosition.setSpikeMark(autoPosition.isBlue ? AutoPosition.SpikeMark.DOWNSTAGE : AutoPosition.SpikeMark.UPSTAGE);
-                    else
-                        autoPosition.setSpikeMark(AutoPosition.SpikeMark.MIDDLE);
+                    autoPosition.setSpikeMark(spikeMarkVoter.getSpikeMark());
                     state = AutonomousState.PLACING_PURPLE;
-                    scheduleCommand(commandManager.getAutoDriveAndPlacePurpleCommand(autoPosition));
+                    if (trajectoryRoutes != null) scheduleCommand(trajectoryRoutes.getPlacePurpleCommand(autoPosition));
+                    else if (routePlan != null) scheduleCommand(routePlan.getCommand(RoutePlan.PURPLE, autoPosition, robot, spikeMarkVoter));
+                    else scheduleCommand(commandManager.getAutoDriveAndPlacePurpleCommand(autoPosition));
                 }
                 break;
             case PLACING_PURPLE:
                 if (canContinue()) {
                     // AutoDriveFromPurpleCommand is the last command that gets run for certain
                     state = autoPosition.isPlacingYellow ? AutonomousState.MOVING_TO_BACKDROP : AutonomousState.IDLE;
-                    if (autoPosition.isUpstage) scheduleCommand(commandManager.getAutoDriveFromPurpleCommand(autoPosition));
+                    if (trajectoryRoutes != null) scheduleCommand(trajectoryRoutes.getFromPurpleCommand(autoPosition));
+                    else if (routePlan != null) scheduleCommand(routePlan.getCommand(RoutePlan.AFTER_PURPLE, autoPosition, robot, spikeMarkVoter));
+                    else if (autoPosition.isUpstage) scheduleCommand(commandManager.getAutoDriveFromPurpleCommand(autoPosition));
                     else scheduleCommand(commandManager.getParkAtBackdropCommand(autoPosition));
                 }
                 break;
             case MOVING_TO_BACKDROP:
                 if (canContinue()) {
                     state = AutonomousState.MOVING_TO_PLACE_YELLOW;
-                    scheduleCommand(commandManager.getAutoPlaceYellowAndHideCommand(autoPosition));
+                    if (trajectoryRoutes != null) scheduleCommand(trajectoryRoutes.getPlaceYellowAndHideCommand(autoPosition));
+                    else if (routePlan != null) scheduleCommand(routePlan.getCommand(RoutePlan.YELLOW, autoPosition, robot, spikeMarkVoter));
+                    else scheduleCommand(commandManager.getAutoPlaceYellowAndHideCommand(autoPosition));
                 }
 
                 break;
@@ -101,15 +165,38 @@ public class AutonomousController {
             case IDLE:
                 break;
         }
+        schedulerSection.begin();
         CommandScheduler.getInstance().run();
+        schedulerSection.end();
+        robot.getHubManager().flushWrites();
+        robot.record();
         telemetry.addData("State", state);
         telemetry.addData("Current command", currentCommand.getName());
-//        robot.getLinearSlideSubsystem().printData();
+        telemetry.addData("Settle time saved (ms)", SettleCommand.getTotalSavedMs());
+        if (trajectoryRoutes != null) telemetry.addData("Trajectory precompute (ms)", trajectoryRoutes.getPrecomputeMs());
+        if (routePlan != null) telemetry.addData("Routes", routePlan.getSource());
+        telemetry.addData("Waiting on", AwaitCommand.getWaiting());
+        telemetry.addData("Spike mark", "%s (upstage %.1f, middle %.1f, downstage %.1f)", spikeMarkVoter.getSpikeMark(),
+                spikeMarkVoter.getConfidence(AutoPosition.SpikeMark.UPSTAGE),
+                spikeMarkVoter.getConfidence(AutoPosition.SpikeMark.MIDDLE),
+                spikeMarkVoter.getConfidence(AutoPosition.SpikeMark.DOWNSTAGE));
+//        robot.getLinearSlideSubsystem().printProfiledData();
+        LoopProfiler.printData(telemetry);
         telemetry.update();
     }
 
+    /** Stops the robot's background threads, call this once autonomous has ended. */
+    public void stop() {
+        if (teamPropCamera != null) teamPropCamera.close();
+        robot.stop();
+    }
+
+    /** @return True once the last command of autonomous has finished */
+    public boolean isFinished() {
+        return state == AutonomousState.IDLE && canContinue();
+    }
+
     /** @return The autonomous position, which contains information about our starting position */
-    @SuppressWarnings("unused")
     public AutoPosition.SpikeMark getSpikeMark() {
         return autoPosition.spikeMark;
     }
@@ -0,0 +1,386 @@
+package org.firstinspires.ftc.teamcode.auto;
+
+import static org.firstinspires.ftc.teamcode.Constants.AutoConstants.*;
+
+import com.arcrobotics.ftclib.command.Command;
+import com.arcrobotics.ftclib.command.InstantCommand;
+import com.arcrobotics.ftclib.command.SequentialCommandGroup;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.R;
+import org.firstinspires.ftc.teamcode.Robot;
+import org.firstinspires.ftc.teamcode.commands.AutoPlacePurpleCommand;
+import org.firstinspires.ftc.teamcode.commands.AutoPlaceYellowCommand;
+import org.firstinspires.ftc.teamcode.commands.DelayCommand;
+import org.firstinspires.ftc.teamcode.commands.MoveArmCommand;
+import org.firstinspires.ftc.teamcode.commands.MoveCommand;
+import org.firstinspires.ftc.teamcode.commands.MoveCommand.MovementType;
+import org.firstinspires.ftc.teamcode.commands.MoveElbowCommand;
+import org.firstinspires.ftc.teamcode.commands.MoveSlideCommand;
+import org.firstinspires.ftc.teamcode.commands.SenseCommand;
+import org.firstinspires.ftc.teamcode.profiling.LoopProfiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The drive, strafe and turn autonomous routes, read from a route file instead of being written as commands. The file
+ * is read and checked once during init, so a mistake in it shows up before the match instead of halfway through.
+ * The file on the robot at /sdcard/FIRST/{@link org.firstinspires.ftc.teamcode.Constants.AutoConstants#ROUTE_FILE}
+ * is used if there is one, otherwise the one built into the app (res/raw/auto_routes.txt). Routes can be changed
+ * between matches by pushing a new file to the robot and re-initializing the op mode, without rebuilding.
+ * <p>
+ * A route file is a list of legs, each followed by its steps, one per line. Anything after a # is a comment.
+ * <pre>
+ * leg purple spike=UPSTAGE start=upstage
+ * drive -18
+ * strafe -8
+ * heading 0
+ * purple
+ * </pre>
+ * A leg is used for an auto position if all of its conditions match, the first matching leg wins. The conditions are
+ * {@code spike=UPSTAGE|MIDDLE|DOWNSTAGE}, {@code start=upstage|downstage}, {@code yellow=yes|no} and
+ * {@code parking=yes|no}. The steps are:
+ * <ul>
+ *     <li>{@code drive}, {@code strafe} or {@code turn} a distance in inches or an angle in degrees (counter clockwise),
+ *     and {@code heading} to turn to a heading, each followed by an optional longest settle time in milliseconds</li>
+ *     <li>{@code wait} some milliseconds</li>
+ *     <li>{@code sense} to wait up to some milliseconds for the team prop to be found, the setup leg should end with
+ *     this so the spike mark is picked from where the robot stopped</li>
+ *     <li>{@code arm}, {@code elbow} or {@code slide} to move to positions in pulses, -1 leaves a joint where it is</li>
+ *     <li>{@code intake up|down} and {@code box open|close}</li>
+ *     <li>{@code purple} and {@code yellow} to place the pixels</li>
+ * </ul>
+ * Routes are written for the blue alliance, strafes, turns and headings are mirrored for red.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class RoutePlan {
+    /** The legs the autonomous controller runs, in order */
+    public static final String SETUP = "setup";
+    public static final String PURPLE = "purple";
+    public static final String AFTER_PURPLE = "afterPurple";
+    public static final String YELLOW = "yellow";
+
+    private enum StepType {
+        DRIVE(1, 2), STRAFE(1, 2), TURN(1, 2), HEADING(1, 2), WAIT(1, 1), ARM(2, 2), ELBOW(1, 1), SLIDE(1, 1),
+        INTAKE(1, 1), BOX(1, 1), SENSE(1, 1), PURPLE(0, 0), YELLOW(0, 0);
+
+        final int minArguments;
+        final int maxArguments;
+
+        StepType(int minArguments, int maxArguments) {
+            this.minArguments = minArguments;
+            this.maxArguments = maxArguments;
+        }
+    }
+
+    /** One step of a leg, checked when the file is read. */
+    private static final class Step {
+        final StepType type;
+        /** The numbers after the step, or 1/0 for up/down and open/close */
+        final double[] values;
+
+        Step(StepType type, double[] values) {
+            this.type = type;
+            this.values = values;
+        }
+    }
+
+    /** A leg and the conditions it is used in, a null condition matches anything. */
+    private static final class Leg {
+        final String name;
+        final AutoPosition.SpikeMark spikeMark;
+        final Boolean isUpstage;
+        final Boolean isPlacingYellow;
+        final Boolean isParking;
+        final Step[] steps;
+
+        Leg(String name, AutoPosition.SpikeMark spikeMark, Boolean isUpstage, Boolean isPlacingYellow, Boolean isParking, Step[] steps) {
+            this.name = name;
+            this.spikeMark = spikeMark;
+            this.isUpstage = isUpstage;
+            this.isPlacingYellow = isPlacingYellow;
+            this.isParking = isParking;
+            this.steps = steps;
+        }
+
+        boolean matches(String name, AutoPosition autoPosition) {
+            return this.name.equals(name)
+                    && (spikeMark == null || spikeMark == autoPosition.spikeMark)
+                    && (isUpstage == null || isUpstage == autoPosition.isUpstage)
+                    && (isPlacingYellow == null || isPlacingYellow == autoPosition.isPlacingYellow)
+                    && (isParking == null || isParking == autoPosition.isParkingFromDownstage);
+        }
+    }
+
+    private final List<Leg> legs;
+    private final String source;
+
+    private RoutePlan(List<Leg> legs, String source) {
+        this.legs = Collections.unmodifiableList(legs);
+        this.source = source;
+    }
+
+    /**
+     * Reads the route file on the robot, or the built in one if there isn't one, and checks that it has every leg the
+     * auto position needs for every spike mark.
+     *
+     * @param autoPosition The starting auto position, the spike mark doesn't need to be known yet
+     * @return The checked route plan
+     * @throws IOException If the file can't be read
+     * @throws IllegalArgumentException If the file has a mistake in it, or is missing a leg
+     */
+    public static RoutePlan load(AutoPosition autoPosition) throws IOException {
+        File file = new File(AppUtil.ROOT_FOLDER, ROUTE_FILE);
+        RoutePlan plan;
+        if (file.exists()) {
+            try (InputStream input = new FileInputStream(file)) {
+                plan = parse(input, file.getPath());
+            }
+        } else {
+            try (InputStream input = AppUtil.getDefContext().getResources().openRawResource(R.raw.auto_routes)) {
+                plan = parse(input, "built in routes");
+            }
+        }
+        plan.validate(autoPosition);
+        return plan;
+    }
+
+    /**
+     * Reads a route file.
+     *
+     * @param input The route file
+     * @param source Where the file came from, shown in errors and the telemetry
+     * @return The route plan, not yet checked for missing legs
+     * @throws IOException If the file can't be read
+     * @throws IllegalArgumentException If a line of the file has a mistake in it
+     */
+    public static RoutePlan parse(InputStream input, String source) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<Leg> legs = new ArrayList<>();
+        String[] header = null;
+        int headerLine = 0;
+        List<Step> steps = new ArrayList<>();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            String[] words = line.split("\\s+");
+            if (words[0].equals("leg")) {
+                if (header != null) addLeg(legs, header, headerLine, steps, source);
+                header = words;
+                headerLine = lineNumber;
+                steps.clear();
+                continue;
+            }
+            try {
+                if (header == null) throw new IllegalArgumentException("step before the first leg");
+                steps.add(parseStep(words));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(source + " line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        if (header == null) throw new IllegalArgumentException(source + " has no legs");
+        addLeg(legs, header, headerLine, steps, source);
+        return new RoutePlan(legs, source);
+    }
+
+    /** Reads a leg once all of its steps have been read, errors point at the leg line. */
+    private static void addLeg(List<Leg> legs, String[] header, int headerLine, List<Step> steps, String source) {
+        try {
+            legs.add(parseLeg(header, steps));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(source + " line " + headerLine + ": " + e.getMessage());
+        }
+    }
+
+    /** Reads a leg line and the conditions on it. */
+    private static Leg parseLeg(String[] words, List<Step> steps) {
+        if (words.length < 2) throw new IllegalArgumentException("leg has no name");
+        String name = words[1];
+        if (!name.equals(SETUP) && !name.equals(PURPLE) && !name.equals(AFTER_PURPLE) && !name.equals(YELLOW))
+            throw new IllegalArgumentException("unknown leg '" + name + "'");
+        if (steps.isEmpty()) throw new IllegalArgumentException("leg '" + name + "' has no steps");
+
+        AutoPosition.SpikeMark spikeMark = null;
+        Boolean isUpstage = null, isPlacingYellow = null, isParking = null;
+        for (int i = 2; i < words.length; i++) {
+            String[] condition = words[i].split("=", 2);
+            if (condition.length != 2) throw new IllegalArgumentException("condition '" + words[i] + "' should be key=value");
+            switch (condition[0]) {
+                case "spike":
+                    try {
+                        spikeMark = AutoPosition.SpikeMark.valueOf(condition[1].toUpperCase(Locale.US));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("unknown spike mark '" + condition[1] + "'");
+                    }
+                    break;
+                case "start":
+                    isUpstage = parseChoice(condition[1], "upstage", "downstage");
+                    break;
+                case "yellow":
+                    isPlacingYellow = parseChoice(condition[1], "yes", "no");
+                    break;
+                case "parking":
+                    isParking = parseChoice(condition[1], "yes", "no");
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown condition '" + condition[0] + "'");
+            }
+        }
+        return new Leg(name, spikeMark, isUpstage, isPlacingYellow, isParking, steps.toArray(new Step[0]));
+    }
+
+    /** Reads a step line. */
+    private static Step parseStep(String[] words) {
+        StepType type;
+        try {
+            type = StepType.valueOf(words[0].toUpperCase(Locale.US));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown step '" + words[0] + "'");
+        }
+        int arguments = words.length - 1;
+        if (arguments < type.minArguments || arguments > type.maxArguments)
+            throw new IllegalArgumentException("'" + words[0] + "' takes " + (type.minArguments == type.maxArguments
+                    ? type.minArguments : type.minArguments + " or " + type.maxArguments) + " values");
+
+        double[] values = new double[arguments];
+        for (int i = 0; i < arguments; i++) {
+            if (type == StepType.INTAKE) values[i] = parseChoice(words[i + 1], "up", "down") ? 1 : 0;
+            else if (type == StepType.BOX) values[i] = parseChoice(words[i + 1], "open", "close") ? 1 : 0;
+            else {
+                try {
+                    values[i] = Double.parseDouble(words[i + 1]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("'" + words[i + 1] + "' isn't a number");
+                }
+            }
+        }
+        return new Step(type, values);
+    }
+
+    /** @return True for the first choice, false for the second */
+    private static boolean parseChoice(String word, String yes, String no) {
+        if (word.equals(yes)) return true;
+        if (word.equals(no)) return false;
+        throw new IllegalArgumentException("'" + word + "' should be " + yes + " or " + no);
+    }
+
+    /**
+     * Checks that there is a leg for everything the autonomous controller will run, for every spike mark.
+     *
+     * @param autoPosition The starting auto position, the spike mark doesn't need to be known yet
+     * @throws IllegalArgumentException If a leg is missing
+     */
+    private void validate(AutoPosition autoPosition) {
+        for (AutoPosition.SpikeMark spikeMark : AutoPosition.SpikeMark.values()) {
+            AutoPosition position = new AutoPosition(spikeMark, autoPosition.isBlue, autoPosition.isPlacingYellow,
+                    autoPosition.isUpstage, autoPosition.isParkingFromDownstage);
+            checkLeg(SETUP, position);
+            checkLeg(PURPLE, position);
+            checkLeg(AFTER_PURPLE, position);
+            if (autoPosition.isPlacingYellow) checkLeg(YELLOW, position);
+        }
+    }
+
+    private void checkLeg(String name, AutoPosition autoPosition) {
+        if (findLeg(name, autoPosition) == null)
+            throw new IllegalArgumentException(source + " has no '" + name + "' leg for the " + autoPosition.spikeMark + " spike mark");
+    }
+
+    /** @return The first leg that matches, or null if there isn't one */
+    private Leg findLeg(String name, AutoPosition autoPosition) {
+        for (Leg leg : legs) {
+            if (leg.matches(name, autoPosition)) return leg;
+        }
+        return null;
+    }
+
+    /** @return Where the routes were read from */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Creates the command that runs a leg. The commands are made when the leg starts since some of them read the
+     * robot when they are made.
+     *
+     * @param name The name of the leg
+     * @param autoPosition The starting auto position, with the spike mark set if the leg needs it
+     * @param robot The robot to run the leg on
+     * @param voter The voter the autonomous controller is updating, used by the sense step
+     * @return The command that runs the steps of the leg one after another
+     */
+    public Command getCommand(String name, AutoPosition autoPosition, Robot robot, SpikeMarkVoter voter) {
+        Leg leg = findLeg(name, autoPosition);
+        if (leg == null) throw new IllegalStateException("No '" + name + "' leg for " + autoPosition.spikeMark);
+
+        Command[] commands = new Command[leg.steps.length];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = getStepCommand(leg.steps[i], autoPosition, robot, voter);
+        }
+        return LoopProfiler.profile("Route " + name, new SequentialCommandGroup(commands));
+    }
+
+    private static Command getStepCommand(Step step, AutoPosition autoPosition, Robot robot, SpikeMarkVoter voter) {
+        double[] values = step.values;
+        switch (step.type) {
+            case DRIVE:
+                return move(robot, MovementType.DRIVE, values[0], values);
+            case STRAFE:
+                return move(robot, MovementType.STRAFE, autoPosition.flip(values[0]), values);
+            case TURN:
+                return move(robot, MovementType.TURN, autoPosition.flip(values[0]), values);
+            case HEADING:
+                // Corrected slowly like the built in routes, the correction does nothing for profiled turns
+                return new SequentialCommandGroup(
+                        move(robot, MovementType.TURN_TO_HEADING, autoPosition.flip(values[0]), values),
+                        move(robot, MovementType.SLOW_TURN_TO_HEADING, autoPosition.flip(values[0]), values));
+            case WAIT:
+                return new DelayCommand((long) values[0]);
+            case ARM:
+                return new MoveArmCommand(robot.getElbowSubsystem(), robot.getLinearSlideSubsystem(), values[0], values[1]);
+            case ELBOW:
+                return new MoveElbowCommand(robot.getElbowSubsystem(), values[0]);
+            case SLIDE:
+                return new MoveSlideCommand(robot.getLinearSlideSubsystem(), values[0]);
+            case INTAKE:
+                return values[0] == 1
+                        ? new InstantCommand(robot.getIntakeSubsystem()::upPosition, robot.getIntakeSubsystem())
+                        : new InstantCommand(robot.getIntakeSubsystem()::downPosition, robot.getIntakeSubsystem());
+            case BOX:
+                return values[0] == 1
+                        ? new InstantCommand(robot.getBoxSubsystem()::openBox, robot.getBoxSubsystem())
+                        : new InstantCommand(robot.getBoxSubsystem()::closeBox, robot.getBoxSubsystem());
+            case SENSE:
+                return new SenseCommand(voter, (long) values[0]);
+            case PURPLE:
+                return new AutoPlacePurpleCommand(robot.getIntakeSubsystem());
+            default:
+                return new AutoPlaceYellowCommand(robot.getElbowSubsystem(), robot.getLinearSlideSubsystem(), robot.getBoxSubsystem(), robot.getDriveSubsystem());
+        }
+    }
+
+    /** @return A move command, with the settle time from the step if it has one */
+    private static Command move(Robot robot, MovementType movementType, double value, double[] values) {
+        return values.length > 1
+                ? new MoveCommand(robot.getDriveSubsystem(), movementType, value, (long) values[1])
+                : new MoveCommand(robot.getDriveSubsystem(), movementType, value);
+    }
+}
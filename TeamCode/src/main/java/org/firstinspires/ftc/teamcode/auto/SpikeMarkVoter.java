@@ -0,0 +1,123 @@
+package org.firstinspires.ftc.teamcode.auto;
+
+import static org.firstinspires.ftc.teamcode.Constants.CameraConstants.CAMERA_UNSEEN_VOTE;
+import static org.firstinspires.ftc.teamcode.Constants.CameraConstants.CAMERA_VOTE;
+import static org.firstinspires.ftc.teamcode.Constants.DistanceSensorConstants.*;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.teamcode.auto.AutoPosition.SpikeMark;
+import org.firstinspires.ftc.teamcode.subsystems.DistanceSensorSubsystem;
+
+/**
+ * Works out which spike mark the team prop is on from every distance sensor sample taken on the way to the spike
+ * marks, instead of from one reading once the robot has stopped. Each new sample votes for a spike mark, and the
+ * confidence in each spike mark decays a little with every sample, so a single bad reading can't pick one.
+ * <p>
+ * A side spike mark is picked as soon as its confidence crosses the threshold, even if the robot is still driving.
+ * The middle spike mark is only picked once the robot has arrived, since both sensors see nothing for most of the
+ * drive whichever spike mark the prop is on.
+ * <p>
+ * If the webcam saw the team prop during init, its spike mark gets some confidence once the robot arrives, so the
+ * sensors only have to agree with it instead of picking a spike mark on their own. It is added on arrival rather than
+ * at the start, so it doesn't decay away with the samples taken on the drive.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SpikeMarkVoter {
+    private static final SpikeMark[] SPIKE_MARKS = SpikeMark.values();
+
+    private final DistanceSensorSubsystem distanceSensorSubsystem;
+    private final boolean isBlue;
+
+    /** The confidence in each spike mark, indexed by ordinal */
+    private final double[] confidence = new double[SPIKE_MARKS.length];
+    /** The last sample that voted, 0 is before the first sample */
+    private long lastSample;
+    private int votes;
+    private boolean arrived;
+    /** The spike mark the camera saw during init, null if it didn't see one */
+    private SpikeMark cameraSpikeMark;
+    /** The confidence the camera's spike mark gets on arrival */
+    private double cameraVote;
+    /** The spike mark that was picked, null until one crosses the threshold */
+    private SpikeMark decision;
+
+    /**
+     * Creates a voter, call {@link #update()} every loop while the robot is driving to the spike marks.
+     *
+     * @param distanceSensorSubsystem Reference to the distanceSensorSubsystem, only read from
+     * @param isBlue If we are on the blue alliance, which decides which spike mark each sensor looks at
+     */
+    public SpikeMarkVoter(DistanceSensorSubsystem distanceSensorSubsystem, boolean isBlue) {
+        this.distanceSensorSubsystem = distanceSensorSubsystem;
+        this.isBlue = isBlue;
+    }
+
+    /** Votes with the latest sample if the sensors have been read since the last vote. */
+    public void update() {
+        if (decision != null) return;
+        long sample = distanceSensorSubsystem.getSampleCount();
+        if (sample == lastSample) return;
+        lastSample = sample;
+
+        // The left sensor wins if both are blocked, like the single reading did
+        SpikeMark vote;
+        if (distanceSensorSubsystem.isLeftBlocked()) vote = isBlue ? SpikeMark.UPSTAGE : SpikeMark.DOWNSTAGE;
+        else if (distanceSensorSubsystem.isRightBlocked()) vote = isBlue ? SpikeMark.DOWNSTAGE : SpikeMark.UPSTAGE;
+        else vote = SpikeMark.MIDDLE;
+
+        votes++;
+        for (SpikeMark spikeMark : SPIKE_MARKS) {
+            int i = spikeMark.ordinal();
+            confidence[i] = confidence[i] * VOTE_DECAY + (spikeMark == vote ? 1 : 0);
+        }
+        if (confidence[vote.ordinal()] >= VOTE_THRESHOLD && (vote != SpikeMark.MIDDLE || arrived)) {
+            decision = vote;
+            RobotLog.ii("SpikeMarkVoter", "%s after %d votes, %s", vote, votes, arrived ? "after arriving" : "while driving");
+        }
+    }
+
+    /**
+     * Adds the spike mark the camera saw during init, its confidence is added when the robot arrives.
+     *
+     * @param spikeMark The spike mark the camera saw
+     * @param seen False if the camera didn't see the prop and only guessed the spike mark it can't see
+     */
+    public void addCameraVote(SpikeMark spikeMark, boolean seen) {
+        cameraSpikeMark = spikeMark;
+        cameraVote = seen ? CAMERA_VOTE : CAMERA_UNSEEN_VOTE;
+        RobotLog.ii("SpikeMarkVoter", "Camera %s %s", seen ? "saw" : "guessed", spikeMark);
+    }
+
+    /**
+     * Tells the voter the robot has arrived at the spike marks. The middle votes from the drive are thrown out, so the
+     * middle spike mark is only picked once the sensors have seen nothing from where the robot stopped. Then the
+     * camera's vote is added at full weight.
+     */
+    public void arrive() {
+        arrived = true;
+        confidence[SpikeMark.MIDDLE.ordinal()] = 0;
+        if (cameraSpikeMark != null) confidence[cameraSpikeMark.ordinal()] += cameraVote;
+    }
+
+    /** @return True once a spike mark has crossed the threshold */
+    public boolean isDecided() {
+        return decision != null;
+    }
+
+    /** @return The spike mark that was picked, or the most likely one if none has crossed the threshold yet */
+    public SpikeMark getSpikeMark() {
+        if (decision != null) return decision;
+        SpikeMark best = SpikeMark.MIDDLE;
+        for (SpikeMark spikeMark : SPIKE_MARKS) {
+            if (confidence[spikeMark.ordinal()] > confidence[best.ordinal()]) best = spikeMark;
+        }
+        return best;
+    }
+
+    /** @return The confidence in a spike mark */
+    public double getConfidence(SpikeMark spikeMark) {
+        return confidence[spikeMark.ordinal()];
+    }
+}
@@ -0,0 +1,388 @@
+package org.firstinspires.ftc.teamcode.auto;
+
+import static org.firstinspires.ftc.teamcode.Constants.AutoConstants.*;
+
+import com.acmerobotics.roadrunner.Action;
+import com.acmerobotics.roadrunner.Pose2d;
+import com.acmerobotics.roadrunner.PoseVelocity2d;
+import com.acmerobotics.roadrunner.SleepAction;
+import com.acmerobotics.roadrunner.TrajectoryActionBuilder;
+import com.acmerobotics.roadrunner.Vector2d;
+import com.arcrobotics.ftclib.command.Command;
+import com.arcrobotics.ftclib.command.InstantCommand;
+import com.arcrobotics.ftclib.command.SequentialCommandGroup;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.teamcode.Robot;
+import org.firstinspires.ftc.teamcode.commands.ActionCommand;
+import org.firstinspires.ftc.teamcode.commands.AutoPlacePurpleCommand;
+import org.firstinspires.ftc.teamcode.commands.AwaitCommand;
+import org.firstinspires.ftc.teamcode.commands.DelayCommand;
+import org.firstinspires.ftc.teamcode.commands.MoveArmCommand;
+import org.firstinspires.ftc.teamcode.commands.MoveElbowCommand;
+import org.firstinspires.ftc.teamcode.commands.MoveSlideCommand;
+import org.firstinspires.ftc.teamcode.commands.SenseCommand;
+import org.firstinspires.ftc.teamcode.profiling.LoopProfiler;
+import org.firstinspires.ftc.teamcode.roadrunner.MecanumDrive;
+import org.firstinspires.ftc.teamcode.subsystems.BoxSubsystem;
+import org.firstinspires.ftc.teamcode.subsystems.DriveSubsystem;
+import org.firstinspires.ftc.teamcode.subsystems.ElbowSubsystem;
+import org.firstinspires.ftc.teamcode.subsystems.LinearSlideSubsystem;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Builds the autonomous routes as RoadRunner trajectories, so the robot drives each leg as one continuous spline
+ * instead of stopping after every drive, strafe and turn. The robot only stops where it has to: at the spike marks
+ * to sense the team prop, to place the purple pixel, in front of the backdrop until the arm is up, and while waiting
+ * for our teammate before parking.
+ * <p>
+ * Generating trajectories takes a while on the control hub, so the trajectories for every spike mark are generated
+ * on a background thread during init. Once the spike mark is known, picking its route is just a lookup. The commands
+ * around the trajectories are cheap, and ftclib command groups aren't thread safe, so those are still made on the
+ * main thread when they are needed.
+ * <p>
+ * The arm runs as its own branch next to the drive, so homing and raising it happen while the robot is driving. The
+ * two branches wait on each other through named preconditions: the arm waits for the purple pixel to be placed before
+ * raising, the drive waits for the elbow to be clear of the backdrop before driving up to it, and for the arm to be up
+ * before dropping the pixel.
+ * <p>
+ * Poses are in inches and degrees from where the robot starts, x forwards, y to the left and counter clockwise
+ * positive, written for the blue alliance and flipped for red. They are where the old drive, strafe and turn steps
+ * ended up, so the routes go to the same places.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class TrajectoryRoutes {
+    private static final Pose2d START = new Pose2d(0, 0, 0);
+    /** Where the robot stops to sense the team prop */
+    private static final double SENSE_X = 32;
+
+    /**
+     * The trajectories of one route, generated ahead of time. Actions can only be run once, which is fine since each
+     * route is only driven once. Trajectories the route doesn't use are null.
+     */
+    private static final class RouteActions {
+        /** From the sensing spot to the spike mark */
+        final Action toPurple;
+        /** From the spike mark to the backdrop */
+        final Action toBackdrop;
+        /** The last few inches up to the backdrop */
+        final Action toYellow;
+        /** From the backdrop into the corner */
+        final Action toHiding;
+        /** From the spike mark to where we wait for our teammate, or turn in place to face forwards */
+        final Action toWaiting;
+        /** From where we waited to the parking spot */
+        final Action toPark;
+
+        RouteActions(Action toPurple, Action toBackdrop, Action toYellow, Action toHiding, Action toWaiting, Action toPark) {
+            this.toPurple = toPurple;
+            this.toBackdrop = toBackdrop;
+            this.toYellow = toYellow;
+            this.toHiding = toHiding;
+            this.toWaiting = toWaiting;
+            this.toPark = toPark;
+        }
+    }
+
+    private final MecanumDrive drive;
+    private final DriveSubsystem driveSubsystem;
+    private final ElbowSubsystem elbowSubsystem;
+    private final LinearSlideSubsystem linearSlideSubsystem;
+    private final BoxSubsystem boxSubsystem;
+    private final Robot robot;
+    private final AutoPosition autoPosition;
+
+    private final Thread precomputeThread;
+    // Written once by the precompute thread, only read after joining it
+    private Action setupAction;
+    private Map<AutoPosition.SpikeMark, RouteActions> routes;
+    private long precomputeNanos;
+
+    // The preconditions the arm and drive branches wait on, only used on the main thread
+    private boolean armHomed;
+    private boolean armRaised;
+    private boolean purplePlaced;
+    private boolean yellowPlaced;
+
+    /**
+     * Creates the route builder and the RoadRunner drive that follows the routes, and starts generating the
+     * trajectories for every spike mark in the background.
+     *
+     * @param hardwareMap The hardware map of the robot
+     * @param robot The robot, whose drive subsystem hands its motors over to the trajectories
+     * @param autoPosition The starting auto position, the spike mark doesn't need to be known yet
+     */
+    public TrajectoryRoutes(HardwareMap hardwareMap, Robot robot, AutoPosition autoPosition) {
+        this.robot = robot;
+        this.autoPosition = autoPosition;
+        driveSubsystem = robot.getDriveSubsystem();
+        // The heading service already polls the IMU, so the localizer doesn't read it again on the loop
+        drive = new MecanumDrive(hardwareMap, START, driveSubsystem::getRawYaw);
+        elbowSubsystem = robot.getElbowSubsystem();
+        linearSlideSubsystem = robot.getLinearSlideSubsystem();
+        boxSubsystem = robot.getBoxSubsystem();
+
+        precomputeThread = new Thread(this::precompute, "TrajectoryPrecompute");
+        precomputeThread.setDaemon(true);
+        precomputeThread.start();
+    }
+
+    /**
+     * Checks if there is a trajectory route for an auto position. Placing the yellow from downstage without parking
+     * doesn't drive to the backdrop first, so it still uses the old commands.
+     *
+     * @param autoPosition The starting auto position
+     * @return True if the routes here can run the whole autonomous
+     */
+    public static boolean supports(AutoPosition autoPosition) {
+        return autoPosition.isUpstage || !autoPosition.isPlacingYellow;
+    }
+
+    /** Generates the setup trajectory and the routes for every spike mark, run on the precompute thread. */
+    private void precompute() {
+        long start = System.nanoTime();
+        setupAction = drive.actionBuilder(START).lineToX(SENSE_X).build();
+        Map<AutoPosition.SpikeMark, RouteActions> routes = new EnumMap<>(AutoPosition.SpikeMark.class);
+        for (AutoPosition.SpikeMark spikeMark : AutoPosition.SpikeMark.values()) {
+            routes.put(spikeMark, buildRoute(new AutoPosition(spikeMark, autoPosition.isBlue,
+                    autoPosition.isPlacingYellow, autoPosition.isUpstage, autoPosition.isParkingFromDownstage)));
+        }
+        this.routes = Collections.unmodifiableMap(routes);
+        precomputeNanos = System.nanoTime() - start;
+    }
+
+    /** @return True once every trajectory has been generated */
+    public boolean isReady() {
+        return !precomputeThread.isAlive();
+    }
+
+    /** @return How long generating the trajectories took in milliseconds, 0 if it hasn't finished */
+    public double getPrecomputeMs() {
+        return isReady() ? precomputeNanos / 1e6 : 0;
+    }
+
+    /** Waits for the precompute thread, in case init was too short for it to finish. */
+    private void waitUntilReady() {
+        try {
+            precomputeThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** @return The generated route for the spike mark the team prop is on */
+    private RouteActions getRoute(AutoPosition autoPosition) {
+        waitUntilReady();
+        return routes.get(autoPosition.spikeMark);
+    }
+
+    /**
+     * @param voter The voter the autonomous controller is updating
+     * @return A command that raises the intake and drives forwards to the spike marks to sense the team prop
+     */
+    public Command getSetupCommand(SpikeMarkVoter voter) {
+        waitUntilReady();
+        return LoopProfiler.profile("TrajectorySetup", new SequentialCommandGroup(
+                new InstantCommand(driveSubsystem::useRawPower, driveSubsystem),
+                new InstantCommand(robot.getIntakeSubsystem()::upPosition, robot.getIntakeSubsystem()),
+                follow(setupAction),
+                new SenseCommand(voter, SENSE_WAIT)
+        ));
+    }
+
+    /**
+     * Creates the arm branch, which runs next to the drive for the whole of autonomous. It homes the arm while the
+     * robot drives to the spike marks, raises it on the way to the backdrop, and lowers it on the way to the corner.
+     *
+     * @return The arm branch, or null if we aren't placing the yellow so the arm doesn't need to move
+     */
+    public Command getArmCommand() {
+        if (!autoPosition.isPlacingYellow) return null;
+        return LoopProfiler.profile("TrajectoryArm", new SequentialCommandGroup(
+                // Home the slide and elbow first to make sure their zeroes are good
+                new MoveSlideCommand(linearSlideSubsystem, 0),
+                new MoveElbowCommand(elbowSubsystem, 0),
+                new InstantCommand(() -> armHomed = true),
+                // Don't raise the arm over the intake while it is placing the purple pixel
+                new AwaitCommand("purple placed", () -> purplePlaced),
+                new MoveArmCommand(elbowSubsystem, linearSlideSubsystem, elbowSubsystem.getLowScoringPosition(), linearSlideSubsystem.getLowScoringPosition()),
+                new InstantCommand(() -> armRaised = true),
+                new AwaitCommand("yellow placed", () -> yellowPlaced),
+                new MoveArmCommand(elbowSubsystem, linearSlideSubsystem, elbowSubsystem.getLevelPosition(), linearSlideSubsystem.getInPosition())
+        ));
+    }
+
+    /**
+     * @param autoPosition The starting auto position, with the spike mark set
+     * @return A command that drives from the sensing spot to the spike mark and places the purple pixel
+     */
+    public Command getPlacePurpleCommand(AutoPosition autoPosition) {
+        return LoopProfiler.profile("TrajectoryPlacePurple", new SequentialCommandGroup(
+                follow(getRoute(autoPosition).toPurple),
+                new AutoPlacePurpleCommand(robot.getIntakeSubsystem()),
+                new InstantCommand(() -> purplePlaced = true)
+        ));
+    }
+
+    /**
+     * Creates the command that runs after the purple pixel is placed: driving to the backdrop if we are placing the
+     * yellow, parking from downstage, or just turning to face away from the drivers.
+     *
+     * @param autoPosition The starting auto position, with the spike mark set
+     * @return The command to run after placing the purple pixel
+     */
+    public Command getFromPurpleCommand(AutoPosition autoPosition) {
+        RouteActions route = getRoute(autoPosition);
+        if (autoPosition.isPlacingYellow) return LoopProfiler.profile("TrajectoryToBackdrop", follow(route.toBackdrop));
+        if (autoPosition.isParkingFromDownstage) return LoopProfiler.profile("TrajectoryPark", new SequentialCommandGroup(
+                follow(route.toWaiting),
+                new DelayCommand(PARK_WAIT),
+                follow(route.toPark)
+        ));
+        return LoopProfiler.profile("TrajectoryFaceForwards", follow(route.toWaiting));
+    }
+
+    /**
+     * @param autoPosition The starting auto position, with the spike mark set
+     * @return A command that places the yellow pixel once the arm is up, then drives into the corner
+     */
+    public Command getPlaceYellowAndHideCommand(AutoPosition autoPosition) {
+        RouteActions route = getRoute(autoPosition);
+        return LoopProfiler.profile("TrajectoryPlaceYellowAndHide", new SequentialCommandGroup(
+                // Only drive the last bit once the elbow is high enough, so the arm doesn't catch on the backdrop
+                new AwaitCommand("elbow clear of the backdrop", () -> armHomed && elbowSubsystem.getPosition() >= ELBOW_BACKDROP_CLEARANCE),
+                follow(route.toYellow),
+                new AwaitCommand("arm at scoring position", () -> armRaised),
+                new InstantCommand(boxSubsystem::openBox, boxSubsystem),
+                new DelayCommand(500),
+                new InstantCommand(boxSubsystem::closeBox, boxSubsystem),
+                new InstantCommand(() -> yellowPlaced = true),
+                follow(route.toHiding)
+        ));
+    }
+
+    /**
+     * Generates the trajectories of the route for one spike mark.
+     *
+     * @param autoPosition The starting auto position, with the spike mark set
+     * @return The trajectories the route uses
+     */
+    private RouteActions buildRoute(AutoPosition autoPosition) {
+        Pose2d purple = getPurplePose(autoPosition);
+        Action toPurple = path(pose(autoPosition, SENSE_X, 0, 0), purple);
+
+        if (autoPosition.isPlacingYellow) {
+            Pose2d backdrop = getBackdropPose(autoPosition);
+            Pose2d yellow = offset(backdrop, 0, autoPosition.flip(4));
+            Action toBackdrop = autoPosition.spikeMark == AutoPosition.SpikeMark.DOWNSTAGE
+                    // Back away from the spike mark and turn through facing forwards, not towards the truss
+                    ? path(purple, pose(autoPosition, 30, 16, 0), backdrop)
+                    : path(purple, backdrop);
+            return new RouteActions(toPurple, toBackdrop, path(backdrop, yellow), path(yellow, getHidingPose(autoPosition)), null, null);
+        }
+
+        if (autoPosition.isParkingFromDownstage) {
+            switch (autoPosition.spikeMark) {
+                case UPSTAGE:
+                    return new RouteActions(toPurple, null, null, null,
+                            path(purple, pose(autoPosition, 48, -4, 90)),
+                            path(pose(autoPosition, 48, -4, 90), pose(autoPosition, 48, 74, 90), pose(autoPosition, 43, 81, 0)));
+                case MIDDLE:
+                    return new RouteActions(toPurple, null, null, null,
+                            turnTo(autoPosition, purple, 90),
+                            path(pose(autoPosition, 25, 0, 90), pose(autoPosition, 25, 78, 90), pose(autoPosition, 45, 85, 0)));
+                default:
+                    return new RouteActions(toPurple, null, null, null,
+                            // Turn through facing forwards, the spike mark is behind us
+                            path(purple, pose(autoPosition, 38, 2, 0), pose(autoPosition, 48, 2, 90)),
+                            path(pose(autoPosition, 48, 2, 90), pose(autoPosition, 48, 80, 90), pose(autoPosition, 43, 87, 0)));
+            }
+        }
+
+        return new RouteActions(toPurple, null, null, null, turnTo(autoPosition, purple, 0), null);
+    }
+
+    /** @return Where the robot places the purple pixel on the spike mark */
+    private static Pose2d getPurplePose(AutoPosition autoPosition) {
+        switch (autoPosition.spikeMark) {
+            case UPSTAGE:
+                return autoPosition.isUpstage ? pose(autoPosition, 14, 8, 0) : pose(autoPosition, 28, -4, 90);
+            case MIDDLE:
+                return pose(autoPosition, 25, 0, 0);
+            default:
+                return pose(autoPosition, 28, 2, -90);
+        }
+    }
+
+    /** @return Where the robot waits in front of the backdrop for the arm to come up */
+    private static Pose2d getBackdropPose(AutoPosition autoPosition) {
+        switch (autoPosition.spikeMark) {
+            case UPSTAGE:
+                return pose(autoPosition, 19, 33, 90);
+            case MIDDLE:
+                return pose(autoPosition, 31, 32, 90);
+            default:
+                return pose(autoPosition, 34, 32, 90);
+        }
+    }
+
+    /** @return Where the robot hides in the corner after placing the yellow pixel */
+    private static Pose2d getHidingPose(AutoPosition autoPosition) {
+        switch (autoPosition.spikeMark) {
+            case UPSTAGE:
+                return pose(autoPosition, 4, 41, 0);
+            case MIDDLE:
+                return pose(autoPosition, 7, 40, 0);
+            default:
+                return pose(autoPosition, 4, 44, 0);
+        }
+    }
+
+    /**
+     * Builds one continuous spline through the poses, turning linearly between them. The path at each pose heads
+     * from the pose before it to the pose after it, so the robot doesn't stop at the poses in between.
+     *
+     * @param poses The poses to go through, no two in a row in the same spot
+     * @return The action that follows the spline
+     */
+    private Action path(Pose2d... poses) {
+        TrajectoryActionBuilder builder = drive.actionBuilder(poses[0]).setTangent(direction(poses[0], poses[1]));
+        for (int i = 1; i < poses.length; i++) {
+            Pose2d after = i + 1 < poses.length ? poses[i + 1] : poses[i];
+            builder = builder.splineToLinearHeading(poses[i], direction(poses[i - 1], after));
+        }
+        return builder.build();
+    }
+
+    /** @return An action that turns in place to a heading in degrees, flipped for red, or does nothing if already there */
+    private Action turnTo(AutoPosition autoPosition, Pose2d from, double heading) {
+        double radians = Math.toRadians(autoPosition.flip(heading));
+        if (Math.abs(AngleUnit.normalizeRadians(radians - from.heading.toDouble())) < 1e-3) return new SleepAction(0);
+        return drive.actionBuilder(from).turnTo(radians).build();
+    }
+
+    /** @return A command that follows an action with the drive, stopping the wheels if it is interrupted */
+    private Command follow(Action action) {
+        return new ActionCommand(action, () -> drive.setDrivePowers(new PoseVelocity2d(new Vector2d(0, 0), 0)), driveSubsystem);
+    }
+
+    /** @return The pose from the blue alliance poses, flipped for red */
+    private static Pose2d pose(AutoPosition autoPosition, double x, double y, double heading) {
+        return new Pose2d(x, autoPosition.flip(y), Math.toRadians(autoPosition.flip(heading)));
+    }
+
+    /** @return The pose moved by some inches on the field, keeping its heading */
+    private static Pose2d offset(Pose2d pose, double x, double y) {
+        return new Pose2d(pose.position.x + x, pose.position.y + y, pose.heading.toDouble());
+    }
+
+    /** @return The direction from one pose to another on the field, in radians */
+    private static double direction(Pose2d from, Pose2d to) {
+        return Math.atan2(to.position.y - from.position.y, to.position.x - from.position.x);
+    }
+}
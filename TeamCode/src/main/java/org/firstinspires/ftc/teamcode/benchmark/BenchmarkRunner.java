@@ -0,0 +1,145 @@
+package org.firstinspires.ftc.teamcode.benchmark;
+
+import android.os.Debug;
+
+import java.util.Locale;
+
+/**
+ * Times small pieces of code on the robot's own CPU, the way JMH would on a desktop. Each benchmark is warmed up
+ * so the runtime has compiled it, then run for several rounds. The fastest round is reported, since slower rounds
+ * are usually the scheduler or a GC getting in the way.
+ * <p>
+ * Allocation is measured with ART's running count of allocated bytes, so it includes anything allocated by
+ * other threads during the round, and reads as -1 where that count isn't available.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class BenchmarkRunner {
+    /** The result of one benchmark. */
+    public static class Result {
+        public final String name;
+        /** Nanoseconds per call, from the fastest round */
+        public final double nanosPerOp;
+        /** Bytes allocated per call, averaged over every round, -1 if unknown */
+        public final double bytesPerOp;
+
+        public Result(String name, double nanosPerOp, double bytesPerOp) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            if (bytesPerOp < 0) return String.format(Locale.US, "%.0f ns/op", nanosPerOp);
+            return String.format(Locale.US, "%.0f ns/op, %.1f B/op", nanosPerOp, bytesPerOp);
+        }
+    }
+
+    private final int warmupOps;
+    private final int opsPerRound;
+    private final int rounds;
+
+    /**
+     * Constructs a BenchmarkRunner.
+     *
+     * @param warmupOps How many times to call the code before timing it
+     * @param opsPerRound How many calls are timed together
+     * @param rounds How many rounds to time
+     */
+    public BenchmarkRunner(int warmupOps, int opsPerRound, int rounds) {
+        this.warmupOps = warmupOps;
+        this.opsPerRound = opsPerRound;
+        this.rounds = rounds;
+    }
+
+    /**
+     * Benchmarks a piece of code.
+     *
+     * @param name The name of the benchmark
+     * @param op The code to time, called many times in a row
+     * @return How long one call took and how much it allocated
+     */
+    public Result run(String name, Runnable op) {
+        for (int i = 0; i < warmupOps; i++) {
+            op.run();
+        }
+
+        long bestNanos = Long.MAX_VALUE;
+        long startBytes = getBytesAllocated();
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < opsPerRound; i++) {
+                op.run();
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        long endBytes = getBytesAllocated();
+
+        double totalOps = (double) opsPerRound * rounds;
+        double bytesPerOp = startBytes < 0 || endBytes < 0 ? -1 : (endBytes - startBytes) / totalOps;
+        return new Result(name, (double) bestNanos / opsPerRound, bytesPerOp);
+    }
+
+    /**
+     * Benchmarks a piece of code that needs something done between calls that shouldn't be timed, like stepping a
+     * simulation. Each call is timed on its own, so the result includes the cost of reading the time once. The
+     * allocation is also read around each call, so what the code between calls allocates isn't counted.
+     *
+     * @param name The name of the benchmark
+     * @param op The code to time
+     * @param between The code run before every call, not timed
+     * @return How long one call took and how much it allocated
+     */
+    public Result run(String name, Runnable op, Runnable between) {
+        for (int i = 0; i < warmupOps; i++) {
+            between.run();
+            op.run();
+        }
+
+        double overheadBytes = getReadOverheadBytes();
+        long bestNanos = Long.MAX_VALUE;
+        long opBytes = 0;
+        for (int round = 0; round < rounds; round++) {
+            long roundNanos = 0;
+            for (int i = 0; i < opsPerRound; i++) {
+                between.run();
+                long startBytes = getBytesAllocated();
+                long start = System.nanoTime();
+                op.run();
+                roundNanos += System.nanoTime() - start;
+                long endBytes = getBytesAllocated();
+                if (startBytes < 0 || endBytes < 0) opBytes = -1;
+                else if (opBytes >= 0) opBytes += endBytes - startBytes;
+            }
+            bestNanos = Math.min(bestNanos, roundNanos);
+        }
+
+        double totalOps = (double) opsPerRound * rounds;
+        double bytesPerOp = opBytes < 0 ? -1 : Math.max(0, opBytes / totalOps - overheadBytes);
+        return new Result(name, (double) bestNanos / opsPerRound, bytesPerOp);
+    }
+
+    /** @return How many bytes reading the allocation twice in a row counts, taken off each call's allocation */
+    private static double getReadOverheadBytes() {
+        final int reads = 1000;
+        long total = 0;
+        for (int i = 0; i < reads; i++) {
+            long start = getBytesAllocated();
+            long end = getBytesAllocated();
+            if (start < 0 || end < 0) return 0;
+            total += end - start;
+        }
+        return (double) total / reads;
+    }
+
+    /** @return How many bytes the runtime has ever allocated, or -1 if it won't say */
+    private static long getBytesAllocated() {
+        try {
+            String stat = Debug.getRuntimeStat("art.gc.bytes-allocated");
+            return stat == null ? -1 : Long.parseLong(stat);
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+}
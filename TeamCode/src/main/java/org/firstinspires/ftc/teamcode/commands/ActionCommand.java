@@ -0,0 +1,80 @@
+package org.firstinspires.ftc.teamcode.commands;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
+import com.acmerobotics.roadrunner.Action;
+import com.arcrobotics.ftclib.command.CommandBase;
+import com.arcrobotics.ftclib.command.Subsystem;
+
+import org.firstinspires.ftc.teamcode.roadrunner.MecanumDrive;
+
+/**
+ * Command that runs a RoadRunner {@link Action} on the command scheduler, one step each loop, until the action says
+ * it is done. Whatever the action draws is sent to the dashboard, only while
+ * {@link MecanumDrive.Params#drawWhileFollowing} is on. Otherwise the action is given one packet that is reused every
+ * loop and never sent, so following doesn't allocate or touch the network.
+ */
+public class ActionCommand extends CommandBase {
+    private final Action action;
+    private final Runnable onInterrupted;
+    /** Given to the action while nothing is drawn, never sent so it is safe to reuse */
+    private final TelemetryPacket unsentPacket = new TelemetryPacket();
+    private boolean finished;
+
+    /**
+     * Creates a command that runs an action.
+     *
+     * @param action The action to run, actions can only be run once so this command can only be scheduled once
+     * @param onInterrupted What to do if the command is interrupted before the action finishes, e.g. stop the motors
+     * @param requirements The subsystems the action uses
+     */
+    public ActionCommand(Action action, Runnable onInterrupted, Subsystem... requirements) {
+        this.action = action;
+        this.onInterrupted = onInterrupted;
+        addRequirements(requirements);
+    }
+
+    /**
+     * Creates a command that runs an action, and does nothing if it is interrupted.
+     *
+     * @param action The action to run, actions can only be run once so this command can only be scheduled once
+     * @param requirements The subsystems the action uses
+     */
+    public ActionCommand(Action action, Subsystem... requirements) {
+        this(action, () -> {}, requirements);
+    }
+
+    @Override
+    public void initialize() {
+        finished = false;
+        if (!MecanumDrive.PARAMS.drawWhileFollowing) return;
+        TelemetryPacket packet = new TelemetryPacket();
+        action.preview(packet.fieldOverlay());
+        FtcDashboard.getInstance().sendTelemetryPacket(packet);
+    }
+
+    @Override
+    public void execute() {
+        if (!MecanumDrive.PARAMS.drawWhileFollowing) {
+            // Throw away anything the action added last loop, the values it puts are overwritten anyway
+            unsentPacket.clearLines();
+            unsentPacket.fieldOverlay().getOperations().clear();
+            finished = !action.run(unsentPacket);
+            return;
+        }
+        // A sent packet is serialized later on the dashboard's thread, so it can't be reused
+        TelemetryPacket packet = new TelemetryPacket();
+        finished = !action.run(packet);
+        FtcDashboard.getInstance().sendTelemetryPacket(packet);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        if (interrupted && !finished) onInterrupted.run();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+}
@@ -2,7 +2,6 @@ package org.firstinspires.ftc.teamcode.commands;
 
 import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.SequentialCommandGroup;
-import com.arcrobotics.ftclib.command.WaitCommand;
 
 import org.firstinspires.ftc.teamcode.auto.AutoPosition;
 import org.firstinspires.ftc.teamcode.commands.MoveCommand.MovementType;
@@ -59,7 +58,7 @@ public class AutoDriveAndPlacePurpleCommand extends SequentialCommandGroup {
                     new AutoPlacePurpleCommand(intakeSubsystem)
             );
         }
-        lastCommand = new WaitCommand(1);
+        lastCommand = new DelayCommand(1);
         addCommands(lastCommand);
         addRequirements(driveSubsystem, intakeSubsystem);
     }
@@ -2,7 +2,6 @@ package org.firstinspires.ftc.teamcode.commands;
 
 import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.SequentialCommandGroup;
-import com.arcrobotics.ftclib.command.WaitCommand;
 
 import org.firstinspires.ftc.teamcode.auto.AutoPosition;
 import org.firstinspires.ftc.teamcode.commands.MoveCommand.MovementType;
@@ -23,7 +22,7 @@ public class AutoDriveFromPurpleCommand extends SequentialCommandGroup {
      * @param autoPosition The starting auto position
      */
     public AutoDriveFromPurpleCommand(DriveSubsystem driveSubsystem, AutoPosition autoPosition) {
-        lastCommand = new WaitCommand(1);
+        lastCommand = new DelayCommand(1);
 
         // If we don't want to place the yellow, just turn to face the correct direction, then stop
         if (!autoPosition.isPlacingYellow) {
@@ -3,7 +3,6 @@ package org.firstinspires.ftc.teamcode.commands;
 import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.InstantCommand;
 import com.arcrobotics.ftclib.command.SequentialCommandGroup;
-import com.arcrobotics.ftclib.command.WaitCommand;
 
 import org.firstinspires.ftc.teamcode.subsystems.IntakeSubsystem;
 
@@ -19,12 +18,12 @@ public class AutoPlacePurpleCommand extends SequentialCommandGroup {
      * @param intakeSubsystem Reference to the intakeSubsystem
      */
     public AutoPlacePurpleCommand(IntakeSubsystem intakeSubsystem) {
-        lastCommand = new WaitCommand(1);
+        lastCommand = new DelayCommand(1);
         addCommands(
                 new InstantCommand(intakeSubsystem::downPosition, intakeSubsystem),
-                new WaitCommand(500),
+                new DelayCommand(500),
                 new InstantCommand(() -> intakeSubsystem.intake(0.3), intakeSubsystem),
-                new WaitCommand(750),
+                new DelayCommand(750),
                 new InstantCommand(intakeSubsystem::stopMotor, intakeSubsystem),
                 new InstantCommand(intakeSubsystem::upPosition, intakeSubsystem),
                 lastCommand
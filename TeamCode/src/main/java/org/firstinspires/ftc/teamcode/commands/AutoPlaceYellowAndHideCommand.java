@@ -2,7 +2,6 @@ package org.firstinspires.ftc.teamcode.commands;
 
 import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.SequentialCommandGroup;
-import com.arcrobotics.ftclib.command.WaitCommand;
 
 import org.firstinspires.ftc.teamcode.auto.AutoPosition;
 import org.firstinspires.ftc.teamcode.commands.MoveCommand.MovementType;
@@ -29,7 +28,7 @@ public class AutoPlaceYellowAndHideCommand extends SequentialCommandGroup {
      * @param autoPosition The starting auto position
      */
     public AutoPlaceYellowAndHideCommand(DriveSubsystem driveSubsystem, ElbowSubsystem elbowSubsystem, LinearSlideSubsystem linearSlideSubsystem, BoxSubsystem boxSubsystem, AutoPosition autoPosition) {
-        lastCommand = new WaitCommand(1);
+        lastCommand = new DelayCommand(1);
         addRequirements(driveSubsystem, elbowSubsystem, linearSlideSubsystem, boxSubsystem);
 
         if (autoPosition.spikeMark == AutoPosition.SpikeMark.UPSTAGE) {
@@ -1,9 +1,11 @@
 package org.firstinspires.ftc.teamcode.commands;
 
+import static org.firstinspires.ftc.teamcode.Constants.AutoConstants.ELBOW_BACKDROP_CLEARANCE;
+
 import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.InstantCommand;
+import com.arcrobotics.ftclib.command.ParallelCommandGroup;
 import com.arcrobotics.ftclib.command.SequentialCommandGroup;
-import com.arcrobotics.ftclib.command.WaitCommand;
 
 import org.firstinspires.ftc.teamcode.subsystems.BoxSubsystem;
 import org.firstinspires.ftc.teamcode.subsystems.DriveSubsystem;
@@ -11,38 +13,49 @@ import org.firstinspires.ftc.teamcode.subsystems.ElbowSubsystem;
 import org.firstinspires.ftc.teamcode.subsystems.LinearSlideSubsystem;
 
 /**
- * Command that moves the arm to place the yellow pixel on the backdrop.
+ * Command that moves the arm to place the yellow pixel on the backdrop. The arm and the drive run as two branches:
+ * the robot drives up to the backdrop as soon as the elbow is clear of it, and the box opens once the arm is up.
  */
 public class AutoPlaceYellowCommand extends SequentialCommandGroup {
     private final Command lastCommand;
 
+    // The preconditions the drive branch waits on
+    private boolean armHomed;
+    private boolean armRaised;
+
     /**
      * Creates a command that places the yellow pixel on the backdrop.
      *
      * @param elbowSubsystem Reference to the elbowSubsystem
      * @param linearSlideSubsystem Reference to the linearSlideSubsystem
      * @param boxSubsystem Reference to the boxSubsystem
+     * @param driveSubsystem Reference to the driveSubsystem
      */
     public AutoPlaceYellowCommand(ElbowSubsystem elbowSubsystem, LinearSlideSubsystem linearSlideSubsystem, BoxSubsystem boxSubsystem, DriveSubsystem driveSubsystem) {
         addRequirements(elbowSubsystem, linearSlideSubsystem, boxSubsystem);
-        lastCommand = new WaitCommand(1);
+        lastCommand = new DelayCommand(1);
         addCommands(
-                // TODO: Make this happen somewhere else (maybe while placing the purple pixel?)
-                // First move the slide and arm in to make sure their zeroes are good
-                new MoveSlideCommand(linearSlideSubsystem, 0),
-                new MoveElbowCommand(elbowSubsystem, 0),
-                // Move the arm to low scoring position
-                new MoveElbowCommand(elbowSubsystem, elbowSubsystem.getLowScoringPosition()),
-                new MoveSlideCommand(linearSlideSubsystem, linearSlideSubsystem.getLowScoringPosition()),
-                new MoveCommand(driveSubsystem, MoveCommand.MovementType.DRIVE, 4),
-                // Open then close the box
-                new InstantCommand(boxSubsystem::openBox, boxSubsystem),
-                new WaitCommand(500),
-                new InstantCommand(boxSubsystem::closeBox, boxSubsystem),
+                new ParallelCommandGroup(
+                        // Arm: first move the slide and arm in to make sure their zeroes are good, then raise it
+                        new SequentialCommandGroup(
+                                new MoveSlideCommand(linearSlideSubsystem, 0),
+                                new MoveElbowCommand(elbowSubsystem, 0),
+                                new InstantCommand(() -> armHomed = true),
+                                new MoveArmCommand(elbowSubsystem, linearSlideSubsystem, elbowSubsystem.getLowScoringPosition(), linearSlideSubsystem.getLowScoringPosition()),
+                                new InstantCommand(() -> armRaised = true)
+                        ),
+                        // Drive: move up to the backdrop while the arm finishes rising, then open then close the box
+                        new SequentialCommandGroup(
+                                new AwaitCommand("elbow clear of the backdrop", () -> armHomed && elbowSubsystem.getPosition() >= ELBOW_BACKDROP_CLEARANCE),
+                                new MoveCommand(driveSubsystem, MoveCommand.MovementType.DRIVE, 4),
+                                new AwaitCommand("arm at scoring position", () -> armRaised),
+                                new InstantCommand(boxSubsystem::openBox, boxSubsystem),
+                                new DelayCommand(500),
+                                new InstantCommand(boxSubsystem::closeBox, boxSubsystem)
+                        )
+                ),
                 // Move the arm back down
-                // TODO: Make this happen somewhere else (maybe while hiding)
-                new MoveSlideCommand(linearSlideSubsystem, linearSlideSubsystem.getInPosition()),
-                new MoveElbowCommand(elbowSubsystem, elbowSubsystem.getLevelPosition()),
+                new MoveArmCommand(elbowSubsystem, linearSlideSubsystem, elbowSubsystem.getLevelPosition(), linearSlideSubsystem.getInPosition()),
                 lastCommand
         );
     }
@@ -4,12 +4,14 @@ import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.InstantCommand;
 import com.arcrobotics.ftclib.command.SequentialCommandGroup;
 
+import org.firstinspires.ftc.teamcode.auto.SpikeMarkVoter;
 import org.firstinspires.ftc.teamcode.commands.MoveCommand.MovementType;
 import org.firstinspires.ftc.teamcode.subsystems.DriveSubsystem;
 import org.firstinspires.ftc.teamcode.subsystems.IntakeSubsystem;
 
 /**
- * Command that drives the robot forwards to sense for the team prop.
+ * Command that drives the robot forwards to sense for the team prop, then waits until the spike mark voter has picked
+ * a spike mark.
  */
 public class AutoSetupCommand extends SequentialCommandGroup {
     private final Command lastCommand;
@@ -19,11 +21,13 @@ public class AutoSetupCommand extends SequentialCommandGroup {
      *
      * @param driveSubsystem Reference to the driveSubsystem
      * @param intakeSubsystem Reference to the intakeSubsystem
+     * @param voter The voter the autonomous controller is updating
      */
-    public AutoSetupCommand(DriveSubsystem driveSubsystem, IntakeSubsystem intakeSubsystem) {
-        lastCommand = new MoveCommand(driveSubsystem, MovementType.DRIVE, 32, 1000);
+    public AutoSetupCommand(DriveSubsystem driveSubsystem, IntakeSubsystem intakeSubsystem, SpikeMarkVoter voter) {
+        lastCommand = new SenseCommand(voter, 1000);
         addCommands(
                 new InstantCommand(intakeSubsystem::upPosition, intakeSubsystem),
+                new MoveCommand(driveSubsystem, MovementType.DRIVE, 32, 0),
                 lastCommand
         );
     }
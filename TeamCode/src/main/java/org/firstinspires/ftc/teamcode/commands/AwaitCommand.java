@@ -0,0 +1,64 @@
+package org.firstinspires.ftc.teamcode.commands;
+
+import com.arcrobotics.ftclib.command.CommandBase;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.teamcode.util.Clock;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Command that waits until a named precondition is true, so one branch of autonomous can wait on another without
+ * either of them requiring the other's subsystems. Requires nothing. Logs how long each precondition held its branch
+ * up, and keeps track of which preconditions are being waited on right now for the telemetry.
+ */
+public class AwaitCommand extends CommandBase {
+    /** The preconditions being waited on right now, in the order the waits started */
+    private static final Set<String> waiting = new LinkedHashSet<>();
+
+    private final String precondition;
+    private final BooleanSupplier condition;
+    private long startNanos;
+
+    /**
+     * Creates a command that waits until a precondition is true.
+     *
+     * @param precondition What is being waited for, e.g. "elbow clear of the backdrop"
+     * @param condition True once the precondition has been met
+     */
+    public AwaitCommand(String precondition, BooleanSupplier condition) {
+        this.precondition = precondition;
+        this.condition = condition;
+        setName("Await " + precondition);
+    }
+
+    @Override
+    public void initialize() {
+        startNanos = Clock.nanoTime();
+        waiting.add(precondition);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return condition.getAsBoolean();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        waiting.remove(precondition);
+        if (interrupted) return;
+        RobotLog.ii("AwaitCommand", "%s after %d ms", precondition, (Clock.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /** @return The preconditions being waited on right now, empty if nothing is waiting */
+    public static String getWaiting() {
+        return String.join(", ", waiting);
+    }
+
+    /** Forgets every wait, call this at the start of autonomous in case the last run was stopped mid wait. */
+    public static void resetWaiting() {
+        waiting.clear();
+    }
+}
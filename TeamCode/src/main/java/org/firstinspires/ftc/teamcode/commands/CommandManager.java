@@ -4,11 +4,12 @@ import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.InstantCommand;
 import com.arcrobotics.ftclib.command.RunCommand;
 import com.arcrobotics.ftclib.command.SequentialCommandGroup;
-import com.arcrobotics.ftclib.command.WaitCommand;
 import com.arcrobotics.ftclib.gamepad.GamepadKeys;
 
 import org.firstinspires.ftc.teamcode.Robot;
 import org.firstinspires.ftc.teamcode.auto.AutoPosition;
+import org.firstinspires.ftc.teamcode.auto.SpikeMarkVoter;
+import org.firstinspires.ftc.teamcode.profiling.LoopProfiler;
 
 public class CommandManager {
     private final Robot robot;
@@ -20,6 +21,8 @@ public class CommandManager {
     private final Command defaultDriveCommand;
     /** Command that resets the gyro */
     private final Command resetGyroCommand;
+    /** Command that fully re-initializes the gyro, only used to recover it */
+    private final Command reinitializeGyroCommand;
     /** Command that rotates the robot to face the right */
     private final Command snapRightCommand;
     /** Command that rotates the robot to face the left */
@@ -65,85 +68,87 @@ public class CommandManager {
     public CommandManager(Robot robot) {
         this.robot = robot;
 
-        openBoxCommand = new SequentialCommandGroup(
+        openBoxCommand = LoopProfiler.profile("OpenBox", new SequentialCommandGroup(
                 new InstantCommand(() -> robot.getBoxSubsystem().openBox(), robot.getBoxSubsystem()),
-                new WaitCommand(1000),
+                new DelayCommand(1000),
                 new InstantCommand(() -> robot.getBoxSubsystem().closeBox(), robot.getBoxSubsystem())
-        );
+        ));
 
-        closeBoxCommand = new InstantCommand(() -> robot.getBoxSubsystem().closeBox(), robot.getBoxSubsystem());
+        closeBoxCommand = LoopProfiler.profile("CloseBox", new InstantCommand(() -> robot.getBoxSubsystem().closeBox(), robot.getBoxSubsystem()));
 
-        defaultDriveCommand = new RunCommand(() -> robot.getDriveSubsystem().drive(robot.getDriverGamepad(), robot.isPressed(robot.getDriverGamepad().getTrigger(GamepadKeys.Trigger.LEFT_TRIGGER)) ? 0.3 : 1.0), robot.getDriveSubsystem());
+        defaultDriveCommand = LoopProfiler.profile("DefaultDrive", new RunCommand(() -> robot.getDriveSubsystem().drive(robot.getDriverGamepad(), robot.isPressed(robot.getDriverGamepad().getTrigger(GamepadKeys.Trigger.LEFT_TRIGGER)) ? 0.3 : 1.0), robot.getDriveSubsystem()));
 
-        resetGyroCommand = new InstantCommand(() -> robot.getDriveSubsystem().resetGyro());
+        resetGyroCommand = LoopProfiler.profile("ResetGyro", new InstantCommand(() -> robot.getDriveSubsystem().resetGyro()));
+
+        reinitializeGyroCommand = LoopProfiler.profile("ReinitializeGyro", new InstantCommand(() -> robot.getDriveSubsystem().reinitializeGyro()));
 
         // Snap right
-        snapRightCommand = new SnapCommand(robot.getDriveSubsystem(), robot.getDriverGamepad(), -90);
+        snapRightCommand = LoopProfiler.profile("SnapRight", new SnapCommand(robot.getDriveSubsystem(), robot.getDriverGamepad(), -90));
         // Snap left
-        snapLeftCommand = new SnapCommand(robot.getDriveSubsystem(), robot.getDriverGamepad(), 90);
+        snapLeftCommand = LoopProfiler.profile("SnapLeft", new SnapCommand(robot.getDriveSubsystem(), robot.getDriverGamepad(), 90));
         // Snap up
-        snapUpCommand = new SnapCommand(robot.getDriveSubsystem(), robot.getDriverGamepad(), 0);
+        snapUpCommand = LoopProfiler.profile("SnapUp", new SnapCommand(robot.getDriveSubsystem(), robot.getDriverGamepad(), 0));
         // Snap down
-        snapDownCommand = new SnapCommand(robot.getDriveSubsystem(), robot.getDriverGamepad(), 180);
+        snapDownCommand = LoopProfiler.profile("SnapDown", new SnapCommand(robot.getDriveSubsystem(), robot.getDriverGamepad(), 180));
 // :]
-        droneModeCommand = new SequentialCommandGroup(
+        droneModeCommand = LoopProfiler.profile("DroneMode", new SequentialCommandGroup(
                 new InstantCommand(() -> robot.setState(Robot.RobotState.SHOOTING_DRONE)),
                 new MoveElbowCommand(robot.getElbowSubsystem(), robot.getElbowSubsystem().getDroneLaunchPosition())
-        );
+        ));
 
 //        droneLaunchCommand = new InstantCommand(() -> {
 //            robot.setState(Robot.RobotState.DRIVING);
 //            robot.getDroneSubsystem().release();
 //        });
-        droneLaunchCommand = new SequentialCommandGroup(
+        droneLaunchCommand = LoopProfiler.profile("DroneLaunch", new SequentialCommandGroup(
                 new InstantCommand(robot.getDroneSubsystem()::release),
-                new WaitCommand(500),
+                new DelayCommand(500),
                 new InstantCommand(() -> {
                     robot.getDroneSubsystem().startPosition();
                     robot.setState(Robot.RobotState.DRIVING);
                 })
-        );
+        ));
 
-        droneCancelCommand = new InstantCommand(() -> {
+        droneCancelCommand = LoopProfiler.profile("DroneCancel", new InstantCommand(() -> {
             robot.setState(Robot.RobotState.DRIVING);
             robot.getDroneSubsystem().startPosition();
-        });
+        }));
 
-        defaultElbowCommand = new RunCommand(() -> {
+        defaultElbowCommand = LoopProfiler.profile("DefaultElbow", new RunCommand(() -> {
             robot.getElbowSubsystem().moveManually(Math.abs(robot.getOperatorGamepad().getLeftY()) >= 0.1 ? robot.getOperatorGamepad().getLeftY() : 0);
-        }, robot.getElbowSubsystem());
+        }, robot.getElbowSubsystem()));
 
-        defaultSlideCommand = new RunCommand(() -> {
+        defaultSlideCommand = LoopProfiler.profile("DefaultSlide", new RunCommand(() -> {
             robot.getLinearSlideSubsystem().moveManually(Math.abs(robot.getOperatorGamepad().getRightY()) >= 0.1 ? robot.getOperatorGamepad().getRightY() : 0);
-        }, robot.getLinearSlideSubsystem());
+        }, robot.getLinearSlideSubsystem()));
 
-        defaultHangingCommand = new RunCommand(() -> {
+        defaultHangingCommand = LoopProfiler.profile("DefaultHanging", new RunCommand(() -> {
 //            robot.getHangingSubsystem().levelServo(robot.getElbowSubsystem());
             if (robot.getOperatorGamepad().getButton(GamepadKeys.Button.LEFT_BUMPER)) robot.getHangingSubsystem().winch();
             else if (robot.isPressed(robot.getOperatorGamepad().getTrigger(GamepadKeys.Trigger.LEFT_TRIGGER))) robot.getHangingSubsystem().unwinch();
             else robot.getHangingSubsystem().stopMotor();
-        }, robot.getHangingSubsystem());
+        }, robot.getHangingSubsystem()));
 
-        raiseHangingArmCommand = new InstantCommand(() -> robot.getHangingSubsystem().raiseServo(), robot.getHangingSubsystem());
+        raiseHangingArmCommand = LoopProfiler.profile("RaiseHangingArm", new InstantCommand(() -> robot.getHangingSubsystem().raiseServo(), robot.getHangingSubsystem()));
 
-        lowerHangingArmCommand = new InstantCommand(() -> robot.getHangingSubsystem().lowerServo(), robot.getHangingSubsystem());
+        lowerHangingArmCommand = LoopProfiler.profile("LowerHangingArm", new InstantCommand(() -> robot.getHangingSubsystem().lowerServo(), robot.getHangingSubsystem()));
 
-        intakeModeCommand = new SequentialCommandGroup(
+        intakeModeCommand = LoopProfiler.profile("IntakeMode", new SequentialCommandGroup(
                 new InstantCommand(() -> {
                     robot.setState(Robot.RobotState.INTAKE);
                     robot.getBoxSubsystem().closeBox();
                     robot.getIntakeSubsystem().downPosition();
                 }),
-                new MoveSlideCommand(robot.getLinearSlideSubsystem(), robot.getLinearSlideSubsystem().getInPosition()),
-                new MoveElbowCommand(robot.getElbowSubsystem(), robot.getElbowSubsystem().getIntakePosition()),
+                new MoveArmCommand(robot.getElbowSubsystem(), robot.getLinearSlideSubsystem(),
+                        robot.getElbowSubsystem().getIntakePosition(), robot.getLinearSlideSubsystem().getInPosition()),
                 new InstantCommand(robot.getIntakeSubsystem()::intake, robot.getIntakeSubsystem())
-        );
+        ));
 
-        outtakeCommand = new InstantCommand(robot.getIntakeSubsystem()::outtake, robot.getIntakeSubsystem());
+        outtakeCommand = LoopProfiler.profile("Outtake", new InstantCommand(robot.getIntakeSubsystem()::outtake, robot.getIntakeSubsystem()));
 
-        intakeCommand = new InstantCommand(robot.getIntakeSubsystem()::intake, robot.getIntakeSubsystem());
+        intakeCommand = LoopProfiler.profile("Intake", new InstantCommand(robot.getIntakeSubsystem()::intake, robot.getIntakeSubsystem()));
 
-        pickupPixelsCommand = new SequentialCommandGroup(
+        pickupPixelsCommand = LoopProfiler.profile("PickupPixels", new SequentialCommandGroup(
                 new InstantCommand(() -> robot.setState(Robot.RobotState.LOADING_PIXELS)),
                 new MoveSlideCommand(robot.getLinearSlideSubsystem(), robot.getLinearSlideSubsystem().getInPosition()),
                 new InstantCommand(() -> {
@@ -152,35 +157,27 @@ public class CommandManager {
                 }),
                 new MoveElbowCommand(robot.getElbowSubsystem(), robot.getElbowSubsystem().getLevelPosition()),
                 new InstantCommand(() -> robot.setState(Robot.RobotState.DRIVING))
-        );
+        ));
 
-        lowScoringPositionCommand = new SequentialCommandGroup(
-                new MoveElbowCommand(robot.getElbowSubsystem(), robot.getElbowSubsystem().getLowScoringPosition()),
-                new MoveSlideCommand(robot.getLinearSlideSubsystem(), robot.getLinearSlideSubsystem().getLowScoringPosition())
-        );
+        lowScoringPositionCommand = LoopProfiler.profile("LowScoringPosition", new MoveArmCommand(robot.getElbowSubsystem(), robot.getLinearSlideSubsystem(),
+                robot.getElbowSubsystem().getLowScoringPosition(), robot.getLinearSlideSubsystem().getLowScoringPosition()));
 
-        mediumScoringPositionCommand = new SequentialCommandGroup(
-                new MoveElbowCommand(robot.getElbowSubsystem(), robot.getElbowSubsystem().getMediumScoringPosition()),
-                new MoveSlideCommand(robot.getLinearSlideSubsystem(), robot.getLinearSlideSubsystem().getMediumScoringPosition())
-        );
+        mediumScoringPositionCommand = LoopProfiler.profile("MediumScoringPosition", new MoveArmCommand(robot.getElbowSubsystem(), robot.getLinearSlideSubsystem(),
+                robot.getElbowSubsystem().getMediumScoringPosition(), robot.getLinearSlideSubsystem().getMediumScoringPosition()));
 
-        highScoringPositionCommand = new SequentialCommandGroup(
-                new MoveElbowCommand(robot.getElbowSubsystem(), robot.getElbowSubsystem().getHighScoringPosition()),
-                new MoveSlideCommand(robot.getLinearSlideSubsystem(), robot.getLinearSlideSubsystem().getHighScoringPosition())
-        );
+        highScoringPositionCommand = LoopProfiler.profile("HighScoringPosition", new MoveArmCommand(robot.getElbowSubsystem(), robot.getLinearSlideSubsystem(),
+                robot.getElbowSubsystem().getHighScoringPosition(), robot.getLinearSlideSubsystem().getHighScoringPosition()));
 
-        homePostionCommand = new SequentialCommandGroup(
-                new MoveSlideCommand(robot.getLinearSlideSubsystem(), robot.getLinearSlideSubsystem().getInPosition()),
-                new MoveElbowCommand(robot.getElbowSubsystem(), robot.getElbowSubsystem().getDrivingPosition())
-        );
+        homePostionCommand = LoopProfiler.profile("HomePostion", new MoveArmCommand(robot.getElbowSubsystem(), robot.getLinearSlideSubsystem(),
+                robot.getElbowSubsystem().getDrivingPosition(), robot.getLinearSlideSubsystem().getInPosition()));
 
-        setupCommand = new InstantCommand(() -> {
+        setupCommand = LoopProfiler.profile("Setup", new InstantCommand(() -> {
             robot.getDroneSubsystem().startPosition();
             robot.getBoxSubsystem().closeBox();
 //            robot.getHangingSubsystem().lowerServo();
-        }, robot.getDroneSubsystem(), robot.getBoxSubsystem());
+        }, robot.getDroneSubsystem(), robot.getBoxSubsystem()));
 
-        autoDefaultHangingCommand = new RunCommand(() -> robot.getHangingSubsystem().levelServo(robot.getElbowSubsystem()), robot.getHangingSubsystem(), robot.getElbowSubsystem());
+        autoDefaultHangingCommand = LoopProfiler.profile("AutoDefaultHanging", new RunCommand(() -> robot.getHangingSubsystem().levelServo(robot.getElbowSubsystem()), robot.getHangingSubsystem(), robot.getElbowSubsystem()));
     }
 
     public Command getOpenBoxCommand() {
@@ -199,6 +196,10 @@ public class CommandManager {
         return resetGyroCommand;
     }
 
+    public Command getReinitializeGyroCommand() {
+        return reinitializeGyroCommand;
+    }
+
     public Command getSnapRightCommand() {
         return snapRightCommand;
     }
@@ -283,24 +284,24 @@ public class CommandManager {
         return setupCommand;
     }
 
-    public Command getAutoSetupCommand() {
-        return new AutoSetupCommand(robot.getDriveSubsystem(), robot.getIntakeSubsystem());
+    public Command getAutoSetupCommand(SpikeMarkVoter voter) {
+        return LoopProfiler.profile("AutoSetup", new AutoSetupCommand(robot.getDriveSubsystem(), robot.getIntakeSubsystem(), voter));
     }
 
     public Command getAutoDriveAndPlacePurpleCommand(AutoPosition autoPosition) {
-        return new AutoDriveAndPlacePurpleCommand(robot.getDriveSubsystem(), robot.getIntakeSubsystem(), autoPosition);
+        return LoopProfiler.profile("AutoDriveAndPlacePurple", new AutoDriveAndPlacePurpleCommand(robot.getDriveSubsystem(), robot.getIntakeSubsystem(), autoPosition));
     }
 
     public Command getParkAtBackdropCommand(AutoPosition autoPosition) {
-        return new ParkAtBackdropCommand(robot.getDriveSubsystem(), autoPosition);
+        return LoopProfiler.profile("ParkAtBackdrop", new ParkAtBackdropCommand(robot.getDriveSubsystem(), autoPosition));
     }
 
     public Command getAutoDriveFromPurpleCommand(AutoPosition autoPosition) {
-        return new AutoDriveFromPurpleCommand(robot.getDriveSubsystem(), autoPosition);
+        return LoopProfiler.profile("AutoDriveFromPurple", new AutoDriveFromPurpleCommand(robot.getDriveSubsystem(), autoPosition));
     }
 
     public Command getAutoPlaceYellowAndHideCommand(AutoPosition autoPosition) {
-        return new AutoPlaceYellowAndHideCommand(robot.getDriveSubsystem(), robot.getElbowSubsystem(), robot.getLinearSlideSubsystem(), robot.getBoxSubsystem(), autoPosition);
+        return LoopProfiler.profile("AutoPlaceYellowAndHide", new AutoPlaceYellowAndHideCommand(robot.getDriveSubsystem(), robot.getElbowSubsystem(), robot.getLinearSlideSubsystem(), robot.getBoxSubsystem(), autoPosition));
     }
 
     public Command getAutoDefaultHangingCommand() {
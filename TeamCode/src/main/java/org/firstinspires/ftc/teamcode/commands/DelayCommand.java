@@ -0,0 +1,42 @@
+package org.firstinspires.ftc.teamcode.commands;
+
+import com.arcrobotics.ftclib.command.CommandBase;
+
+import org.firstinspires.ftc.teamcode.util.Clock;
+
+/**
+ * Command that does nothing for some number of milliseconds. Works like ftclib's WaitCommand, but goes by the
+ * {@link Clock} so a simulation can run it faster than real time. Requires nothing.
+ */
+public class DelayCommand extends CommandBase {
+    private final long millis;
+
+    private long startNanos;
+    // The command groups ask the last command if it is finished before it has started and after it has ended
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * Creates a command that waits.
+     *
+     * @param millis How long to wait, in milliseconds
+     */
+    public DelayCommand(long millis) {
+        this.millis = millis;
+        setName("Delay " + millis + " ms");
+    }
+
+    @Override
+    public void initialize() {
+        startNanos = Clock.nanoTime();
+        started = true;
+        finished = false;
+    }
+
+    @Override
+    public boolean isFinished() {
+        if (!started) return false;
+        if (!finished) finished = (Clock.nanoTime() - startNanos) / 1_000_000 >= millis;
+        return finished;
+    }
+}
@@ -1,5 +1,7 @@
 package org.firstinspires.ftc.teamcode.commands;
 
+import static org.firstinspires.ftc.teamcode.Constants.DriveConstants.PROFILED_MOVES;
+
 import com.arcrobotics.ftclib.command.CommandBase;
 
 import org.firstinspires.ftc.teamcode.subsystems.DriveSubsystem;
@@ -29,7 +31,8 @@ public class DriveCommand extends CommandBase {
             cancel();
             return;
         }
-        driveSubsystem.driveByDistanceAsync(distance);
+        if (PROFILED_MOVES) driveSubsystem.driveProfiledAsync(distance);
+        else driveSubsystem.driveByDistanceAsync(distance);
     }
 
     // We don't need to put anything in here because isFinished should be called
@@ -0,0 +1,120 @@
+package org.firstinspires.ftc.teamcode.commands;
+
+import static org.firstinspires.ftc.teamcode.Constants.ArmConstants.ELBOW_SAFE_POSITION;
+import static org.firstinspires.ftc.teamcode.Constants.ArmConstants.SLIDE_SAFE_POSITION;
+
+import com.arcrobotics.ftclib.command.CommandBase;
+
+import org.firstinspires.ftc.teamcode.control.ArmMotionPlanner;
+import org.firstinspires.ftc.teamcode.subsystems.ElbowSubsystem;
+import org.firstinspires.ftc.teamcode.subsystems.LinearSlideSubsystem;
+import org.firstinspires.ftc.teamcode.util.ClockTimer;
+
+/**
+ * Command that moves the elbow and the slide at the same time, following profiles from an {@link ArmMotionPlanner}
+ * so both finish together without the slide ever being out while the elbow is low. Once the profiles are done,
+ * each joint finishes on its PID controller like {@link MoveElbowCommand} and {@link MoveSlideCommand}.
+ * <p>
+ * The plan only times the joints to stay inside the safe envelope, so every loop the setpoints are also checked
+ * against where the joints really are. If the elbow lags its profile, the slide is held at the safe extension until
+ * the elbow has passed the safe angle, and if the slide lags, the elbow is held at the safe angle until the slide is
+ * in. This also brings an arm that starts outside the envelope back into it.
+ * A target of -1 leaves that joint where it is.
+ */
+public class MoveArmCommand extends CommandBase {
+    private final ElbowSubsystem elbowSubsystem;
+    private final LinearSlideSubsystem linearSlideSubsystem;
+    private final double elbowTarget;
+    private final double slideTarget;
+
+    private final ArmMotionPlanner planner = new ArmMotionPlanner();
+    private final ClockTimer timer = new ClockTimer();
+
+    private boolean following;
+    private boolean moveElbow;
+    private boolean moveSlide;
+
+    /**
+     * Creates a new command that moves the elbow and the slide together.
+     *
+     * @param elbowSubsystem Reference to the elbowSubsystem
+     * @param linearSlideSubsystem Reference to the linearSlideSubsystem
+     * @param elbowPosition The target position of the elbow in pulses, -1 to leave it
+     * @param slidePosition The target position of the slide, -1 to leave it
+     */
+    public MoveArmCommand(ElbowSubsystem elbowSubsystem, LinearSlideSubsystem linearSlideSubsystem, double elbowPosition, double slidePosition) {
+        this.elbowSubsystem = elbowSubsystem;
+        this.linearSlideSubsystem = linearSlideSubsystem;
+        elbowTarget = elbowPosition;
+        slideTarget = slidePosition;
+        addRequirements(this.elbowSubsystem, this.linearSlideSubsystem);
+    }
+
+    @Override
+    public void initialize() {
+        double elbowStart = elbowSubsystem.getPosition();
+        double slideStart = linearSlideSubsystem.getPosition();
+        moveElbow = elbowTarget != -1;
+        moveSlide = slideTarget != -1;
+        planner.plan(elbowStart, moveElbow ? elbowTarget : elbowStart, slideStart, moveSlide ? slideTarget : slideStart);
+        following = true;
+        timer.reset();
+    }
+
+    @Override
+    public void execute() {
+        double t = timer.seconds();
+        if (following && t >= planner.getDuration() && isSafeToSettle()) {
+            // Hand off to the PID controllers to settle on the targets
+            following = false;
+            if (moveElbow) elbowSubsystem.setTarget(planner.getElbowTarget(), 5.0);
+            if (moveSlide) linearSlideSubsystem.setTarget(planner.getSlideTarget(), 1.5);
+        }
+        if (following) {
+            double elbowPosition = elbowSubsystem.getPosition();
+            double slidePosition = linearSlideSubsystem.getPosition();
+            double elbowSetpoint = planner.getElbowPosition(t);
+            double elbowVelocity = planner.getElbowVelocity(t);
+            double slideSetpoint = planner.getSlidePosition(t);
+            double slideVelocity = planner.getSlideVelocity(t);
+            // The slide can't go past the safe extension until the real elbow is above the safe angle
+            if (!ArmMotionPlanner.isSafe(elbowPosition, slideSetpoint)) {
+                slideSetpoint = SLIDE_SAFE_POSITION;
+                slideVelocity = 0;
+            }
+            // The elbow can't go below the safe angle until the real slide is in
+            if (!ArmMotionPlanner.isSafe(elbowSetpoint, slidePosition)) {
+                elbowSetpoint = ELBOW_SAFE_POSITION;
+                elbowVelocity = 0;
+            }
+            if (moveElbow) elbowSubsystem.followSetpoint(elbowSetpoint, elbowVelocity);
+            if (moveSlide) linearSlideSubsystem.followSetpoint(slideSetpoint, slideVelocity);
+        }
+        else {
+            if (moveElbow) elbowSubsystem.runPID();
+            if (moveSlide) linearSlideSubsystem.runPID();
+        }
+    }
+
+    /**
+     * @return True if the PID controllers can take over, the real joints are already safe for the other joint's target
+     */
+    private boolean isSafeToSettle() {
+        return ArmMotionPlanner.isSafe(elbowSubsystem.getPosition(), planner.getSlideTarget())
+                && ArmMotionPlanner.isSafe(planner.getElbowTarget(), linearSlideSubsystem.getPosition());
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        // Stopping the elbow lets go of the arm, so leave it holding the target
+        if (!elbowSubsystem.isHolding()) elbowSubsystem.stopMotor();
+        linearSlideSubsystem.stopMotor();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return !following
+                && (!moveElbow || elbowSubsystem.isAtTarget())
+                && (!moveSlide || linearSlideSubsystem.isAtTarget());
+    }
+}
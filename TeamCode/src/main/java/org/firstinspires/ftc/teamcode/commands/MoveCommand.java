@@ -4,13 +4,12 @@ import static org.firstinspires.ftc.teamcode.Constants.AutoConstants.*;
 
 import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.SequentialCommandGroup;
-import com.arcrobotics.ftclib.command.WaitCommand;
 
 import org.firstinspires.ftc.teamcode.Constants;
 import org.firstinspires.ftc.teamcode.subsystems.DriveSubsystem;
 
 /**
- * Command that performs some movement (driving, strafing, turning), then waits.
+ * Command that performs some movement (driving, strafing, turning), then waits for the robot to settle.
  */
 public class MoveCommand extends SequentialCommandGroup {
     private Command lastCommand;
@@ -20,16 +19,18 @@ public class MoveCommand extends SequentialCommandGroup {
         STRAFE,
         TURN,
         TURN_TO_HEADING,
+        /** Corrects a fixed speed turn, does nothing with PROFILED_TURNS since those settle on the heading in one pass */
         SLOW_TURN_TO_HEADING
     }
 
     /**
-     * Creates a new command that drives/strafes/turns the robot, then waits a specified amount of time.
+     * Creates a new command that drives/strafes/turns the robot, then waits until the robot has stopped moving, up to
+     * a specified amount of time.
      *
      * @param driveSubsystem Reference to the driveSubsystem
      * @param movementType What movement we are going to do (drive/strafe/turn)
      * @param value The distance/angle to move
-     * @param waitTime The amount of time to wait after the movement (in milliseconds)
+     * @param waitTime The most time to wait after the movement (in milliseconds)
      */
     public MoveCommand(DriveSubsystem driveSubsystem, MovementType movementType, double value, long waitTime) {
         switch (movementType) {
@@ -50,18 +51,24 @@ public class MoveCommand extends SequentialCommandGroup {
                 addCommands(lastCommand);
                 break;
             case SLOW_TURN_TO_HEADING:
+                if (Constants.DriveConstants.PROFILED_TURNS) {
+                    // Nothing to correct, and no need to wait for the robot to settle again
+                    lastCommand = new DelayCommand(0);
+                    addCommands(lastCommand);
+                    return;
+                }
                 lastCommand = new TurnToHeadingCommand(driveSubsystem, value, Constants.DriveConstants.AUTO_TURN_SPEED / 2);
                 addCommands(lastCommand);
                 break;
         }
         if (waitTime > 0) {
-            lastCommand = new WaitCommand(waitTime);
+            lastCommand = new SettleCommand(driveSubsystem, waitTime, movementType + " " + value);
             addCommands(lastCommand);
         }
     }
 
     /**
-     * Creates a new command that drives/strafes/turns the robot, then waits a quarter of a second.
+     * Creates a new command that drives/strafes/turns the robot, then waits for the robot to settle, up to a quarter of a second.
      *
      * @param driveSubsystem Reference to the driveSubsystem
      * @param movementType What movement we are going to do (drive/strafe/turn)
@@ -39,7 +39,8 @@ public class MoveElbowCommand extends CommandBase {
 
     @Override
     public void end(boolean interrupted) {
-        elbowSubsystem.stopMotor();
+        // Don't let go of the arm if it is holding the target
+        if (!elbowSubsystem.isHolding()) elbowSubsystem.stopMotor();
     }
 
     @Override
@@ -2,7 +2,6 @@ package org.firstinspires.ftc.teamcode.commands;
 
 import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.SequentialCommandGroup;
-import com.arcrobotics.ftclib.command.WaitCommand;
 
 import org.firstinspires.ftc.teamcode.auto.AutoPosition;
 import org.firstinspires.ftc.teamcode.commands.MoveCommand.MovementType;
@@ -23,7 +22,7 @@ public class ParkAtBackdropCommand extends SequentialCommandGroup {
      * @param autoPosition The starting auto position
      */
     public ParkAtBackdropCommand(DriveSubsystem driveSubsystem, AutoPosition autoPosition) {
-        lastCommand = new WaitCommand(1);
+        lastCommand = new DelayCommand(1);
 
         placingDownstage(driveSubsystem, autoPosition);
 
@@ -39,7 +38,7 @@ public class ParkAtBackdropCommand extends SequentialCommandGroup {
                     new MoveCommand(driveSubsystem, MovementType.TURN_TO_HEADING, autoPosition.flip(90)),
                     new MoveCommand(driveSubsystem, MovementType.SLOW_TURN_TO_HEADING, autoPosition.flip(90)),
                     // Wait for 5 seconds to allow our teammate to do whatever
-                    new WaitCommand(5000),
+                    new DelayCommand(5000),
                     // Drive forwards
                     new MoveCommand(driveSubsystem, MovementType.DRIVE, 85),
                     // Turn to heading
@@ -55,7 +54,7 @@ public class ParkAtBackdropCommand extends SequentialCommandGroup {
                     new MoveCommand(driveSubsystem, MovementType.TURN_TO_HEADING, autoPosition.flip(90)),
                     new MoveCommand(driveSubsystem, MovementType.SLOW_TURN_TO_HEADING, autoPosition.flip(90)),
                     // Wait for 5 seconds to allow our teammate to do whatever
-                    new WaitCommand(5000),
+                    new DelayCommand(5000),
                     // Drive forwards
                     new MoveCommand(driveSubsystem, MovementType.DRIVE, 85),
                     // Turn to heading
@@ -73,7 +72,7 @@ public class ParkAtBackdropCommand extends SequentialCommandGroup {
                 new MoveCommand(driveSubsystem, MovementType.TURN_TO_HEADING, autoPosition.flip(90)),
                 new MoveCommand(driveSubsystem, MovementType.SLOW_TURN_TO_HEADING, autoPosition.flip(90)),
                 // Wait for 5 seconds to allow our teammate to do whatever
-                new WaitCommand(5000),
+                new DelayCommand(5000),
                 // Drive forwards
                 new MoveCommand(driveSubsystem, MovementType.DRIVE, 85),
                 // Turn to heading
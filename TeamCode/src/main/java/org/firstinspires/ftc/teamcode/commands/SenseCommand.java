@@ -0,0 +1,54 @@
+package org.firstinspires.ftc.teamcode.commands;
+
+import com.arcrobotics.ftclib.command.CommandBase;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.teamcode.auto.SpikeMarkVoter;
+import org.firstinspires.ftc.teamcode.util.Clock;
+
+/**
+ * Command that waits at the spike marks until the spike mark voter has picked a spike mark, up to a max wait. Finishes
+ * straight away if a side spike mark was already picked on the way there. Requires nothing.
+ */
+public class SenseCommand extends CommandBase {
+    private final SpikeMarkVoter voter;
+    private final long maxWaitMs;
+
+    private long startNanos;
+    // The command groups ask the last command if it is finished before it has started and after it has ended
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * Creates a command that waits for the team prop to be found.
+     *
+     * @param voter The voter the autonomous controller is updating
+     * @param maxWaitMs The longest to wait, in milliseconds
+     */
+    public SenseCommand(SpikeMarkVoter voter, long maxWaitMs) {
+        this.voter = voter;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    @Override
+    public void initialize() {
+        voter.arrive();
+        startNanos = Clock.nanoTime();
+        started = true;
+        finished = false;
+    }
+
+    @Override
+    public boolean isFinished() {
+        if (!started) return false;
+        if (!finished) finished = voter.isDecided() || (Clock.nanoTime() - startNanos) / 1_000_000 >= maxWaitMs;
+        return finished;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        if (interrupted) return;
+        RobotLog.ii("SenseCommand", "Picked %s after %d of %d ms", voter.getSpikeMark(),
+                (Clock.nanoTime() - startNanos) / 1_000_000, maxWaitMs);
+    }
+}
@@ -0,0 +1,93 @@
+package org.firstinspires.ftc.teamcode.commands;
+
+import static org.firstinspires.ftc.teamcode.Constants.AutoConstants.*;
+
+import com.arcrobotics.ftclib.command.CommandBase;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.teamcode.subsystems.DriveSubsystem;
+import org.firstinspires.ftc.teamcode.util.Clock;
+
+/**
+ * Command that waits for the robot to stop moving after a movement. Finishes as soon as the wheels and the heading
+ * have stayed still for a short window, or once the max wait has passed, whichever comes first.
+ * Logs how much of the max wait each move saved.
+ */
+public class SettleCommand extends CommandBase {
+    /** How much waiting all of the settle commands have saved since the last reset, in milliseconds */
+    private static long totalSavedMs;
+
+    private final DriveSubsystem driveSubsystem;
+    private final long maxWaitMs;
+    private final String moveName;
+
+    private long startNanos;
+    /** When the robot was first still in the current still window, -1 if it is moving */
+    private long stillSinceNanos;
+    private long elapsedMs;
+    // The command groups ask the last command if it is finished before it has started and after it has ended
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * Creates a command that waits for the robot to settle.
+     *
+     * @param driveSubsystem Reference to the driveSubsystem, only read from
+     * @param maxWaitMs The longest to wait, in milliseconds
+     * @param moveName The name of the move that was just made, used in the log
+     */
+    public SettleCommand(DriveSubsystem driveSubsystem, long maxWaitMs, String moveName) {
+        this.driveSubsystem = driveSubsystem;
+        this.maxWaitMs = maxWaitMs;
+        this.moveName = moveName;
+    }
+
+    @Override
+    public void initialize() {
+        startNanos = Clock.nanoTime();
+        stillSinceNanos = -1;
+        started = true;
+        finished = false;
+    }
+
+    @Override
+    public boolean isFinished() {
+        if (!started) return false;
+        if (finished) return true;
+
+        long now = Clock.nanoTime();
+        elapsedMs = (now - startNanos) / 1_000_000;
+        if (elapsedMs >= maxWaitMs) {
+            finished = true;
+            return true;
+        }
+
+        boolean still = driveSubsystem.getWheelSpeed() <= SETTLE_WHEEL_SPEED
+                && Math.abs(driveSubsystem.getHeadingVelocity()) <= SETTLE_HEADING_VELOCITY;
+        if (!still) {
+            stillSinceNanos = -1;
+            return false;
+        }
+        if (stillSinceNanos < 0) stillSinceNanos = now;
+        finished = (now - stillSinceNanos) / 1_000_000 >= SETTLE_WINDOW_MS;
+        return finished;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        if (interrupted) return;
+        long savedMs = Math.max(0, maxWaitMs - elapsedMs);
+        totalSavedMs += savedMs;
+        RobotLog.ii("SettleCommand", "%s settled after %d ms, saved %d ms (%d ms total)", moveName, elapsedMs, savedMs, totalSavedMs);
+    }
+
+    /** @return How much waiting the settle commands have saved since the last reset, in milliseconds */
+    public static long getTotalSavedMs() {
+        return totalSavedMs;
+    }
+
+    /** Starts counting the saved time from zero, call this at the start of autonomous. */
+    public static void resetTotalSaved() {
+        totalSavedMs = 0;
+    }
+}
@@ -32,18 +32,24 @@ public class SnapCommand extends CommandBase {
     @Override
     public void initialize() {
         correctTargetHeading();
-        driveSubsystem.turnAsync(heading - driveSubsystem.getHeading(), Constants.DriveConstants.AUTO_TURN_SPEED);
+        if (Constants.DriveConstants.PROFILED_TURNS) {
+            driveSubsystem.turnToHeadingProfiledAsync(heading);
+            return;
+        }
+        driveSubsystem.turnAsync(heading - driveSubsystem.getExtrapolatedHeading(), Constants.DriveConstants.AUTO_TURN_SPEED);
         turningSpeed = driveSubsystem.getAutoTurnSpeed(Constants.DriveConstants.AUTO_TURN_SPEED);
     }
 
     @Override
     public void execute() {
-        driveSubsystem.drive(driver.getLeftY(), driver.getLeftX(), turningSpeed, true, 1);
+        if (Constants.DriveConstants.PROFILED_TURNS) driveSubsystem.driveWhileTurning(driver.getLeftY(), driver.getLeftX());
+        else driveSubsystem.drive(driver.getLeftY(), driver.getLeftX(), turningSpeed, true, 1);
     }
 
     @Override
     public void end(boolean interrupted) {
-
+        // Hand the drive base back to the driver if another snap or command took over mid turn
+        if (Constants.DriveConstants.PROFILED_TURNS && interrupted) driveSubsystem.stopMotors();
     }
 
     @Override
@@ -52,7 +58,7 @@ public class SnapCommand extends CommandBase {
     }
 
     private void correctTargetHeading() {
-        double currentHeading = driveSubsystem.getHeading();
+        double currentHeading = driveSubsystem.getExtrapolatedHeading();
         // Move the heading to the same "frame" as the current heading
         // This is done to prevent the robot rotating an extra or two 360 degrees
         while (heading < currentHeading - 180) heading += 360;
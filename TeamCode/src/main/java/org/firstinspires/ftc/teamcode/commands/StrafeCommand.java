@@ -1,5 +1,7 @@
 package org.firstinspires.ftc.teamcode.commands;
 
+import static org.firstinspires.ftc.teamcode.Constants.DriveConstants.PROFILED_MOVES;
+
 import com.arcrobotics.ftclib.command.CommandBase;
 
 import org.firstinspires.ftc.teamcode.subsystems.DriveSubsystem;
@@ -29,7 +31,8 @@ public class StrafeCommand extends CommandBase {
             cancel();
             return;
         }
-        driveSubsystem.strafeByDistanceAsync(distance);
+        if (PROFILED_MOVES) driveSubsystem.strafeProfiledAsync(distance);
+        else driveSubsystem.strafeByDistanceAsync(distance);
     }
 
     @Override
@@ -43,7 +43,8 @@ public class TurnByAngleCommand extends CommandBase {
             cancel();
             return;
         }
-        driveSubsystem.turnAsync(angle, speed);
+        if (Constants.DriveConstants.PROFILED_TURNS) driveSubsystem.turnProfiledAsync(angle);
+        else driveSubsystem.turnAsync(angle, speed);
     }
 
     // We don't need to put anything in here because isFinished should be called
@@ -2,7 +2,6 @@ package org.firstinspires.ftc.teamcode.commands;
 
 import com.arcrobotics.ftclib.command.Command;
 import com.arcrobotics.ftclib.command.SequentialCommandGroup;
-import com.arcrobotics.ftclib.command.WaitCommand;
 
 import org.firstinspires.ftc.teamcode.Constants;
 import org.firstinspires.ftc.teamcode.subsystems.DriveSubsystem;
@@ -23,12 +22,17 @@ public class TurnCommand extends SequentialCommandGroup {
      */
     public TurnCommand(DriveSubsystem driveSubsystem, double angle, double speed) {
         double targetHeading = driveSubsystem.getHeading() + angle;
-        lastCommand = new WaitCommand(1);
+        lastCommand = new DelayCommand(1);
 
-        addCommands(
+        // The profiled heading controller settles on the target in one pass, so it doesn't need correcting
+        if (Constants.DriveConstants.PROFILED_TURNS) addCommands(
+                new TurnByAngleCommand(driveSubsystem, angle, speed),
+                lastCommand
+        );
+        else addCommands(
                 // Turn by angle to the target
                 new TurnByAngleCommand(driveSubsystem, angle, speed),
-                new WaitCommand(250),
+                new DelayCommand(250),
                 // Then correct at a slower pace using the target heading
                 new TurnToHeadingCommand(driveSubsystem, targetHeading, speed / 2),
                 lastCommand
@@ -37,6 +37,10 @@ public class TurnToHeadingCommand extends TurnByAngleCommand {
     // set the angle here
     @Override
     public void initialize() {
+        if (Constants.DriveConstants.PROFILED_TURNS) {
+            driveSubsystem.turnToHeadingProfiledAsync(targetHeading);
+            return;
+        }
         angle = targetHeading - driveSubsystem.getHeading();
         super.initialize();
     }
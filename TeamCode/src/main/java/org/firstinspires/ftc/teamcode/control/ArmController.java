@@ -0,0 +1,114 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import static org.firstinspires.ftc.teamcode.Constants.ArmConstants.ELBOW_KV;
+import static org.firstinspires.ftc.teamcode.Constants.ArmConstants.ELBOW_MAX_ACCELERATION;
+import static org.firstinspires.ftc.teamcode.Constants.ArmConstants.ELBOW_MAX_VELOCITY;
+import static org.firstinspires.ftc.teamcode.Constants.ElbowConstants.*;
+
+import org.firstinspires.ftc.teamcode.util.Clock;
+
+/**
+ * Moves the elbow to a target in one pass. The move follows a {@link TrapezoidProfile}, with feedforward on the
+ * profile, a cosine feedforward that cancels out gravity at every angle, and PD feedback on the position. Because
+ * gravity is cancelled out, the arm doesn't stop short of the target, and it can be held there afterwards.
+ * Positions are in encoder ticks and velocities in ticks per second.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class ArmController {
+    private final TrapezoidProfile profile = new TrapezoidProfile();
+    private double startPosition;
+    private double targetPosition;
+    private long startNanos;
+    private boolean finished = true;
+
+    /**
+     * Plans a move from the current position to the target. If a move is already running, the new move carries on
+     * from where the profile is now at the speed it is going, so changing presets mid-move doesn't jerk the arm.
+     *
+     * @param currentPosition Where the elbow is now
+     * @param targetPosition Where the elbow should end up
+     */
+    public void start(double currentPosition, double targetPosition) {
+        long now = Clock.nanoTime();
+        double startVelocity = 0;
+        if (!finished) {
+            double t = (now - startNanos) / 1e9;
+            currentPosition = startPosition + profile.getPosition(t);
+            startVelocity = profile.getVelocity(t);
+        }
+        startPosition = currentPosition;
+        this.targetPosition = targetPosition;
+        profile.plan(targetPosition - currentPosition, startVelocity, ELBOW_MAX_VELOCITY, ELBOW_MAX_ACCELERATION);
+        startNanos = now;
+        finished = false;
+    }
+
+    /**
+     * Calculates the power for the elbow this loop, and checks if the move has finished.
+     *
+     * @param position The position of the elbow
+     * @param velocity The velocity of the elbow
+     * @return The power for the elbow motor, 0 once the move has finished
+     */
+    public double calculate(double position, double velocity) {
+        if (finished) return 0;
+        double t = (Clock.nanoTime() - startNanos) / 1e9;
+
+        if (profile.isFinished(t)
+                && ((Math.abs(targetPosition - position) <= ELBOW_POSITION_TOLERANCE && Math.abs(velocity) <= ELBOW_VELOCITY_TOLERANCE)
+                || t >= profile.getDuration() + ELBOW_SETTLE_TIMEOUT)) {
+            finished = true;
+            return 0;
+        }
+
+        double targetVelocity = profile.getVelocity(t);
+        double positionError = startPosition + profile.getPosition(t) - position;
+        return getGravityFeedforward(position) + ELBOW_KV * targetVelocity + ELBOW_KA * profile.getAcceleration(t)
+                + ELBOW_KP * positionError + ELBOW_KD * (targetVelocity - velocity);
+    }
+
+    /**
+     * Calculates the power that keeps the elbow at the target once the move has finished.
+     *
+     * @param position The position of the elbow
+     * @param velocity The velocity of the elbow
+     * @return The power for the elbow motor
+     */
+    public double hold(double position, double velocity) {
+        return getGravityFeedforward(position) + ELBOW_KP * (targetPosition - position) - ELBOW_KD * velocity;
+    }
+
+    /**
+     * @param position A position of the elbow
+     * @return The power needed to hold the arm still against gravity at that position
+     */
+    public static double getGravityFeedforward(double position) {
+        return ELBOW_KG * Math.cos(Math.toRadians((position - HORIZONTAL_POSITION) * DEGREES_PER_TICK));
+    }
+
+    /**
+     * Makes {@link #hold(double, double)} hold a new position, without starting a move.
+     *
+     * @param targetPosition The position to hold
+     */
+    public void setHoldPosition(double targetPosition) {
+        this.targetPosition = targetPosition;
+        finished = true;
+    }
+
+    /** @return The position the move ends at, or the position being held */
+    public double getTarget() {
+        return targetPosition;
+    }
+
+    /** @return True once the elbow has settled on the target */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /** Stops the move, {@link #calculate(double, double)} will return 0 from now on. */
+    public void stop() {
+        finished = true;
+    }
+}
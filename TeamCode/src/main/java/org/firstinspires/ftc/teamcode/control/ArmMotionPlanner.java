@@ -0,0 +1,121 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import static org.firstinspires.ftc.teamcode.Constants.ArmConstants.*;
+
+/**
+ * Plans a move of the elbow and the slide together. Each joint follows its own {@link TrapezoidProfile}, and the
+ * profiles are timed so that both joints finish together when they can, instead of one waiting for the other.
+ * <p>
+ * The plan keeps the arm inside the safe envelope: the slide is never further out than SLIDE_SAFE_POSITION while
+ * the elbow is below ELBOW_SAFE_POSITION. When raising the arm, the slide waits just long enough to pass that
+ * point after the elbow does, and when lowering it the elbow waits for the slide.
+ * All positions are in encoder ticks and all times are in seconds since the start of the move.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class ArmMotionPlanner {
+    private final TrapezoidProfile elbowProfile = new TrapezoidProfile();
+    private final TrapezoidProfile slideProfile = new TrapezoidProfile();
+
+    private double elbowStart;
+    private double elbowTarget;
+    private double elbowDelay;
+    private double slideStart;
+    private double slideTarget;
+    private double slideDelay;
+    private double duration;
+
+    /**
+     * Plans a move from the current positions to the targets. If the targets are outside the safe envelope, the
+     * slide target is pulled in to the edge of it.
+     *
+     * @param elbowStart Where the elbow is now
+     * @param elbowTarget Where the elbow should end up
+     * @param slideStart Where the slide is now
+     * @param slideTarget Where the slide should end up
+     */
+    public void plan(double elbowStart, double elbowTarget, double slideStart, double slideTarget) {
+        if (!isSafe(elbowTarget, slideTarget)) slideTarget = Math.min(slideTarget, SLIDE_SAFE_POSITION);
+        this.elbowStart = elbowStart;
+        this.elbowTarget = elbowTarget;
+        this.slideStart = slideStart;
+        this.slideTarget = slideTarget;
+
+        elbowProfile.plan(elbowTarget - elbowStart, ELBOW_MAX_VELOCITY, ELBOW_MAX_ACCELERATION);
+        slideProfile.plan(slideTarget - slideStart, SLIDE_MAX_VELOCITY, SLIDE_MAX_ACCELERATION);
+        elbowDelay = 0;
+        slideDelay = 0;
+
+        boolean slideWaitsForElbow = elbowStart < ELBOW_SAFE_POSITION && elbowTarget >= ELBOW_SAFE_POSITION
+                && slideTarget > SLIDE_SAFE_POSITION;
+        boolean elbowWaitsForSlide = elbowStart >= ELBOW_SAFE_POSITION && elbowTarget < ELBOW_SAFE_POSITION
+                && slideStart > SLIDE_SAFE_POSITION;
+
+        if (slideWaitsForElbow) {
+            // Stretch the slide to finish with the elbow, then start it late enough to only pass the
+            // safe extension once the elbow is above the safe angle
+            double elbowSafeTime = elbowProfile.getTime(ELBOW_SAFE_POSITION - elbowStart);
+            slideProfile.stretchTo(elbowProfile.getDuration() - elbowSafeTime);
+            slideDelay = Math.max(0, elbowSafeTime - slideProfile.getTime(SLIDE_SAFE_POSITION - slideStart));
+        }
+        else if (elbowWaitsForSlide) {
+            // The slide goes in at full speed, the elbow is stretched to finish with it, then started late enough
+            // to only pass below the safe angle once the slide is in
+            double slideSafeTime = slideProfile.getTime(SLIDE_SAFE_POSITION - slideStart);
+            elbowProfile.stretchTo(slideProfile.getDuration() - slideSafeTime);
+            elbowDelay = Math.max(0, slideSafeTime - elbowProfile.getTime(ELBOW_SAFE_POSITION - elbowStart));
+        }
+        else {
+            // Nothing to wait for, so just slow the quicker joint down to finish with the slower one
+            double longest = Math.max(elbowProfile.getDuration(), slideProfile.getDuration());
+            elbowProfile.stretchTo(longest);
+            slideProfile.stretchTo(longest);
+        }
+
+        duration = Math.max(elbowDelay + elbowProfile.getDuration(), slideDelay + slideProfile.getDuration());
+    }
+
+    /**
+     * @param elbowPosition The position of the elbow
+     * @param slidePosition The position of the slide
+     * @return True if the arm is inside the safe envelope at those positions
+     */
+    public static boolean isSafe(double elbowPosition, double slidePosition) {
+        return elbowPosition >= ELBOW_SAFE_POSITION || slidePosition <= SLIDE_SAFE_POSITION;
+    }
+
+    /** @return How long the whole move takes */
+    public double getDuration() {
+        return duration;
+    }
+
+    /** @return Where the elbow should be at time t */
+    public double getElbowPosition(double t) {
+        return elbowStart + elbowProfile.getPosition(t - elbowDelay);
+    }
+
+    /** @return How fast the elbow should be moving at time t, in ticks per second */
+    public double getElbowVelocity(double t) {
+        return elbowProfile.getVelocity(t - elbowDelay);
+    }
+
+    /** @return Where the slide should be at time t */
+    public double getSlidePosition(double t) {
+        return slideStart + slideProfile.getPosition(t - slideDelay);
+    }
+
+    /** @return How fast the slide should be moving at time t, in ticks per second */
+    public double getSlideVelocity(double t) {
+        return slideProfile.getVelocity(t - slideDelay);
+    }
+
+    /** @return Where the elbow ends up */
+    public double getElbowTarget() {
+        return elbowTarget;
+    }
+
+    /** @return Where the slide ends up, pulled in if the requested target wasn't safe */
+    public double getSlideTarget() {
+        return slideTarget;
+    }
+}
@@ -0,0 +1,204 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.hardware.HubManager;
+import org.firstinspires.ftc.teamcode.profiling.LatencyHistogram;
+import org.firstinspires.ftc.teamcode.telemetry.TelemetryBoard;
+import org.firstinspires.ftc.teamcode.util.FixedRateLoop;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the control loops of the mechanisms on their own high priority thread at a fixed rate, so they don't slow down
+ * when the main loop is busy with telemetry, I2C reads or the command scheduler. The gamepads and commands stay on the
+ * main thread and hand requests over with {@link ControlRequest}.
+ * <p>
+ * While it runs, the control thread owns the refresh of the robot's {@link HubManager}: every tick does one bulk read
+ * of each hub into its cache, runs the tasks, then flushes their writes. The main thread never does a bulk read. The main loop keeps reading through the same cache, its
+ * snapshots just hold the values from the tick they were first read on. Motors read and written by a task should use
+ * snapshots and outputs made from {@link #getHubManager()}, which counts the ticks but owns no hubs.
+ * How late each tick starts (the jitter) is measured and published once a second.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class ControlExecutor {
+    /** The robot's hub manager, only its hubs are refreshed from here */
+    private final HubManager robotHubManager;
+    /** Counts the ticks for the tasks' snapshots and flushes their outputs */
+    private final HubManager hubManager = new HubManager();
+    private final FixedRateLoop loop;
+    private final long periodNanos;
+
+    /** The tasks run each tick, only added to before the thread starts */
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    // Only used by the control thread
+    private final LatencyHistogram jitterHistogram = new LatencyHistogram();
+    private final LatencyHistogram taskHistogram = new LatencyHistogram();
+    private long lastTickNanos;
+    private long lastPublishNanos;
+    private int overruns;
+
+    // The statistics from the last second, published by the control thread
+    private volatile long jitterP50Nanos;
+    private volatile long jitterP99Nanos;
+    private volatile long jitterMaxNanos;
+    private volatile long taskP99Nanos;
+    private volatile long ticksPerSecond;
+    private volatile int overrunsPerSecond;
+
+    // The telemetry slots of the statistics
+    private int rateSlot;
+    private int jitterP50Slot;
+    private int jitterP99Slot;
+    private int jitterMaxSlot;
+    private int taskP99Slot;
+    private int overrunsSlot;
+
+    /**
+     * Constructs a ControlExecutor, register the tasks then call {@link #start()}.
+     *
+     * @param robotHubManager The hub manager of the robot, which the control thread refreshes while it runs
+     * @param periodMs How often the tasks run, in milliseconds
+     */
+    public ControlExecutor(HubManager robotHubManager, double periodMs) {
+        this.robotHubManager = robotHubManager;
+        periodNanos = (long) (periodMs * 1e6);
+        loop = new FixedRateLoop("ControlExecutor", periodMs, Thread.MAX_PRIORITY, this::tick);
+    }
+
+    /**
+     * Adds a task to run every tick, must be called before {@link #start()}.
+     *
+     * @param task The task to run
+     */
+    public void register(Runnable task) {
+        if (loop.isRunning()) throw new IllegalStateException("Tasks must be registered before the control thread starts");
+        tasks.add(task);
+    }
+
+    /** Starts the control thread. */
+    public void start() {
+        lastTickNanos = 0;
+        lastPublishNanos = System.nanoTime();
+        robotHubManager.setRefreshedElsewhere(true);
+        loop.start();
+    }
+
+    /** Stops the control thread and waits for the current tick to finish, the main loop refreshes the hubs again. */
+    public void stop() {
+        loop.stop();
+        robotHubManager.setRefreshedElsewhere(false);
+    }
+
+    /** @return The hub manager of the control thread, for the snapshots and outputs used by the tasks */
+    public HubManager getHubManager() {
+        return hubManager;
+    }
+
+    /** Runs every task once, on the control thread. */
+    private void tick() {
+        long start = System.nanoTime();
+        if (lastTickNanos != 0) jitterHistogram.record(Math.abs(start - lastTickNanos - periodNanos));
+        lastTickNanos = start;
+
+        // The only bulk read of the tick, the main loop reads the same data through the cache
+        robotHubManager.readHubs();
+        hubManager.clearBulkCache();
+        for (int i = 0; i < tasks.size(); i++) {
+            tasks.get(i).run();
+        }
+        hubManager.flushWrites();
+
+        long taskNanos = System.nanoTime() - start;
+        taskHistogram.record(taskNanos);
+        if (taskNanos > periodNanos) overruns++;
+
+        if (start - lastPublishNanos >= 1_000_000_000L) publish(start);
+    }
+
+    /** Publishes the statistics of the last second and starts counting again. */
+    private void publish(long now) {
+        jitterP50Nanos = jitterHistogram.getPercentile(0.5);
+        jitterP99Nanos = jitterHistogram.getPercentile(0.99);
+        jitterMaxNanos = jitterHistogram.getMax();
+        taskP99Nanos = taskHistogram.getPercentile(0.99);
+        ticksPerSecond = Math.round(taskHistogram.getCount() * 1e9 / (now - lastPublishNanos));
+        overrunsPerSecond = overruns;
+        jitterHistogram.reset();
+        taskHistogram.reset();
+        overruns = 0;
+        lastPublishNanos = now;
+    }
+
+    /** @return The median of how late a tick started in the last second, in milliseconds */
+    public double getJitterP50Ms() {
+        return jitterP50Nanos / 1e6;
+    }
+
+    /** @return The 99th percentile of how late a tick started in the last second, in milliseconds */
+    public double getJitterP99Ms() {
+        return jitterP99Nanos / 1e6;
+    }
+
+    /** @return The most a tick started late in the last second, in milliseconds */
+    public double getJitterMaxMs() {
+        return jitterMaxNanos / 1e6;
+    }
+
+    /** @return The 99th percentile of how long the tasks took in the last second, in milliseconds */
+    public double getTaskP99Ms() {
+        return taskP99Nanos / 1e6;
+    }
+
+    /** @return How many ticks ran in the last second */
+    public long getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    /** @return How many ticks in the last second took longer than the period */
+    public int getOverrunsPerSecond() {
+        return overrunsPerSecond;
+    }
+
+    /**
+     * Adds the loop rate and jitter of the control thread to the telemetry board.
+     *
+     * @param board The board to add to
+     */
+    public void registerTelemetry(TelemetryBoard board) {
+        rateSlot = board.addNumber("Control loop (Hz)", "%.0f");
+        jitterP50Slot = board.addNumber("Control jitter p50 (ms)", "%.2f");
+        jitterP99Slot = board.addNumber("Control jitter p99 (ms)", "%.2f");
+        jitterMaxSlot = board.addNumber("Control jitter max (ms)", "%.2f");
+        taskP99Slot = board.addNumber("Control task p99 (ms)", "%.2f");
+        overrunsSlot = board.addNumber("Control overruns", "%.0f");
+    }
+
+    /**
+     * Publishes the loop rate and jitter of the control thread.
+     *
+     * @param board The board to write to
+     */
+    public void publishTelemetry(TelemetryBoard board) {
+        board.set(rateSlot, ticksPerSecond);
+        board.set(jitterP50Slot, getJitterP50Ms());
+        board.set(jitterP99Slot, getJitterP99Ms());
+        board.set(jitterMaxSlot, getJitterMaxMs());
+        board.set(taskP99Slot, getTaskP99Ms());
+        board.set(overrunsSlot, overrunsPerSecond);
+    }
+
+    /**
+     * Prints the loop rate and jitter of the control thread.
+     *
+     * @param telemetry The telemetry to print to
+     */
+    public void printData(Telemetry telemetry) {
+        telemetry.addData("Control loop (Hz)", ticksPerSecond);
+        telemetry.addData("Control jitter p50/p99/max (ms)", "%.2f / %.2f / %.2f", getJitterP50Ms(), getJitterP99Ms(), getJitterMaxMs());
+        telemetry.addData("Control task p99 (ms)", "%.2f", getTaskP99Ms());
+        telemetry.addData("Control overruns", overrunsPerSecond);
+    }
+}
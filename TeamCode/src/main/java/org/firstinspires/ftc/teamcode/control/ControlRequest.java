@@ -0,0 +1,101 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import org.firstinspires.ftc.teamcode.util.Clock;
+
+/**
+ * Hands the latest request from the main thread to the control thread without locking or allocating. A request is a
+ * type and two values, stamped with when it was posted. If another request is posted before the control thread polls,
+ * it replaces the first one, so the control thread always acts on the newest request.
+ * <p>
+ * Only one thread may post and only one thread may poll. The values are written between two increments of a sequence
+ * number, so the control thread can tell if it read them halfway through a write and try again on its next tick.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class ControlRequest {
+    /** Odd while a request is being written */
+    private volatile long sequence;
+    /** The sequence of the last request the control thread has acted on */
+    private volatile long appliedSequence;
+
+    private volatile int type;
+    private volatile double first;
+    private volatile double second;
+    private volatile long postedNanos;
+
+    // The last request that was polled, only used by the control thread
+    private long polledSequence;
+    private int polledType;
+    private double polledFirst;
+    private double polledSecond;
+    private long polledNanos;
+
+    /**
+     * Posts a request, called from the main thread.
+     *
+     * @param type What kind of request it is, defined by the subsystem
+     * @param first The first value of the request
+     * @param second The second value of the request
+     */
+    public void post(int type, double first, double second) {
+        long s = sequence;
+        sequence = s + 1;
+        this.type = type;
+        this.first = first;
+        this.second = second;
+        postedNanos = Clock.nanoTime();
+        sequence = s + 2;
+    }
+
+    /**
+     * Copies the newest request if there is one the control thread hasn't seen, called from the control thread.
+     *
+     * @return True if there is a new request, read it with the getters and call {@link #markApplied()} once it's done
+     */
+    public boolean poll() {
+        long s = sequence;
+        if (s == polledSequence || (s & 1) != 0) return false;
+        int t = type;
+        double a = first;
+        double b = second;
+        long n = postedNanos;
+        // The request was replaced while we read it, get the new one next tick
+        if (sequence != s) return false;
+        polledSequence = s;
+        polledType = t;
+        polledFirst = a;
+        polledSecond = b;
+        polledNanos = n;
+        return true;
+    }
+
+    /** Tells the main thread that the last polled request has been acted on. */
+    public void markApplied() {
+        appliedSequence = polledSequence;
+    }
+
+    /** @return True if the control thread hasn't acted on the newest request yet, called from the main thread */
+    public boolean isPending() {
+        return appliedSequence != sequence;
+    }
+
+    /** @return The type of the last polled request */
+    public int getType() {
+        return polledType;
+    }
+
+    /** @return The first value of the last polled request */
+    public double getFirst() {
+        return polledFirst;
+    }
+
+    /** @return The second value of the last polled request */
+    public double getSecond() {
+        return polledSecond;
+    }
+
+    /** @return How long ago the last polled request was posted, in seconds */
+    public double getAge() {
+        return (Clock.nanoTime() - polledNanos) / 1e9;
+    }
+}
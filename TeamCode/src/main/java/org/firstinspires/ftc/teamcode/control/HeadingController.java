@@ -0,0 +1,80 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import static org.firstinspires.ftc.teamcode.Constants.DriveConstants.*;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.teamcode.util.Clock;
+
+/**
+ * Turns the robot to a heading in one pass. The turn follows a {@link TrapezoidProfile} the short way around, with
+ * feedforward on the profile and PD feedback on the heading, so it doesn't overshoot and need a second slow turn.
+ * Headings are in degrees, counter clockwise positive, like the IMU.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class HeadingController {
+    private final TrapezoidProfile profile = new TrapezoidProfile();
+    private double startHeading;
+    private double targetHeading;
+    private long startNanos;
+    private boolean finished = true;
+
+    /**
+     * Plans a turn from the current heading to the target heading, whichever way around is shorter.
+     *
+     * @param currentHeading The heading the robot is at now
+     * @param targetHeading The heading to turn to
+     */
+    public void start(double currentHeading, double targetHeading) {
+        startHeading = currentHeading;
+        this.targetHeading = AngleUnit.normalizeDegrees(targetHeading);
+        profile.plan(AngleUnit.normalizeDegrees(targetHeading - currentHeading), TURN_MAX_VELOCITY, TURN_MAX_ACCELERATION);
+        startNanos = Clock.nanoTime();
+        finished = false;
+    }
+
+    /**
+     * Calculates how fast to turn this loop, and checks if the turn has finished.
+     *
+     * @param heading The heading of the robot
+     * @param headingVelocity How fast the robot is turning, in degrees per second counter clockwise
+     * @return The turn power, counter clockwise positive, 0 once the turn has finished
+     */
+    public double calculate(double heading, double headingVelocity) {
+        if (finished) return 0;
+        double t = (Clock.nanoTime() - startNanos) / 1e9;
+
+        if (profile.isFinished(t)
+                && ((Math.abs(getError(heading)) <= TURN_HEADING_TOLERANCE && Math.abs(headingVelocity) <= TURN_VELOCITY_TOLERANCE)
+                || t >= profile.getDuration() + TURN_SETTLE_TIMEOUT)) {
+            finished = true;
+            return 0;
+        }
+
+        double targetVelocity = profile.getVelocity(t);
+        double headingError = AngleUnit.normalizeDegrees(startHeading + profile.getPosition(t) - heading);
+        double power = TURN_KV * targetVelocity + TURN_KA * profile.getAcceleration(t)
+                + TURN_KP * headingError + TURN_KD * (targetVelocity - headingVelocity);
+        // Always push past static friction while there is still somewhere to go
+        if (Math.abs(getError(heading)) > TURN_HEADING_TOLERANCE) power += Math.signum(power) * TURN_KS;
+        return power;
+    }
+
+    /**
+     * @param heading The heading of the robot
+     * @return How far the robot is from the target heading, the short way around
+     */
+    public double getError(double heading) {
+        return AngleUnit.normalizeDegrees(targetHeading - heading);
+    }
+
+    /** @return True once the robot has settled on the target heading */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /** Stops the turn, {@link #calculate(double, double)} will return 0 from now on. */
+    public void stop() {
+        finished = true;
+    }
+}
@@ -0,0 +1,162 @@
+package org.firstinspires.ftc.teamcode.control;
+
+/**
+ * A motion profile made of segments of constant jerk, which covers both trapezoidal and S-curve profiles. Subclasses
+ * plan a move by adding segments, then the profile can be sampled at any time.
+ * <p>
+ * The segments are kept in arrays sized when the profile is made, so planning and sampling never allocate, and a
+ * sample only evaluates one segment. Samples are usually taken forwards in time, so the last segment is remembered
+ * and the search starts from it. Positions are relative to where the move started.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public abstract class MotionProfile {
+    // The state at the start of each segment
+    private final double[] startTimes;
+    private final double[] startPositions;
+    private final double[] startVelocities;
+    private final double[] startAccelerations;
+    private final double[] jerks;
+    private int segmentCount;
+
+    private double startVelocity;
+    private double endTime;
+    private double endPosition;
+    private double endVelocity;
+
+    /** The segment that was sampled last */
+    private int lastSegment;
+
+    /** @param maxSegments The most segments a planned move can have */
+    protected MotionProfile(int maxSegments) {
+        startTimes = new double[maxSegments];
+        startPositions = new double[maxSegments];
+        startVelocities = new double[maxSegments];
+        startAccelerations = new double[maxSegments];
+        jerks = new double[maxSegments];
+    }
+
+    /**
+     * Clears the profile before planning a new move.
+     *
+     * @param startVelocity How fast the move starts
+     */
+    protected void reset(double startVelocity) {
+        segmentCount = 0;
+        lastSegment = 0;
+        this.startVelocity = startVelocity;
+        endTime = 0;
+        endPosition = 0;
+        endVelocity = startVelocity;
+    }
+
+    /**
+     * Adds a segment to the end of the profile. The position and velocity carry on from the previous segment.
+     *
+     * @param duration How long the segment lasts, segments that don't last any time are skipped
+     * @param acceleration The acceleration at the start of the segment
+     * @param jerk The jerk during the segment
+     */
+    protected void addSegment(double duration, double acceleration, double jerk) {
+        if (!(duration > 1e-9)) return;
+        int i = segmentCount++;
+        startTimes[i] = endTime;
+        startPositions[i] = endPosition;
+        startVelocities[i] = endVelocity;
+        startAccelerations[i] = acceleration;
+        jerks[i] = jerk;
+
+        endTime += duration;
+        endPosition += ((jerk / 6 * duration + acceleration / 2) * duration + endVelocity) * duration;
+        endVelocity += (jerk / 2 * duration + acceleration) * duration;
+    }
+
+    /** @return The index of the segment that time t is in, t must be inside the profile */
+    private int segmentAt(double t) {
+        int i = lastSegment;
+        if (t < startTimes[i]) i = 0;
+        while (i < segmentCount - 1 && t >= startTimes[i + 1]) i++;
+        lastSegment = i;
+        return i;
+    }
+
+    /** @return How long the move takes, in seconds */
+    public double getDuration() {
+        return endTime;
+    }
+
+    /**
+     * @param t The time since the start of the move, in seconds
+     * @return Whether the profile has reached the end of the move
+     */
+    public boolean isFinished(double t) {
+        return t >= endTime;
+    }
+
+    /** @return Where the move ends, relative to the start */
+    public double getEndPosition() {
+        return endPosition;
+    }
+
+    /**
+     * @param t The time since the start of the move, in seconds
+     * @return Where the profile is at that time, relative to the start
+     */
+    public double getPosition(double t) {
+        if (t <= 0 || segmentCount == 0) return 0;
+        if (t >= endTime) return endPosition;
+        int i = segmentAt(t);
+        double dt = t - startTimes[i];
+        return startPositions[i] + ((jerks[i] / 6 * dt + startAccelerations[i] / 2) * dt + startVelocities[i]) * dt;
+    }
+
+    /**
+     * @param t The time since the start of the move, in seconds
+     * @return How fast the profile is moving at that time
+     */
+    public double getVelocity(double t) {
+        if (t <= 0 || segmentCount == 0) return t <= 0 ? startVelocity : 0;
+        if (t >= endTime) return 0;
+        int i = segmentAt(t);
+        double dt = t - startTimes[i];
+        return startVelocities[i] + (jerks[i] / 2 * dt + startAccelerations[i]) * dt;
+    }
+
+    /**
+     * @param t The time since the start of the move, in seconds
+     * @return How fast the profile is speeding up at that time
+     */
+    public double getAcceleration(double t) {
+        if (t <= 0 || t >= endTime) return 0;
+        int i = segmentAt(t);
+        return startAccelerations[i] + jerks[i] * (t - startTimes[i]);
+    }
+
+    /**
+     * The inverse of {@link #getPosition(double)}, for finding when the move passes a point. Only makes sense for moves
+     * that don't turn around, like moves that start from rest.
+     *
+     * @param position A position relative to the start
+     * @return The time the profile reaches that position, clipped to the start and end of the move
+     */
+    public double getTime(double position) {
+        if (segmentCount == 0) return 0;
+        // Work in the direction of the move, so positions only go up
+        double direction = endPosition < 0 ? -1 : 1;
+        double target = direction * position;
+        if (target <= 0) return 0;
+        if (target >= direction * endPosition) return endTime;
+
+        int i = 0;
+        while (i < segmentCount - 1 && direction * startPositions[i + 1] <= target) i++;
+        double low = startTimes[i];
+        double high = i < segmentCount - 1 ? startTimes[i + 1] : endTime;
+        // Positions inside a segment are a cubic in time, so bisect rather than solve it
+        for (int n = 0; n < 50; n++) {
+            double mid = 0.5 * (low + high);
+            if (direction * getPosition(mid) < target) low = mid;
+            else high = mid;
+        }
+        return 0.5 * (low + high);
+    }
+}
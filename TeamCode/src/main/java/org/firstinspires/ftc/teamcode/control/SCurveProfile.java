@@ -0,0 +1,122 @@
+package org.firstinspires.ftc.teamcode.control;
+
+/**
+ * A jerk limited (S-curve) motion profile. Like a {@link TrapezoidProfile}, but the acceleration ramps up and down at
+ * the max jerk instead of jumping, which is gentler on mechanisms that swing or flex, like the arm.
+ * <p>
+ * A move can start at any velocity, as long as it isn't accelerating, so the profile can be re-planned from where a
+ * mechanism is in the middle of a move. If it is moving the wrong way, or too fast to stop in time, it stops first
+ * and then comes back. Nothing is allocated after construction.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SCurveProfile extends MotionProfile {
+    private double maxAcceleration;
+    private double maxJerk;
+
+    /** Constructs an empty SCurveProfile, it doesn't move until a move is planned. */
+    public SCurveProfile() {
+        // Stopping, speeding up and slowing down take 3 segments each, plus cruising
+        super(10);
+    }
+
+    /**
+     * Plans a move from rest to rest.
+     *
+     * @param distance How far to move, negative to move backwards
+     * @param maxVelocity The fastest to move, must be positive
+     * @param maxAcceleration The fastest to speed up and slow down, must be positive
+     * @param maxJerk The fastest the acceleration can change, must be positive
+     */
+    public void plan(double distance, double maxVelocity, double maxAcceleration, double maxJerk) {
+        plan(distance, 0, maxVelocity, maxAcceleration, maxJerk);
+    }
+
+    /**
+     * Plans a move that starts at a velocity, with no acceleration, and ends at rest.
+     *
+     * @param distance How far to move, negative to move backwards
+     * @param startVelocity How fast the move starts
+     * @param maxVelocity The fastest to move, must be positive
+     * @param maxAcceleration The fastest to speed up and slow down, must be positive
+     * @param maxJerk The fastest the acceleration can change, must be positive
+     */
+    public void plan(double distance, double startVelocity, double maxVelocity, double maxAcceleration, double maxJerk) {
+        reset(startVelocity);
+        this.maxAcceleration = maxAcceleration;
+        this.maxJerk = maxJerk;
+
+        double speed = Math.abs(startVelocity);
+        double stopDistance = Math.signum(startVelocity) * speed / 2 * getChangeTime(speed);
+        double direction = Math.signum(distance - stopDistance);
+        if (direction == 0) direction = Math.signum(startVelocity);
+        if (direction == 0) return;
+
+        double d = direction * distance;
+        double u = direction * startVelocity;
+        // Slowing down to the max velocity and cruising doesn't always fit if we start faster than it
+        if (u < 0 || (u > maxVelocity && getMoveDistance(u, maxVelocity) > d)) {
+            // Moving away from the target, or too fast to get there smoothly, so stop first
+            addVelocityChange(startVelocity, 0);
+            d -= direction * stopDistance;
+            u = 0;
+        }
+
+        double peakVelocity;
+        if (u >= maxVelocity || getMoveDistance(u, maxVelocity) <= d) peakVelocity = maxVelocity;
+        else {
+            // The distance only goes up with the peak velocity, so search for the one that fits exactly
+            double low = u;
+            double high = maxVelocity;
+            for (int i = 0; i < 50; i++) {
+                double mid = 0.5 * (low + high);
+                if (getMoveDistance(u, mid) <= d) low = mid;
+                else high = mid;
+            }
+            peakVelocity = low;
+        }
+
+        double cruiseDistance = d - getMoveDistance(u, peakVelocity);
+        addVelocityChange(direction * u, direction * peakVelocity);
+        if (peakVelocity > 0) addSegment(Math.max(0, cruiseDistance / peakVelocity), 0, 0);
+        addVelocityChange(direction * peakVelocity, 0);
+    }
+
+    /**
+     * @param startSpeed The speed at the start of the move
+     * @param peakSpeed The speed to cruise at
+     * @return How far a move goes changing to the peak speed and back to rest, without cruising
+     */
+    private double getMoveDistance(double startSpeed, double peakSpeed) {
+        return (startSpeed + peakSpeed) / 2 * getChangeTime(Math.abs(peakSpeed - startSpeed))
+                + peakSpeed / 2 * getChangeTime(peakSpeed);
+    }
+
+    /**
+     * @param speedChange How much the velocity changes by, must not be negative
+     * @return How long it takes to change velocity by that much, starting and ending with no acceleration
+     */
+    private double getChangeTime(double speedChange) {
+        if (speedChange <= 0) return 0;
+        double peakAcceleration = Math.min(maxAcceleration, Math.sqrt(speedChange * maxJerk));
+        return speedChange / peakAcceleration + peakAcceleration / maxJerk;
+    }
+
+    /**
+     * Adds the segments that change from one velocity to another, ramping the acceleration up and back down. Because
+     * the change is symmetrical, it covers the average of the two velocities times how long it takes.
+     *
+     * @param fromVelocity The velocity at the start of the change
+     * @param toVelocity The velocity at the end of the change
+     */
+    private void addVelocityChange(double fromVelocity, double toVelocity) {
+        double change = Math.abs(toVelocity - fromVelocity);
+        if (change <= 0) return;
+        double sign = Math.signum(toVelocity - fromVelocity);
+        double peakAcceleration = Math.min(maxAcceleration, Math.sqrt(change * maxJerk));
+        double jerkTime = peakAcceleration / maxJerk;
+        addSegment(jerkTime, 0, sign * maxJerk);
+        addSegment(change / peakAcceleration - jerkTime, sign * peakAcceleration, 0);
+        addSegment(jerkTime, sign * peakAcceleration, -sign * maxJerk);
+    }
+}
@@ -0,0 +1,103 @@
+package org.firstinspires.ftc.teamcode.control;
+
+/**
+ * A trapezoidal motion profile. The velocity ramps at a constant acceleration, cruises at the max velocity and ramps
+ * back down to rest. If the move is too short to reach the max velocity, it becomes a triangle.
+ * <p>
+ * A move can start at any velocity, so the profile can be re-planned from where a mechanism is in the middle of a
+ * move. If it is moving the wrong way, or too fast to stop in time, it stops first and then comes back.
+ * Plan a move with {@link #plan(double, double, double)}, then sample it every loop, nothing is allocated.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class TrapezoidProfile extends MotionProfile {
+    // The limits of the last move, used to stretch it
+    private double distance;
+    private double maxAcceleration;
+    private double peakVelocity;
+    private boolean fromRest;
+
+    /** Constructs an empty TrapezoidProfile, it doesn't move until a move is planned. */
+    public TrapezoidProfile() {
+        // Stopping, speeding up, cruising and slowing down
+        super(4);
+    }
+
+    /**
+     * Plans a move from rest to rest.
+     *
+     * @param distance How far to move, negative to move backwards
+     * @param maxVelocity The fastest to move, must be positive
+     * @param maxAcceleration The fastest to speed up and slow down, must be positive
+     */
+    public void plan(double distance, double maxVelocity, double maxAcceleration) {
+        plan(distance, 0, maxVelocity, maxAcceleration);
+    }
+
+    /**
+     * Plans a move that starts at a velocity and ends at rest.
+     *
+     * @param distance How far to move, negative to move backwards
+     * @param startVelocity How fast the move starts
+     * @param maxVelocity The fastest to move, must be positive
+     * @param maxAcceleration The fastest to speed up and slow down, must be positive
+     */
+    public void plan(double distance, double startVelocity, double maxVelocity, double maxAcceleration) {
+        reset(startVelocity);
+        this.distance = distance;
+        this.maxAcceleration = maxAcceleration;
+        fromRest = startVelocity == 0;
+        peakVelocity = 0;
+
+        // Where we would end up if we stopped as quickly as possible
+        double stopDistance = startVelocity * Math.abs(startVelocity) / (2 * maxAcceleration);
+        double direction = Math.signum(distance - stopDistance);
+        if (direction == 0) direction = Math.signum(startVelocity);
+        if (direction == 0) return;
+
+        double remaining = distance;
+        if (startVelocity * direction < 0) {
+            // Moving away from the target, or too fast to stop before it, so stop first
+            addSegment(Math.abs(startVelocity) / maxAcceleration, -Math.signum(startVelocity) * maxAcceleration, 0);
+            remaining -= stopDistance;
+            startVelocity = 0;
+        }
+
+        // Everything from here on is in the direction of the move
+        double d = direction * remaining;
+        double u = direction * startVelocity;
+        double firstAcceleration;
+        if (u > maxVelocity) {
+            peakVelocity = maxVelocity;
+            firstAcceleration = -maxAcceleration;
+        }
+        else {
+            // Either cruise at the max velocity, or turn around at the top of a triangle
+            peakVelocity = Math.min(maxVelocity, Math.sqrt(maxAcceleration * d + u * u / 2));
+            firstAcceleration = maxAcceleration;
+        }
+        double rampTime = Math.abs(peakVelocity - u) / maxAcceleration;
+        double rampDistance = (u + peakVelocity) / 2 * rampTime;
+        double stopTime = peakVelocity / maxAcceleration;
+        double cruiseDistance = d - rampDistance - peakVelocity / 2 * stopTime;
+        double cruiseTime = peakVelocity > 0 ? Math.max(0, cruiseDistance / peakVelocity) : 0;
+
+        addSegment(rampTime, direction * firstAcceleration, 0);
+        addSegment(cruiseTime, 0, 0);
+        addSegment(stopTime, -direction * maxAcceleration, 0);
+    }
+
+    /**
+     * Slows the whole profile down evenly so it takes the given time, used to make two profiles finish together.
+     * Does nothing if the profile already takes at least that long, or if it didn't start from rest.
+     *
+     * @param newDuration How long the move should take, in seconds
+     */
+    public void stretchTo(double newDuration) {
+        double duration = getDuration();
+        if (!fromRest || duration <= 0 || newDuration <= duration) return;
+        // Stretching time by r divides velocities by r and accelerations by r squared, keeping the same shape
+        double r = newDuration / duration;
+        plan(distance, peakVelocity / r, maxAcceleration / (r * r));
+    }
+}
@@ -0,0 +1,11 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+/** An output whose writes are held until the {@link HubManager} flushes them at the end of the loop. */
+public interface BufferedOutput {
+    /**
+     * Sends any pending write to the hardware.
+     *
+     * @return True if a write was actually sent
+     */
+    boolean flush();
+}
@@ -0,0 +1,91 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import static org.firstinspires.ftc.teamcode.Constants.OutputConstants.*;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+/**
+ * Wraps a motor so that power writes are buffered and only sent to the hub when they change by more
+ * than {@link org.firstinspires.ftc.teamcode.Constants.OutputConstants#MOTOR_POWER_EPSILON}. Writes are
+ * sent when the {@link HubManager} flushes at the end of the loop, so only the last power set in a loop
+ * is ever sent. Without a hub manager, writes are still filtered but sent straight away.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class CoalescingMotor implements BufferedOutput {
+    private final DcMotorEx motor;
+    private final HubManager hubManager;
+
+    /** The power that will be sent on the next flush */
+    private double pendingPower;
+    /** The last power that was actually sent to the motor, NaN if we don't know what the motor is doing */
+    private double sentPower = Double.NaN;
+    /** Whether a power has been set since the last flush */
+    private boolean dirty;
+
+    /**
+     * Constructs a CoalescingMotor and registers it with the hub manager so it gets flushed.
+     *
+     * @param motor The motor to write to
+     * @param hubManager The hub manager that flushes writes each loop, can be null
+     */
+    public CoalescingMotor(DcMotorEx motor, HubManager hubManager) {
+        this.motor = motor;
+        this.hubManager = hubManager;
+        if (hubManager != null) hubManager.register(this);
+    }
+
+    /**
+     * Sets the power of the motor, the write happens on the next flush.
+     *
+     * @param power The new power of the motor
+     */
+    public synchronized void setPower(double power) {
+        pendingPower = power;
+        dirty = true;
+        if (hubManager == null) flush();
+        else hubManager.countRequestedWrite();
+    }
+
+    /** @return The last power that was set, whether or not it has been sent yet */
+    public synchronized double getPower() {
+        return dirty || Double.isNaN(sentPower) ? pendingPower : sentPower;
+    }
+
+    /**
+     * Sends the pending power to the motor if it is different enough from what was last sent.
+     *
+     * @return True if a write was sent to the hub
+     */
+    @Override
+    public synchronized boolean flush() {
+        if (!dirty) return false;
+        dirty = false;
+        // Always send an exact zero so the motor really stops, otherwise skip small changes
+        boolean stopping = pendingPower == 0 && sentPower != 0;
+        if (!Double.isNaN(sentPower) && !stopping && Math.abs(pendingPower - sentPower) <= MOTOR_POWER_EPSILON)
+            return false;
+        motor.setPower(pendingPower);
+        sentPower = pendingPower;
+        if (hubManager != null) hubManager.countSentWrite();
+        return true;
+    }
+
+    /**
+     * Sets the run mode of the motor. Any pending power is sent first so it isn't applied in the new mode,
+     * and the next power is always sent because changing modes can change what the motor is doing.
+     *
+     * @param runMode The new run mode
+     */
+    public synchronized void setMode(DcMotor.RunMode runMode) {
+        flush();
+        motor.setMode(runMode);
+        sentPower = Double.NaN;
+    }
+
+    /** @return The motor being written to */
+    public DcMotorEx getMotor() {
+        return motor;
+    }
+}
@@ -0,0 +1,72 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import static org.firstinspires.ftc.teamcode.Constants.OutputConstants.*;
+
+import com.arcrobotics.ftclib.hardware.ServoEx;
+
+/**
+ * Wraps an ftclib servo so that angle writes are buffered and only sent to the hub when they change by
+ * more than {@link org.firstinspires.ftc.teamcode.Constants.OutputConstants#SERVO_ANGLE_EPSILON} degrees.
+ * Works the same way as {@link CoalescingMotor}.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class CoalescingServo implements BufferedOutput {
+    private final ServoEx servo;
+    private final HubManager hubManager;
+
+    private double pendingAngle;
+    private double sentAngle = Double.NaN;
+    private boolean dirty;
+
+    /**
+     * Constructs a CoalescingServo and registers it with the hub manager so it gets flushed.
+     *
+     * @param servo The servo to write to
+     * @param hubManager The hub manager that flushes writes each loop, can be null
+     */
+    public CoalescingServo(ServoEx servo, HubManager hubManager) {
+        this.servo = servo;
+        this.hubManager = hubManager;
+        if (hubManager != null) hubManager.register(this);
+    }
+
+    /**
+     * Turns the servo to an angle, the write happens on the next flush.
+     *
+     * @param angle The angle in degrees
+     */
+    public synchronized void turnToAngle(double angle) {
+        pendingAngle = angle;
+        dirty = true;
+        if (hubManager == null) flush();
+        else hubManager.countRequestedWrite();
+    }
+
+    /** @return The last angle that was set, in degrees, whether or not it has been sent yet */
+    public synchronized double getAngle() {
+        return dirty || Double.isNaN(sentAngle) ? pendingAngle : sentAngle;
+    }
+
+    /**
+     * Sends the pending angle to the servo if it is different enough from what was last sent.
+     *
+     * @return True if a write was sent to the hub
+     */
+    @Override
+    public synchronized boolean flush() {
+        if (!dirty) return false;
+        dirty = false;
+        if (!Double.isNaN(sentAngle) && Math.abs(pendingAngle - sentAngle) <= SERVO_ANGLE_EPSILON)
+            return false;
+        servo.turnToAngle(pendingAngle);
+        sentAngle = pendingAngle;
+        if (hubManager != null) hubManager.countSentWrite();
+        return true;
+    }
+
+    /** @return The servo being written to */
+    public ServoEx getServo() {
+        return servo;
+    }
+}
@@ -0,0 +1,121 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import static org.firstinspires.ftc.teamcode.Constants.DriveConstants.*;
+
+import com.qualcomm.robotcore.hardware.IMU;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+import org.firstinspires.ftc.teamcode.util.Clock;
+import org.firstinspires.ftc.teamcode.util.FixedRateLoop;
+
+/**
+ * Polls the IMU on its own thread at a fixed rate, so reading the heading never waits on I2C. Each poll
+ * publishes an immutable {@link Sample} through a volatile field, and every reader sees the latest one.
+ * Each poll is a single I2C read of the yaw, the angular velocity is worked out from the change since the last
+ * reading instead of being read separately, so the poll keeps the bus free for the distance sensors.
+ * The heading can also be extrapolated to the current time using the measured angular velocity, which
+ * makes up for the sample being a few milliseconds old.
+ * <p>
+ * Headings are relative to a software yaw offset, so {@link #zero()} re-zeroes the heading straight away
+ * without touching the IMU. Samples themselves hold the raw yaw from the IMU.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class HeadingService {
+    /** One reading of the IMU. */
+    public static class Sample {
+        /** The raw yaw from the IMU in degrees, counter clockwise is positive */
+        public final double yaw;
+        /** How fast the yaw is changing in degrees per second */
+        public final double yawVelocity;
+        /** When the reading was taken, from {@link Clock#nanoTime()} */
+        public final long timeNanos;
+
+        public Sample(double yaw, double yawVelocity, long timeNanos) {
+            this.yaw = yaw;
+            this.yawVelocity = yawVelocity;
+            this.timeNanos = timeNanos;
+        }
+    }
+
+    private final IMU imu;
+    private final FixedRateLoop loop;
+
+    /** The latest reading, never null once the service has been constructed */
+    private volatile Sample latest;
+    /** The raw yaw that counts as a heading of zero, in degrees */
+    private volatile double yawOffset;
+
+    /**
+     * Constructs a HeadingService and takes the first reading, the IMU must already be initialized.
+     *
+     * @param imu The IMU to read from
+     */
+    public HeadingService(IMU imu) {
+        this.imu = imu;
+        loop = new FixedRateLoop("HeadingService", HEADING_PERIOD_MS, this::poll);
+        poll();
+    }
+
+    /** Reads the yaw from the IMU and publishes it, with the yaw velocity since the last reading. */
+    private void poll() {
+        YawPitchRollAngles angles = imu.getRobotYawPitchRollAngles();
+        long time = angles.getAcquisitionTime() != 0 ? angles.getAcquisitionTime() : Clock.nanoTime();
+        double yaw = angles.getYaw(AngleUnit.DEGREES);
+
+        Sample last = latest;
+        double yawVelocity = 0;
+        if (last != null) {
+            // Keep the last velocity if the IMU hasn't taken a new reading since
+            if (time > last.timeNanos) yawVelocity = AngleUnit.normalizeDegrees(yaw - last.yaw) / ((time - last.timeNanos) / 1e9);
+            else yawVelocity = last.yawVelocity;
+        }
+        latest = new Sample(yaw, yawVelocity, time);
+    }
+
+    /** Starts polling the IMU in the background, with a fresh reading so nothing sees an old one. */
+    public void start() {
+        poll();
+        loop.start();
+    }
+
+    /** Stops polling the IMU, the last reading stays available. */
+    public void stop() {
+        loop.stop();
+    }
+
+    /** @return The latest reading of the IMU */
+    public Sample getSample() {
+        return latest;
+    }
+
+    /** Makes the current heading zero by moving the yaw offset. Takes effect on the next read, the IMU isn't touched. */
+    public void zero() {
+        Sample sample = latest;
+        yawOffset = sample.yaw + sample.yawVelocity * getExtrapolationTime(sample);
+    }
+
+    /** @return The latest measured heading in degrees, between -180 and 180 */
+    public double getHeading() {
+        return AngleUnit.normalizeDegrees(latest.yaw - yawOffset);
+    }
+
+    /**
+     * Estimates the yaw right now by carrying the latest reading forward with its angular velocity. Extrapolation
+     * is limited to MAX_HEADING_EXTRAPOLATION_MS so a stalled thread can't make the heading run away.
+     *
+     * @return The extrapolated heading in degrees, between -180 and 180
+     */
+    public double getExtrapolatedHeading() {
+        Sample sample = latest;
+        return AngleUnit.normalizeDegrees(sample.yaw + sample.yawVelocity * getExtrapolationTime(sample) - yawOffset);
+    }
+
+    /** @return How far forward a sample should be extrapolated, in seconds */
+    private static double getExtrapolationTime(Sample sample) {
+        double age = (Clock.nanoTime() - sample.timeNanos) / 1e9;
+        return Range.clip(age, 0, MAX_HEADING_EXTRAPOLATION_MS / 1000);
+    }
+}
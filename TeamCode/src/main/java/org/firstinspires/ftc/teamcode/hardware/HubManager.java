@@ -0,0 +1,150 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Owns the expansion/control hubs for one op mode. Puts every hub into MANUAL bulk caching so that
+ * all encoder, velocity, busy and digital reads in a loop are served from a single bulk read per hub.
+ * {@link #clearBulkCache()} must be called once at the top of every loop, otherwise reads will be stale.
+ * <p>
+ * Also holds the {@link BufferedOutput buffered outputs}, {@link #flushWrites()} must be called once at
+ * the end of every loop, otherwise nothing will be written to the motors and servos.
+ * <p>
+ * Only one thread may refresh the hubs. While the control thread is running it owns the refresh, see
+ * {@link #setRefreshedElsewhere(boolean)}, and {@link #clearBulkCache()} only starts a new loop for the snapshots.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class HubManager {
+    /** All of the hubs in the hardware map. */
+    private final List<LynxModule> hubs;
+
+    /** True while another thread refreshes the hubs, so clearing the cache doesn't touch them */
+    private volatile boolean refreshedElsewhere;
+
+    /**
+     * How many times the cache has been cleared, used by {@link MotorSnapshot} to know when its values are stale.
+     * Only the thread that clears the cache writes it, but other threads may read it.
+     */
+    private volatile long loopCount;
+
+    /** The outputs that get flushed at the end of each loop */
+    private final List<BufferedOutput> outputs = new ArrayList<>();
+
+    // Counters for how many writes were asked for and how many were actually sent
+    private int requestedWrites;
+    private int sentWrites;
+    private int lastRequestedWrites;
+    private int lastSentWrites;
+
+    /**
+     * Constructs a HubManager and switches every hub to MANUAL bulk caching.
+     *
+     * @param hardwareMap The hardware map of the robot
+     */
+    public HubManager(HardwareMap hardwareMap) {
+        hubs = hardwareMap.getAll(LynxModule.class);
+        for (LynxModule hub : hubs) {
+            hub.setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+        }
+    }
+
+    /**
+     * Constructs a HubManager that owns no hubs, for a thread that needs its own snapshots and outputs but reads
+     * through the bulk cache of another HubManager.
+     */
+    public HubManager() {
+        hubs = Collections.emptyList();
+    }
+
+    /**
+     * Starts a new loop, so every {@link MotorSnapshot} reads again. Also clears the bulk cache on every hub, so the
+     * next read on each hub will do one fresh bulk read, unless another thread refreshes the hubs.
+     */
+    public void clearBulkCache() {
+        if (!refreshedElsewhere) refreshHubs();
+        loopCount++;
+    }
+
+    /** Clears the bulk cache on every hub, so the next read on each hub does one fresh bulk read. */
+    private void refreshHubs() {
+        for (int i = 0; i < hubs.size(); i++) {
+            hubs.get(i).clearBulkCache();
+        }
+    }
+
+    /**
+     * Replaces the bulk cache of every hub with a fresh bulk read straight away, without starting a new loop. The
+     * cache is never left empty, so another thread reading through it never does a bulk read of its own. Only the
+     * thread that owns the refresh calls this.
+     */
+    public void readHubs() {
+        for (int i = 0; i < hubs.size(); i++) {
+            hubs.get(i).getBulkData();
+        }
+    }
+
+    /**
+     * Hands the refresh of the hubs to another thread that calls {@link #readHubs()} itself, or takes it back.
+     *
+     * @param refreshedElsewhere True if another thread refreshes the hubs from now on
+     */
+    public void setRefreshedElsewhere(boolean refreshedElsewhere) {
+        this.refreshedElsewhere = refreshedElsewhere;
+    }
+
+    /**
+     * Registers an output so it gets flushed with {@link #flushWrites()}.
+     *
+     * @param output The output to register
+     */
+    public void register(BufferedOutput output) {
+        outputs.add(output);
+    }
+
+    /** Counts a write that was asked for this loop, used to work out how many writes were saved. */
+    void countRequestedWrite() {
+        requestedWrites++;
+    }
+
+    /** Counts a write that was actually sent to a hub this loop. */
+    void countSentWrite() {
+        sentWrites++;
+    }
+
+    /** Sends the pending writes of every registered output, skipping the ones that haven't changed. */
+    public void flushWrites() {
+        for (int i = 0; i < outputs.size(); i++) {
+            outputs.get(i).flush();
+        }
+        lastRequestedWrites = requestedWrites;
+        lastSentWrites = sentWrites;
+        requestedWrites = 0;
+        sentWrites = 0;
+    }
+
+    /** @return How many writes were asked for during the last loop */
+    public int getRequestedWrites() {
+        return lastRequestedWrites;
+    }
+
+    /** @return How many writes were actually sent to the hubs during the last loop */
+    public int getSentWrites() {
+        return lastSentWrites;
+    }
+
+    /** @return How many writes were dropped during the last loop because they didn't change anything */
+    public int getSavedWrites() {
+        return lastRequestedWrites - lastSentWrites;
+    }
+
+    /** @return How many times the bulk cache has been cleared */
+    public long getLoopCount() {
+        return loopCount;
+    }
+}
@@ -0,0 +1,81 @@
+package org.firstinspires.ftc.teamcode.hardware;
+
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+/**
+ * A per-loop snapshot of the readings of a motor. Each value is read at most once between calls
+ * to {@link HubManager#clearBulkCache()}, so every caller in a loop sees the same position, velocity
+ * and busy flag. If there is no hub manager (e.g. a testing op mode that only builds one subsystem),
+ * every read goes straight to the motor.
+ * <p>
+ * Resetting the encoder or changing the mode changes the readings partway through a loop, so whatever does that has
+ * to call {@link #invalidate()} for the next read to see the new values.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class MotorSnapshot {
+    private final DcMotorEx motor;
+    private final HubManager hubManager;
+
+    private int position;
+    private double velocity;
+    private boolean busy;
+
+    // The loop count each value was last read on, -1 means never read
+    private long positionLoop = -1;
+    private long velocityLoop = -1;
+    private long busyLoop = -1;
+
+    /**
+     * Constructs a MotorSnapshot.
+     *
+     * @param motor The motor to read from
+     * @param hubManager The hub manager that clears the cache each loop, can be null
+     */
+    public MotorSnapshot(DcMotorEx motor, HubManager hubManager) {
+        this.motor = motor;
+        this.hubManager = hubManager;
+    }
+
+    /** @return The encoder position of the motor this loop */
+    public int getPosition() {
+        if (hubManager == null) return motor.getCurrentPosition();
+        if (positionLoop != hubManager.getLoopCount()) {
+            position = motor.getCurrentPosition();
+            positionLoop = hubManager.getLoopCount();
+        }
+        return position;
+    }
+
+    /** @return The velocity of the motor this loop, in ticks per second */
+    public double getVelocity() {
+        if (hubManager == null) return motor.getVelocity();
+        if (velocityLoop != hubManager.getLoopCount()) {
+            velocity = motor.getVelocity();
+            velocityLoop = hubManager.getLoopCount();
+        }
+        return velocity;
+    }
+
+    /** @return If the motor was busy this loop */
+    public boolean isBusy() {
+        if (hubManager == null) return motor.isBusy();
+        if (busyLoop != hubManager.getLoopCount()) {
+            busy = motor.isBusy();
+            busyLoop = hubManager.getLoopCount();
+        }
+        return busy;
+    }
+
+    /** Forgets the readings of this loop, so the next read of each value goes to the motor again. */
+    public void invalidate() {
+        positionLoop = -1;
+        velocityLoop = -1;
+        busyLoop = -1;
+    }
+
+    /** @return The motor this is a snapshot of */
+    public DcMotorEx getMotor() {
+        return motor;
+    }
+}
@@ -22,5 +22,7 @@ public class AutoBlueDownstageNoPlacement extends LinearOpMode {
         while (opModeIsActive() && !isStopRequested()) {
             autonomousController.run();
         }
+
+        autonomousController.stop();
     }
 }
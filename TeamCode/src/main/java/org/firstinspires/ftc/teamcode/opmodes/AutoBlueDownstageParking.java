@@ -18,5 +18,7 @@ public class AutoBlueDownstageParking extends LinearOpMode {
         while (opModeIsActive() && !isStopRequested()) {
             autonomousController.run();
         }
+
+        autonomousController.stop();
     }
 }
@@ -22,5 +22,7 @@ public class AutoBlueUpstage extends LinearOpMode {
         while (opModeIsActive() && !isStopRequested()) {
             autonomousController.run();
         }
+
+        autonomousController.stop();
     }
 }
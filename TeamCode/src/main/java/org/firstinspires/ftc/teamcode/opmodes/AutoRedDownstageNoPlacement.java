@@ -22,6 +22,8 @@ public class AutoRedDownstageNoPlacement extends LinearOpMode {
         while (opModeIsActive() && !isStopRequested()) {
             autonomousController.run();
         }
+
+        autonomousController.stop();
     }
 }
 
@@ -17,5 +17,7 @@ public class AutoRedDownstageParking extends LinearOpMode {
         while (opModeIsActive() && !isStopRequested()) {
             autonomousController.run();
         }
+
+        autonomousController.stop();
     }
 }
\ No newline at end of file
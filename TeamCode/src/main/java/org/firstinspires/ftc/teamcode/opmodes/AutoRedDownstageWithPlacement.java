@@ -22,6 +22,8 @@ public class AutoRedDownstageWithPlacement extends LinearOpMode {
         while (opModeIsActive() && !isStopRequested()) {
             autonomousController.run();
         }
+
+        autonomousController.stop();
     }
 }
 
@@ -0,0 +1,179 @@
+package org.firstinspires.ftc.teamcode.opmodes;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.telemetry.MultipleTelemetry;
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
+import com.acmerobotics.roadrunner.Action;
+import com.acmerobotics.roadrunner.Pose2d;
+import com.acmerobotics.roadrunner.PoseVelocity2d;
+import com.acmerobotics.roadrunner.Vector2d;
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.teamcode.benchmark.BenchmarkRunner;
+import org.firstinspires.ftc.teamcode.control.MotionProfile;
+import org.firstinspires.ftc.teamcode.control.SCurveProfile;
+import org.firstinspires.ftc.teamcode.control.TrapezoidProfile;
+import org.firstinspires.ftc.teamcode.hardware.HubManager;
+import org.firstinspires.ftc.teamcode.roadrunner.MecanumDrive;
+import org.firstinspires.ftc.teamcode.sim.SimHardwareMap;
+import org.firstinspires.ftc.teamcode.sim.SimOpMode;
+import org.firstinspires.ftc.teamcode.subsystems.DriveSubsystem;
+import org.firstinspires.ftc.teamcode.subsystems.ElbowSubsystem;
+import org.firstinspires.ftc.teamcode.util.Clock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks the hot paths of the drive and arm code on the Control Hub's CPU. Everything runs against a
+ * {@link SimHardwareMap}, so only the cost of our code is measured and not the hub reads and writes. Each call is
+ * wrapped like a loop of Robot.run, and the simulation is stepped between calls without being timed.
+ * Run it before and after changing one of these paths to see if it helped.
+ */
+@TeleOp(name = "Benchmark", group = "Testing")
+public class BenchmarkOpMode extends LinearOpMode {
+    private HubManager hubManager;
+    /** The short trajectory action that draws, rebuilt between calls once it finishes */
+    private Action followAction;
+    private boolean following;
+    /** A new packet for each call of the drawing follower, like ActionCommand sends, made between calls */
+    private TelemetryPacket followPacket;
+    /** The long trajectory action, rebuilt between calls once it finishes */
+    private Action steadyAction;
+    private boolean steadyFollowing;
+    private double elbowTarget = 12000;
+
+    // Used to sample the motion profiles at a different time each call
+    private double profileTime;
+    private double profileSum;
+
+    @Override
+    public void runOpMode() throws InterruptedException {
+        telemetry = new MultipleTelemetry(telemetry, FtcDashboard.getInstance().getTelemetry());
+
+        telemetry.addLine("This op mode times the drive, localizer, trajectory following, motion profile and elbow PID code.");
+        telemetry.addLine("The robot doesn't move, everything runs on simulated hardware. Press start to run.");
+        telemetry.update();
+
+        waitForStart();
+        if (isStopRequested()) return;
+
+        telemetry.addLine("Running...");
+        telemetry.update();
+
+        // Everything runs on simulated time, stepped between calls so the hardware and the clock move like a real loop
+        SimOpMode sim = new SimOpMode();
+        List<BenchmarkRunner.Result> results = new ArrayList<>();
+        try {
+            runBenchmarks(sim, results);
+        } finally {
+            Clock.useSystemTime();
+        }
+
+        RobotLog.vv("Benchmark", "Profile checksum %f", profileSum);
+        for (BenchmarkRunner.Result result : results) {
+            telemetry.addData(result.name, result);
+            RobotLog.ii("Benchmark", "%s: %s", result.name, result);
+        }
+        telemetry.update();
+
+        while (opModeIsActive() && !isStopRequested()) {
+            idle();
+        }
+    }
+
+    /** Runs every benchmark against the simulation, adding the results to the list. */
+    private void runBenchmarks(SimOpMode sim, List<BenchmarkRunner.Result> results) {
+        SimHardwareMap simHardwareMap = sim.getSimHardwareMap();
+        hubManager = new HubManager(simHardwareMap);
+        DriveSubsystem driveSubsystem = new DriveSubsystem(simHardwareMap, telemetry, hubManager);
+        ElbowSubsystem elbowSubsystem = new ElbowSubsystem(simHardwareMap, telemetry, hubManager);
+        MecanumDrive mecanumDrive = new MecanumDrive(simHardwareMap, new Pose2d(0, 0, 0));
+
+        PoseVelocity2d drivePowers = new PoseVelocity2d(new Vector2d(0.5, 0.2), 0.1);
+        elbowSubsystem.setTarget(elbowTarget, 0);
+
+        BenchmarkRunner runner = new BenchmarkRunner(5000, 2000, 5);
+
+        results.add(runner.run("DriveSubsystem.drive (field centric)",
+                loop(() -> driveSubsystem.drive(0.5, 0.3, 0.2, true, 1)), sim::step));
+        results.add(runner.run("MecanumDrive.setDrivePowers",
+                loop(() -> mecanumDrive.setDrivePowers(drivePowers)), sim::step));
+        results.add(runner.run("DriveLocalizer.update",
+                loop(mecanumDrive.localizer::update), sim::step));
+        // Drawing on, each call gets a new packet. The packet and any rebuilt trajectory are made between calls, so
+        // only the follower's step and what it draws are timed
+        boolean drawWhileFollowing = MecanumDrive.PARAMS.drawWhileFollowing;
+        MecanumDrive.PARAMS.drawWhileFollowing = true;
+        results.add(runner.run("FollowTrajectoryAction.run (drawing)",
+                loop(() -> following = followAction != null && followAction.run(followPacket)),
+                () -> {
+                    sim.step();
+                    followPacket = new TelemetryPacket();
+                    if (!following) {
+                        followAction = mecanumDrive.actionBuilder(mecanumDrive.pose).lineToX(mecanumDrive.pose.position.x + 48).build();
+                        following = true;
+                    }
+                }));
+        // A long trajectory with drawing turned off and a reused packet, so this measures just the follower's per-step
+        // cost and allocation. It is rebuilt between calls when it finishes, so building it is never timed
+        MecanumDrive.PARAMS.drawWhileFollowing = false;
+        TelemetryPacket packet = new TelemetryPacket();
+        results.add(runner.run("FollowTrajectoryAction.run (steady state)",
+                loop(() -> steadyFollowing = steadyAction != null && steadyAction.run(packet)),
+                () -> {
+                    sim.step();
+                    if (!steadyFollowing) {
+                        steadyAction = mecanumDrive.actionBuilder(mecanumDrive.pose).lineToX(mecanumDrive.pose.position.x + 1000).build();
+                        steadyFollowing = true;
+                    }
+                }));
+        MecanumDrive.PARAMS.drawWhileFollowing = drawWhileFollowing;
+
+        // Moves back and forth, so the elbow is always following a profile and never just holding
+        results.add(runner.run("ElbowSubsystem.runPID",
+                loop(() -> {
+                    if (elbowSubsystem.isAtTarget()) {
+                        elbowTarget = elbowTarget == 12000 ? 2000 : 12000;
+                        elbowSubsystem.setTarget(elbowTarget, 0);
+                    }
+                    elbowSubsystem.runPID();
+                }), sim::step));
+
+        TrapezoidProfile trapezoidProfile = new TrapezoidProfile();
+        trapezoidProfile.plan(12000, 4000, 8000);
+        SCurveProfile sCurveProfile = new SCurveProfile();
+        sCurveProfile.plan(12000, 4000, 8000, 40000);
+        results.add(runner.run("TrapezoidProfile sample",
+                () -> sampleProfile(trapezoidProfile)));
+        results.add(runner.run("SCurveProfile sample",
+                () -> sampleProfile(sCurveProfile)));
+        results.add(runner.run("TrapezoidProfile.plan (moving start)",
+                () -> trapezoidProfile.plan(12000, 1500, 4000, 8000)));
+        results.add(runner.run("SCurveProfile.plan (moving start)",
+                () -> sCurveProfile.plan(12000, 1500, 4000, 8000, 40000)));
+
+        driveSubsystem.stopHeadingService();
+    }
+
+    /**
+     * Wraps a benchmark that uses the hardware in a loop like Robot.run: the bulk cache is cleared before it and the
+     * writes are flushed after it, so it reads fresh values and its writes reach the simulated motors.
+     */
+    private Runnable loop(Runnable op) {
+        return () -> {
+            hubManager.clearBulkCache();
+            op.run();
+            hubManager.flushWrites();
+        };
+    }
+
+    /** Samples a profile like a controller would each loop, stepping through the whole move. */
+    private void sampleProfile(MotionProfile profile) {
+        profileTime += 0.005;
+        if (profileTime > profile.getDuration()) profileTime = 0;
+        profileSum += profile.getPosition(profileTime) + profile.getVelocity(profileTime) + profile.getAcceleration(profileTime);
+    }
+}
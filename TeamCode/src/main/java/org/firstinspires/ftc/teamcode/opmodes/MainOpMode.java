@@ -5,6 +5,7 @@ import com.acmerobotics.dashboard.telemetry.MultipleTelemetry;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 
+import org.firstinspires.ftc.teamcode.Constants;
 import org.firstinspires.ftc.teamcode.Robot;
 
 /**
@@ -14,7 +15,8 @@ import org.firstinspires.ftc.teamcode.Robot;
 public class MainOpMode extends LinearOpMode {
     @Override
     public void runOpMode() throws InterruptedException {
-        telemetry = new MultipleTelemetry(telemetry, FtcDashboard.getInstance().getTelemetry());
+        // The telemetry pipeline sends to the dashboard itself, so only wrap the telemetry without it
+        if (!Constants.TelemetryConstants.PIPELINE) telemetry = new MultipleTelemetry(telemetry, FtcDashboard.getInstance().getTelemetry());
         Robot robot = new Robot(this, false, false);
 
 //        telemetry.addLine("This op mode is the main op mode used for controlling the robot.");
@@ -28,5 +30,7 @@ public class MainOpMode extends LinearOpMode {
         while (opModeIsActive() && !isStopRequested()) {
             robot.run();
         }
+
+        robot.stop();
     }
 }
@@ -29,5 +29,7 @@ public class ManualOpMode extends LinearOpMode {
         while (opModeIsActive() && !isStopRequested()) {
             robot.runManually();
         }
+
+        robot.stop();
     }
 }
@@ -52,6 +52,7 @@ public class PIDTestingOpMode extends LinearOpMode {
         boolean bPressed = false;
 
         while (opModeIsActive() && !isStopRequested()) {
+            robot.getHubManager().clearBulkCache();
 
             if (gamepad.a) {
                 if (!aPressed) robot.getElbowSubsystem().setTarget(elbowTarget, 5.0);
@@ -68,6 +69,7 @@ public class PIDTestingOpMode extends LinearOpMode {
             bPressed = gamepad.b;
 
             CommandScheduler.getInstance().run();
+            robot.getHubManager().flushWrites();
 
             robot.getElbowSubsystem().printData();
 //            telemetry.addData("Elbow target", ElbowSubsystem.target);
@@ -75,5 +77,7 @@ public class PIDTestingOpMode extends LinearOpMode {
 //            telemetry.addData("Slide target", LinearSlideSubsystem.target);
             telemetry.update();
         }
+
+        robot.stop();
     }
 }
@@ -34,9 +34,13 @@ public class TestingAutoOpMode extends LinearOpMode {
         commandManager.getAutoPlaceYellowAndHideCommand(new AutoPosition(AutoPosition.SpikeMark.UPSTAGE, true, true, true)).schedule();
 
         while (opModeIsActive() && !isStopRequested()) {
+            robot.getHubManager().clearBulkCache();
             CommandScheduler.getInstance().run();
+            robot.getHubManager().flushWrites();
             telemetry.update();
         }
+
+        robot.stop();
     }
 
 }
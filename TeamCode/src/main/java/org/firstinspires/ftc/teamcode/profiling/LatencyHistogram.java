@@ -0,0 +1,89 @@
+package org.firstinspires.ftc.teamcode.profiling;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds. Buckets are log-linear: every power of two is split
+ * into 8 buckets, so any percentile is within 12.5% of the real value. Recording never allocates and is
+ * O(1), reading a percentile walks the buckets so it should only be done when publishing.
+ * <p>
+ * Not thread safe, each histogram should only be recorded into from one thread.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class LatencyHistogram {
+    /** Number of bits used to split each power of two, 3 bits is 8 buckets */
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /** The largest power of two we keep buckets for, 2^35 ns is about 34 seconds */
+    private static final int MAX_EXPONENT = 35;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long max;
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucketOf(nanos)]++;
+        totalCount++;
+        if (nanos > max) max = nanos;
+    }
+
+    /**
+     * Finds the value that the given fraction of the recorded durations are less than or equal to.
+     *
+     * @param fraction The percentile as a fraction, for example 0.95 for p95
+     * @return The upper bound of the bucket the percentile falls in, in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double fraction) {
+        if (totalCount == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(fraction * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) return i == BUCKET_COUNT - 1 ? max : Math.min(upperBoundOf(i), max);
+        }
+        return max;
+    }
+
+    /** @return The longest duration recorded, in nanoseconds */
+    public long getMax() {
+        return max;
+    }
+
+    /** @return How many durations have been recorded */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /** Clears all of the recorded durations. */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        max = 0;
+    }
+
+    /** Maps a duration to its bucket, values below 8 get their own bucket and anything too big goes in the last one. */
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) return BUCKET_COUNT - 1;
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** @return The largest duration that falls in the given bucket */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BITS);
+        return (SUB_BUCKETS + sub) * width + width - 1;
+    }
+}
@@ -0,0 +1,142 @@
+package org.firstinspires.ftc.teamcode.profiling;
+
+import static org.firstinspires.ftc.teamcode.Constants.ProfilingConstants.*;
+
+import com.arcrobotics.ftclib.command.Command;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.telemetry.TelemetryBoard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keeps track of every {@link ProfileSection} and publishes a summary of their p50/p95/p99/max times.
+ * Sections are made once when the robot is built, then timed every loop without allocating.
+ * <p>
+ * Profiling is turned on and off with {@link org.firstinspires.ftc.teamcode.Constants.ProfilingConstants#ENABLED}.
+ * While it is off, sections don't read the clock and commands aren't wrapped at all.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class LoopProfiler {
+    private static final List<ProfileSection> sections = new ArrayList<>();
+    /** The last summary line of each section, rebuilt every PUBLISH_PERIOD_MS so we aren't formatting strings every loop */
+    private static final List<String> summaries = new ArrayList<>();
+    private static long lastPublishTime;
+    /** The board the summaries were last published to, and the text slot of each section on it, -1 if it has none */
+    private static TelemetryBoard board;
+    private static final List<Integer> boardSlots = new ArrayList<>();
+
+    private LoopProfiler() {}
+
+    /**
+     * Gets the section with the given name, making it if it doesn't exist yet. Sections are kept between op modes,
+     * so this should be called once when something is built, not every loop.
+     *
+     * @param name The name of the section
+     * @return The section with that name
+     */
+    public static synchronized ProfileSection section(String name) {
+        for (ProfileSection section : sections) {
+            if (section.getName().equals(name)) return section;
+        }
+        ProfileSection section = new ProfileSection(name);
+        sections.add(section);
+        summaries.add("");
+        boardSlots.add(-1);
+        return section;
+    }
+
+    /**
+     * Wraps a command so its execute and isFinished are timed. If profiling is off the command is returned as is.
+     *
+     * @param name The name of the command, shown on the dashboard
+     * @param command The command to time
+     * @return The command to schedule
+     */
+    public static Command profile(String name, Command command) {
+        if (!ENABLED) return command;
+        return new ProfiledCommand(name, command);
+    }
+
+    /** Clears the histograms of every section, called when a new op mode builds the robot. */
+    public static synchronized void reset() {
+        for (ProfileSection section : sections) {
+            section.getHistogram().reset();
+        }
+        lastPublishTime = 0;
+    }
+
+    /**
+     * Adds one line per section that has been timed to the telemetry, in milliseconds as p50 / p95 / p99 / max.
+     * The lines are only recalculated every PUBLISH_PERIOD_MS.
+     *
+     * @param telemetry The telemetry to add to, a MultipleTelemetry so it shows up on the dashboard
+     */
+    public static synchronized void printData(Telemetry telemetry) {
+        if (!ENABLED) return;
+
+        boolean republish = updateSummaries();
+        for (int i = 0; i < sections.size(); i++) {
+            if (sections.get(i).getHistogram().getCount() == 0) continue;
+            telemetry.addData(sections.get(i).getName(), summaries.get(i));
+        }
+    }
+
+    /**
+     * Publishes the same lines as {@link #printData(Telemetry)} through a telemetry board, for op modes whose
+     * telemetry is sent by a {@link org.firstinspires.ftc.teamcode.telemetry.TelemetryPublisher}. Each section gets a
+     * text slot the first time it has been timed, and its text is only set when its line is recalculated. Sections
+     * that don't fit on the board are left off.
+     *
+     * @param telemetryBoard The board to publish to
+     */
+    public static synchronized void publishTelemetry(TelemetryBoard telemetryBoard) {
+        if (!ENABLED) return;
+        if (telemetryBoard != board) {
+            board = telemetryBoard;
+            for (int i = 0; i < boardSlots.size(); i++) boardSlots.set(i, -1);
+        }
+
+        boolean republish = updateSummaries();
+        for (int i = 0; i < sections.size(); i++) {
+            if (sections.get(i).getHistogram().getCount() == 0) continue;
+            int slot = boardSlots.get(i);
+            if (slot < 0) {
+                if (board.isFull()) continue;
+                slot = board.addText(sections.get(i).getName());
+                boardSlots.set(i, slot);
+            }
+            else if (!republish) continue;
+            board.set(slot, summaries.get(i));
+        }
+    }
+
+    /**
+     * Recalculates the line of every section that has been timed, if it has been PUBLISH_PERIOD_MS since they were
+     * last recalculated.
+     *
+     * @return True if the lines were recalculated
+     */
+    private static boolean updateSummaries() {
+        long now = System.currentTimeMillis();
+        if (now - lastPublishTime < PUBLISH_PERIOD_MS) return false;
+        lastPublishTime = now;
+        for (int i = 0; i < sections.size(); i++) {
+            LatencyHistogram histogram = sections.get(i).getHistogram();
+            if (histogram.getCount() != 0) summaries.set(i, summarize(histogram));
+        }
+        return true;
+    }
+
+    /** @return The p50 / p95 / p99 / max of a histogram in milliseconds */
+    private static String summarize(LatencyHistogram histogram) {
+        return String.format(Locale.US, "%.2f / %.2f / %.2f / %.2f ms",
+                histogram.getPercentile(0.50) / 1e6,
+                histogram.getPercentile(0.95) / 1e6,
+                histogram.getPercentile(0.99) / 1e6,
+                histogram.getMax() / 1e6);
+    }
+}
@@ -0,0 +1,51 @@
+package org.firstinspires.ftc.teamcode.profiling;
+
+import static org.firstinspires.ftc.teamcode.Constants.ProfilingConstants.*;
+
+/**
+ * One named piece of code being timed by the {@link LoopProfiler}. Call {@link #begin()} before the code
+ * and {@link #end()} after it. While profiling is off both calls return straight away without reading the clock.
+ * <p>
+ * A section can't be nested inside itself and should only be used from one thread.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class ProfileSection {
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /** When the current timing started, 0 if we aren't timing */
+    private long startTime;
+
+    /**
+     * Constructs a ProfileSection, use {@link LoopProfiler#section(String)} so it gets published.
+     *
+     * @param name The name shown on the dashboard
+     */
+    ProfileSection(String name) {
+        this.name = name;
+    }
+
+    /** Starts timing the section. */
+    public void begin() {
+        if (ENABLED) startTime = System.nanoTime();
+    }
+
+    /** Stops timing the section and records how long it took. */
+    public void end() {
+        if (ENABLED && startTime != 0) {
+            histogram.record(System.nanoTime() - startTime);
+            startTime = 0;
+        }
+    }
+
+    /** @return The name of the section */
+    public String getName() {
+        return name;
+    }
+
+    /** @return The histogram of the durations of this section */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+}
@@ -0,0 +1,62 @@
+package org.firstinspires.ftc.teamcode.profiling;
+
+import com.arcrobotics.ftclib.command.Command;
+import com.arcrobotics.ftclib.command.CommandBase;
+import com.arcrobotics.ftclib.command.Subsystem;
+
+/**
+ * Wraps a command so that its {@link #execute()} and {@link #isFinished()} are timed by the {@link LoopProfiler}.
+ * Use {@link LoopProfiler#profile(String, Command)} instead of making one directly, so that nothing is wrapped
+ * while profiling is off.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class ProfiledCommand extends CommandBase {
+    private final Command command;
+    private final ProfileSection executeSection;
+    private final ProfileSection isFinishedSection;
+
+    /**
+     * Constructs a ProfiledCommand with the same requirements as the command it wraps.
+     *
+     * @param name The name of the command, shown on the dashboard
+     * @param command The command to time
+     */
+    ProfiledCommand(String name, Command command) {
+        this.command = command;
+        executeSection = LoopProfiler.section(name + ".execute");
+        isFinishedSection = LoopProfiler.section(name + ".isFinished");
+        setName(name);
+        addRequirements(command.getRequirements().toArray(new Subsystem[0]));
+    }
+
+    @Override
+    public void initialize() {
+        command.initialize();
+    }
+
+    @Override
+    public void execute() {
+        executeSection.begin();
+        command.execute();
+        executeSection.end();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        command.end(interrupted);
+    }
+
+    @Override
+    public boolean isFinished() {
+        isFinishedSection.begin();
+        boolean finished = command.isFinished();
+        isFinishedSection.end();
+        return finished;
+    }
+
+    @Override
+    public boolean runsWhenDisabled() {
+        return command.runsWhenDisabled();
+    }
+}
@@ -0,0 +1,264 @@
+package org.firstinspires.ftc.teamcode.recording;
+
+import static org.firstinspires.ftc.teamcode.Constants.RecorderConstants.*;
+
+import com.arcrobotics.ftclib.command.Command;
+import com.arcrobotics.ftclib.command.CommandScheduler;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+import org.firstinspires.ftc.teamcode.util.Clock;
+import org.firstinspires.ftc.teamcode.util.FixedRateLoop;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records what the robot is doing every loop into a binary log on the Control Hub, so a match can be looked at
+ * afterwards with the MatchLogDecoder tool. Records are written into a preallocated ring buffer by the loop thread,
+ * which never blocks or allocates, and a low priority background thread copies them to a file.
+ * If the buffer ever fills up, new records are dropped and counted instead of slowing the loop down.
+ * <p>
+ * To write a record, call {@link #begin(RecordType)}, put each field of the type in order, then call {@link #end()}.
+ * Only one thread may write records, the loop thread.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class MatchRecorder {
+    /** What happened to a command, recorded in {@link RecordType#COMMAND} records */
+    public enum CommandEvent {
+        INITIALIZE,
+        FINISH,
+        INTERRUPT
+    }
+
+    /** Written at the start of every log, followed by the format version */
+    static final String MAGIC = "SKPLOG";
+    static final int VERSION = 1;
+
+    // The scheduler the command listeners were added to, and the recorder they write to.
+    // The scheduler outlives op modes, so the listeners are only added once per scheduler.
+    private static WeakReference<CommandScheduler> listenedScheduler = new WeakReference<>(null);
+    private static volatile MatchRecorder commandRecorder;
+
+    private final byte[] buffer;
+    private final int mask;
+
+    // Positions only ever count up, the index into the buffer is the position masked by the buffer size.
+    // The write position is only changed by the loop thread and the read position by the flush thread.
+    private volatile long writePosition;
+    private volatile long readPosition;
+    /** Where the record being written is up to, published to the flush thread by {@link #end()} */
+    private long cursor;
+    /** If the record being written didn't fit and its fields are being ignored */
+    private boolean dropping;
+    private volatile int droppedRecords;
+
+    /** The ids given to each command, so a command's name is only written once */
+    private final Map<Command, Integer> commandIds = new HashMap<>();
+
+    private final File file;
+    /** Only used by the flush thread once recording has started */
+    private OutputStream output;
+    private volatile boolean recording;
+    private final FixedRateLoop flushLoop;
+
+    /**
+     * Constructs a MatchRecorder that records to a new file named after the op mode and the time.
+     *
+     * @param name The name of the op mode being recorded
+     */
+    public MatchRecorder(String name) {
+        // Round the buffer up to a power of two so wrapping is a mask instead of a division
+        int size = Integer.highestOneBit(Math.max(BUFFER_SIZE_BYTES, 1024) - 1) << 1;
+        buffer = new byte[size];
+        mask = size - 1;
+
+        File folder = new File(AppUtil.ROOT_FOLDER, LOG_FOLDER);
+        String time = new SimpleDateFormat("yyyy_MM_dd__HH_mm_ss", Locale.US).format(new Date());
+        file = new File(folder, name + "__" + time + ".skplog");
+
+        flushLoop = new FixedRateLoop("MatchRecorder", FLUSH_PERIOD_MS, Thread.MIN_PRIORITY, this::flush);
+    }
+
+    /** Opens the log, writes the schema and starts the flush thread. Nothing is recorded if the log can't be opened. */
+    public void start() {
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            file.getParentFile().mkdirs();
+            output = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+            writeSchema(new DataOutputStream(output));
+        } catch (IOException e) {
+            RobotLog.ee("MatchRecorder", e, "Couldn't open %s", file);
+            output = null;
+            return;
+        }
+        recording = true;
+        flushLoop.start();
+    }
+
+    /** Records every command that starts, finishes or is interrupted on the current command scheduler. */
+    public void recordCommands() {
+        commandRecorder = this;
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+        if (listenedScheduler.get() == scheduler) return;
+        listenedScheduler = new WeakReference<>(scheduler);
+        scheduler.onCommandInitialize(command -> recordCommandEvent(command, CommandEvent.INITIALIZE));
+        scheduler.onCommandFinish(command -> recordCommandEvent(command, CommandEvent.FINISH));
+        scheduler.onCommandInterrupt(command -> recordCommandEvent(command, CommandEvent.INTERRUPT));
+    }
+
+    /** Stops recording, writes everything still in the buffer and closes the log. */
+    public void stop() {
+        if (commandRecorder == this) commandRecorder = null;
+        recording = false;
+        flushLoop.stop();
+        flush();
+        if (output == null) return;
+        try {
+            output.close();
+        } catch (IOException e) {
+            RobotLog.ee("MatchRecorder", e, "Couldn't close %s", file);
+        }
+        output = null;
+        if (droppedRecords > 0) RobotLog.ww("MatchRecorder", "Dropped %d records, the buffer was full", droppedRecords);
+    }
+
+    /**
+     * Starts a record, the fields of the type must be put in order and then {@link #end()} called.
+     * If the record doesn't fit in the buffer it is dropped, its fields are ignored.
+     *
+     * @param type The type of the record
+     * @return This recorder, to chain the fields onto
+     */
+    public MatchRecorder begin(RecordType type) {
+        cursor = writePosition;
+        dropping = !recording || buffer.length - (cursor - readPosition) < type.maxSize;
+        if (dropping) {
+            if (recording) droppedRecords++;
+            return this;
+        }
+        putByte(type.getId());
+        return putLong(Clock.nanoTime());
+    }
+
+    /** Finishes the current record, making it visible to the flush thread. */
+    public void end() {
+        if (!dropping) writePosition = cursor;
+    }
+
+    public MatchRecorder putByte(int value) {
+        if (dropping) return this;
+        buffer[(int) (cursor++ & mask)] = (byte) value;
+        return this;
+    }
+
+    public MatchRecorder putBoolean(boolean value) {
+        return putByte(value ? 1 : 0);
+    }
+
+    public MatchRecorder putEnum(Enum<?> value) {
+        return putByte(value == null ? -1 : value.ordinal());
+    }
+
+    public MatchRecorder putShort(int value) {
+        putByte(value >> 8);
+        return putByte(value);
+    }
+
+    public MatchRecorder putInt(int value) {
+        putShort(value >> 16);
+        return putShort(value);
+    }
+
+    public MatchRecorder putLong(long value) {
+        putInt((int) (value >> 32));
+        return putInt((int) value);
+    }
+
+    public MatchRecorder putDouble(double value) {
+        return putLong(Double.doubleToRawLongBits(value));
+    }
+
+    /** Puts a string field, cut off at {@link RecordType.Field#MAX_STRING_LENGTH} characters and with anything that isn't ASCII replaced. */
+    public MatchRecorder putString(String value) {
+        int length = Math.min(value.length(), RecordType.Field.MAX_STRING_LENGTH);
+        putByte(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            putByte(c < 128 ? c : '?');
+        }
+        return this;
+    }
+
+    /** @return How many records were dropped because the buffer was full */
+    public int getDroppedRecords() {
+        return droppedRecords;
+    }
+
+    private static void recordCommandEvent(Command command, CommandEvent event) {
+        MatchRecorder recorder = commandRecorder;
+        if (recorder != null) recorder.recordCommand(command, event);
+    }
+
+    /** Records a command event, and the name of the command the first time it is seen. */
+    private void recordCommand(Command command, CommandEvent event) {
+        Integer id = commandIds.get(command);
+        if (id == null) {
+            id = commandIds.size();
+            commandIds.put(command, id);
+            begin(RecordType.COMMAND_NAME).putShort(id).putString(command.getName()).end();
+        }
+        begin(RecordType.COMMAND).putEnum(event).putShort(id).end();
+    }
+
+    /** Writes the header and the schema of every record type, so the log can be decoded without this code. */
+    private static void writeSchema(DataOutputStream out) throws IOException {
+        out.writeBytes(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(RecordType.values().length);
+        for (RecordType type : RecordType.values()) {
+            out.writeByte(type.getId());
+            out.writeUTF(type.name());
+            out.writeByte(type.fields.length);
+            for (RecordType.Field field : type.fields) {
+                out.writeUTF(field.name);
+                out.writeByte(field.type);
+                out.writeByte(field.labels.length);
+                for (String label : field.labels) {
+                    out.writeUTF(label);
+                }
+            }
+        }
+    }
+
+    /** Copies every finished record from the buffer to the file, called by the flush thread. */
+    private synchronized void flush() {
+        if (output == null) return;
+        long read = readPosition;
+        long write = writePosition;
+        try {
+            while (read < write) {
+                int start = (int) (read & mask);
+                // Copy up to the end of the buffer, the rest is copied from the start on the next pass
+                int length = (int) Math.min(write - read, buffer.length - start);
+                output.write(buffer, start, length);
+                read += length;
+            }
+            output.flush();
+        } catch (IOException e) {
+            RobotLog.ee("MatchRecorder", e, "Couldn't write to %s", file);
+        }
+        readPosition = read;
+    }
+}
@@ -0,0 +1,118 @@
+package org.firstinspires.ftc.teamcode.recording;
+
+import org.firstinspires.ftc.teamcode.Constants.PIDSubsystemState;
+import org.firstinspires.ftc.teamcode.Robot;
+
+/**
+ * The fixed schema of every record the {@link MatchRecorder} writes. Each record is its type's id, a
+ * {@link org.firstinspires.ftc.teamcode.util.Clock#nanoTime()} timestamp and then the fields in the order listed here. The schema is written at the
+ * start of every log, so the MatchLogDecoder tool can read logs made by older versions of this code.
+ * <p>
+ * Never reorder or remove fields from a type that has been used at an event, add a new type instead.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public enum RecordType {
+    /** Once per loop, the state of the whole robot */
+    ROBOT(Field.enumeration("state", Robot.RobotState.class)),
+    /** Once per loop, the elbow's target, position, PID output and limit switch */
+    ELBOW(Field.enumeration("state", PIDSubsystemState.class),
+            Field.of("target", Field.DOUBLE),
+            Field.of("position", Field.INT),
+            Field.of("power", Field.DOUBLE),
+            Field.of("limitSwitch", Field.BYTE)),
+    /** Once per loop, the slide's target, position, PID output and limit switch */
+    SLIDE(Field.enumeration("state", PIDSubsystemState.class),
+            Field.of("target", Field.DOUBLE),
+            Field.of("position", Field.INT),
+            Field.of("power", Field.DOUBLE),
+            Field.of("limitSwitch", Field.BYTE)),
+    /** Once per loop, the filtered readings of the distance sensors in inches */
+    DISTANCE(Field.of("left", Field.DOUBLE),
+            Field.of("right", Field.DOUBLE)),
+    /** Whenever a command starts, finishes or is interrupted */
+    COMMAND(Field.enumeration("event", MatchRecorder.CommandEvent.class),
+            Field.of("command", Field.SHORT)),
+    /** The first time a command is seen, the name of the command id used by {@link #COMMAND} records */
+    COMMAND_NAME(Field.of("command", Field.SHORT),
+            Field.of("name", Field.STRING));
+
+    /** One field of a record type. */
+    public static final class Field {
+        // The type codes written into the schema
+        public static final char BYTE = 'b';
+        public static final char SHORT = 's';
+        public static final char INT = 'i';
+        public static final char LONG = 'l';
+        public static final char DOUBLE = 'd';
+        /** A byte holding the ordinal of an enum, the names of the constants are written in the schema */
+        public static final char ENUM = 'e';
+        /** A byte length followed by that many ASCII characters */
+        public static final char STRING = 'u';
+
+        /** The most characters a string field can hold, longer strings are cut off */
+        public static final int MAX_STRING_LENGTH = 64;
+
+        public final String name;
+        public final char type;
+        /** The names of the enum constants, empty unless this is an {@link #ENUM} field */
+        public final String[] labels;
+
+        private Field(String name, char type, String[] labels) {
+            this.name = name;
+            this.type = type;
+            this.labels = labels;
+        }
+
+        static Field of(String name, char type) {
+            return new Field(name, type, new String[0]);
+        }
+
+        static Field enumeration(String name, Class<? extends Enum<?>> enumClass) {
+            Enum<?>[] constants = enumClass.getEnumConstants();
+            String[] labels = new String[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                labels[i] = constants[i].name();
+            }
+            return new Field(name, ENUM, labels);
+        }
+
+        /** @return The most bytes this field can take up */
+        int maxSize() {
+            switch (type) {
+                case BYTE:
+                case ENUM:
+                    return 1;
+                case SHORT:
+                    return 2;
+                case INT:
+                    return 4;
+                case STRING:
+                    return 1 + MAX_STRING_LENGTH;
+                default:
+                    return 8;
+            }
+        }
+    }
+
+    /** The size of the id and timestamp at the start of every record */
+    static final int HEADER_SIZE = 1 + 8;
+
+    public final Field[] fields;
+    /** The most bytes a record of this type can take up, including the header */
+    final int maxSize;
+
+    RecordType(Field... fields) {
+        this.fields = fields;
+        int size = HEADER_SIZE;
+        for (Field field : fields) {
+            size += field.maxSize();
+        }
+        maxSize = size;
+    }
+
+    /** @return The id written at the start of each record of this type */
+    public int getId() {
+        return ordinal() + 1;
+    }
+}
@@ -0,0 +1,23 @@
+package org.firstinspires.ftc.teamcode.roadrunner;
+
+import com.acmerobotics.dashboard.canvas.Canvas;
+import com.acmerobotics.roadrunner.Pose2d;
+
+public final class Drawing {
+    private static final double ROBOT_RADIUS = 9;
+
+    private Drawing() {}
+
+    public static void drawRobot(Canvas c, Pose2d t) {
+        drawRobot(c, t.position.x, t.position.y, t.heading.toDouble());
+    }
+
+    public static void drawRobot(Canvas c, double x, double y, double heading) {
+        c.setStrokeWidth(1);
+        c.strokeCircle(x, y, ROBOT_RADIUS);
+
+        double halfX = 0.5 * ROBOT_RADIUS * Math.cos(heading);
+        double halfY = 0.5 * ROBOT_RADIUS * Math.sin(heading);
+        c.strokeLine(x + halfX, y + halfY, x + 2 * halfX, y + 2 * halfY);
+    }
+}
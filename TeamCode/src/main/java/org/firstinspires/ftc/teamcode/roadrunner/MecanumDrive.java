@@ -45,22 +45,22 @@ import org.firstinspires.ftc.teamcode.roadrunner.messages.DriveCommandMessage;
 import org.firstinspires.ftc.teamcode.roadrunner.messages.MecanumCommandMessage;
 import org.firstinspires.ftc.teamcode.roadrunner.messages.MecanumLocalizerInputsMessage;
 import org.firstinspires.ftc.teamcode.roadrunner.messages.PoseMessage;
+import org.firstinspires.ftc.teamcode.util.Clock;
 
 import java.lang.Math;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.function.DoubleSupplier;
 
 @Config
 public final class MecanumDrive {
     public static class Params {
-        // IMU orientation
-        // TODO: fill in these values based on
+        // IMU orientation, must match DriveSubsystem since both initialize the same IMU
         //   see https://ftc-docs.firstinspires.org/en/latest/programming_resources/imu/imu.html?highlight=imu#physical-hub-mounting
         public RevHubOrientationOnRobot.LogoFacingDirection logoFacingDirection =
-                RevHubOrientationOnRobot.LogoFacingDirection.UP;
+                RevHubOrientationOnRobot.LogoFacingDirection.LEFT;
         public RevHubOrientationOnRobot.UsbFacingDirection usbFacingDirection =
-                RevHubOrientationOnRobot.UsbFacingDirection.FORWARD;
+                RevHubOrientationOnRobot.UsbFacingDirection.BACKWARD;
 
         // drive model parameters
         public double inPerTick = 0.032166508987701;
@@ -89,6 +89,9 @@ public final class MecanumDrive {
         public double axialVelGain = 0.0;
         public double lateralVelGain = 0.0;
         public double headingVelGain = 0.0; // shared with turn
+
+        // draw the robot and path on the dashboard while following, turn off to keep the follower from allocating
+        public boolean drawWhileFollowing = true;
     }
 
     public static Params PARAMS = new Params();
@@ -111,17 +114,34 @@ public final class MecanumDrive {
     public final VoltageSensor voltageSensor;
 
     public final LazyImu lazyImu;
+    /** Where the localizer gets the yaw in radians from, null to read the IMU itself every update */
+    private final DoubleSupplier yawSource;
 
     public final Localizer localizer;
     public Pose2d pose;
 
-    private final LinkedList<Pose2d> poseHistory = new LinkedList<>();
+    private final PoseHistory poseHistory = new PoseHistory(100);
 
     private final DownsampledWriter estimatedPoseWriter = new DownsampledWriter("ESTIMATED_POSE", 50_000_000);
     private final DownsampledWriter targetPoseWriter = new DownsampledWriter("TARGET_POSE", 50_000_000);
     private final DownsampledWriter driveCommandWriter = new DownsampledWriter("DRIVE_COMMAND", 50_000_000);
     private final DownsampledWriter mecanumCommandWriter = new DownsampledWriter("MECANUM_COMMAND", 50_000_000);
 
+    // log messages are refilled and reused every loop, the flight recorder serializes them as soon as they're written
+    private final PoseMessage estimatedPoseMessage = new PoseMessage();
+    private final PoseMessage targetPoseMessage = new PoseMessage();
+    private final DriveCommandMessage driveCommandMessage = new DriveCommandMessage();
+    private final MecanumCommandMessage mecanumCommandMessage = new MecanumCommandMessage();
+    private final MecanumLocalizerInputsMessage localizerInputsMessage = new MecanumLocalizerInputsMessage();
+
+    // the follower's controller and feedforward, only rebuilt when PARAMS is changed (e.g. from the dashboard)
+    private HolonomicController controller;
+    private MotorFeedforward feedforward;
+    private final double[] controllerGains = {Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+    private final double[] feedforwardGains = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+
+    private final MecanumKinematics powerKinematics = new MecanumKinematics(1);
+
     public class DriveLocalizer implements Localizer {
         public final Encoder leftFront, leftBack, rightBack, rightFront;
         public final IMU imu;
@@ -136,7 +156,8 @@ public final class MecanumDrive {
             rightBack = new OverflowEncoder(new RawEncoder(MecanumDrive.this.rightBack));
             rightFront = new OverflowEncoder(new RawEncoder(MecanumDrive.this.rightFront));
 
-            imu = lazyImu.get();
+            // The IMU is only read here if nothing else is already reading it
+            imu = yawSource == null ? lazyImu.get() : null;
 
             // TODO: reverse encoders if needed
             leftFront.setDirection(DcMotorSimple.Direction.REVERSE);
@@ -150,12 +171,19 @@ public final class MecanumDrive {
             PositionVelocityPair rightBackPosVel = rightBack.getPositionAndVelocity();
             PositionVelocityPair rightFrontPosVel = rightFront.getPositionAndVelocity();
 
-            YawPitchRollAngles angles = imu.getRobotYawPitchRollAngles();
-
-            FlightRecorder.write("MECANUM_LOCALIZER_INPUTS", new MecanumLocalizerInputsMessage(
-                    leftFrontPosVel, leftBackPosVel, rightBackPosVel, rightFrontPosVel, angles));
+            double yaw;
+            if (yawSource != null) {
+                yaw = yawSource.getAsDouble();
+                FlightRecorder.write("MECANUM_LOCALIZER_INPUTS", localizerInputsMessage.set(
+                        leftFrontPosVel, leftBackPosVel, rightBackPosVel, rightFrontPosVel, yaw));
+            } else {
+                YawPitchRollAngles angles = imu.getRobotYawPitchRollAngles();
+                FlightRecorder.write("MECANUM_LOCALIZER_INPUTS", localizerInputsMessage.set(
+                        leftFrontPosVel, leftBackPosVel, rightBackPosVel, rightFrontPosVel, angles));
+                yaw = angles.getYaw(AngleUnit.RADIANS);
+            }
 
-            Rotation2d heading = Rotation2d.exp(angles.getYaw(AngleUnit.RADIANS));
+            Rotation2d heading = Rotation2d.exp(yaw);
 
             if (!initialized) {
                 initialized = true;
@@ -208,12 +236,23 @@ public final class MecanumDrive {
     }
 
     public MecanumDrive(HardwareMap hardwareMap, Pose2d pose) {
+        this(hardwareMap, pose, null);
+    }
+
+    /**
+     * @param yawSource Gives the latest yaw in radians without blocking, e.g. from a thread already polling the IMU.
+     *                  The localizer uses it instead of reading the IMU on the loop. Null reads the IMU
+     */
+    public MecanumDrive(HardwareMap hardwareMap, Pose2d pose, DoubleSupplier yawSource) {
         this.pose = pose;
+        this.yawSource = yawSource;
 
         LynxFirmware.throwIfModulesAreOutdated(hardwareMap);
 
+        // leave the hubs alone if something else (the robot's HubManager) is already clearing the bulk cache
         for (LynxModule module : hardwareMap.getAll(LynxModule.class)) {
-            module.setBulkCachingMode(LynxModule.BulkCachingMode.AUTO);
+            if (module.getBulkCachingMode() == LynxModule.BulkCachingMode.OFF)
+                module.setBulkCachingMode(LynxModule.BulkCachingMode.AUTO);
         }
 
         // TODO: make sure your config has motors with these names (or change them)
@@ -245,13 +284,14 @@ public final class MecanumDrive {
     }
 
     public void setDrivePowers(PoseVelocity2d powers) {
-        MecanumKinematics.WheelVelocities<Time> wheelVels = new MecanumKinematics(1).inverse(
+        MecanumKinematics.WheelVelocities<Time> wheelVels = powerKinematics.inverse(
                 PoseVelocity2dDual.constant(powers, 1));
 
         double maxPowerMag = 1;
-        for (DualNum<Time> power : wheelVels.all()) {
-            maxPowerMag = Math.max(maxPowerMag, power.value());
-        }
+        maxPowerMag = Math.max(maxPowerMag, wheelVels.leftFront.value());
+        maxPowerMag = Math.max(maxPowerMag, wheelVels.leftBack.value());
+        maxPowerMag = Math.max(maxPowerMag, wheelVels.rightBack.value());
+        maxPowerMag = Math.max(maxPowerMag, wheelVels.rightFront.value());
 
         leftFront.setPower(wheelVels.leftFront.get(0) / maxPowerMag);
         leftBack.setPower(wheelVels.leftBack.get(0) / maxPowerMag);
@@ -284,10 +324,10 @@ public final class MecanumDrive {
         public boolean run(@NonNull TelemetryPacket p) {
             double t;
             if (beginTs < 0) {
-                beginTs = Actions.now();
+                beginTs = Clock.seconds();
                 t = 0;
             } else {
-                t = Actions.now() - beginTs;
+                t = Clock.seconds() - beginTs;
             }
 
             if (t >= timeTrajectory.duration) {
@@ -300,27 +340,23 @@ public final class MecanumDrive {
             }
 
             Pose2dDual<Time> txWorldTarget = timeTrajectory.get(t);
-            targetPoseWriter.write(new PoseMessage(txWorldTarget.value()));
+            targetPoseWriter.write(targetPoseMessage.set(txWorldTarget.value()));
 
             PoseVelocity2d robotVelRobot = updatePoseEstimate();
 
-            PoseVelocity2dDual<Time> command = new HolonomicController(
-                    PARAMS.axialGain, PARAMS.lateralGain, PARAMS.headingGain,
-                    PARAMS.axialVelGain, PARAMS.lateralVelGain, PARAMS.headingVelGain
-            )
+            PoseVelocity2dDual<Time> command = getController()
                     .compute(txWorldTarget, pose, robotVelRobot);
-            driveCommandWriter.write(new DriveCommandMessage(command));
+            driveCommandWriter.write(driveCommandMessage.set(command));
 
             MecanumKinematics.WheelVelocities<Time> wheelVels = kinematics.inverse(command);
             double voltage = voltageSensor.getVoltage();
 
-            final MotorFeedforward feedforward = new MotorFeedforward(PARAMS.kS,
-                    PARAMS.kV / PARAMS.inPerTick, PARAMS.kA / PARAMS.inPerTick);
+            final MotorFeedforward feedforward = getFeedforward();
             double leftFrontPower = feedforward.compute(wheelVels.leftFront) / voltage;
             double leftBackPower = feedforward.compute(wheelVels.leftBack) / voltage;
             double rightBackPower = feedforward.compute(wheelVels.rightBack) / voltage;
             double rightFrontPower = feedforward.compute(wheelVels.rightFront) / voltage;
-            mecanumCommandWriter.write(new MecanumCommandMessage(
+            mecanumCommandWriter.write(mecanumCommandMessage.set(
                     voltage, leftFrontPower, leftBackPower, rightBackPower, rightFrontPower
             ));
 
@@ -329,6 +365,8 @@ public final class MecanumDrive {
             rightBack.setPower(rightBackPower);
             rightFront.setPower(rightFrontPower);
 
+            if (!PARAMS.drawWhileFollowing) return true;
+
             p.put("x", pose.position.x);
             p.put("y", pose.position.y);
             p.put("heading (deg)", Math.toDegrees(pose.heading.toDouble()));
@@ -376,10 +414,10 @@ public final class MecanumDrive {
         public boolean run(@NonNull TelemetryPacket p) {
             double t;
             if (beginTs < 0) {
-                beginTs = Actions.now();
+                beginTs = Clock.seconds();
                 t = 0;
             } else {
-                t = Actions.now() - beginTs;
+                t = Clock.seconds() - beginTs;
             }
 
             if (t >= turn.duration) {
@@ -392,33 +430,31 @@ public final class MecanumDrive {
             }
 
             Pose2dDual<Time> txWorldTarget = turn.get(t);
-            targetPoseWriter.write(new PoseMessage(txWorldTarget.value()));
+            targetPoseWriter.write(targetPoseMessage.set(txWorldTarget.value()));
 
             PoseVelocity2d robotVelRobot = updatePoseEstimate();
 
-            PoseVelocity2dDual<Time> command = new HolonomicController(
-                    PARAMS.axialGain, PARAMS.lateralGain, PARAMS.headingGain,
-                    PARAMS.axialVelGain, PARAMS.lateralVelGain, PARAMS.headingVelGain
-            )
+            PoseVelocity2dDual<Time> command = getController()
                     .compute(txWorldTarget, pose, robotVelRobot);
-            driveCommandWriter.write(new DriveCommandMessage(command));
+            driveCommandWriter.write(driveCommandMessage.set(command));
 
             MecanumKinematics.WheelVelocities<Time> wheelVels = kinematics.inverse(command);
             double voltage = voltageSensor.getVoltage();
-            final MotorFeedforward feedforward = new MotorFeedforward(PARAMS.kS,
-                    PARAMS.kV / PARAMS.inPerTick, PARAMS.kA / PARAMS.inPerTick);
+            final MotorFeedforward feedforward = getFeedforward();
             double leftFrontPower = feedforward.compute(wheelVels.leftFront) / voltage;
             double leftBackPower = feedforward.compute(wheelVels.leftBack) / voltage;
             double rightBackPower = feedforward.compute(wheelVels.rightBack) / voltage;
             double rightFrontPower = feedforward.compute(wheelVels.rightFront) / voltage;
-            mecanumCommandWriter.write(new MecanumCommandMessage(
+            mecanumCommandWriter.write(mecanumCommandMessage.set(
                     voltage, leftFrontPower, leftBackPower, rightBackPower, rightFrontPower
             ));
 
-            leftFront.setPower(feedforward.compute(wheelVels.leftFront) / voltage);
-            leftBack.setPower(feedforward.compute(wheelVels.leftBack) / voltage);
-            rightBack.setPower(feedforward.compute(wheelVels.rightBack) / voltage);
-            rightFront.setPower(feedforward.compute(wheelVels.rightFront) / voltage);
+            leftFront.setPower(leftFrontPower);
+            leftBack.setPower(leftBackPower);
+            rightBack.setPower(rightBackPower);
+            rightFront.setPower(rightFrontPower);
+
+            if (!PARAMS.drawWhileFollowing) return true;
 
             Canvas c = p.fieldOverlay();
             drawPoseHistory(c);
@@ -446,31 +482,63 @@ public final class MecanumDrive {
         Twist2dDual<Time> twist = localizer.update();
         pose = pose.plus(twist.value());
 
-        poseHistory.add(pose);
-        while (poseHistory.size() > 100) {
-            poseHistory.removeFirst();
-        }
+        poseHistory.add(Clock.nanoTime(), pose);
 
-        estimatedPoseWriter.write(new PoseMessage(pose));
+        estimatedPoseWriter.write(estimatedPoseMessage.set(pose));
 
         return twist.velocity().value();
     }
 
-    private void drawPoseHistory(Canvas c) {
-        double[] xPoints = new double[poseHistory.size()];
-        double[] yPoints = new double[poseHistory.size()];
-
-        int i = 0;
-        for (Pose2d t : poseHistory) {
-            xPoints[i] = t.position.x;
-            yPoints[i] = t.position.y;
+    /** @return The follower's controller, rebuilt only if one of the gains in PARAMS has changed */
+    private HolonomicController getController() {
+        if (controller == null
+                || controllerGains[0] != PARAMS.axialGain || controllerGains[1] != PARAMS.lateralGain
+                || controllerGains[2] != PARAMS.headingGain || controllerGains[3] != PARAMS.axialVelGain
+                || controllerGains[4] != PARAMS.lateralVelGain || controllerGains[5] != PARAMS.headingVelGain) {
+            controllerGains[0] = PARAMS.axialGain;
+            controllerGains[1] = PARAMS.lateralGain;
+            controllerGains[2] = PARAMS.headingGain;
+            controllerGains[3] = PARAMS.axialVelGain;
+            controllerGains[4] = PARAMS.lateralVelGain;
+            controllerGains[5] = PARAMS.headingVelGain;
+            controller = new HolonomicController(
+                    PARAMS.axialGain, PARAMS.lateralGain, PARAMS.headingGain,
+                    PARAMS.axialVelGain, PARAMS.lateralVelGain, PARAMS.headingVelGain
+            );
+        }
+        return controller;
+    }
 
-            i++;
+    /** @return The follower's feedforward, rebuilt only if kS, kV, kA or inPerTick in PARAMS has changed */
+    private MotorFeedforward getFeedforward() {
+        if (feedforward == null
+                || feedforwardGains[0] != PARAMS.kS || feedforwardGains[1] != PARAMS.kV
+                || feedforwardGains[2] != PARAMS.kA || feedforwardGains[3] != PARAMS.inPerTick) {
+            feedforwardGains[0] = PARAMS.kS;
+            feedforwardGains[1] = PARAMS.kV;
+            feedforwardGains[2] = PARAMS.kA;
+            feedforwardGains[3] = PARAMS.inPerTick;
+            feedforward = new MotorFeedforward(PARAMS.kS,
+                    PARAMS.kV / PARAMS.inPerTick, PARAMS.kA / PARAMS.inPerTick);
         }
+        return feedforward;
+    }
+
+    /**
+     * Looks up where the robot was at a past time, for compensating the latency of a sensor reading.
+     *
+     * @param timestampNanos The time to look up, from {@link Clock#nanoTime()}
+     * @return The interpolated pose at that time, or the current pose if there's no history yet
+     */
+    public Pose2d getPoseAt(long timestampNanos) {
+        Pose2d pastPose = poseHistory.getPoseAt(timestampNanos);
+        return pastPose == null ? pose : pastPose;
+    }
 
+    private void drawPoseHistory(Canvas c) {
         c.setStrokeWidth(1);
         c.setStroke("#3F51B5");
-        c.strokePolyline(xPoints, yPoints);
+        poseHistory.draw(c);
     }
 
     public TrajectoryActionBuilder actionBuilder(Pose2d beginPose) {
@@ -0,0 +1,140 @@
+package org.firstinspires.ftc.teamcode.roadrunner;
+
+import com.acmerobotics.dashboard.canvas.Canvas;
+import com.acmerobotics.roadrunner.Pose2d;
+
+/**
+ * A fixed-capacity history of the estimated pose, stored as parallel primitive arrays in a ring buffer so adding
+ * a pose never allocates. Once full, the oldest pose is overwritten. Also answers "where was the robot at this
+ * time", interpolating between the two closest poses, for compensating the latency of sensors like the camera.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public final class PoseHistory {
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] headings;
+    private final long[] timestamps;
+
+    /** The index of the oldest pose */
+    private int start;
+    private int size;
+
+    // Reused every time the history is drawn, only reallocated while the history is still filling up
+    private double[] drawXs = new double[0];
+    private double[] drawYs = new double[0];
+
+    /**
+     * Constructs a PoseHistory.
+     *
+     * @param capacity How many poses to keep
+     */
+    public PoseHistory(int capacity) {
+        xs = new double[capacity];
+        ys = new double[capacity];
+        headings = new double[capacity];
+        timestamps = new long[capacity];
+    }
+
+    /**
+     * Adds a pose, overwriting the oldest one if the history is full.
+     *
+     * @param timestampNanos When the pose was estimated, from {@link org.firstinspires.ftc.teamcode.util.Clock#nanoTime()}
+     * @param pose The pose
+     */
+    public void add(long timestampNanos, Pose2d pose) {
+        add(timestampNanos, pose.position.x, pose.position.y, pose.heading.toDouble());
+    }
+
+    /**
+     * Adds a pose, overwriting the oldest one if the history is full.
+     *
+     * @param timestampNanos When the pose was estimated, from {@link org.firstinspires.ftc.teamcode.util.Clock#nanoTime()}
+     * @param x The x position, in inches
+     * @param y The y position, in inches
+     * @param heading The heading, in radians
+     */
+    public void add(long timestampNanos, double x, double y, double heading) {
+        int index;
+        if (size < xs.length) {
+            index = (start + size) % xs.length;
+            size++;
+        } else {
+            index = start;
+            start = (start + 1) % xs.length;
+        }
+        xs[index] = x;
+        ys[index] = y;
+        headings[index] = heading;
+        timestamps[index] = timestampNanos;
+    }
+
+    /** Removes every pose. */
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    /** @return How many poses are in the history */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the pose at a past time. Between two poses the position is interpolated linearly and the heading
+     * along the shortest way around. Times before the oldest pose or after the newest return that pose.
+     *
+     * @param timestampNanos The time to look up, from {@link org.firstinspires.ftc.teamcode.util.Clock#nanoTime()}
+     * @return The pose at that time, or null if the history is empty
+     */
+    public Pose2d getPoseAt(long timestampNanos) {
+        if (size == 0) return null;
+        if (timestampNanos <= timestamps[physical(0)]) return poseAt(physical(0));
+        if (timestampNanos >= timestamps[physical(size - 1)]) return poseAt(physical(size - 1));
+
+        // Binary search for the last pose at or before the time, the timestamps are in increasing order
+        int low = 0;
+        int high = size - 1;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[physical(middle)] <= timestampNanos) low = middle;
+            else high = middle;
+        }
+
+        int before = physical(low);
+        int after = physical(high);
+        double fraction = (double) (timestampNanos - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        double headingDelta = Math.IEEEremainder(headings[after] - headings[before], 2 * Math.PI);
+        return new Pose2d(
+                xs[before] + (xs[after] - xs[before]) * fraction,
+                ys[before] + (ys[after] - ys[before]) * fraction,
+                headings[before] + headingDelta * fraction);
+    }
+
+    /**
+     * Draws the history as a line, oldest to newest.
+     *
+     * @param c The canvas to draw on
+     */
+    public void draw(Canvas c) {
+        if (drawXs.length != size) {
+            drawXs = new double[size];
+            drawYs = new double[size];
+        }
+        for (int i = 0; i < size; i++) {
+            int index = physical(i);
+            drawXs[i] = xs[index];
+            drawYs[i] = ys[index];
+        }
+        c.strokePolyline(drawXs, drawYs);
+    }
+
+    /** @return The array index of the i-th oldest pose */
+    private int physical(int i) {
+        return (start + i) % xs.length;
+    }
+
+    private Pose2d poseAt(int index) {
+        return new Pose2d(xs[index], ys[index], headings[index]);
+    }
+}
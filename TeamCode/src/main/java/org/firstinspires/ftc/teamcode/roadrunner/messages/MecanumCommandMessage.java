@@ -8,12 +8,21 @@ public final class MecanumCommandMessage {
     public double rightBackPower;
     public double rightFrontPower;
 
+    public MecanumCommandMessage() {
+    }
+
     public MecanumCommandMessage(double voltage, double leftFrontPower, double leftBackPower, double rightBackPower, double rightFrontPower) {
+        set(voltage, leftFrontPower, leftBackPower, rightBackPower, rightFrontPower);
+    }
+
+    /** Refills this message so it can be reused instead of allocating a new one every loop. */
+    public MecanumCommandMessage set(double voltage, double leftFrontPower, double leftBackPower, double rightBackPower, double rightFrontPower) {
         this.timestamp = System.nanoTime();
         this.voltage = voltage;
         this.leftFrontPower = leftFrontPower;
         this.leftBackPower = leftBackPower;
         this.rightBackPower = rightBackPower;
         this.rightFrontPower = rightFrontPower;
+        return this;
     }
 }
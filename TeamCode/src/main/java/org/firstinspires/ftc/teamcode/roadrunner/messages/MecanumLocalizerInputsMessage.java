@@ -15,7 +15,15 @@ public final class MecanumLocalizerInputsMessage {
     public double pitch;
     public double roll;
 
+    public MecanumLocalizerInputsMessage() {
+    }
+
     public MecanumLocalizerInputsMessage(PositionVelocityPair leftFront, PositionVelocityPair leftBack, PositionVelocityPair rightBack, PositionVelocityPair rightFront, YawPitchRollAngles angles) {
+        set(leftFront, leftBack, rightBack, rightFront, angles);
+    }
+
+    /** Refills this message so it can be reused instead of allocating a new one every loop. */
+    public MecanumLocalizerInputsMessage set(PositionVelocityPair leftFront, PositionVelocityPair leftBack, PositionVelocityPair rightBack, PositionVelocityPair rightFront, YawPitchRollAngles angles) {
         this.timestamp = System.nanoTime();
         this.leftFront = leftFront;
         this.leftBack = leftBack;
@@ -26,5 +34,19 @@ public final class MecanumLocalizerInputsMessage {
             this.pitch = angles.getPitch(AngleUnit.RADIANS);
             this.roll = angles.getRoll(AngleUnit.RADIANS);
         }
+        return this;
+    }
+
+    /** Refills this message with only a yaw, for when the heading comes from a reading taken somewhere else. */
+    public MecanumLocalizerInputsMessage set(PositionVelocityPair leftFront, PositionVelocityPair leftBack, PositionVelocityPair rightBack, PositionVelocityPair rightFront, double yaw) {
+        this.timestamp = System.nanoTime();
+        this.leftFront = leftFront;
+        this.leftBack = leftBack;
+        this.rightBack = rightBack;
+        this.rightFront = rightFront;
+        this.yaw = yaw;
+        this.pitch = Double.NaN;
+        this.roll = Double.NaN;
+        return this;
     }
 }
@@ -8,11 +8,19 @@ public final class PoseMessage {
     public double y;
     public double heading;
 
+    public PoseMessage() {
+    }
+
     public PoseMessage(Pose2d pose) {
+        set(pose);
+    }
+
+    /** Refills this message so it can be reused instead of allocating a new one every loop. */
+    public PoseMessage set(Pose2d pose) {
         this.timestamp = System.nanoTime();
         this.x = pose.position.x;
         this.y = pose.position.y;
         this.heading = pose.heading.toDouble();
+        return this;
     }
 }
-
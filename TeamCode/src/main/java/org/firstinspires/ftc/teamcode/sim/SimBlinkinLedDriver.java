@@ -0,0 +1,28 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.hardware.rev.RevBlinkinLedDriver;
+
+/**
+ * A simulated REV Blinkin. Uses the real driver on a {@link SimServoController}, and remembers the last pattern
+ * so a test can check it.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimBlinkinLedDriver extends RevBlinkinLedDriver {
+    private volatile BlinkinPattern pattern;
+
+    public SimBlinkinLedDriver(SimServoController controller, int port) {
+        super(controller, port);
+    }
+
+    @Override
+    public void setPattern(BlinkinPattern pattern) {
+        this.pattern = pattern;
+        super.setPattern(pattern);
+    }
+
+    /** @return The last pattern that was set, null if none has been */
+    public BlinkinPattern getPattern() {
+        return pattern;
+    }
+}
@@ -0,0 +1,65 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+
+/**
+ * The parts of {@link HardwareDevice} that are the same for every simulated device.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public abstract class SimDevice implements HardwareDevice {
+    private final String name;
+
+    /**
+     * Constructs a SimDevice.
+     *
+     * @param name The name of the device in the hardware map
+     */
+    protected SimDevice(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Manufacturer getManufacturer() {
+        return Manufacturer.Other;
+    }
+
+    @Override
+    public String getDeviceName() {
+        return "Simulated " + name;
+    }
+
+    @Override
+    public String getConnectionInfo() {
+        return "simulation";
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+
+    @Override
+    public void resetDeviceConfigurationForOpMode() {
+
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    /** @return The name of the device in the hardware map */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Advances the device's physics by one time step.
+     *
+     * @param dt The length of the step in seconds
+     */
+    public void step(double dt) {
+
+    }
+}
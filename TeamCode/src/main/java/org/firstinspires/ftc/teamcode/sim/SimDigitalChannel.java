@@ -0,0 +1,59 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.DigitalChannel;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * A simulated digital channel. As an input its state comes from a supplier, so a limit switch can be pressed
+ * by the mechanism it is attached to. Like a REV touch sensor, the state is high when nothing is pressing it.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimDigitalChannel extends SimDevice implements DigitalChannel {
+    private final BooleanSupplier input;
+    private Mode mode = Mode.INPUT;
+    private boolean outputState;
+
+    /**
+     * Constructs a SimDigitalChannel.
+     *
+     * @param name The name of the channel in the hardware map
+     * @param input Gives the state of the channel when it is an input
+     */
+    public SimDigitalChannel(String name, BooleanSupplier input) {
+        super(name);
+        this.input = input;
+    }
+
+    /**
+     * Constructs a SimDigitalChannel for a limit switch, which reads low while pressed.
+     *
+     * @param name The name of the switch in the hardware map
+     * @param pressed Gives whether the switch is pressed
+     * @return The new channel
+     */
+    public static SimDigitalChannel limitSwitch(String name, BooleanSupplier pressed) {
+        return new SimDigitalChannel(name, () -> !pressed.getAsBoolean());
+    }
+
+    @Override
+    public synchronized Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public synchronized void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    @Override
+    public synchronized boolean getState() {
+        return mode == Mode.INPUT ? input.getAsBoolean() : outputState;
+    }
+
+    @Override
+    public synchronized void setState(boolean state) {
+        outputState = state;
+    }
+}
@@ -0,0 +1,44 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.DigitalChannel;
+import com.qualcomm.robotcore.hardware.DigitalChannelController;
+
+/**
+ * A simulated digital channel controller, only used so the SDK's {@link com.qualcomm.robotcore.hardware.LED}
+ * class has something to write to. Remembers the mode and state of each channel.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimDigitalChannelController extends SimDevice implements DigitalChannelController {
+    private static final int CHANNELS = 8;
+
+    private final DigitalChannel.Mode[] modes = new DigitalChannel.Mode[CHANNELS];
+    private final boolean[] states = new boolean[CHANNELS];
+
+    public SimDigitalChannelController(String name) {
+        super(name);
+        for (int i = 0; i < CHANNELS; i++) {
+            modes[i] = DigitalChannel.Mode.INPUT;
+        }
+    }
+
+    @Override
+    public synchronized DigitalChannel.Mode getDigitalChannelMode(int channel) {
+        return modes[channel];
+    }
+
+    @Override
+    public synchronized void setDigitalChannelMode(int channel, DigitalChannel.Mode mode) {
+        modes[channel] = mode;
+    }
+
+    @Override
+    public synchronized boolean getDigitalChannelState(int channel) {
+        return states[channel];
+    }
+
+    @Override
+    public synchronized void setDigitalChannelState(int channel, boolean state) {
+        states[channel] = state;
+    }
+}
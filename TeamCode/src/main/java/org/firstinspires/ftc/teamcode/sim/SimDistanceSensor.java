@@ -0,0 +1,48 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import static org.firstinspires.ftc.teamcode.Constants.SimulationConstants.*;
+
+import com.qualcomm.robotcore.hardware.DistanceSensor;
+
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+import java.util.Random;
+
+/**
+ * A simulated REV 2m distance sensor. Reads whatever distance the test sets, with some gaussian noise, and
+ * the occasional bad reading like the real sensor gives.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimDistanceSensor extends SimDevice implements DistanceSensor {
+    private final Random random;
+    private volatile double distanceInches = DISTANCE_SENSOR_OUT_OF_RANGE;
+
+    /**
+     * Constructs a SimDistanceSensor.
+     *
+     * @param name The name of the sensor in the hardware map
+     * @param seed The seed for the noise, so runs can be repeated
+     */
+    public SimDistanceSensor(String name, long seed) {
+        super(name);
+        random = new Random(seed);
+    }
+
+    /**
+     * Sets what the sensor is looking at.
+     *
+     * @param inches The distance to the nearest object, in inches
+     */
+    public void setDistance(double inches) {
+        distanceInches = inches;
+    }
+
+    @Override
+    public synchronized double getDistance(DistanceUnit unit) {
+        double reading;
+        if (random.nextDouble() < DISTANCE_SENSOR_OUTLIER_CHANCE) reading = DISTANCE_SENSOR_OUT_OF_RANGE;
+        else reading = Math.min(distanceInches + random.nextGaussian() * DISTANCE_SENSOR_NOISE, DISTANCE_SENSOR_OUT_OF_RANGE);
+        return unit.fromInches(reading);
+    }
+}
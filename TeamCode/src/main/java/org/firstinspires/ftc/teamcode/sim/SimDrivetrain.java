@@ -0,0 +1,83 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import static org.firstinspires.ftc.teamcode.Constants.DriveConstants.*;
+import static org.firstinspires.ftc.teamcode.Constants.SimulationConstants.*;
+
+/**
+ * Moves the simulated robot around the field from the velocities of the four drive motors, using mecanum
+ * forward kinematics. The pose is in inches and radians from where the robot started, and the heading is
+ * passed on to the {@link SimIMU}. Wheels are assumed not to slip.
+ * <p>
+ * The motor names don't match where the motors are on the robot: "rearLeftMotor" is the front left wheel and
+ * "frontLeftMotor" is the back left wheel, the same way {@link org.firstinspires.ftc.teamcode.roadrunner.MecanumDrive} maps them.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimDrivetrain {
+    private final SimMotor leftFront;
+    private final SimMotor leftBack;
+    private final SimMotor rightFront;
+    private final SimMotor rightBack;
+    private final SimIMU imu;
+
+    // The pose of the robot on the field, x is forward from the start, y is left
+    private volatile double x;
+    private volatile double y;
+    private volatile double heading;
+
+    /**
+     * Constructs a SimDrivetrain.
+     *
+     * @param leftFront The motor on the front left wheel
+     * @param leftBack The motor on the back left wheel
+     * @param rightFront The motor on the front right wheel
+     * @param rightBack The motor on the back right wheel
+     * @param imu The IMU that measures the heading
+     */
+    public SimDrivetrain(SimMotor leftFront, SimMotor leftBack, SimMotor rightFront, SimMotor rightBack, SimIMU imu) {
+        this.leftFront = leftFront;
+        this.leftBack = leftBack;
+        this.rightFront = rightFront;
+        this.rightBack = rightBack;
+        this.imu = imu;
+    }
+
+    /**
+     * Integrates the pose of the robot over one step, the motors must already have been stepped.
+     *
+     * @param dt The length of the step in seconds
+     */
+    public void step(double dt) {
+        double lf = leftFront.getVelocity() / PULSES_PER_INCH;
+        double lb = leftBack.getVelocity() / PULSES_PER_INCH;
+        double rf = rightFront.getVelocity() / PULSES_PER_INCH;
+        double rb = rightBack.getVelocity() / PULSES_PER_INCH;
+
+        double forward = (lf + lb + rf + rb) / 4;
+        double left = (-lf + lb + rf - rb) / 4;
+        double turn = (-lf - lb + rf + rb) / (4 * (SIM_TRACK_WIDTH / 2 + SIM_WHEEL_BASE / 2));
+
+        // Integrate in the field frame using the heading halfway through the step
+        double midHeading = heading + turn * dt / 2;
+        x += (forward * Math.cos(midHeading) - left * Math.sin(midHeading)) * dt;
+        y += (forward * Math.sin(midHeading) + left * Math.cos(midHeading)) * dt;
+        heading += turn * dt;
+
+        imu.setHeading(heading, turn);
+    }
+
+    /** @return How far forward the robot is from where it started, in inches */
+    public double getX() {
+        return x;
+    }
+
+    /** @return How far left the robot is from where it started, in inches */
+    public double getY() {
+        return y;
+    }
+
+    /** @return The heading of the robot in radians, counter clockwise is positive */
+    public double getHeading() {
+        return heading;
+    }
+}
@@ -0,0 +1,146 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import static org.firstinspires.ftc.teamcode.Constants.SimulationConstants.*;
+
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.LED;
+
+import org.firstinspires.ftc.teamcode.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hardware map filled with simulated devices, registered under the same names as in {@link Constants}, so the
+ * subsystems, {@link org.firstinspires.ftc.teamcode.Robot} and the autonomous controller can be built without a robot.
+ * <p>
+ * Nothing moves on its own: {@link #step(double)} advances the physics by a fixed amount of simulated time, so
+ * the simulation runs as fast as the loop can go instead of in real time. {@link SimOpMode} moves the
+ * {@link org.firstinspires.ftc.teamcode.util.Clock} forward by the same amount, so the code keeps up. There are no
+ * hubs in the map, so bulk caching does nothing.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimHardwareMap extends HardwareMap {
+    /** Every device that has physics to step */
+    private final List<SimDevice> devices = new ArrayList<>();
+
+    private final SimVoltageSensor battery;
+    private final SimIMU imu;
+    private final SimDrivetrain drivetrain;
+
+    /** How much simulated time has passed, in seconds */
+    private double time;
+
+    /** Constructs a SimHardwareMap with every device the robot has. */
+    public SimHardwareMap() {
+        super(null, null);
+
+        battery = add(new SimVoltageSensor(VOLTAGE_SENSOR_NAME, NOMINAL_VOLTAGE));
+        voltageSensor.put(VOLTAGE_SENSOR_NAME, battery);
+
+        // Drive base
+        SimMotor frontLeft = add(motor(Constants.DriveConstants.FRONT_LEFT_MOTOR_NAME));
+        SimMotor frontRight = add(motor(Constants.DriveConstants.FRONT_RIGHT_MOTOR_NAME));
+        SimMotor rearLeft = add(motor(Constants.DriveConstants.REAR_LEFT_MOTOR_NAME));
+        SimMotor rearRight = add(motor(Constants.DriveConstants.REAR_RIGHT_MOTOR_NAME));
+        imu = add(new SimIMU(Constants.DriveConstants.IMU_NAME));
+        // The front and rear left names are swapped on the robot, see SimDrivetrain
+        drivetrain = new SimDrivetrain(rearLeft, frontLeft, frontRight, rearRight, imu);
+
+        // Arm, the limit switches are pressed when the mechanism is all the way down or in
+        SimMotor elbow = add(motor(Constants.ElbowConstants.ELBOW_DC_MOTOR_NAME).withLimits(0, ELBOW_MAX_POSITION));
+        add(SimDigitalChannel.limitSwitch(Constants.ElbowConstants.ELBOW_LIMIT_SWITCH_NAME,
+                () -> elbow.getMechanismPosition() <= LIMIT_SWITCH_TICKS));
+        SimMotor slide = add(motor(Constants.LinearSlideConstants.SLIDE_MOTOR_NAME).withLimits(0, SLIDE_MAX_POSITION));
+        add(SimDigitalChannel.limitSwitch(Constants.LinearSlideConstants.SLIDE_LIMIT_SWITCH_NAME,
+                () -> slide.getMechanismPosition() <= LIMIT_SWITCH_TICKS));
+
+        add(motor(Constants.IntakeConstants.INTAKE_MOTOR_NAME));
+        add(motor(Constants.WinchConstants.WINCH_MOTOR_NAME));
+
+        add(new SimServo(Constants.BoxConstants.BOX_SERVO_NAME));
+        add(new SimServo(Constants.DroneConstants.DRONE_SERVO_NAME));
+        add(new SimServo(Constants.IntakeConstants.INTAKE_SERVO_NAME));
+        add(new SimServo(Constants.WinchConstants.HOOK_SERVO_NAME));
+
+        add(new SimDistanceSensor(Constants.DistanceSensorConstants.LEFT_DISTANCE_SENSOR_NAME, 1));
+        add(new SimDistanceSensor(Constants.DistanceSensorConstants.RIGHT_DISTANCE_SENSOR_NAME, 2));
+
+        // The box LEDs are the SDK's LED class on a simulated digital controller
+        SimDigitalChannelController ledController = add(new SimDigitalChannelController("ledController"));
+        put(Constants.BoxConstants.RED_LEFT_LED_NAME, new LED(ledController, 0));
+        put(Constants.BoxConstants.GREEN_LEFT_LED_NAME, new LED(ledController, 1));
+        put(Constants.BoxConstants.RED_RIGHT_LED_NAME, new LED(ledController, 2));
+        put(Constants.BoxConstants.GREEN_RIGHT_LED_NAME, new LED(ledController, 3));
+
+        SimServoController blinkinController = add(new SimServoController("blinkinController"));
+        put(Constants.LEDConstants.LED_NAME, new SimBlinkinLedDriver(blinkinController, 0));
+    }
+
+    /** @return A drive style motor with the given name */
+    private SimMotor motor(String name) {
+        return new SimMotor(name, MOTOR_TICKS_PER_REV, MOTOR_FREE_SPEED_RPM, battery);
+    }
+
+    /** Puts a device in the hardware map under its name and keeps it to be stepped. */
+    private <T extends SimDevice> T add(T device) {
+        put(device.getName(), device);
+        devices.add(device);
+        return device;
+    }
+
+    /**
+     * Advances every device and the drivetrain by one step of simulated time.
+     *
+     * @param dt The length of the step in seconds
+     */
+    public synchronized void step(double dt) {
+        for (int i = 0; i < devices.size(); i++) {
+            devices.get(i).step(dt);
+        }
+        drivetrain.step(dt);
+        time += dt;
+    }
+
+    /** @return How much simulated time has passed, in seconds */
+    public synchronized double getTime() {
+        return time;
+    }
+
+    /**
+     * Gets a simulated motor.
+     *
+     * @param name The name of the motor in Constants
+     * @return The motor
+     */
+    public SimMotor getMotor(String name) {
+        return (SimMotor) get(DcMotorEx.class, name);
+    }
+
+    /**
+     * Gets a simulated distance sensor, to set what it sees.
+     *
+     * @param name The name of the sensor in Constants
+     * @return The sensor
+     */
+    public SimDistanceSensor getDistanceSensor(String name) {
+        return (SimDistanceSensor) get(SimDistanceSensor.class, name);
+    }
+
+    /** @return The simulated battery */
+    public SimVoltageSensor getBattery() {
+        return battery;
+    }
+
+    /** @return The simulated IMU */
+    public SimIMU getIMU() {
+        return imu;
+    }
+
+    /** @return The simulated drivetrain, which has the pose of the robot */
+    public SimDrivetrain getDrivetrain() {
+        return drivetrain;
+    }
+}
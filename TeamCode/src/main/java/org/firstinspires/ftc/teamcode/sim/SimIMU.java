@@ -0,0 +1,76 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.AngularVelocity;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder;
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference;
+import org.firstinspires.ftc.robotcore.external.navigation.Orientation;
+import org.firstinspires.ftc.robotcore.external.navigation.Quaternion;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+import org.firstinspires.ftc.teamcode.util.Clock;
+
+/**
+ * A simulated IMU that reports the heading of the {@link SimDrivetrain}. The robot is assumed to stay flat, so
+ * pitch and roll are always zero. The mounting orientation passed to {@link #initialize(Parameters)} is ignored,
+ * readings are always in the robot's frame.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimIMU extends SimDevice implements IMU {
+    /** The heading of the robot in radians, counter clockwise is positive */
+    private volatile double heading;
+    /** How fast the heading is changing in radians per second */
+    private volatile double headingVelocity;
+    /** The heading that reads as a yaw of zero */
+    private volatile double yawOffset;
+
+    public SimIMU(String name) {
+        super(name);
+    }
+
+    /**
+     * Updates what the IMU measures, called by the drivetrain every step.
+     *
+     * @param heading The heading of the robot in radians
+     * @param headingVelocity How fast the heading is changing in radians per second
+     */
+    void setHeading(double heading, double headingVelocity) {
+        this.heading = heading;
+        this.headingVelocity = headingVelocity;
+    }
+
+    @Override
+    public boolean initialize(Parameters parameters) {
+        return true;
+    }
+
+    @Override
+    public void resetYaw() {
+        yawOffset = heading;
+    }
+
+    @Override
+    public YawPitchRollAngles getRobotYawPitchRollAngles() {
+        return new YawPitchRollAngles(AngleUnit.RADIANS, AngleUnit.normalizeRadians(heading - yawOffset), 0, 0, Clock.nanoTime());
+    }
+
+    @Override
+    public Orientation getRobotOrientation(AxesReference reference, AxesOrder order, AngleUnit angleUnit) {
+        return new Orientation(AxesReference.INTRINSIC, AxesOrder.ZYX, AngleUnit.RADIANS,
+                (float) AngleUnit.normalizeRadians(heading - yawOffset), 0, 0, Clock.nanoTime())
+                .toAxesReference(reference).toAxesOrder(order).toAngleUnit(angleUnit);
+    }
+
+    @Override
+    public Quaternion getRobotOrientationAsQuaternion() {
+        double halfYaw = AngleUnit.normalizeRadians(heading - yawOffset) / 2;
+        return new Quaternion((float) Math.cos(halfYaw), 0, 0, (float) Math.sin(halfYaw), Clock.nanoTime());
+    }
+
+    @Override
+    public AngularVelocity getRobotAngularVelocity(AngleUnit angleUnit) {
+        return new AngularVelocity(AngleUnit.RADIANS, 0, 0, (float) headingVelocity, Clock.nanoTime()).toAngleUnit(angleUnit);
+    }
+}
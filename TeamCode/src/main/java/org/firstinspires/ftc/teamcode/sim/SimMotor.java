@@ -0,0 +1,333 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import static org.firstinspires.ftc.teamcode.Constants.SimulationConstants.*;
+
+import com.qualcomm.robotcore.hardware.DcMotorController;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.PIDCoefficients;
+import com.qualcomm.robotcore.hardware.PIDFCoefficients;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.MotorConfigurationType;
+import com.qualcomm.robotcore.util.Range;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+
+/**
+ * A simulated DC motor with an encoder. The shaft is modelled as a first order system: its velocity moves towards
+ * the velocity the run mode asks for with a time constant, and the current draw grows with how far the shaft is
+ * from where the voltage wants it to be. RUN_TO_POSITION uses a proportional position loop like the hub does.
+ * <p>
+ * Everything is modelled in the motor's own frame after its direction is applied, so the simulation assumes the
+ * directions in Constants are right. The mechanism can be given hard stops, which the encoder position can't go past.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimMotor extends SimDevice implements DcMotorEx {
+    private final double ticksPerRev;
+    private final double freeSpeed;
+    private final SimVoltageSensor voltageSensor;
+
+    private Direction direction = Direction.FORWARD;
+    private RunMode mode = RunMode.RUN_WITHOUT_ENCODER;
+    private ZeroPowerBehavior zeroPowerBehavior = ZeroPowerBehavior.BRAKE;
+    private MotorConfigurationType motorType = MotorConfigurationType.getUnspecifiedMotorType();
+    private boolean enabled = true;
+
+    private double power;
+    /** The velocity asked for with setVelocity, NaN if power is being used instead */
+    private double targetVelocity = Double.NaN;
+    private int targetPosition;
+    private int targetPositionTolerance = 5;
+    private double currentAlert = 5;
+
+    /** The position of the mechanism in ticks, doesn't change when the encoder is reset */
+    private double position;
+    /** The velocity of the mechanism in ticks per second */
+    private double velocity;
+    /** The mechanism position that reads as zero on the encoder */
+    private double encoderOffset;
+    private double current;
+
+    private double minPosition = Double.NEGATIVE_INFINITY;
+    private double maxPosition = Double.POSITIVE_INFINITY;
+
+    private PIDFCoefficients velocityCoefficients = new PIDFCoefficients(10, 3, 0, 0);
+    private PIDFCoefficients positionCoefficients = new PIDFCoefficients(10, 0, 0, 0);
+
+    /**
+     * Constructs a SimMotor.
+     *
+     * @param name The name of the motor in the hardware map
+     * @param ticksPerRev Encoder ticks per revolution of the output shaft
+     * @param freeSpeedRpm How fast the output shaft spins with no load at nominal voltage
+     * @param voltageSensor The battery the motor runs from
+     */
+    public SimMotor(String name, double ticksPerRev, double freeSpeedRpm, SimVoltageSensor voltageSensor) {
+        super(name);
+        this.ticksPerRev = ticksPerRev;
+        this.freeSpeed = freeSpeedRpm / 60 * ticksPerRev;
+        this.voltageSensor = voltageSensor;
+    }
+
+    /**
+     * Adds hard stops to the mechanism, in ticks from where the mechanism started.
+     *
+     * @param min The lowest the mechanism can go
+     * @param max The highest the mechanism can go
+     * @return This motor, for chaining
+     */
+    public SimMotor withLimits(double min, double max) {
+        minPosition = min;
+        maxPosition = max;
+        return this;
+    }
+
+    @Override
+    public synchronized void step(double dt) {
+        double voltageScale = voltageSensor.getVoltage() / NOMINAL_VOLTAGE;
+        double maxVelocity = freeSpeed * voltageScale;
+
+        // Work out what velocity the motor is trying to reach
+        double wantedVelocity;
+        if (!enabled) wantedVelocity = 0;
+        else if (mode == RunMode.STOP_AND_RESET_ENCODER) wantedVelocity = 0;
+        else if (mode == RunMode.RUN_TO_POSITION) {
+            double error = targetPosition - getCurrentPosition();
+            double limit = Math.abs(power) * freeSpeed;
+            wantedVelocity = Range.clip(error * positionCoefficients.p, -limit, limit);
+        }
+        else if (mode == RunMode.RUN_USING_ENCODER) {
+            wantedVelocity = Double.isNaN(targetVelocity) ? power * freeSpeed : targetVelocity;
+        }
+        else wantedVelocity = power * freeSpeed * voltageScale;
+        wantedVelocity = Range.clip(wantedVelocity, -maxVelocity, maxVelocity);
+
+        // Floating motors coast down slowly, everything else is driven
+        double timeConstant = MOTOR_TIME_CONSTANT;
+        if (wantedVelocity == 0 && zeroPowerBehavior == ZeroPowerBehavior.FLOAT) timeConstant *= 10;
+        velocity += (wantedVelocity - velocity) * Math.min(dt / timeConstant, 1);
+
+        position += velocity * dt;
+        if (position < minPosition || position > maxPosition) {
+            position = Range.clip(position, minPosition, maxPosition);
+            velocity = 0;
+        }
+
+        double load = maxVelocity == 0 ? 0 : Math.abs(wantedVelocity - velocity) / maxVelocity;
+        current = enabled && wantedVelocity != 0 ? MOTOR_FREE_CURRENT + (MOTOR_STALL_CURRENT - MOTOR_FREE_CURRENT) * Math.min(load, 1) : 0;
+    }
+
+    /** @return The position of the mechanism in ticks from where it started, ignoring encoder resets */
+    public synchronized double getMechanismPosition() {
+        return position;
+    }
+
+    /**
+     * Moves the mechanism somewhere without it driving there, for setting up a test.
+     *
+     * @param ticks The new position in ticks from where the mechanism started
+     */
+    public synchronized void setMechanismPosition(double ticks) {
+        position = ticks;
+        velocity = 0;
+    }
+
+    @Override
+    public synchronized void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public synchronized Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public synchronized void setPower(double power) {
+        this.power = Range.clip(power, -1, 1);
+        targetVelocity = Double.NaN;
+    }
+
+    @Override
+    public synchronized double getPower() {
+        return power;
+    }
+
+    @Override
+    public MotorConfigurationType getMotorType() {
+        return motorType;
+    }
+
+    @Override
+    public void setMotorType(MotorConfigurationType motorType) {
+        this.motorType = motorType;
+    }
+
+    @Override
+    public DcMotorController getController() {
+        return null;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return 0;
+    }
+
+    @Override
+    public synchronized void setZeroPowerBehavior(ZeroPowerBehavior zeroPowerBehavior) {
+        this.zeroPowerBehavior = zeroPowerBehavior;
+    }
+
+    @Override
+    public synchronized ZeroPowerBehavior getZeroPowerBehavior() {
+        return zeroPowerBehavior;
+    }
+
+    @Override
+    @Deprecated
+    public synchronized void setPowerFloat() {
+        setZeroPowerBehavior(ZeroPowerBehavior.FLOAT);
+        setPower(0);
+    }
+
+    @Override
+    public synchronized boolean getPowerFloat() {
+        return zeroPowerBehavior == ZeroPowerBehavior.FLOAT && power == 0;
+    }
+
+    @Override
+    public synchronized void setTargetPosition(int position) {
+        targetPosition = position;
+    }
+
+    @Override
+    public synchronized int getTargetPosition() {
+        return targetPosition;
+    }
+
+    @Override
+    public synchronized boolean isBusy() {
+        return mode == RunMode.RUN_TO_POSITION && power != 0
+                && Math.abs(targetPosition - getCurrentPosition()) > targetPositionTolerance;
+    }
+
+    @Override
+    public synchronized int getCurrentPosition() {
+        return (int) Math.round(position - encoderOffset);
+    }
+
+    @Override
+    public synchronized void setMode(RunMode mode) {
+        if (mode == RunMode.STOP_AND_RESET_ENCODER) {
+            encoderOffset = position;
+            power = 0;
+            targetVelocity = Double.NaN;
+        }
+        this.mode = mode;
+    }
+
+    @Override
+    public synchronized RunMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public synchronized void setMotorEnable() {
+        enabled = true;
+    }
+
+    @Override
+    public synchronized void setMotorDisable() {
+        enabled = false;
+    }
+
+    @Override
+    public synchronized boolean isMotorEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public synchronized void setVelocity(double angularRate) {
+        targetVelocity = angularRate;
+        power = Range.clip(angularRate / freeSpeed, -1, 1);
+    }
+
+    @Override
+    public void setVelocity(double angularRate, AngleUnit unit) {
+        setVelocity(unit.toRadians(angularRate) / (2 * Math.PI) * ticksPerRev);
+    }
+
+    @Override
+    public synchronized double getVelocity() {
+        return velocity;
+    }
+
+    @Override
+    public double getVelocity(AngleUnit unit) {
+        return unit.fromRadians(getVelocity() / ticksPerRev * 2 * Math.PI);
+    }
+
+    @Override
+    @Deprecated
+    public void setPIDCoefficients(RunMode mode, PIDCoefficients pidCoefficients) {
+        setPIDFCoefficients(mode, new PIDFCoefficients(pidCoefficients.p, pidCoefficients.i, pidCoefficients.d, 0));
+    }
+
+    @Override
+    public synchronized void setPIDFCoefficients(RunMode mode, PIDFCoefficients pidfCoefficients) {
+        if (mode == RunMode.RUN_TO_POSITION) positionCoefficients = pidfCoefficients;
+        else velocityCoefficients = pidfCoefficients;
+    }
+
+    @Override
+    public void setVelocityPIDFCoefficients(double p, double i, double d, double f) {
+        setPIDFCoefficients(RunMode.RUN_USING_ENCODER, new PIDFCoefficients(p, i, d, f));
+    }
+
+    @Override
+    public void setPositionPIDFCoefficients(double p) {
+        setPIDFCoefficients(RunMode.RUN_TO_POSITION, new PIDFCoefficients(p, 0, 0, 0));
+    }
+
+    @Override
+    @Deprecated
+    public PIDCoefficients getPIDCoefficients(RunMode mode) {
+        PIDFCoefficients coefficients = getPIDFCoefficients(mode);
+        return new PIDCoefficients(coefficients.p, coefficients.i, coefficients.d);
+    }
+
+    @Override
+    public synchronized PIDFCoefficients getPIDFCoefficients(RunMode mode) {
+        return mode == RunMode.RUN_TO_POSITION ? positionCoefficients : velocityCoefficients;
+    }
+
+    @Override
+    public synchronized void setTargetPositionTolerance(int tolerance) {
+        targetPositionTolerance = tolerance;
+    }
+
+    @Override
+    public synchronized int getTargetPositionTolerance() {
+        return targetPositionTolerance;
+    }
+
+    @Override
+    public synchronized double getCurrent(CurrentUnit unit) {
+        return unit == CurrentUnit.AMPS ? current : current * 1000;
+    }
+
+    @Override
+    public synchronized double getCurrentAlert(CurrentUnit unit) {
+        return unit == CurrentUnit.AMPS ? currentAlert : currentAlert * 1000;
+    }
+
+    @Override
+    public synchronized void setCurrentAlert(double current, CurrentUnit unit) {
+        currentAlert = unit == CurrentUnit.AMPS ? current : current / 1000;
+    }
+
+    @Override
+    public synchronized boolean isOverCurrent() {
+        return current > currentAlert;
+    }
+}
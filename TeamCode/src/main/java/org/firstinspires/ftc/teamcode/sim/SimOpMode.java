@@ -0,0 +1,87 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import static org.firstinspires.ftc.teamcode.Constants.SimulationConstants.*;
+
+import com.acmerobotics.dashboard.telemetry.MultipleTelemetry;
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import org.firstinspires.ftc.teamcode.util.Clock;
+import org.firstinspires.ftc.teamcode.util.FixedRateLoop;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * An op mode that runs against a {@link SimHardwareMap}, for building a {@link org.firstinspires.ftc.teamcode.Robot}
+ * or {@link org.firstinspires.ftc.teamcode.auto.AutonomousController} off the robot. Telemetry goes nowhere and the
+ * gamepads are never touched unless the test sets them.
+ * <p>
+ * Constructing one switches the {@link Clock} to simulated time, so it has to be made before the robot. Every step
+ * moves the clock forward with the physics and runs the {@link FixedRateLoop}s that would be background threads on
+ * the robot, so the profiles, timeouts and samplers all see the same time as the physics. Switch the clock back with
+ * {@link Clock#useSystemTime()} once the simulation has finished.
+ * <p>
+ * For example, to time a whole autonomous:
+ * <pre>
+ * SimOpMode opMode = new SimOpMode();
+ * AutonomousController controller = new AutonomousController(opMode, true, true, true, false);
+ * controller.start();
+ * double seconds = opMode.run(controller::run, controller::isFinished, 30);
+ * controller.stop();
+ * </pre>
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimOpMode extends OpMode {
+    private final SimHardwareMap simHardwareMap;
+
+    public SimOpMode() {
+        Clock.simulate();
+        simHardwareMap = new SimHardwareMap();
+        hardwareMap = simHardwareMap;
+        telemetry = new MultipleTelemetry();
+        gamepad1 = new Gamepad();
+        gamepad2 = new Gamepad();
+    }
+
+    @Override
+    public void init() {
+
+    }
+
+    @Override
+    public void loop() {
+
+    }
+
+    /** Advances the simulation and the clock by one loop, SIM_LOOP_DT seconds, then runs the background loops. */
+    public void step() {
+        simHardwareMap.step(SIM_LOOP_DT);
+        Clock.advance(SIM_LOOP_DT);
+        FixedRateLoop.runSimulatedLoops();
+    }
+
+    /**
+     * Runs a loop body against the simulation, stepping the physics before every loop, until it is done or
+     * the simulated time runs out. Runs as fast as the loop body allows.
+     *
+     * @param loopBody What runs every loop, for example Robot.run
+     * @param done Checked after every loop, the run stops once this is true
+     * @param maxSeconds The most simulated time to run for
+     * @return How much simulated time the run took, in seconds
+     */
+    public double run(Runnable loopBody, BooleanSupplier done, double maxSeconds) {
+        double start = simHardwareMap.getTime();
+        while (simHardwareMap.getTime() - start < maxSeconds) {
+            step();
+            loopBody.run();
+            if (done.getAsBoolean()) break;
+        }
+        return simHardwareMap.getTime() - start;
+    }
+
+    /** @return The simulated hardware map */
+    public SimHardwareMap getSimHardwareMap() {
+        return simHardwareMap;
+    }
+}
@@ -0,0 +1,84 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import static org.firstinspires.ftc.teamcode.Constants.SimulationConstants.*;
+
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.ServoController;
+import com.qualcomm.robotcore.util.Range;
+
+/**
+ * A simulated servo. Like a real servo, {@link #getPosition()} gives back the last commanded position, while
+ * {@link #getActualPosition()} gives where the horn is as it moves there at a fixed speed.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimServo extends SimDevice implements Servo {
+    private Direction direction = Direction.FORWARD;
+    private double minPosition = 0;
+    private double maxPosition = 1;
+
+    /** The last position set, scaled to the range */
+    private double position = Double.NaN;
+    /** Where the horn is, between 0 and 1 */
+    private double actualPosition = 0.5;
+
+    /**
+     * Constructs a SimServo.
+     *
+     * @param name The name of the servo in the hardware map
+     */
+    public SimServo(String name) {
+        super(name);
+    }
+
+    @Override
+    public synchronized void step(double dt) {
+        if (Double.isNaN(position)) return;
+        double target = direction == Direction.FORWARD ? position : 1 - position;
+        double maxMove = SERVO_SPEED * dt;
+        actualPosition += Range.clip(target - actualPosition, -maxMove, maxMove);
+    }
+
+    @Override
+    public ServoController getController() {
+        return null;
+    }
+
+    @Override
+    public int getPortNumber() {
+        return 0;
+    }
+
+    @Override
+    public synchronized void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    @Override
+    public synchronized Direction getDirection() {
+        return direction;
+    }
+
+    @Override
+    public synchronized void setPosition(double position) {
+        position = Range.clip(position, 0, 1);
+        this.position = minPosition + position * (maxPosition - minPosition);
+    }
+
+    @Override
+    public synchronized double getPosition() {
+        if (Double.isNaN(position)) return Double.NaN;
+        return (position - minPosition) / (maxPosition - minPosition);
+    }
+
+    @Override
+    public synchronized void scaleRange(double min, double max) {
+        minPosition = Range.clip(Math.min(min, max), 0, 1);
+        maxPosition = Range.clip(Math.max(min, max), 0, 1);
+    }
+
+    /** @return Where the servo horn actually is, between 0 and 1 */
+    public synchronized double getActualPosition() {
+        return actualPosition;
+    }
+}
@@ -0,0 +1,91 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.PwmControl;
+import com.qualcomm.robotcore.hardware.ServoControllerEx;
+import com.qualcomm.robotcore.hardware.configuration.typecontainers.ServoConfigurationType;
+
+/**
+ * A simulated servo controller, only used so the SDK's {@link com.qualcomm.hardware.rev.RevBlinkinLedDriver}
+ * has something to write its PWM signal to. Remembers the position and range of each port.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimServoController extends SimDevice implements ServoControllerEx {
+    private static final int PORTS = 6;
+
+    private final double[] positions = new double[PORTS];
+    private final PwmControl.PwmRange[] ranges = new PwmControl.PwmRange[PORTS];
+    private final boolean[] enabled = new boolean[PORTS];
+
+    public SimServoController(String name) {
+        super(name);
+        for (int i = 0; i < PORTS; i++) {
+            ranges[i] = PwmControl.PwmRange.defaultRange;
+        }
+    }
+
+    @Override
+    public synchronized void pwmEnable() {
+        for (int i = 0; i < PORTS; i++) {
+            enabled[i] = true;
+        }
+    }
+
+    @Override
+    public synchronized void pwmDisable() {
+        for (int i = 0; i < PORTS; i++) {
+            enabled[i] = false;
+        }
+    }
+
+    @Override
+    public synchronized PwmStatus getPwmStatus() {
+        boolean any = false, all = true;
+        for (int i = 0; i < PORTS; i++) {
+            any |= enabled[i];
+            all &= enabled[i];
+        }
+        return all ? PwmStatus.ENABLED : any ? PwmStatus.MIXED : PwmStatus.DISABLED;
+    }
+
+    @Override
+    public synchronized void setServoPosition(int servo, double position) {
+        positions[servo] = position;
+        enabled[servo] = true;
+    }
+
+    @Override
+    public synchronized double getServoPosition(int servo) {
+        return positions[servo];
+    }
+
+    @Override
+    public synchronized void setServoPwmRange(int servo, PwmControl.PwmRange range) {
+        ranges[servo] = range;
+    }
+
+    @Override
+    public synchronized PwmControl.PwmRange getServoPwmRange(int servo) {
+        return ranges[servo];
+    }
+
+    @Override
+    public synchronized void setServoPwmEnable(int servo) {
+        enabled[servo] = true;
+    }
+
+    @Override
+    public synchronized void setServoPwmDisable(int servo) {
+        enabled[servo] = false;
+    }
+
+    @Override
+    public synchronized boolean isServoPwmEnabled(int servo) {
+        return enabled[servo];
+    }
+
+    @Override
+    public void setServoType(int servo, ServoConfigurationType servoType) {
+
+    }
+}
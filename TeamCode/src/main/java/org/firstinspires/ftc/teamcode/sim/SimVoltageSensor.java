@@ -0,0 +1,33 @@
+package org.firstinspires.ftc.teamcode.sim;
+
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+/**
+ * A simulated battery voltage sensor, reads whatever voltage the test sets.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class SimVoltageSensor extends SimDevice implements VoltageSensor {
+    private volatile double voltage;
+
+    /**
+     * Constructs a SimVoltageSensor.
+     *
+     * @param name The name of the sensor in the hardware map
+     * @param voltage The starting voltage of the battery
+     */
+    public SimVoltageSensor(String name, double voltage) {
+        super(name);
+        this.voltage = voltage;
+    }
+
+    /** @param voltage The new voltage of the battery */
+    public void setVoltage(double voltage) {
+        this.voltage = voltage;
+    }
+
+    @Override
+    public double getVoltage() {
+        return voltage;
+    }
+}
@@ -1,23 +1,124 @@
 package org.firstinspires.ftc.teamcode.subsystems;
 
 import com.arcrobotics.ftclib.command.SubsystemBase;
+import com.arcrobotics.ftclib.hardware.ServoEx;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.hardware.CoalescingMotor;
+import org.firstinspires.ftc.teamcode.hardware.CoalescingServo;
+import org.firstinspires.ftc.teamcode.hardware.HubManager;
+import org.firstinspires.ftc.teamcode.hardware.MotorSnapshot;
+import org.firstinspires.ftc.teamcode.profiling.LoopProfiler;
+import org.firstinspires.ftc.teamcode.profiling.ProfileSection;
+import org.firstinspires.ftc.teamcode.recording.MatchRecorder;
+import org.firstinspires.ftc.teamcode.telemetry.TelemetryBoard;
 
 public class CustomSubsystemBase extends SubsystemBase {
     protected HardwareMap hardwareMap;
     protected Telemetry telemetry;
+    /** The hub manager that owns the bulk cache and flushes writes, null if the subsystem was made without a robot */
+    protected HubManager hubManager;
+
+    // The profiler sections for this subsystem, named after the subsystem class
+    private final ProfileSection periodicSection;
+    private final ProfileSection printDataSection;
 
     public CustomSubsystemBase(HardwareMap hardwareMap, Telemetry telemetry) {
+        this(hardwareMap, telemetry, null);
+    }
+
+    public CustomSubsystemBase(HardwareMap hardwareMap, Telemetry telemetry, HubManager hubManager) {
         this.hardwareMap = hardwareMap;
         this.telemetry = telemetry;
+        this.hubManager = hubManager;
+
+        periodicSection = LoopProfiler.section(getClass().getSimpleName() + ".periodic");
+        printDataSection = LoopProfiler.section(getClass().getSimpleName() + ".printData");
+    }
+
+    /** Called by the scheduler every loop. Times {@link #update()}, override that instead. */
+    @Override
+    public final void periodic() {
+        periodicSection.begin();
+        update();
+        periodicSection.end();
+    }
+
+    /** Called once every time the scheduler runs. */
+    protected void update() {
+
+    }
+
+    /**
+     * Creates a snapshot of a motor's readings that is refreshed once per loop.
+     *
+     * @param motor The motor to read from
+     * @return The snapshot of the motor
+     */
+    protected MotorSnapshot snapshot(DcMotorEx motor) {
+        return new MotorSnapshot(motor, hubManager);
+    }
+
+    /**
+     * Creates a buffered output for a motor that only sends power changes, flushed once per loop.
+     *
+     * @param motor The motor to write to
+     * @return The buffered output of the motor
+     */
+    protected CoalescingMotor output(DcMotorEx motor) {
+        return new CoalescingMotor(motor, hubManager);
+    }
+
+    /**
+     * Creates a buffered output for a servo that only sends angle changes, flushed once per loop.
+     *
+     * @param servo The servo to write to
+     * @return The buffered output of the servo
+     */
+    protected CoalescingServo output(ServoEx servo) {
+        return new CoalescingServo(servo, hubManager);
     }
 
     public void printData() {
 
     }
 
+    /**
+     * Writes this loop's record for the subsystem, subsystems that are recorded override this.
+     *
+     * @param recorder The recorder to write to
+     */
+    public void record(MatchRecorder recorder) {
+
+    }
+
+    /**
+     * Adds the subsystem's fields to the telemetry board, subsystems that publish telemetry override this.
+     *
+     * @param board The board to add to
+     */
+    public void registerTelemetry(TelemetryBoard board) {
+
+    }
+
+    /**
+     * Writes this loop's values into the fields added by {@link #registerTelemetry(TelemetryBoard)}.
+     *
+     * @param board The board to write to
+     */
+    public void publishTelemetry(TelemetryBoard board) {
+
+    }
+
+    /** Calls {@link #printData()} and times it. */
+    public final void printProfiledData() {
+        printDataSection.begin();
+        printData();
+        printDataSection.end();
+    }
+
     public Telemetry getTelemetry() {
         return telemetry;
     }
@@ -7,10 +7,20 @@ import com.qualcomm.robotcore.hardware.HardwareMap;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.teamcode.recording.MatchRecorder;
+import org.firstinspires.ftc.teamcode.recording.RecordType;
+import org.firstinspires.ftc.teamcode.telemetry.TelemetryBoard;
+import org.firstinspires.ftc.teamcode.util.FixedRateLoop;
+import org.firstinspires.ftc.teamcode.util.MedianFilter;
 
 /**
  * A subsystem that represents the two distance sensors on the sides of the robot. They are used
  * to detect the team prop during autonomous.
+ * <p>
+ * Each I2C read takes several milliseconds, so the sensors are read on their own thread at a fixed rate.
+ * The median of the last few readings of each sensor is published through a volatile field, so the main
+ * loop never waits on I2C. If the last read failed, the distances read as NaN until the sensors can be read again,
+ * instead of the last medians staying around as if they were current.
  *
  * @author Esquimalt Atom Smashers
  */
@@ -18,8 +28,24 @@ public class DistanceSensorSubsystem extends CustomSubsystemBase {
     private final DistanceSensor leftDistanceSensor;
     private final DistanceSensor rightDistanceSensor;
 
+    // Only used by the sampling thread
+    private final MedianFilter leftFilter = new MedianFilter(MEDIAN_WINDOW);
+    private final MedianFilter rightFilter = new MedianFilter(MEDIAN_WINDOW);
+
+    // The latest filtered distances in inches, written by the sampling thread, NaN until the first reading
+    private volatile double leftDistance = Double.NaN;
+    private volatile double rightDistance = Double.NaN;
+    // How many times the sensors have been read, only written by the sampling thread
+    private volatile long sampleCount;
+
+    private final FixedRateLoop sampler;
+
+    // The telemetry slots of the distances
+    private int leftSlot;
+    private int rightSlot;
+
     /**
-     * Constructs a new DistanceSensorSubsystem.
+     * Constructs a new DistanceSensorSubsystem and starts sampling the sensors.
      *
      * @param hardwareMap The hardware map of the robot
      * @param telemetry The telemetry of the robot
@@ -29,23 +55,81 @@ public class DistanceSensorSubsystem extends CustomSubsystemBase {
 
         leftDistanceSensor = hardwareMap.get(DistanceSensor.class, LEFT_DISTANCE_SENSOR_NAME);
         rightDistanceSensor = hardwareMap.get(DistanceSensor.class, RIGHT_DISTANCE_SENSOR_NAME);
+
+        sampler = new FixedRateLoop("DistanceSensorSampler", SAMPLE_PERIOD_MS, this::sample);
+        sampler.start();
+    }
+
+    /** Reads both sensors once and publishes the new medians, run on the sampling thread. */
+    private void sample() {
+        leftDistance = leftFilter.add(leftDistanceSensor.getDistance(DistanceUnit.INCH));
+        rightDistance = rightFilter.add(rightDistanceSensor.getDistance(DistanceUnit.INCH));
+        sampleCount++;
+    }
+
+    /** Stops the sampling thread, the last distances stay available. */
+    public void stopSampling() {
+        sampler.stop();
+    }
+
+    /** @return True if the last read of the sensors failed, the distances are old and shouldn't be trusted */
+    public boolean isStale() {
+        return sampler.isFailing();
+    }
+
+    /** @return The filtered distance from the left sensor in inches, NaN if it hasn't been read yet or is stale */
+    public double getLeftDistance() {
+        return isStale() ? Double.NaN : leftDistance;
+    }
+
+    /** @return The filtered distance from the right sensor in inches, NaN if it hasn't been read yet or is stale */
+    public double getRightDistance() {
+        return isStale() ? Double.NaN : rightDistance;
+    }
+
+    /** @return How many times the sensors have been read, goes up by one every time the distances change */
+    public long getSampleCount() {
+        return sampleCount;
     }
 
     /** @return True if there is something blocking the left sensor less than the threshold inches away */
     public boolean isLeftBlocked() {
-        return leftDistanceSensor.getDistance(DistanceUnit.INCH) <= DISTANCE_THRESHOLD;
+        return getLeftDistance() <= DISTANCE_THRESHOLD;
     }
 
     /** @return True if there is something blocking the right sensor less than the threshold inches away */
     public boolean isRightBlocked() {
-        return rightDistanceSensor.getDistance(DistanceUnit.INCH) <= DISTANCE_THRESHOLD;
+        return getRightDistance() <= DISTANCE_THRESHOLD;
     }
 
     /** Prints data from the distance sensors. */
     @Override
     public void printData() {
         telemetry.addLine("--- Distance ---");
-        telemetry.addData("Left (in)", leftDistanceSensor.getDistance(DistanceUnit.INCH));
-        telemetry.addData("Right (in)", rightDistanceSensor.getDistance(DistanceUnit.INCH));
+        telemetry.addData("Left (in)", getLeftDistance());
+        telemetry.addData("Right (in)", getRightDistance());
+    }
+
+    /** Adds the distances to the telemetry board. */
+    @Override
+    public void registerTelemetry(TelemetryBoard board) {
+        leftSlot = board.addNumber("Left distance (in)", "%.1f");
+        rightSlot = board.addNumber("Right distance (in)", "%.1f");
+    }
+
+    /** Publishes the filtered distances. */
+    @Override
+    public void publishTelemetry(TelemetryBoard board) {
+        board.set(leftSlot, getLeftDistance());
+        board.set(rightSlot, getRightDistance());
+    }
+
+    /** Records the filtered distances. */
+    @Override
+    public void record(MatchRecorder recorder) {
+        recorder.begin(RecordType.DISTANCE)
+                .putDouble(getLeftDistance())
+                .putDouble(getRightDistance())
+                .end();
     }
 }
@@ -3,18 +3,26 @@ package org.firstinspires.ftc.teamcode.subsystems;
 import static org.firstinspires.ftc.teamcode.Constants.DriveConstants.*;
 
 import com.arcrobotics.ftclib.gamepad.GamepadEx;
-import com.qualcomm.hardware.bosch.BHI260IMU;
 import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.hardware.IMU;
-import com.qualcomm.robotcore.util.ElapsedTime;
 import com.qualcomm.robotcore.util.Range;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
 import org.firstinspires.ftc.robotcore.external.navigation.CurrentUnit;
+import org.firstinspires.ftc.teamcode.control.HeadingController;
+import org.firstinspires.ftc.teamcode.control.TrapezoidProfile;
+import org.firstinspires.ftc.teamcode.hardware.CoalescingMotor;
+import org.firstinspires.ftc.teamcode.hardware.HeadingService;
+import org.firstinspires.ftc.teamcode.hardware.HubManager;
+import org.firstinspires.ftc.teamcode.hardware.MotorSnapshot;
+import org.firstinspires.ftc.teamcode.profiling.LoopProfiler;
+import org.firstinspires.ftc.teamcode.profiling.ProfileSection;
+import org.firstinspires.ftc.teamcode.util.Clock;
+import org.firstinspires.ftc.teamcode.util.ClockTimer;
 
 import java.util.Arrays;
 
@@ -32,13 +40,32 @@ public class DriveSubsystem extends CustomSubsystemBase {
     /** The DC motors on the robot. */
     private final DcMotorEx[] motors;
 
+    private final MotorSnapshot frontLeftSnapshot;
+    private final MotorSnapshot frontRightSnapshot;
+    private final MotorSnapshot rearLeftSnapshot;
+    private final MotorSnapshot rearRightSnapshot;
+
+    private final CoalescingMotor frontLeftOutput;
+    private final CoalescingMotor frontRightOutput;
+    private final CoalescingMotor rearLeftOutput;
+    private final CoalescingMotor rearRightOutput;
+    /** The buffered outputs of the drive motors, same order as {@link #motors}. */
+    private final CoalescingMotor[] outputs;
+
     /** The built-in IMU(gyro) on the control hub. */
-    private BHI260IMU imu;
+    private IMU imu;
+    /** Reads the IMU in the background so getting the heading never blocks */
+    private HeadingService headingService;
+
+    /** Times how long re-zeroing the heading takes */
+    private final ProfileSection resetGyroSection = LoopProfiler.section("DriveSubsystem.resetGyro");
 
     private enum DriveState {
         MANUAL,
         MOVING_TO_POSITION,
-        TURNING_TO_POSITION
+        FOLLOWING_PROFILE,
+        TURNING_TO_POSITION,
+        TURNING_ON_PROFILE
     }
 
     @SuppressWarnings("unused")
@@ -46,6 +73,22 @@ public class DriveSubsystem extends CustomSubsystemBase {
 
     private double targetHeading;
 
+    /** The profile of the current profiled drive or strafe */
+    private final TrapezoidProfile moveProfile = new TrapezoidProfile();
+    /** Which way each wheel turns for the current profiled move, same order as {@link #motors} */
+    private final double[] moveDirections = new double[4];
+    /** The encoder positions of the wheels at the start of the current profiled move, same order as {@link #motors} */
+    private final int[] moveStartPositions = new int[4];
+    private long moveStartNanos;
+    private double moveStartHeading;
+    private boolean moveFinished;
+
+    /** Turns the robot during profiled turns */
+    private final HeadingController headingController = new HeadingController();
+    // The field centric driving the driver asked for during a profiled turn, zero for autonomous turns
+    private double turnForward;
+    private double turnStrafe;
+
     /**
      * Constructs a new DriveSubsystem.
      *
@@ -53,18 +96,45 @@ public class DriveSubsystem extends CustomSubsystemBase {
      * @param telemetry The telemetry of the robot
      */
     public DriveSubsystem(HardwareMap hardwareMap, Telemetry telemetry) {
-        super(hardwareMap, telemetry);
+        this(hardwareMap, telemetry, null);
+    }
+
+    /**
+     * Constructs a new DriveSubsystem that reads its motors through the bulk cache.
+     *
+     * @param hardwareMap The hardware map of the robot
+     * @param telemetry The telemetry of the robot
+     * @param hubManager The hub manager that clears the bulk cache each loop
+     */
+    public DriveSubsystem(HardwareMap hardwareMap, Telemetry telemetry, HubManager hubManager) {
+        super(hardwareMap, telemetry, hubManager);
 
         frontLeftMotor = hardwareMap.get(DcMotorEx.class, FRONT_LEFT_MOTOR_NAME);
         frontRightMotor = hardwareMap.get(DcMotorEx.class, FRONT_RIGHT_MOTOR_NAME);
         rearLeftMotor = hardwareMap.get(DcMotorEx.class, REAR_LEFT_MOTOR_NAME);
         rearRightMotor = hardwareMap.get(DcMotorEx.class, REAR_RIGHT_MOTOR_NAME);
         motors = new DcMotorEx[]{frontLeftMotor, frontRightMotor, rearLeftMotor, rearRightMotor};
+        frontLeftSnapshot = snapshot(frontLeftMotor);
+        frontRightSnapshot = snapshot(frontRightMotor);
+        rearLeftSnapshot = snapshot(rearLeftMotor);
+        rearRightSnapshot = snapshot(rearRightMotor);
+        frontLeftOutput = output(frontLeftMotor);
+        frontRightOutput = output(frontRightMotor);
+        rearLeftOutput = output(rearLeftMotor);
+        rearRightOutput = output(rearRightMotor);
+        outputs = new CoalescingMotor[]{frontLeftOutput, frontRightOutput, rearLeftOutput, rearRightOutput};
         configureMotors();
 
-        imu = hardwareMap.get(BHI260IMU.class, IMU_NAME);
+        imu = hardwareMap.get(IMU.class, IMU_NAME);
         configureIMU();
-        resetGyro();
+        imu.resetYaw();
+        headingService = new HeadingService(imu);
+        headingService.start();
+    }
+
+    /** Stops the thread that reads the IMU. */
+    public void stopHeadingService() {
+        headingService.stop();
     }
 
     /** Configure the drive motors by setting their directions and zero power behaviors. */
@@ -114,25 +184,37 @@ public class DriveSubsystem extends CustomSubsystemBase {
         turn = Math.abs(turn) >= DEADZONE ? turn : 0;
         multiplier = Range.clip(multiplier, 0, 1);
 
+        setDrivePowers(forward, strafe, turn, fieldCentric, multiplier);
+    }
+
+    /**
+     * Sets the powers of the wheels, without any dead zone.
+     *
+     * @param forward The amount to move forward
+     * @param strafe The amount to move left and right
+     * @param turn The amount to turn, clockwise positive
+     * @param fieldCentric If we want these movements to be field centric
+     * @param multiplier The speed multiplier
+     */
+    private void setDrivePowers(double forward, double strafe, double turn, boolean fieldCentric, double multiplier) {
         if (fieldCentric) {
             // Field centric drive
-            double gyroRadians = Math.toRadians(-getHeading());
+            double gyroRadians = Math.toRadians(-getExtrapolatedHeading());
             double fieldCentricStrafe = strafe * Math.cos(gyroRadians) - forward * Math.sin(gyroRadians);
             double fieldCentricDrive = strafe * Math.sin(gyroRadians) + forward * Math.cos(gyroRadians);
 
-            frontLeftMotor.setPower(scaleInput(fieldCentricDrive - fieldCentricStrafe + turn, multiplier));
-            frontRightMotor.setPower(scaleInput(fieldCentricDrive - fieldCentricStrafe - turn, multiplier));
-            rearLeftMotor.setPower(scaleInput(fieldCentricDrive + fieldCentricStrafe + turn, multiplier));
-            rearRightMotor.setPower(scaleInput(fieldCentricDrive + fieldCentricStrafe - turn, multiplier));
+            frontLeftOutput.setPower(scaleInput(fieldCentricDrive - fieldCentricStrafe + turn, multiplier));
+            frontRightOutput.setPower(scaleInput(fieldCentricDrive - fieldCentricStrafe - turn, multiplier));
+            rearLeftOutput.setPower(scaleInput(fieldCentricDrive + fieldCentricStrafe + turn, multiplier));
+            rearRightOutput.setPower(scaleInput(fieldCentricDrive + fieldCentricStrafe - turn, multiplier));
         }
         else {
             // Robot centric drive
-            frontLeftMotor.setPower(scaleInput(forward - strafe + turn, multiplier));
-            frontRightMotor.setPower(scaleInput(forward - strafe - turn, multiplier));
-            rearLeftMotor.setPower(scaleInput(forward + strafe + turn, multiplier));
-            rearRightMotor.setPower(scaleInput(forward + strafe - turn, multiplier));
+            frontLeftOutput.setPower(scaleInput(forward - strafe + turn, multiplier));
+            frontRightOutput.setPower(scaleInput(forward - strafe - turn, multiplier));
+            rearLeftOutput.setPower(scaleInput(forward + strafe + turn, multiplier));
+            rearRightOutput.setPower(scaleInput(forward + strafe - turn, multiplier));
         }
-
     }
 
     /**
@@ -165,8 +247,10 @@ public class DriveSubsystem extends CustomSubsystemBase {
      */
     public void driveByDistanceAsync(double inches) {
         driveState = DriveState.MOVING_TO_POSITION;
-        Arrays.stream(motors).forEach(motor ->
-                motor.setTargetPosition(motor.getCurrentPosition() + toPulses(inches)));
+        frontLeftMotor.setTargetPosition(frontLeftSnapshot.getPosition() + toPulses(inches));
+        frontRightMotor.setTargetPosition(frontRightSnapshot.getPosition() + toPulses(inches));
+        rearLeftMotor.setTargetPosition(rearLeftSnapshot.getPosition() + toPulses(inches));
+        rearRightMotor.setTargetPosition(rearRightSnapshot.getPosition() + toPulses(inches));
         setMotorMode(DcMotor.RunMode.RUN_TO_POSITION);
         drive(AUTO_DRIVE_SPEED, 0, 0, false, 1);
     }
@@ -190,10 +274,10 @@ public class DriveSubsystem extends CustomSubsystemBase {
      */
     public void strafeByDistanceAsync(double inches) {
         driveState = DriveState.MOVING_TO_POSITION;
-        frontLeftMotor.setTargetPosition(frontLeftMotor.getCurrentPosition() - toPulses(inches));
-        frontRightMotor.setTargetPosition(frontRightMotor.getCurrentPosition() - toPulses(inches));
-        rearLeftMotor.setTargetPosition(rearLeftMotor.getCurrentPosition() + toPulses(inches));
-        rearRightMotor.setTargetPosition(rearRightMotor.getCurrentPosition() + toPulses(inches));
+        frontLeftMotor.setTargetPosition(frontLeftSnapshot.getPosition() - toPulses(inches));
+        frontRightMotor.setTargetPosition(frontRightSnapshot.getPosition() - toPulses(inches));
+        rearLeftMotor.setTargetPosition(rearLeftSnapshot.getPosition() + toPulses(inches));
+        rearRightMotor.setTargetPosition(rearRightSnapshot.getPosition() + toPulses(inches));
         setMotorMode(DcMotor.RunMode.RUN_TO_POSITION);
         drive(0, AUTO_STRAFE_SPEED, 0, false, 1);
     }
@@ -209,6 +293,141 @@ public class DriveSubsystem extends CustomSubsystemBase {
         while (!isFinishedMoving()) {doNothing("Strafing");}
     }
 
+    /**
+     * Start driving the robot some number of inches forwards/backwards along a trapezoidal motion profile, using
+     * feedforward and feedback on the encoders. Moves as fast as the profile limits allow and finishes without a
+     * crawl at the end. {@link #isFinishedMoving()} must be called to check if the robot has made it.
+     *
+     * @param inches The distance in inches to drive forwards/backwards
+     */
+    public void driveProfiledAsync(double inches) {
+        startProfiledMove(inches, PROFILE_DRIVE_MAX_VELOCITY, 1, 1, 1, 1);
+    }
+
+    /**
+     * Start strafing the robot some number of inches right/left along a trapezoidal motion profile, using
+     * feedforward and feedback on the encoders. {@link #isFinishedMoving()} must be called to check if the robot has made it.
+     *
+     * @param inches The distance in inches to strafe right/left
+     */
+    public void strafeProfiledAsync(double inches) {
+        startProfiledMove(inches, PROFILE_STRAFE_MAX_VELOCITY, -1, -1, 1, 1);
+    }
+
+    /**
+     * Plans a profiled move and starts following it, the wheel directions are in the same order as {@link #motors}.
+     */
+    private void startProfiledMove(double inches, double maxVelocity, double frontLeft, double frontRight, double rearLeft, double rearRight) {
+        driveState = DriveState.FOLLOWING_PROFILE;
+        moveFinished = false;
+        moveDirections[0] = frontLeft;
+        moveDirections[1] = frontRight;
+        moveDirections[2] = rearLeft;
+        moveDirections[3] = rearRight;
+        moveStartPositions[0] = frontLeftSnapshot.getPosition();
+        moveStartPositions[1] = frontRightSnapshot.getPosition();
+        moveStartPositions[2] = rearLeftSnapshot.getPosition();
+        moveStartPositions[3] = rearRightSnapshot.getPosition();
+        moveStartHeading = getExtrapolatedHeading();
+        moveProfile.plan(inches, maxVelocity, PROFILE_MAX_ACCELERATION);
+        // Our own feedforward and feedback set the power, so the motors shouldn't run their velocity control
+        setMotorMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        moveStartNanos = Clock.nanoTime();
+        followProfile();
+    }
+
+    /** Sets the wheel powers for this loop of the profiled move, and checks if it has finished. */
+    private void followProfile() {
+        double t = (Clock.nanoTime() - moveStartNanos) / 1e9;
+
+        // How far along the move the wheels are on average, in inches
+        double position = (moveDirections[0] * (frontLeftSnapshot.getPosition() - moveStartPositions[0])
+                + moveDirections[1] * (frontRightSnapshot.getPosition() - moveStartPositions[1])
+                + moveDirections[2] * (rearLeftSnapshot.getPosition() - moveStartPositions[2])
+                + moveDirections[3] * (rearRightSnapshot.getPosition() - moveStartPositions[3])) / 4 / PULSES_PER_INCH;
+        double velocity = (moveDirections[0] * frontLeftSnapshot.getVelocity()
+                + moveDirections[1] * frontRightSnapshot.getVelocity()
+                + moveDirections[2] * rearLeftSnapshot.getVelocity()
+                + moveDirections[3] * rearRightSnapshot.getVelocity()) / 4 / PULSES_PER_INCH;
+
+        double targetPosition = moveProfile.getPosition(t);
+        double targetVelocity = moveProfile.getVelocity(t);
+        double positionError = targetPosition - position;
+
+        if (moveProfile.isFinished(t)
+                && ((Math.abs(positionError) <= PROFILE_POSITION_TOLERANCE && Math.abs(velocity) <= PROFILE_VELOCITY_TOLERANCE)
+                || t >= moveProfile.getDuration() + PROFILE_SETTLE_TIMEOUT)) {
+            moveFinished = true;
+            return;
+        }
+
+        double power = PROFILE_KV * targetVelocity + PROFILE_KA * moveProfile.getAcceleration(t)
+                + PROFILE_KP * positionError + PROFILE_KD * (targetVelocity - velocity);
+        if (targetVelocity != 0) power += Math.signum(targetVelocity) * PROFILE_KS;
+
+        // Turning clockwise is positive, so if we have drifted counter clockwise turn back clockwise
+        double turn = PROFILE_HEADING_KP * AngleUnit.normalizeDegrees(getExtrapolatedHeading() - moveStartHeading);
+
+        frontLeftOutput.setPower(Range.clip(moveDirections[0] * power + turn, -1, 1));
+        frontRightOutput.setPower(Range.clip(moveDirections[1] * power - turn, -1, 1));
+        rearLeftOutput.setPower(Range.clip(moveDirections[2] * power + turn, -1, 1));
+        rearRightOutput.setPower(Range.clip(moveDirections[3] * power - turn, -1, 1));
+    }
+
+    /**
+     * Start turning the robot some angle using the profiled heading controller, which settles within about a degree
+     * in one pass. {@link #isFinishedTurning()} must be called to check if the robot has made it.
+     *
+     * @param angle The angle to rotate the robot by in degrees, counter clockwise positive
+     */
+    public void turnProfiledAsync(double angle) {
+        turnToHeadingProfiledAsync(getExtrapolatedHeading() + angle);
+    }
+
+    /**
+     * Start turning the robot to a heading the short way around using the profiled heading controller.
+     * {@link #isFinishedTurning()} must be called to check if the robot has made it.
+     *
+     * @param heading The heading to turn to in degrees
+     */
+    public void turnToHeadingProfiledAsync(double heading) {
+        driveState = DriveState.TURNING_ON_PROFILE;
+        targetHeading = heading;
+        turnForward = 0;
+        turnStrafe = 0;
+        // Our own feedforward and feedback set the power, so the motors shouldn't run their velocity control
+        setMotorMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        headingController.start(getExtrapolatedHeading(), heading);
+        followHeadingController();
+    }
+
+    /**
+     * Drives the robot field centric during a profiled turn, the heading controller does the turning. Lets the
+     * driver keep driving while the robot snaps to a heading.
+     *
+     * @param forward The amount to move forward
+     * @param strafe The amount to move left and right
+     */
+    public void driveWhileTurning(double forward, double strafe) {
+        turnForward = Math.abs(forward) >= DEADZONE ? forward : 0;
+        turnStrafe = Math.abs(strafe) >= DEADZONE ? strafe : 0;
+        if (driveState == DriveState.TURNING_ON_PROFILE && !headingController.isFinished()) followHeadingController();
+    }
+
+    /** Sets the wheel powers for this loop of the profiled turn. */
+    private void followHeadingController() {
+        double power = headingController.calculate(getExtrapolatedHeading(), getHeadingVelocity());
+        // The heading controller is counter clockwise positive, but a positive turn power turns clockwise
+        setDrivePowers(turnForward, turnStrafe, -power, true, 1);
+    }
+
+    /** Follows the profiled move or turn, if there is one. */
+    @Override
+    protected void update() {
+        if (driveState == DriveState.FOLLOWING_PROFILE && !moveFinished) followProfile();
+        else if (driveState == DriveState.TURNING_ON_PROFILE && !headingController.isFinished()) followHeadingController();
+    }
+
     /**
      * Turn the robot some angle using the gyro. Sets the target heading and starts moving the motors.
      * {@link #isFinishedTurning()} must be called to check if the robot has made it.
@@ -218,7 +437,7 @@ public class DriveSubsystem extends CustomSubsystemBase {
      */
     public void turnAsync(double angle, double speed) {
         driveState = DriveState.TURNING_TO_POSITION;
-        targetHeading = getHeading() + angle;
+        targetHeading = getExtrapolatedHeading() + angle;
         // Counter clockwise is positive
         // If the angle is positive, we want to turn negative (counterclockwise)
         drive(0, 0, getAutoTurnSpeed(speed), false, 1);
@@ -235,7 +454,7 @@ public class DriveSubsystem extends CustomSubsystemBase {
         while (!isFinishedTurning()) {doNothing("Turning");}
 
         // Wait for a bit
-        ElapsedTime timer = new ElapsedTime();
+        ClockTimer timer = new ClockTimer();
         while (timer.milliseconds() <= 500) {doNothing("Waiting");}
 
         angle = targetHeading - getHeading();
@@ -250,7 +469,7 @@ public class DriveSubsystem extends CustomSubsystemBase {
      * @return What speed we should turn
      */
     public double getAutoTurnSpeed(double speed) {
-        double angle = targetHeading - getHeading();
+        double angle = targetHeading - getExtrapolatedHeading();
         return angle > 0 ? -speed : speed;
     }
 
@@ -262,7 +481,7 @@ public class DriveSubsystem extends CustomSubsystemBase {
 
     /** @return True is all of the motors are busy, false otherwise */
     private boolean motorsBusy() {
-        return frontLeftMotor.isBusy() && frontRightMotor.isBusy() && rearRightMotor.isBusy() && rearLeftMotor.isBusy();
+        return frontLeftSnapshot.isBusy() && frontRightSnapshot.isBusy() && rearRightSnapshot.isBusy() && rearLeftSnapshot.isBusy();
     }
 
     /**
@@ -272,6 +491,11 @@ public class DriveSubsystem extends CustomSubsystemBase {
      * @return True if we are done moving, false otherwise
      */
     public boolean isFinishedMoving() {
+        if (driveState == DriveState.FOLLOWING_PROFILE) {
+            if (!moveFinished) return false;
+            stopMotors();
+            return true;
+        }
         if (!motorsBusy()) {
             stopMotors();
             setMotorMode(DcMotor.RunMode.RUN_USING_ENCODER);
@@ -288,7 +512,12 @@ public class DriveSubsystem extends CustomSubsystemBase {
      * @return True if we are done moving, false otherwise
      */
     public boolean isFinishedTurning() {
-        if (Math.abs(getHeading() - targetHeading) <= AUTO_HEADING_TOLERANCE) {
+        if (driveState == DriveState.TURNING_ON_PROFILE) {
+            if (!headingController.isFinished()) return false;
+            stopMotors();
+            return true;
+        }
+        if (Math.abs(getExtrapolatedHeading() - targetHeading) <= AUTO_HEADING_TOLERANCE) {
             stopMotors();
             driveState = DriveState.MANUAL;
             return true;
@@ -296,30 +525,89 @@ public class DriveSubsystem extends CustomSubsystemBase {
         return false;
     }
 
-    /** Stop all of the drive motors */
+    /** Stop all of the drive motors, and stop following the profiled move or turn if there is one */
     public void stopMotors() {
-        Arrays.stream(motors).forEach(motor -> motor.setPower(0));
+        Arrays.stream(outputs).forEach(output -> output.setPower(0));
+        if (driveState == DriveState.FOLLOWING_PROFILE || driveState == DriveState.TURNING_ON_PROFILE) {
+            headingController.stop();
+            setMotorMode(DcMotor.RunMode.RUN_USING_ENCODER);
+            driveState = DriveState.MANUAL;
+        }
+    }
+
+    /**
+     * Stops the drive motors and switches them to {@link DcMotor.RunMode#RUN_WITHOUT_ENCODER}, which is the mode the
+     * RoadRunner follower is tuned in. Call this before a trajectory sets the wheel powers directly.
+     */
+    public void useRawPower() {
+        stopMotors();
+        setMotorMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
     }
 
     /**
-     * Sets the mode of all the drive motors to the specified run mode.
+     * Sets the mode of all the drive motors to the specified run mode. The snapshots read again afterwards, so
+     * positions read later in the same loop are from after the change.
      *
      * @param runMode The new run mode for the motors
      */
     private void setMotorMode(DcMotor.RunMode runMode) {
-        Arrays.stream(motors).forEach(motor -> motor.setMode(runMode));
+        Arrays.stream(outputs).forEach(output -> output.setMode(runMode));
+        frontLeftSnapshot.invalidate();
+        frontRightSnapshot.invalidate();
+        rearLeftSnapshot.invalidate();
+        rearRightSnapshot.invalidate();
     }
 
-    /** @return The heading of the robot */
+    /** @return The heading of the robot from the latest IMU reading */
     public double getHeading() {
-        return imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.DEGREES);
+        return headingService.getHeading();
+    }
+
+    /**
+     * @return The raw yaw from the latest IMU reading in radians, counter clockwise is positive. Not moved by
+     * {@link #resetGyro()}, so it is what odometry should integrate
+     */
+    public double getRawYaw() {
+        return Math.toRadians(headingService.getSample().yaw);
+    }
+
+    /** @return The heading of the robot right now, extrapolated from the latest IMU reading */
+    public double getExtrapolatedHeading() {
+        return headingService.getExtrapolatedHeading();
+    }
+
+    /** @return How fast the fastest wheel is moving, in inches per second */
+    public double getWheelSpeed() {
+        double fastest = Math.max(Math.abs(frontLeftSnapshot.getVelocity()), Math.abs(frontRightSnapshot.getVelocity()));
+        fastest = Math.max(fastest, Math.abs(rearLeftSnapshot.getVelocity()));
+        fastest = Math.max(fastest, Math.abs(rearRightSnapshot.getVelocity()));
+        return fastest / PULSES_PER_INCH;
+    }
+
+    /** @return How fast the robot is turning from the latest IMU reading, in degrees per second counter clockwise */
+    public double getHeadingVelocity() {
+        return headingService.getSample().yawVelocity;
     }
 
-//    /** Reset the gyro by resetting the yaw. */
+    /** Makes the current heading zero. Only moves the software yaw offset, so it takes effect within one loop. */
     public void resetGyro() {
-        imu = hardwareMap.get(BHI260IMU.class, IMU_NAME);
+        resetGyroSection.begin();
+        headingService.zero();
+        resetGyroSection.end();
+    }
+
+    /**
+     * Fully re-initializes the IMU and resets its yaw. This takes a long time and blocks the loop, so it should only
+     * be used to recover an IMU that has stopped working, use {@link #resetGyro()} to re-zero the heading.
+     */
+    public void reinitializeGyro() {
+        // Stop reading while the IMU is re-initialized, then start again from a fresh reading
+        headingService.stop();
+        imu = hardwareMap.get(IMU.class, IMU_NAME);
         configureIMU();
         imu.resetYaw();
+        headingService = new HeadingService(imu);
+        headingService.start();
     }
 
     /** Prints data from the motors to the telemetry */
@@ -327,14 +615,19 @@ public class DriveSubsystem extends CustomSubsystemBase {
     public void printData() {
         telemetry.addLine("--- Drive base ---");
 
-        telemetry.addData("Position", frontLeftMotor.getCurrentPosition());
-        telemetry.addData("Power", frontLeftMotor.getPower());
-        telemetry.addData("Velocity", frontLeftMotor.getVelocity());
+        telemetry.addData("Position", frontLeftSnapshot.getPosition());
+        telemetry.addData("Power", frontLeftOutput.getPower());
+        telemetry.addData("Velocity", frontLeftSnapshot.getVelocity());
         telemetry.addData("Current (amps)", frontLeftMotor.getCurrent(CurrentUnit.AMPS));
         telemetry.addData("Is over current?", frontLeftMotor.isOverCurrent());
     }
 
     private void doNothing(String str) {
+        // Nothing else is running the loop while we block, so send our writes and refresh the bulk cache ourselves
+        if (hubManager != null) {
+            hubManager.flushWrites();
+            hubManager.clearBulkCache();
+        }
         telemetry.addLine("Waiting, current task: " + str);
         telemetry.update();
     }
@@ -1,5 +1,7 @@
 package org.firstinspires.ftc.teamcode.subsystems;
 
+import static org.firstinspires.ftc.teamcode.Constants.ArmConstants.ELBOW_KV;
+import static org.firstinspires.ftc.teamcode.Constants.ControlConstants.MAX_SETPOINT_EXTRAPOLATION;
 import static org.firstinspires.ftc.teamcode.Constants.ElbowConstants.*;
 
 import com.acmerobotics.dashboard.config.Config;
@@ -8,10 +10,19 @@ import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DigitalChannel;
 import com.qualcomm.robotcore.hardware.HardwareMap;
-import com.qualcomm.robotcore.util.ElapsedTime;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 import org.firstinspires.ftc.teamcode.Constants.PIDSubsystemState;
+import org.firstinspires.ftc.teamcode.control.ArmController;
+import org.firstinspires.ftc.teamcode.control.ControlExecutor;
+import org.firstinspires.ftc.teamcode.control.ControlRequest;
+import org.firstinspires.ftc.teamcode.hardware.CoalescingMotor;
+import org.firstinspires.ftc.teamcode.hardware.HubManager;
+import org.firstinspires.ftc.teamcode.hardware.MotorSnapshot;
+import org.firstinspires.ftc.teamcode.recording.MatchRecorder;
+import org.firstinspires.ftc.teamcode.recording.RecordType;
+import org.firstinspires.ftc.teamcode.telemetry.TelemetryBoard;
+import org.firstinspires.ftc.teamcode.util.ClockTimer;
 
 /**
  * A subsystem that represents the motor that controls the elbow of the arm.
@@ -21,19 +32,47 @@ import org.firstinspires.ftc.teamcode.Constants.PIDSubsystemState;
 @Config
 public class ElbowSubsystem extends CustomSubsystemBase {
     private final DcMotorEx elbowMotor;
+    private final MotorSnapshot elbowMotorSnapshot;
+    // What the control loop reads from and writes to, swapped for the control thread's by runOn
+    private MotorSnapshot controlSnapshot;
+    private CoalescingMotor elbowMotorOutput;
+
+    // The kinds of request the main thread hands to the control thread
+    private static final int REQUEST_STOP = 0;
+    private static final int REQUEST_TARGET = 1;
+    private static final int REQUEST_MANUAL = 2;
+    private static final int REQUEST_SETPOINT = 3;
+    private static final int REQUEST_HOLD = 4;
+
+    // The telemetry slots
+    private int stateSlot;
+    private int targetSlot;
+    private int positionSlot;
+    private int powerSlot;
+
+    /** Hands requests to the control thread, null if the elbow is controlled from the main loop */
+    private ControlRequest controlRequests;
+    /** Hands encoder resets to the control thread, kept apart so a reset never replaces a request */
+    private ControlRequest encoderResets;
+    private volatile Thread controlThread;
+    /** The last request the control thread got, it keeps acting on it every tick */
+    private int controlMode = REQUEST_STOP;
 
     private final PIDController controller;
+    /** Used instead of the PID controller when PROFILED_ELBOW is on */
+    private final ArmController armController = new ArmController();
 
-    private static double target = 0;
-    private double lastPower;
+    // Written by the control thread while it runs, read by the telemetry and the recorder
+    private static volatile double target = 0;
+    private volatile double lastPower;
 
-    private ElapsedTime timer;
+    private ClockTimer timer;
     private double timeout;
 
     private final DigitalChannel elbowLimitSwitch;
 
-    /** The state the arm is in: (manual, moving-to-target, or at-target) */
-    private PIDSubsystemState state;
+    /** The state the arm is in: (manual, moving-to-target, at-target or holding) */
+    private volatile PIDSubsystemState state;
 
     /**
      * Constructs an ElbowSubsystem.
@@ -42,9 +81,23 @@ public class ElbowSubsystem extends CustomSubsystemBase {
      * @param telemetry The telemetry of the robot
      */
     public ElbowSubsystem(HardwareMap hardwareMap, Telemetry telemetry) {
-        super(hardwareMap, telemetry);
+        this(hardwareMap, telemetry, null);
+    }
+
+    /**
+     * Constructs an ElbowSubsystem that reads its motor through the bulk cache.
+     *
+     * @param hardwareMap The hardware map of the robot
+     * @param telemetry The telemetry of the robot
+     * @param hubManager The hub manager that clears the bulk cache each loop
+     */
+    public ElbowSubsystem(HardwareMap hardwareMap, Telemetry telemetry, HubManager hubManager) {
+        super(hardwareMap, telemetry, hubManager);
 
         elbowMotor = hardwareMap.get(DcMotorEx.class, ELBOW_DC_MOTOR_NAME);
+        elbowMotorSnapshot = snapshot(elbowMotor);
+        controlSnapshot = elbowMotorSnapshot;
+        elbowMotorOutput = output(elbowMotor);
         configureMotor();
 
         controller = new PIDController(P, I, D);
@@ -61,15 +114,83 @@ public class ElbowSubsystem extends CustomSubsystemBase {
         elbowMotor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
     }
 
-    /** Resets the encoder on the elbow motor. */
+    /** Resets the encoder on the elbow motor, on the control thread if the elbow is controlled there. */
     public void resetEncoder() {
-        elbowMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        elbowMotor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        if (postEncoderReset()) return;
+        elbowMotorOutput.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        elbowMotorOutput.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        // The snapshot of the thread doing the reset, the other one reads again on its next loop
+        controlSnapshot.invalidate();
+    }
+
+    /**
+     * Moves the control loop of the elbow onto the control thread. From then on the methods that move the elbow hand
+     * a request to the control thread instead of writing to the motor, and runPID does nothing on the main thread.
+     * Must be called before the executor starts.
+     *
+     * @param executor The executor that runs the control thread
+     */
+    public void runOn(ControlExecutor executor) {
+        controlSnapshot = new MotorSnapshot(elbowMotor, executor.getHubManager());
+        elbowMotorOutput = new CoalescingMotor(elbowMotor, executor.getHubManager());
+        controlRequests = new ControlRequest();
+        encoderResets = new ControlRequest();
+        executor.register(this::runControl);
+    }
+
+    /** Acts on the newest request and keeps running it, called every tick on the control thread. */
+    private void runControl() {
+        controlThread = Thread.currentThread();
+        if (encoderResets.poll()) {
+            resetEncoder();
+            encoderResets.markApplied();
+        }
+        if (controlRequests.poll()) {
+            controlMode = controlRequests.getType();
+            if (controlMode == REQUEST_TARGET) setTarget(controlRequests.getFirst(), controlRequests.getSecond());
+            else if (controlMode == REQUEST_HOLD) startHolding(controlRequests.getFirst());
+            else if (controlMode == REQUEST_STOP) stopMotor();
+        }
+        if (controlMode == REQUEST_TARGET) runPID();
+        else if (controlMode == REQUEST_MANUAL) moveManually(controlRequests.getFirst());
+        else if (controlMode == REQUEST_SETPOINT) {
+            // The setpoint only changes once per main loop, so carry it forward at its velocity in between
+            double age = Math.min(controlRequests.getAge(), MAX_SETPOINT_EXTRAPOLATION);
+            followSetpoint(controlRequests.getFirst() + controlRequests.getSecond() * age, controlRequests.getSecond());
+        }
+        if (state == PIDSubsystemState.HOLDING) hold();
+        controlRequests.markApplied();
     }
 
-    /** Stops the elbow motor. */
+    /**
+     * Hands a request to the control thread if the elbow is controlled there and this isn't the control thread.
+     *
+     * @return True if the request was handed over, false if it should be acted on now
+     */
+    private boolean postToControlThread(int type, double first, double second) {
+        if (controlRequests == null || Thread.currentThread() == controlThread) return false;
+        controlRequests.post(type, first, second);
+        return true;
+    }
+
+    /**
+     * Hands an encoder reset to the control thread if the elbow is controlled there and this isn't the control thread.
+     *
+     * @return True if the reset was handed over, false if it should be done now
+     */
+    private boolean postEncoderReset() {
+        if (encoderResets == null || Thread.currentThread() == controlThread) return false;
+        encoderResets.post(0, 0, 0);
+        return true;
+    }
+
+    /** Stops the elbow motor. Also lets go of the arm if it was holding, so nothing powers the motor again. */
     public void stopMotor() {
-        elbowMotor.setPower(0);
+        if (postToControlThread(REQUEST_STOP, 0, 0)) return;
+        // Still at the target, just no longer holding it
+        if (state == PIDSubsystemState.HOLDING) state = PIDSubsystemState.AT_TARGET;
+        lastPower = 0;
+        elbowMotorOutput.setPower(0);
     }
 
     /**
@@ -78,13 +199,23 @@ public class ElbowSubsystem extends CustomSubsystemBase {
      * @param input A input for the speed of the motor
      */
     public void moveManually(double input) {
+        if (postToControlThread(REQUEST_MANUAL, input, 0)) return;
+        if (input == 0 && HOLD_ELBOW) {
+            if (state == PIDSubsystemState.HOLDING) return;
+            // The operator just let go, so hold the arm where it is instead of letting it fall
+            if (state == PIDSubsystemState.MANUAL && lastPower != 0 && !isLimitSwitchPressed()) {
+                startHolding(controlSnapshot.getPosition());
+                return;
+            }
+        }
         state = PIDSubsystemState.MANUAL;
         if (input < 0 && isLimitSwitchPressed()) {
             stopMotor();
             resetEncoder();
             return;
         }
-        elbowMotor.setPower(input * MANUAL_MOTOR_SPEED_MULTIPLIER);
+        lastPower = input * MANUAL_MOTOR_SPEED_MULTIPLIER;
+        elbowMotorOutput.setPower(lastPower);
     }
 
     /**
@@ -99,7 +230,7 @@ public class ElbowSubsystem extends CustomSubsystemBase {
             stopMotor();
             return;
         }
-        elbowMotor.setPower(-MANUAL_MOTOR_SPEED_MULTIPLIER * multiplier);
+        elbowMotorOutput.setPower(-MANUAL_MOTOR_SPEED_MULTIPLIER * multiplier);
     }
 
     /**
@@ -108,11 +239,13 @@ public class ElbowSubsystem extends CustomSubsystemBase {
      * @param targetPosition The target position in pulses
      */
     public void setTarget(double targetPosition, double timeout) {
+        if (postToControlThread(REQUEST_TARGET, targetPosition, timeout)) return;
         target = targetPosition;
         state = PIDSubsystemState.MOVING_TO_TARGET;
-        if (timer == null) timer = new ElapsedTime();
+        if (timer == null) timer = new ClockTimer();
         else timer.reset();
         this.timeout = timeout;
+        if (PROFILED_ELBOW) armController.start(controlSnapshot.getPosition(), targetPosition);
     }
 
     /**
@@ -121,6 +254,12 @@ public class ElbowSubsystem extends CustomSubsystemBase {
      */
     // TODO: Clean this method up
     public void runPID() {
+        // The control thread runs this itself
+        if (controlRequests != null && Thread.currentThread() != controlThread) return;
+        if (PROFILED_ELBOW) {
+            runProfiled();
+            return;
+        }
         // If we aren't at the target
         if (state == PIDSubsystemState.MOVING_TO_TARGET)
         {
@@ -128,7 +267,7 @@ public class ElbowSubsystem extends CustomSubsystemBase {
             // Only stop if we press the limit switch or the timeout ends
             if (target == 0) {
                 lastPower = -1;
-                elbowMotor.setPower(-1);
+                elbowMotorOutput.setPower(-1);
                 if (isLimitSwitchPressed() || isTimeoutPassed()) {
                     stopMotor();
                     if (isLimitSwitchPressed()) resetEncoder();
@@ -138,7 +277,7 @@ public class ElbowSubsystem extends CustomSubsystemBase {
             else {
                 // If we are moving the arm down and pressing the limit switch,
                 // stop and reset the encoders
-                if (target < elbowMotor.getCurrentPosition() && isLimitSwitchPressed()) {
+                if (target < controlSnapshot.getPosition() && isLimitSwitchPressed()) {
                     stopMotor();
                     resetEncoder();
                     state = PIDSubsystemState.AT_TARGET;
@@ -146,10 +285,10 @@ public class ElbowSubsystem extends CustomSubsystemBase {
                 }
                 // Calculate how much we need to move the motor by
                 controller.setPID(P, I, D);
-                int elbowPosition = elbowMotor.getCurrentPosition();
+                int elbowPosition = controlSnapshot.getPosition();
                 double power = controller.calculate(elbowPosition, target);
                 lastPower = power;
-                elbowMotor.setPower(power);
+                elbowMotorOutput.setPower(power);
                 // If the power we are setting is basically none, we are close enough to the target
                 if (Math.abs(power) <= PID_POWER_TOLERANCE || isTimeoutPassed()) {
                     state = PIDSubsystemState.AT_TARGET;
@@ -159,6 +298,91 @@ public class ElbowSubsystem extends CustomSubsystemBase {
         }
     }
 
+    /**
+     * Follows the profile to the target with the arm controller. Once it settles, the arm holds the target, except at
+     * zero where it rests on the limit switch.
+     */
+    private void runProfiled() {
+        if (state != PIDSubsystemState.MOVING_TO_TARGET) return;
+        int elbowPosition = controlSnapshot.getPosition();
+        // If we are moving the arm down and pressing the limit switch, we are all the way down
+        if ((target < elbowPosition || target == 0) && isLimitSwitchPressed()) {
+            armController.stop();
+            stopMotor();
+            resetEncoder();
+            state = PIDSubsystemState.AT_TARGET;
+            return;
+        }
+        double power = armController.calculate(elbowPosition, controlSnapshot.getVelocity());
+        boolean timedOut = isTimeoutPassed();
+        // At zero, keep going down gently until the limit switch resets the encoder
+        if (armController.isFinished() && target == 0 && !timedOut) {
+            lastPower = -ELBOW_HOMING_POWER;
+            elbowMotorOutput.setPower(lastPower);
+            return;
+        }
+        if (armController.isFinished() || timedOut) {
+            armController.stop();
+            if (HOLD_ELBOW && target != 0) startHolding(target);
+            else {
+                stopMotor();
+                state = PIDSubsystemState.AT_TARGET;
+            }
+            return;
+        }
+        lastPower = power;
+        elbowMotorOutput.setPower(power);
+    }
+
+    /**
+     * Starts holding the arm at a position against gravity, without stopping the motor. The arm is held every loop
+     * until it is moved again.
+     *
+     * @param position The position to hold, in pulses
+     */
+    public void startHolding(double position) {
+        if (postToControlThread(REQUEST_HOLD, position, 0)) return;
+        target = position;
+        armController.setHoldPosition(position);
+        state = PIDSubsystemState.HOLDING;
+        hold();
+    }
+
+    /** Sets the power that keeps the arm at the held position. */
+    private void hold() {
+        lastPower = armController.hold(controlSnapshot.getPosition(), controlSnapshot.getVelocity());
+        elbowMotorOutput.setPower(lastPower);
+    }
+
+    /** Keeps holding the arm while nothing else is moving it. */
+    @Override
+    protected void update() {
+        if (controlRequests == null && state == PIDSubsystemState.HOLDING) hold();
+    }
+
+    /**
+     * Drives the elbow towards a moving setpoint, used to follow a motion profile. The velocity feedforward does
+     * most of the work and the PID controller corrects the error.
+     *
+     * @param position Where the elbow should be now, in pulses
+     * @param velocity How fast the elbow should be moving, in pulses per second
+     */
+    public void followSetpoint(double position, double velocity) {
+        if (postToControlThread(REQUEST_SETPOINT, position, velocity)) return;
+        state = PIDSubsystemState.MANUAL;
+        target = position;
+        if (velocity <= 0 && position < controlSnapshot.getPosition() && isLimitSwitchPressed()) {
+            stopMotor();
+            resetEncoder();
+            return;
+        }
+        controller.setPID(P, I, D);
+        double power = controller.calculate(controlSnapshot.getPosition(), position) + ELBOW_KV * velocity
+                + ArmController.getGravityFeedforward(position);
+        lastPower = power;
+        elbowMotorOutput.setPower(power);
+    }
+
     /**
      * Check if the timeout has passed, if is has, reset the timeout and return true.
      *
@@ -174,12 +398,19 @@ public class ElbowSubsystem extends CustomSubsystemBase {
 
     /** @return True if the motor is at the target, false otherwise */
     public boolean isAtTarget() {
-        return state == PIDSubsystemState.AT_TARGET;
+        if (controlRequests != null && controlRequests.isPending()) return false;
+        return state == PIDSubsystemState.AT_TARGET || state == PIDSubsystemState.HOLDING;
+    }
+
+    /** @return True if the motor is holding the arm at the target */
+    public boolean isHolding() {
+        if (controlRequests != null && controlRequests.isPending()) return false;
+        return state == PIDSubsystemState.HOLDING;
     }
 
     /** @return The position of the elbow motor */
     public int getPosition() {
-        return elbowMotor.getCurrentPosition();
+        return elbowMotorSnapshot.getPosition();
     }
 
     /** Print data from the elbow motor. */
@@ -187,12 +418,42 @@ public class ElbowSubsystem extends CustomSubsystemBase {
     public void printData() {
         telemetry.addLine("--- Elbow Subsystem ---");
         telemetry.addData("State", state);
-        telemetry.addData("Elbow Position", elbowMotor.getCurrentPosition());
+        telemetry.addData("Elbow Position", elbowMotorSnapshot.getPosition());
         telemetry.addData("Elbow last power", lastPower);
         telemetry.addData("Is limit pressed?", isLimitSwitchPressed());
         telemetry.addData("Target", target);
     }
 
+    /** Adds the elbow's state, target, position and power to the telemetry board. */
+    @Override
+    public void registerTelemetry(TelemetryBoard board) {
+        stateSlot = board.addEnum("Elbow state", PIDSubsystemState.values());
+        targetSlot = board.addNumber("Elbow target", "%.0f");
+        positionSlot = board.addNumber("Elbow position", "%.0f");
+        powerSlot = board.addNumber("Elbow power", "%.2f");
+    }
+
+    /** Publishes the elbow's state, target, position and power. */
+    @Override
+    public void publishTelemetry(TelemetryBoard board) {
+        board.set(stateSlot, state);
+        board.set(targetSlot, target);
+        board.set(positionSlot, elbowMotorSnapshot.getPosition());
+        board.set(powerSlot, elbowMotorOutput.getPower());
+    }
+
+    /** Records the elbow's state, target, position, power and limit switch. */
+    @Override
+    public void record(MatchRecorder recorder) {
+        recorder.begin(RecordType.ELBOW)
+                .putEnum(state)
+                .putDouble(target)
+                .putInt(elbowMotorSnapshot.getPosition())
+                .putDouble(elbowMotorOutput.getPower())
+                .putBoolean(isLimitSwitchPressed())
+                .end();
+    }
+
     /** @return the preset low scoring position */
     public int getLowScoringPosition() {
         return LOW_SCORING_POSITION;
@@ -10,7 +10,9 @@ import com.qualcomm.robotcore.hardware.HardwareMap;
 import com.qualcomm.robotcore.util.Range;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
-import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.teamcode.hardware.CoalescingMotor;
+import org.firstinspires.ftc.teamcode.hardware.CoalescingServo;
+import org.firstinspires.ftc.teamcode.hardware.HubManager;
 
 /**
  * A subsystem that represents the motor that controls the winch.
@@ -20,6 +22,8 @@ import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
 public class HangingSubsystem extends CustomSubsystemBase {
     private final DcMotorEx winchMotor;
     private final ServoEx hookServo;
+    private final CoalescingMotor winchMotorOutput;
+    private final CoalescingServo hookServoOutput;
 
     private enum ServoState {
         LEVEL,
@@ -35,12 +39,25 @@ public class HangingSubsystem extends CustomSubsystemBase {
      * @param telemetry The telemetry of the robot
      */
     public HangingSubsystem(HardwareMap hardwareMap, Telemetry telemetry) {
-        super(hardwareMap, telemetry);
+        this(hardwareMap, telemetry, null);
+    }
+
+    /**
+     * Constructs a new WinchSubsystem that buffers its writes until the end of the loop.
+     *
+     * @param hardwareMap The hardware map of the robot
+     * @param telemetry The telemetry of the robot
+     * @param hubManager The hub manager that flushes writes each loop
+     */
+    public HangingSubsystem(HardwareMap hardwareMap, Telemetry telemetry, HubManager hubManager) {
+        super(hardwareMap, telemetry, hubManager);
 
         winchMotor = hardwareMap.get(DcMotorEx.class, WINCH_MOTOR_NAME);
+        winchMotorOutput = output(winchMotor);
         configureMotor();
 
         hookServo = new SimpleServo(hardwareMap, HOOK_SERVO_NAME, MIN_ANGLE, MAX_ANGLE);
+        hookServoOutput = output(hookServo);
     }
 
     /** Configure the winch motor by setting the direction and zero power behavior */
@@ -52,33 +69,33 @@ public class HangingSubsystem extends CustomSubsystemBase {
 
     /** Start moving the winch motor to pull ourselves up. */
     public void winch() {
-        winchMotor.setPower(WINCH_SPEED);
+        winchMotorOutput.setPower(WINCH_SPEED);
     }
 
     /** Start moving the winch motor to let ourselves down. */
     public void unwinch() {
-        winchMotor.setPower(UNWINCH_SPEED);
+        winchMotorOutput.setPower(UNWINCH_SPEED);
     }
 
     /** Stop the winch motor. */
-    public void stopMotor() { winchMotor.setPower(0); }
+    public void stopMotor() { winchMotorOutput.setPower(0); }
 
     /** Raises the servo, also sets the state to manual. */
     public void raiseServo() {
-        hookServo.turnToAngle(UP_POSITION);
+        hookServoOutput.turnToAngle(UP_POSITION);
         servoState = ServoState.MANUAL;
     }
 
     /** Lowers the servo, also sets the state to level */
     public void lowerServo() {
-        hookServo.turnToAngle(DOWN_POSITION);
+        hookServoOutput.turnToAngle(DOWN_POSITION);
         servoState = ServoState.LEVEL;
     }
 
     /** Constantly updates the angle of the servo relative to the position of the elbow, so that it stays level, relative to the ground. Only works while the state is level. */
     public void levelServo(ElbowSubsystem elbowSubsystem) {
         if (servoState == ServoState.LEVEL) {
-            hookServo.turnToAngle(convertPosition(elbowSubsystem.getPosition()));
+            hookServoOutput.turnToAngle(convertPosition(elbowSubsystem.getPosition()));
         }
     }
 
@@ -104,6 +121,6 @@ public class HangingSubsystem extends CustomSubsystemBase {
     @Override
     public void printData() {
         telemetry.addData("State", servoState);
-        telemetry.addData("Angle", hookServo.getAngle(AngleUnit.DEGREES));
+        telemetry.addData("Angle", hookServoOutput.getAngle());
     }
 }
@@ -9,6 +9,8 @@ import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.HardwareMap;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.hardware.CoalescingMotor;
+import org.firstinspires.ftc.teamcode.hardware.HubManager;
 
 /**
  * A subsystem that represents the servo and motor on the intake. Uses the servo to raise and
@@ -19,6 +21,7 @@ import org.firstinspires.ftc.robotcore.external.Telemetry;
 public class IntakeSubsystem extends CustomSubsystemBase {
     private final DcMotorEx intakeMotor;
     private final ServoEx intakeServo;
+    private final CoalescingMotor intakeMotorOutput;
 
     /**
      * Constructs an IntakeSubsystem.
@@ -27,11 +30,23 @@ public class IntakeSubsystem extends CustomSubsystemBase {
      * @param telemetry The telemetry of the robot
      */
     public IntakeSubsystem(HardwareMap hardwareMap, Telemetry telemetry) {
-        super(hardwareMap, telemetry);
+        this(hardwareMap, telemetry, null);
+    }
+
+    /**
+     * Constructs an IntakeSubsystem that buffers its motor writes until the end of the loop.
+     *
+     * @param hardwareMap The hardware map of the robot
+     * @param telemetry The telemetry of the robot
+     * @param hubManager The hub manager that flushes writes each loop
+     */
+    public IntakeSubsystem(HardwareMap hardwareMap, Telemetry telemetry, HubManager hubManager) {
+        super(hardwareMap, telemetry, hubManager);
 
         intakeServo = new SimpleServo(hardwareMap, INTAKE_SERVO_NAME, MIN_ANGLE, MAX_ANGLE);
 
         intakeMotor = hardwareMap.get(DcMotorEx.class, INTAKE_MOTOR_NAME);
+        intakeMotorOutput = output(intakeMotor);
         configureIntake();
     }
 
@@ -40,7 +55,7 @@ public class IntakeSubsystem extends CustomSubsystemBase {
     private void configureIntake() {
         intakeMotor.setDirection(INTAKE_MOTOR_DIRECTION);
         intakeMotor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
-        intakeMotor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        intakeMotorOutput.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
     }
 
     /** Sets the intake position to the 'down' position. */
@@ -60,7 +75,7 @@ public class IntakeSubsystem extends CustomSubsystemBase {
 
     /** Starts intaking. */
     public void intake() {
-        intakeMotor.setPower(INTAKE_SPEED);
+        intakeMotorOutput.setPower(INTAKE_SPEED);
     }
 
     /**
@@ -69,17 +84,17 @@ public class IntakeSubsystem extends CustomSubsystemBase {
      * @param speed Speed to intake at
      */
     public void intake(double speed) {
-        intakeMotor.setPower(speed);
+        intakeMotorOutput.setPower(speed);
     }
 
     /** Start outtaking. */
     public void outtake() {
-        intakeMotor.setPower(OUTTAKE_SPEED);
+        intakeMotorOutput.setPower(OUTTAKE_SPEED);
     }
 
     /** Stops the intake motor. */
     public void stopMotor() {
-        intakeMotor.setPower(0);
+        intakeMotorOutput.setPower(0);
     }
 
     /** Prints data from the subsystem */
@@ -1,5 +1,7 @@
 package org.firstinspires.ftc.teamcode.subsystems;
 
+import static org.firstinspires.ftc.teamcode.Constants.ArmConstants.SLIDE_KV;
+import static org.firstinspires.ftc.teamcode.Constants.ControlConstants.MAX_SETPOINT_EXTRAPOLATION;
 import static org.firstinspires.ftc.teamcode.Constants.LinearSlideConstants.*;
 
 import com.acmerobotics.dashboard.config.Config;
@@ -8,10 +10,18 @@ import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorEx;
 import com.qualcomm.robotcore.hardware.DigitalChannel;
 import com.qualcomm.robotcore.hardware.HardwareMap;
-import com.qualcomm.robotcore.util.ElapsedTime;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 import org.firstinspires.ftc.teamcode.Constants.PIDSubsystemState;
+import org.firstinspires.ftc.teamcode.control.ControlExecutor;
+import org.firstinspires.ftc.teamcode.control.ControlRequest;
+import org.firstinspires.ftc.teamcode.hardware.CoalescingMotor;
+import org.firstinspires.ftc.teamcode.hardware.HubManager;
+import org.firstinspires.ftc.teamcode.hardware.MotorSnapshot;
+import org.firstinspires.ftc.teamcode.recording.MatchRecorder;
+import org.firstinspires.ftc.teamcode.recording.RecordType;
+import org.firstinspires.ftc.teamcode.telemetry.TelemetryBoard;
+import org.firstinspires.ftc.teamcode.util.ClockTimer;
 
 /**
  * A subsystem that represents the motor that controls the slide.
@@ -21,13 +31,38 @@ import org.firstinspires.ftc.teamcode.Constants.PIDSubsystemState;
 @Config
 public class LinearSlideSubsystem extends CustomSubsystemBase {
     private final DcMotorEx slideMotor;
+    private final MotorSnapshot slideMotorSnapshot;
+    // What the control loop reads from and writes to, swapped for the control thread's by runOn
+    private MotorSnapshot controlSnapshot;
+    private CoalescingMotor slideMotorOutput;
+
+    // The kinds of request the main thread hands to the control thread
+    private static final int REQUEST_STOP = 0;
+    private static final int REQUEST_TARGET = 1;
+    private static final int REQUEST_MANUAL = 2;
+    private static final int REQUEST_SETPOINT = 3;
+
+    // The telemetry slots
+    private int stateSlot;
+    private int targetSlot;
+    private int positionSlot;
+    private int powerSlot;
+
+    /** Hands requests to the control thread, null if the slide is controlled from the main loop */
+    private ControlRequest controlRequests;
+    /** Hands encoder resets to the control thread, kept apart so a reset never replaces a request */
+    private ControlRequest encoderResets;
+    private volatile Thread controlThread;
+    /** The last request the control thread got, it keeps acting on it every tick */
+    private int controlMode = REQUEST_STOP;
 
     private final PIDController controller;
-    private static double target = 0;
+    // Written by the control thread while it runs, read by the telemetry and the recorder
+    private static volatile double target = 0;
 
-    private PIDSubsystemState state;
+    private volatile PIDSubsystemState state;
 
-    private ElapsedTime timer;
+    private ClockTimer timer;
     private double timeout;
 
     private final DigitalChannel slideLimitSwitch;
@@ -39,9 +74,23 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
      * @param telemetry The telemetry of the robot
      */
     public LinearSlideSubsystem(HardwareMap hardwareMap, Telemetry telemetry) {
-        super(hardwareMap, telemetry);
+        this(hardwareMap, telemetry, null);
+    }
+
+    /**
+     * Constructs a new LinearSlideSubsystem that reads its motor through the bulk cache.
+     *
+     * @param hardwareMap The hardware map of the robot
+     * @param telemetry The telemetry of the robot
+     * @param hubManager The hub manager that clears the bulk cache each loop
+     */
+    public LinearSlideSubsystem(HardwareMap hardwareMap, Telemetry telemetry, HubManager hubManager) {
+        super(hardwareMap, telemetry, hubManager);
 
         slideMotor = hardwareMap.get(DcMotorEx.class, SLIDE_MOTOR_NAME);
+        slideMotorSnapshot = snapshot(slideMotor);
+        controlSnapshot = slideMotorSnapshot;
+        slideMotorOutput = output(slideMotor);
         configureSlide();
 
         controller = new PIDController(P, I, D);
@@ -56,12 +105,15 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
     private void configureSlide() {
         slideMotor.setDirection(SLIDE_MOTOR_DIRECTION);
         slideMotor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
-        slideMotor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        slideMotorOutput.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
     }
-    /** Reset the encoders on the slide motor. */
+    /** Reset the encoders on the slide motor, on the control thread if the slide is controlled there. */
     public void resetEncoder() {
-        slideMotor.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        slideMotor.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        if (postEncoderReset()) return;
+        slideMotorOutput.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+        slideMotorOutput.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
+        // The snapshot of the thread doing the reset, the other one reads again on its next loop
+        controlSnapshot.invalidate();
     }
 
     /**
@@ -70,8 +122,9 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
      * @param input Speed input
      */
     public void moveManually(double input) {
+        if (postToControlThread(REQUEST_MANUAL, input, 0)) return;
         state = PIDSubsystemState.MANUAL;
-        if (slideMotor.getCurrentPosition() >= MAX_POSITION && input < 0) {
+        if (controlSnapshot.getPosition() >= MAX_POSITION && input < 0) {
             stopMotor();
             return;
         }
@@ -80,7 +133,7 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
             resetEncoder();
             return;
         }
-        slideMotor.setPower(input * SLIDE_MANUAL_POWER_MULTIPLIER);
+        slideMotorOutput.setPower(input * SLIDE_MANUAL_POWER_MULTIPLIER);
     }
 
     /**
@@ -96,12 +149,72 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
             resetEncoder();
             return;
         }
-        slideMotor.setPower(SLIDE_MANUAL_POWER_MULTIPLIER * multiplier);
+        slideMotorOutput.setPower(SLIDE_MANUAL_POWER_MULTIPLIER * multiplier);
     }
 
     /** Stops the slide motor. */
     public void stopMotor() {
-        slideMotor.setPower(0);
+        if (postToControlThread(REQUEST_STOP, 0, 0)) return;
+        slideMotorOutput.setPower(0);
+    }
+
+    /**
+     * Moves the control loop of the slide onto the control thread. From then on the methods that move the slide hand
+     * a request to the control thread instead of writing to the motor, and runPID does nothing on the main thread.
+     * Must be called before the executor starts.
+     *
+     * @param executor The executor that runs the control thread
+     */
+    public void runOn(ControlExecutor executor) {
+        controlSnapshot = new MotorSnapshot(slideMotor, executor.getHubManager());
+        slideMotorOutput = new CoalescingMotor(slideMotor, executor.getHubManager());
+        controlRequests = new ControlRequest();
+        encoderResets = new ControlRequest();
+        executor.register(this::runControl);
+    }
+
+    /** Acts on the newest request and keeps running it, called every tick on the control thread. */
+    private void runControl() {
+        controlThread = Thread.currentThread();
+        if (encoderResets.poll()) {
+            resetEncoder();
+            encoderResets.markApplied();
+        }
+        if (controlRequests.poll()) {
+            controlMode = controlRequests.getType();
+            if (controlMode == REQUEST_TARGET) setTarget(controlRequests.getFirst(), controlRequests.getSecond());
+            else if (controlMode == REQUEST_STOP) stopMotor();
+        }
+        if (controlMode == REQUEST_TARGET) runPID();
+        else if (controlMode == REQUEST_MANUAL) moveManually(controlRequests.getFirst());
+        else if (controlMode == REQUEST_SETPOINT) {
+            // The setpoint only changes once per main loop, so carry it forward at its velocity in between
+            double age = Math.min(controlRequests.getAge(), MAX_SETPOINT_EXTRAPOLATION);
+            followSetpoint(controlRequests.getFirst() + controlRequests.getSecond() * age, controlRequests.getSecond());
+        }
+        controlRequests.markApplied();
+    }
+
+    /**
+     * Hands a request to the control thread if the slide is controlled there and this isn't the control thread.
+     *
+     * @return True if the request was handed over, false if it should be acted on now
+     */
+    private boolean postToControlThread(int type, double first, double second) {
+        if (controlRequests == null || Thread.currentThread() == controlThread) return false;
+        controlRequests.post(type, first, second);
+        return true;
+    }
+
+    /**
+     * Hands an encoder reset to the control thread if the slide is controlled there and this isn't the control thread.
+     *
+     * @return True if the reset was handed over, false if it should be done now
+     */
+    private boolean postEncoderReset() {
+        if (encoderResets == null || Thread.currentThread() == controlThread) return false;
+        encoderResets.post(0, 0, 0);
+        return true;
     }
 
     /**
@@ -111,7 +224,7 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
      */
     @Deprecated
     public boolean isMaxExtension() {
-        return slideMotor.getCurrentPosition() >= MAX_POSITION;
+        return slideMotorSnapshot.getPosition() >= MAX_POSITION;
     }
 
     /**
@@ -121,7 +234,7 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
      */
     @Deprecated
     public boolean isMaxRetraction() {
-        return slideMotor.getCurrentPosition() <= MIN_POSITION;
+        return slideMotorSnapshot.getPosition() <= MIN_POSITION;
     }
 
     /**
@@ -130,21 +243,24 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
      * @param targetPosition The new target position
      */
     public void setTarget(double targetPosition, double timeout) {
+        if (postToControlThread(REQUEST_TARGET, targetPosition, timeout)) return;
         state = PIDSubsystemState.MOVING_TO_TARGET;
         if (targetPosition < MIN_POSITION || targetPosition > MAX_POSITION) return;
         target = targetPosition;
-        if (timer == null) timer = new ElapsedTime();
+        if (timer == null) timer = new ClockTimer();
         else timer.reset();
         this.timeout = timeout;
     }
 
     /** Runs the PID controllers if we are moving to a target. If we are close enough to the target, get out of PID mode. */
     public void runPID() {
+        // The control thread runs this itself
+        if (controlRequests != null && Thread.currentThread() != controlThread) return;
         if (state == PIDSubsystemState.MOVING_TO_TARGET) {
 //            telemetry.addData("Outer Inner if", "").setRetained(true);
             if (target == 0) {
 //                telemetry.addData("Inside Inner Loop", "").setRetained(true);
-                slideMotor.setPower(-1);
+                slideMotorOutput.setPower(-1);
                 if (isLimitSwitchPressed() || isTimeoutDone()) {
 //                    telemetry.addData("Inside Inside Inner Loop", "").setRetained(true);
                     if (isLimitSwitchPressed()) resetEncoder();
@@ -153,7 +269,7 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
                 }
             }
             else {
-                if (target < slideMotor.getCurrentPosition() && isLimitSwitchPressed()) {
+                if (target < controlSnapshot.getPosition() && isLimitSwitchPressed()) {
                     stopMotor();
                     resetEncoder();
                     state = PIDSubsystemState.AT_TARGET;
@@ -161,9 +277,9 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
                 }
                 // Calculate how much we need to move the motor by
                 controller.setPID(P, I, D);
-                int slidePosition = slideMotor.getCurrentPosition();
+                int slidePosition = controlSnapshot.getPosition();
                 double power = controller.calculate(slidePosition, target);
-                slideMotor.setPower(power);
+                slideMotorOutput.setPower(power);
                 // If the power isn't much, we are about as close to the target as we are going to get,
                 // so we don't update anymore
                 // Or, if the timer is over the timeout, we also stop
@@ -176,6 +292,27 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
         }
     }
 
+    /**
+     * Drives the slide towards a moving setpoint, used to follow a motion profile. The velocity feedforward does
+     * most of the work and the PID controller corrects the error.
+     *
+     * @param position Where the slide should be now
+     * @param velocity How fast the slide should be moving, in ticks per second
+     */
+    public void followSetpoint(double position, double velocity) {
+        if (postToControlThread(REQUEST_SETPOINT, position, velocity)) return;
+        state = PIDSubsystemState.MANUAL;
+        target = position;
+        if (velocity <= 0 && position < controlSnapshot.getPosition() && isLimitSwitchPressed()) {
+            stopMotor();
+            resetEncoder();
+            return;
+        }
+        controller.setPID(P, I, D);
+        double power = controller.calculate(controlSnapshot.getPosition(), position) + SLIDE_KV * velocity;
+        slideMotorOutput.setPower(power);
+    }
+
     /** @return If the timeout has passed */
     private boolean isTimeoutDone() {
         return timeout > 0 && timer.seconds() >= timeout;
@@ -183,7 +320,7 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
 
     /** @return The current position of the slide motor */
     public int getPosition() {
-        return slideMotor.getCurrentPosition();
+        return slideMotorSnapshot.getPosition();
     }
 
     /** Prints data from the slide motor. */
@@ -192,12 +329,43 @@ public class LinearSlideSubsystem extends CustomSubsystemBase {
         telemetry.addLine("--- Slide ---");
         telemetry.addData("State", state);
         telemetry.addData("Target", target);
-        telemetry.addData("Slide Position", slideMotor.getCurrentPosition());
-        telemetry.addData("Power", slideMotor.getPower());
+        telemetry.addData("Slide Position", slideMotorSnapshot.getPosition());
+        telemetry.addData("Power", slideMotorOutput.getPower());
+    }
+
+    /** Adds the slide's state, target, position and power to the telemetry board. */
+    @Override
+    public void registerTelemetry(TelemetryBoard board) {
+        stateSlot = board.addEnum("Slide state", PIDSubsystemState.values());
+        targetSlot = board.addNumber("Slide target", "%.0f");
+        positionSlot = board.addNumber("Slide position", "%.0f");
+        powerSlot = board.addNumber("Slide power", "%.2f");
+    }
+
+    /** Publishes the slide's state, target, position and power. */
+    @Override
+    public void publishTelemetry(TelemetryBoard board) {
+        board.set(stateSlot, state);
+        board.set(targetSlot, target);
+        board.set(positionSlot, slideMotorSnapshot.getPosition());
+        board.set(powerSlot, slideMotorOutput.getPower());
+    }
+
+    /** Records the slide's state, target, position, power and limit switch. */
+    @Override
+    public void record(MatchRecorder recorder) {
+        recorder.begin(RecordType.SLIDE)
+                .putEnum(state)
+                .putDouble(target)
+                .putInt(slideMotorSnapshot.getPosition())
+                .putDouble(slideMotorOutput.getPower())
+                .putBoolean(isLimitSwitchPressed())
+                .end();
     }
 
     /** @return true if the motor is at the target, false otherwise. */
     public boolean isAtTarget() {
+        if (controlRequests != null && controlRequests.isPending()) return false;
         return state == PIDSubsystemState.AT_TARGET;
     }
 
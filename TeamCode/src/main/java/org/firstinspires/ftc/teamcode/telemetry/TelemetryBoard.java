@@ -0,0 +1,161 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed set of numeric telemetry fields that the main loop writes into and a {@link TelemetryPublisher} reads from.
+ * Each field is a slot made once when the robot is built. Setting a slot only stores the raw bits of the number, so
+ * the loop never formats strings or touches the network, and the publisher can tell which fields have changed.
+ * Text slots are for the few fields that are already strings, like the loop profiler's summaries.
+ * <p>
+ * Slots are written from the main thread and read from the publisher threads without locking.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class TelemetryBoard {
+    /** The most slots a board can have */
+    public static final int MAX_SLOTS = 64;
+
+    private final String[] captions = new String[MAX_SLOTS];
+    /** The format of each number slot, null for enum and text slots */
+    private final String[] formats = new String[MAX_SLOTS];
+    /** The values of each enum slot, null for number and text slots */
+    private final Enum<?>[][] enumValues = new Enum<?>[MAX_SLOTS][];
+    /** The text of each text slot, null for the other slots */
+    private final AtomicReferenceArray<String> texts = new AtomicReferenceArray<>(MAX_SLOTS);
+    private final boolean[] isText = new boolean[MAX_SLOTS];
+    private final AtomicLongArray values = new AtomicLongArray(MAX_SLOTS);
+    private volatile int slotCount;
+
+    /**
+     * Adds a number field.
+     *
+     * @param caption The caption shown next to the value
+     * @param format How to format the value, like "%.2f"
+     * @return The slot to set the value with
+     */
+    public synchronized int addNumber(String caption, String format) {
+        int slot = addSlot(caption);
+        formats[slot] = format;
+        values.set(slot, Double.doubleToRawLongBits(Double.NaN));
+        slotCount = slot + 1;
+        return slot;
+    }
+
+    /**
+     * Adds a field that shows one of the values of an enum.
+     *
+     * @param caption The caption shown next to the value
+     * @param enumValues Every value of the enum, from values()
+     * @return The slot to set the value with
+     */
+    public synchronized int addEnum(String caption, Enum<?>[] enumValues) {
+        int slot = addSlot(caption);
+        this.enumValues[slot] = enumValues;
+        values.set(slot, -1);
+        slotCount = slot + 1;
+        return slot;
+    }
+
+    /**
+     * Adds a field that shows some text.
+     *
+     * @param caption The caption shown next to the text
+     * @return The slot to set the text with
+     */
+    public synchronized int addText(String caption) {
+        int slot = addSlot(caption);
+        isText[slot] = true;
+        texts.set(slot, "");
+        values.set(slot, 0);
+        slotCount = slot + 1;
+        return slot;
+    }
+
+    /** @return The next free slot, with its caption set */
+    private int addSlot(String caption) {
+        int slot = slotCount;
+        if (slot >= MAX_SLOTS) throw new IllegalStateException("Telemetry board is full, raise MAX_SLOTS");
+        captions[slot] = caption;
+        return slot;
+    }
+
+    /**
+     * Sets the value of a number slot.
+     *
+     * @param slot The slot from {@link #addNumber(String, String)}
+     * @param value The new value
+     */
+    public void set(int slot, double value) {
+        values.lazySet(slot, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Sets the value of an enum slot.
+     *
+     * @param slot The slot from {@link #addEnum(String, Enum[])}
+     * @param value The new value, can be null
+     */
+    public void set(int slot, Enum<?> value) {
+        values.lazySet(slot, value == null ? -1 : value.ordinal());
+    }
+
+    /**
+     * Sets the text of a text slot, only one thread may set each text slot.
+     *
+     * @param slot The slot from {@link #addText(String)}
+     * @param text The new text
+     */
+    public void set(int slot, String text) {
+        texts.set(slot, text);
+        // The raw value of a text slot counts the changes, so the publisher can tell it has changed
+        values.lazySet(slot, values.get(slot) + 1);
+    }
+
+    /** @return True if every slot has been used */
+    public boolean isFull() {
+        return slotCount >= MAX_SLOTS;
+    }
+
+    /** @return How many slots have been added */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /** @return The caption of a slot */
+    public String getCaption(int slot) {
+        return captions[slot];
+    }
+
+    /** @return The raw value of a slot, compare these to see if a field has changed */
+    public long getBits(int slot) {
+        return values.get(slot);
+    }
+
+    /** @return True if the slot holds a number, false if it holds an enum or text */
+    public boolean isNumber(int slot) {
+        return formats[slot] != null;
+    }
+
+    /**
+     * @param slot The slot
+     * @param bits A raw value of the slot from {@link #getBits(int)}
+     * @return The value as a number, the ordinal for enum slots and the number of changes for text slots
+     */
+    public double toNumber(int slot, long bits) {
+        return isNumber(slot) ? Double.longBitsToDouble(bits) : bits;
+    }
+
+    /**
+     * @param slot The slot
+     * @param bits A raw value of the slot from {@link #getBits(int)}
+     * @return The value formatted for the driver station
+     */
+    public String format(int slot, long bits) {
+        if (isNumber(slot)) return String.format(Locale.US, formats[slot], Double.longBitsToDouble(bits));
+        if (isText[slot]) return texts.get(slot);
+        return bits < 0 || bits >= enumValues[slot].length ? "None" : enumValues[slot][(int) bits].name();
+    }
+}
@@ -0,0 +1,103 @@
+package org.firstinspires.ftc.teamcode.telemetry;
+
+import static org.firstinspires.ftc.teamcode.Constants.TelemetryConstants.*;
+
+import com.acmerobotics.dashboard.FtcDashboard;
+import com.acmerobotics.dashboard.telemetry.TelemetryPacket;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+import org.firstinspires.ftc.teamcode.util.FixedRateLoop;
+
+/**
+ * Sends the fields of a {@link TelemetryBoard} to the driver station and the dashboard from background threads, each
+ * at its own rate. Nothing is sent if no field has changed.
+ * <p>
+ * The driver station gets one retained item per field, and only the items whose value changed are formatted again.
+ * The dashboard gets a packet with every field as a number so they can be graphed, because it only shows the fields
+ * in the newest packet. Once the publisher has started, nothing else may use the driver station telemetry.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class TelemetryPublisher {
+    private final TelemetryBoard board;
+    private final Telemetry driverStation;
+    private final FixedRateLoop driverStationLoop;
+    private final FixedRateLoop dashboardLoop;
+
+    // Only used by the driver station thread
+    private final Telemetry.Item[] items = new Telemetry.Item[TelemetryBoard.MAX_SLOTS];
+    private final long[] sentToDriverStation = new long[TelemetryBoard.MAX_SLOTS];
+    private int driverStationSlots;
+
+    // Only used by the dashboard thread
+    private final long[] sentToDashboard = new long[TelemetryBoard.MAX_SLOTS];
+    private int dashboardSlots;
+
+    /**
+     * Constructs a TelemetryPublisher, call {@link #start()} once nothing else is using the telemetry. The rates are
+     * read here, so changing them only takes effect the next time the op mode is initialized.
+     *
+     * @param board The board to publish
+     * @param driverStation The driver station telemetry of the op mode, not wrapped in a MultipleTelemetry
+     */
+    public TelemetryPublisher(TelemetryBoard board, Telemetry driverStation) {
+        this.board = board;
+        this.driverStation = driverStation;
+        driverStationLoop = new FixedRateLoop("DriverStationTelemetry", 1000 / Math.max(1, DRIVER_STATION_RATE_HZ), Thread.MIN_PRIORITY,
+                this::publishToDriverStation);
+        dashboardLoop = new FixedRateLoop("DashboardTelemetry", 1000 / Math.max(1, DASHBOARD_RATE_HZ), Thread.MIN_PRIORITY,
+                this::publishToDashboard);
+    }
+
+    /** Starts both publishing threads. */
+    public void start() {
+        driverStation.setAutoClear(true);
+        driverStationLoop.start();
+        dashboardLoop.start();
+    }
+
+    /** Stops both publishing threads. */
+    public void stop() {
+        driverStationLoop.stop();
+        dashboardLoop.stop();
+    }
+
+    /** Updates the items of the fields that changed, and sends them if there were any. */
+    private void publishToDriverStation() {
+        int count = board.getSlotCount();
+        boolean changed = false;
+        for (int i = 0; i < count; i++) {
+            long bits = board.getBits(i);
+            if (i >= driverStationSlots) {
+                items[i] = driverStation.addData(board.getCaption(i), board.format(i, bits));
+                items[i].setRetained(true);
+            }
+            else if (bits != sentToDriverStation[i]) items[i].setValue(board.format(i, bits));
+            else continue;
+            sentToDriverStation[i] = bits;
+            changed = true;
+        }
+        driverStationSlots = count;
+        if (changed) driverStation.update();
+    }
+
+    /** Sends a packet with every field if any of them changed. */
+    private void publishToDashboard() {
+        int count = board.getSlotCount();
+        boolean changed = count != dashboardSlots;
+        for (int i = 0; i < count && !changed; i++) {
+            changed = board.getBits(i) != sentToDashboard[i];
+        }
+        if (!changed) return;
+
+        TelemetryPacket packet = new TelemetryPacket();
+        for (int i = 0; i < count; i++) {
+            long bits = board.getBits(i);
+            if (board.isNumber(i)) packet.put(board.getCaption(i), board.toNumber(i, bits));
+            else packet.put(board.getCaption(i), board.format(i, bits));
+            sentToDashboard[i] = bits;
+        }
+        dashboardSlots = count;
+        FtcDashboard.getInstance().sendTelemetryPacket(packet);
+    }
+}
@@ -0,0 +1,57 @@
+package org.firstinspires.ftc.teamcode.util;
+
+/**
+ * The time that every profile, timeout and background loop on the robot goes by. On the robot it is
+ * {@link System#nanoTime()}. A simulation switches it to simulated time and moves it forward every step, so the
+ * code keeps in step with the simulated physics however much faster than real time the simulation runs.
+ * <p>
+ * Things that measure how long the code itself takes, like the loop profiler and the benchmarks, still use
+ * {@link System#nanoTime()}.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public final class Clock {
+    private static volatile boolean simulated;
+    private static volatile long simulatedNanos;
+
+    private Clock() {
+
+    }
+
+    /** @return The current time in nanoseconds, only useful for working out how much time has passed */
+    public static long nanoTime() {
+        return simulated ? simulatedNanos : System.nanoTime();
+    }
+
+    /** @return The current time in seconds, only useful for working out how much time has passed */
+    public static double seconds() {
+        return nanoTime() / 1e9;
+    }
+
+    /** Switches to simulated time, starting from zero. Time only moves when {@link #advance(double)} is called. */
+    public static void simulate() {
+        simulatedNanos = 0;
+        simulated = true;
+    }
+
+    /** Switches back to real time, call this once a simulation has finished. */
+    public static void useSystemTime() {
+        simulated = false;
+    }
+
+    /** @return True if the clock is running on simulated time */
+    public static boolean isSimulated() {
+        return simulated;
+    }
+
+    /**
+     * Moves simulated time forward.
+     *
+     * @param seconds How far to move it, in seconds
+     * @throws IllegalStateException If the clock isn't simulated
+     */
+    public static void advance(double seconds) {
+        if (!simulated) throw new IllegalStateException("The clock can only be moved while it is simulated");
+        simulatedNanos += (long) (seconds * 1e9);
+    }
+}
@@ -0,0 +1,30 @@
+package org.firstinspires.ftc.teamcode.util;
+
+/**
+ * A stopwatch like the SDK's ElapsedTime that goes by the {@link Clock}, so timeouts run on simulated time in a
+ * simulation. Starts timing when it is constructed.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class ClockTimer {
+    private long startNanos;
+
+    public ClockTimer() {
+        reset();
+    }
+
+    /** Starts timing again from now. */
+    public void reset() {
+        startNanos = Clock.nanoTime();
+    }
+
+    /** @return How long it has been since the timer was reset, in seconds */
+    public double seconds() {
+        return (Clock.nanoTime() - startNanos) / 1e9;
+    }
+
+    /** @return How long it has been since the timer was reset, in milliseconds */
+    public double milliseconds() {
+        return (Clock.nanoTime() - startNanos) / 1e6;
+    }
+}
@@ -0,0 +1,155 @@
+package org.firstinspires.ftc.teamcode.util;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a task over and over on its own thread at a fixed rate. The next run is scheduled from when the
+ * last one was supposed to start, not when it finished, so the rate doesn't drift. If a run takes longer than
+ * the period, the missed runs are skipped instead of being run back to back.
+ * <p>
+ * A run that throws is logged and the loop carries on, so one bad read doesn't stop it for the rest of the match.
+ * {@link #isFailing()} tells the owner that its task's last run didn't finish, so it can stop trusting what the
+ * task last produced.
+ * <p>
+ * The thread is a daemon so it can never keep the app alive, but {@link #stop()} should still be called
+ * when the op mode ends.
+ * <p>
+ * While the {@link Clock} is simulated no thread is started. The simulation runs every started loop that is due
+ * with {@link #runSimulatedLoops()} after each step, so the loops keep in step with simulated time.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class FixedRateLoop {
+    /** The loops started while the clock is simulated, run by the simulation instead of by their own threads */
+    private static final List<FixedRateLoop> simulatedLoops = new CopyOnWriteArrayList<>();
+
+    private final String name;
+    private final long periodNanos;
+    private final Runnable task;
+    private final int priority;
+
+    private volatile boolean running;
+    /** True if the last run of the task threw */
+    private volatile boolean failing;
+    /** How many runs in a row have thrown, only used by the thread running the task */
+    private int failedRuns;
+    private Thread thread;
+    /** When the task should next run, on the clock */
+    private long nextRun;
+
+    /**
+     * Constructs a FixedRateLoop with normal thread priority.
+     *
+     * @param name The name of the thread, shown in crash logs
+     * @param periodMs How often the task runs, in milliseconds
+     * @param task The task to run
+     */
+    public FixedRateLoop(String name, double periodMs, Runnable task) {
+        this(name, periodMs, Thread.NORM_PRIORITY, task);
+    }
+
+    /**
+     * Constructs a FixedRateLoop.
+     *
+     * @param name The name of the thread, shown in crash logs
+     * @param periodMs How often the task runs, in milliseconds
+     * @param priority The priority of the thread, between {@link Thread#MIN_PRIORITY} and {@link Thread#MAX_PRIORITY}
+     * @param task The task to run
+     */
+    public FixedRateLoop(String name, double periodMs, int priority, Runnable task) {
+        this.name = name;
+        this.periodNanos = (long) (periodMs * 1e6);
+        this.priority = priority;
+        this.task = task;
+    }
+
+    /** Starts the thread, does nothing if it is already running. */
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        if (Clock.isSimulated()) {
+            nextRun = Clock.nanoTime();
+            simulatedLoops.add(this);
+            return;
+        }
+        thread = new Thread(this::loop, name);
+        thread.setDaemon(true);
+        thread.setPriority(priority);
+        thread.start();
+    }
+
+    /** Stops the thread and waits for the current run of the task to finish. */
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        if (thread == null) {
+            simulatedLoops.remove(this);
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(periodNanos / 1_000_000 + 100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /** @return True if the thread has been started and not stopped */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** @return True if the last run of the task threw an exception */
+    public boolean isFailing() {
+        return failing;
+    }
+
+    /**
+     * Runs every loop started while the clock is simulated whose next run has come, once each. Missed runs are
+     * skipped like they are on the thread. Call this on the simulation's thread after moving the clock forward.
+     */
+    public static void runSimulatedLoops() {
+        long now = Clock.nanoTime();
+        for (FixedRateLoop loop : simulatedLoops) {
+            if (loop.nextRun > now) continue;
+            loop.runTask();
+            loop.nextRun += loop.periodNanos;
+            if (loop.nextRun < now) loop.nextRun = now;
+        }
+    }
+
+    /** Runs the task once, logging an exception instead of letting it crash the app. */
+    private void runTask() {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // Only the first of a run of failures is logged, so a task that keeps failing doesn't flood the log
+            if (failedRuns == 0) RobotLog.ee(name, e, "Run failed, carrying on");
+            failedRuns++;
+            failing = true;
+            return;
+        }
+        if (failedRuns > 0) RobotLog.ww(name, "Running again after %d failed runs", failedRuns);
+        failedRuns = 0;
+        failing = false;
+    }
+
+    /** The body of the thread, runs the task until stopped. */
+    private void loop() {
+        long nextRun = System.nanoTime();
+        while (running && !Thread.currentThread().isInterrupted()) {
+            runTask();
+
+            nextRun += periodNanos;
+            long now = System.nanoTime();
+            // If we fell behind, skip ahead instead of trying to catch up
+            if (nextRun < now) nextRun = now;
+            else LockSupport.parkNanos(nextRun - now);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.firstinspires.ftc.teamcode.util;
+
+/**
+ * Keeps the last few samples of a value and gives their median. Used to throw out single bad readings from noisy
+ * sensors. Doesn't allocate after it is constructed, and isn't thread safe.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class MedianFilter {
+    private final double[] samples;
+    /** Scratch space so the samples can be sorted without losing their order */
+    private final double[] sorted;
+    private int next;
+    private int count;
+
+    /**
+     * Constructs a MedianFilter.
+     *
+     * @param size How many samples to keep
+     */
+    public MedianFilter(int size) {
+        samples = new double[size];
+        sorted = new double[size];
+    }
+
+    /**
+     * Adds a sample, replacing the oldest one if the filter is full.
+     *
+     * @param sample The new sample
+     * @return The median of the samples, including the new one
+     */
+    public double add(double sample) {
+        samples[next] = sample;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+        return median();
+    }
+
+    /** @return The median of the samples, or NaN if there are none */
+    public double median() {
+        if (count == 0) return Double.NaN;
+        // Insertion sort, the window is only a handful of samples
+        for (int i = 0; i < count; i++) {
+            double value = samples[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > value) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = value;
+        }
+        if (count % 2 == 1) return sorted[count / 2];
+        return (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+    }
+
+    /** Removes all of the samples. */
+    public void reset() {
+        next = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,79 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import static org.firstinspires.ftc.teamcode.Constants.CameraConstants.*;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.teamcode.auto.AutoPosition.SpikeMark;
+import org.openftc.easyopencv.OpenCvCamera;
+import org.openftc.easyopencv.OpenCvCameraFactory;
+import org.openftc.easyopencv.OpenCvCameraRotation;
+
+/**
+ * The webcam streaming to a {@link TeamPropPipeline} during init, so autonomous knows which spike mark the team prop
+ * is on before the robot moves. The camera is opened and closed in the background, so neither blocks the op mode.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class TeamPropCamera {
+    private final OpenCvCamera camera;
+    private final TeamPropPipeline pipeline;
+    private boolean closed;
+
+    private TeamPropCamera(OpenCvCamera camera, TeamPropPipeline pipeline) {
+        this.camera = camera;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Opens the webcam and starts streaming to a team prop pipeline.
+     *
+     * @param hardwareMap The hardware map of the robot
+     * @param isBlue If we are on the blue alliance
+     * @return The camera, or null if the robot has no webcam with the configured name
+     */
+    public static TeamPropCamera open(HardwareMap hardwareMap, boolean isBlue) {
+        WebcamName webcamName = hardwareMap.tryGet(WebcamName.class, WEBCAM_NAME);
+        if (webcamName == null) {
+            RobotLog.ww("TeamPropCamera", "No webcam called %s, using the distance sensors only", WEBCAM_NAME);
+            return null;
+        }
+
+        int monitorViewId = hardwareMap.appContext.getResources().getIdentifier(
+                "cameraMonitorViewId", "id", hardwareMap.appContext.getPackageName());
+        OpenCvCamera camera = OpenCvCameraFactory.getInstance().createWebcam(webcamName, monitorViewId);
+        TeamPropPipeline pipeline = new TeamPropPipeline(isBlue);
+        camera.setPipeline(pipeline);
+        camera.openCameraDeviceAsync(new OpenCvCamera.AsyncCameraOpenListener() {
+            @Override
+            public void onOpened() {
+                camera.startStreaming(CAMERA_WIDTH, CAMERA_HEIGHT, OpenCvCameraRotation.UPRIGHT);
+            }
+
+            @Override
+            public void onError(int errorCode) {
+                RobotLog.ee("TeamPropCamera", "Couldn't open the webcam, error %d", errorCode);
+            }
+        });
+        return new TeamPropCamera(camera, pipeline);
+    }
+
+    /** @return The spike mark the team prop was on in the latest frame, null if no frame has been processed yet */
+    public SpikeMark getSpikeMark() {
+        return pipeline.getSpikeMark();
+    }
+
+    /** @return True if the prop was seen in the latest frame, false if the spike mark is the one the camera can't see */
+    public boolean isSeen() {
+        return pipeline.isSeen();
+    }
+
+    /** Stops streaming and closes the webcam in the background, then frees the pipeline. Does nothing if already closed. */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        camera.closeCameraDeviceAsync(pipeline::release);
+    }
+}
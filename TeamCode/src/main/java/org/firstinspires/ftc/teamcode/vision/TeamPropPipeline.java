@@ -0,0 +1,174 @@
+package org.firstinspires.ftc.teamcode.vision;
+
+import static org.firstinspires.ftc.teamcode.Constants.CameraConstants.*;
+
+import org.firstinspires.ftc.teamcode.auto.AutoPosition.SpikeMark;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.openftc.easyopencv.OpenCvPipeline;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The competition version of {@link OpenCVTesting}, finds which spike mark the team prop is on. Only the regions of
+ * the frame the middle and right spike marks are in are looked at. Each one is shrunk, converted to YCrCb once and
+ * thresholded into Mats that are made once and reused, so a frame takes a few milliseconds and nothing is allocated
+ * after the first one. The constants are read every frame, so they can be tuned from the dashboard while it runs.
+ * <p>
+ * Runs on the camera's thread, so it never touches the telemetry. The latest spike mark is published through
+ * {@link #getSpikeMark()} for the op mode to read.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class TeamPropPipeline extends OpenCvPipeline {
+    private static final Scalar REGION_COLOR = new Scalar(255, 255, 255);
+    private static final Scalar FOUND_COLOR = new Scalar(0, 255, 0);
+
+    private final boolean isBlue;
+
+    /** The latest spike mark, null until the first frame has been processed */
+    private final AtomicReference<SpikeMark> spikeMark = new AtomicReference<>();
+    /** False if the prop wasn't in either region in the latest frame, so it was guessed to be on the unseen spike mark */
+    private volatile boolean seen;
+    // The fraction of each region that was the team prop's colour in the latest frame, and how long it took
+    private volatile double middleFraction;
+    private volatile double rightFraction;
+    private volatile double frameMs;
+
+    // The regions of the frame and views into them, only remade if the camera gives us a different frame buffer or
+    // the regions have been tuned
+    private final Rect middleRect = new Rect();
+    private final Rect rightRect = new Rect();
+    private Mat middleView;
+    private Mat rightView;
+    private long frameAddress;
+    private final double[] middleRegion = new double[4];
+    private final double[] rightRegion = new double[4];
+    private int downscale;
+
+    // Reused every frame, each region has its own so they never change size and OpenCV doesn't reallocate them
+    private final Size smallMiddleSize = new Size();
+    private final Size smallRightSize = new Size();
+    private final Mat[] middleMats = {new Mat(), new Mat(), new Mat()};
+    private final Mat[] rightMats = {new Mat(), new Mat(), new Mat()};
+
+    /**
+     * Creates a pipeline that looks for the team prop of one alliance.
+     *
+     * @param isBlue If we are on the blue alliance
+     */
+    public TeamPropPipeline(boolean isBlue) {
+        this.isBlue = isBlue;
+    }
+
+    @Override
+    public Mat processFrame(Mat input) {
+        long startNanos = System.nanoTime();
+        updateRegions(input);
+
+        double middle = findFraction(middleView, smallMiddleSize, middleMats);
+        double right = findFraction(rightView, smallRightSize, rightMats);
+
+        SpikeMark found;
+        if (middle >= DETECTION_THRESHOLD && middle >= right) found = SpikeMark.MIDDLE;
+        else if (right >= DETECTION_THRESHOLD) found = isBlue ? SpikeMark.DOWNSTAGE : SpikeMark.UPSTAGE;
+        else found = isBlue ? SpikeMark.UPSTAGE : SpikeMark.DOWNSTAGE;
+
+        middleFraction = middle;
+        rightFraction = right;
+        seen = middle >= DETECTION_THRESHOLD || right >= DETECTION_THRESHOLD;
+        spikeMark.set(found);
+
+        // Only outlines are drawn on the frame, for the camera stream
+        Imgproc.rectangle(input, middleRect, found == SpikeMark.MIDDLE ? FOUND_COLOR : REGION_COLOR, 2);
+        Imgproc.rectangle(input, rightRect, found != SpikeMark.MIDDLE && right >= DETECTION_THRESHOLD ? FOUND_COLOR : REGION_COLOR, 2);
+        frameMs = (System.nanoTime() - startNanos) / 1e6;
+        return input;
+    }
+
+    /** Makes the views into the regions of the frame, if the frame buffer or the regions have changed since the last frame. */
+    private void updateRegions(Mat input) {
+        if (middleView != null && input.dataAddr() == frameAddress && downscale == Math.max(1, DOWNSCALE)
+                && Arrays.equals(middleRegion, MIDDLE_REGION) && Arrays.equals(rightRegion, RIGHT_REGION)) return;
+        releaseViews();
+        frameAddress = input.dataAddr();
+        System.arraycopy(MIDDLE_REGION, 0, middleRegion, 0, middleRegion.length);
+        System.arraycopy(RIGHT_REGION, 0, rightRegion, 0, rightRegion.length);
+        downscale = Math.max(1, DOWNSCALE);
+
+        setRect(middleRect, middleRegion, input);
+        setRect(rightRect, rightRegion, input);
+        middleView = input.submat(middleRect);
+        rightView = input.submat(rightRect);
+        smallMiddleSize.width = Math.max(1, middleRect.width / downscale);
+        smallMiddleSize.height = Math.max(1, middleRect.height / downscale);
+        smallRightSize.width = Math.max(1, rightRect.width / downscale);
+        smallRightSize.height = Math.max(1, rightRect.height / downscale);
+    }
+
+    /** Sets a rect from a region given as fractions of the frame, kept inside the frame. */
+    private static void setRect(Rect rect, double[] region, Mat input) {
+        rect.x = Math.min(input.cols() - 1, (int) (region[0] * input.cols()));
+        rect.y = Math.min(input.rows() - 1, (int) (region[1] * input.rows()));
+        rect.width = Math.max(1, Math.min(input.cols() - rect.x, (int) (region[2] * input.cols())));
+        rect.height = Math.max(1, Math.min(input.rows() - rect.y, (int) (region[3] * input.rows())));
+    }
+
+    /**
+     * Shrinks a region, converts it to YCrCb and thresholds it with the alliance's colour.
+     *
+     * @param mats The region's shrunk, YCrCb and thresholded Mats
+     * @return The fraction of the region that is the team prop's colour
+     */
+    private double findFraction(Mat region, Size smallSize, Mat[] mats) {
+        // Nearest keeps every DOWNSCALE-th pixel, which is plenty to tell how much of the region is the prop
+        Imgproc.resize(region, mats[0], smallSize, 0, 0, Imgproc.INTER_NEAREST);
+        Imgproc.cvtColor(mats[0], mats[1], Imgproc.COLOR_RGB2YCrCb);
+        Core.inRange(mats[1], isBlue ? LOWER_BLUE : LOWER_RED, UPPER, mats[2]);
+        return Core.countNonZero(mats[2]) / (double) mats[2].total();
+    }
+
+    private void releaseViews() {
+        if (middleView != null) middleView.release();
+        if (rightView != null) rightView.release();
+        middleView = null;
+        rightView = null;
+    }
+
+    /** @return The spike mark the team prop was on in the latest frame, null if no frame has been processed yet */
+    public SpikeMark getSpikeMark() {
+        return spikeMark.get();
+    }
+
+    /** @return True if the prop was in one of the regions in the latest frame, false if the spike mark is only a guess */
+    public boolean isSeen() {
+        return seen;
+    }
+
+    /** @return The fraction of the middle spike mark's region that was the team prop's colour in the latest frame */
+    public double getMiddleFraction() {
+        return middleFraction;
+    }
+
+    /** @return The fraction of the right spike mark's region that was the team prop's colour in the latest frame */
+    public double getRightFraction() {
+        return rightFraction;
+    }
+
+    /** @return How long the latest frame took to process, in milliseconds */
+    public double getFrameMs() {
+        return frameMs;
+    }
+
+    /** Frees the Mats, call this once the camera has stopped streaming to this pipeline. */
+    public void release() {
+        releaseViews();
+        for (Mat mat : middleMats) mat.release();
+        for (Mat mat : rightMats) mat.release();
+    }
+}
@@ -0,0 +1,93 @@
+package org.firstinspires.ftc.teamcode.auto;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.arcrobotics.ftclib.command.CommandScheduler;
+
+import org.firstinspires.ftc.teamcode.Constants.AutoConstants;
+import org.firstinspires.ftc.teamcode.Constants.DistanceSensorConstants;
+import org.firstinspires.ftc.teamcode.Constants.RecorderConstants;
+import org.firstinspires.ftc.teamcode.sim.SimDrivetrain;
+import org.firstinspires.ftc.teamcode.sim.SimOpMode;
+import org.firstinspires.ftc.teamcode.util.Clock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs whole autonomous routines against the simulator on simulated time and checks where the robot ends up.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class AutonomousSimTest {
+    private static final double MAX_SECONDS = 30;
+    private static final double POSITION_TOLERANCE = 3;
+    private static final double HEADING_TOLERANCE = Math.toRadians(5);
+
+    private boolean useTrajectories;
+    private boolean useRouteFile;
+    private boolean recorderEnabled;
+
+    private SimOpMode opMode;
+    private AutonomousController controller;
+
+    @Before
+    public void setUp() {
+        // The drive, strafe and turn commands built into the code, without writing a match log
+        useTrajectories = AutoConstants.USE_TRAJECTORIES;
+        useRouteFile = AutoConstants.USE_ROUTE_FILE;
+        recorderEnabled = RecorderConstants.ENABLED;
+        AutoConstants.USE_TRAJECTORIES = false;
+        AutoConstants.USE_ROUTE_FILE = false;
+        RecorderConstants.ENABLED = false;
+
+        opMode = new SimOpMode();
+    }
+
+    @After
+    public void tearDown() {
+        if (controller != null) controller.stop();
+        CommandScheduler.getInstance().reset();
+        Clock.useSystemTime();
+
+        AutoConstants.USE_TRAJECTORIES = useTrajectories;
+        AutoConstants.USE_ROUTE_FILE = useRouteFile;
+        RecorderConstants.ENABLED = recorderEnabled;
+    }
+
+    /** Runs the autonomous until it finishes, and checks it took less wall time than simulated time. */
+    private double runToCompletion() {
+        controller.start();
+        long wallStart = System.nanoTime();
+        double seconds = opMode.run(controller::run, controller::isFinished, MAX_SECONDS);
+        double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+
+        assertTrue("Autonomous didn't finish in " + MAX_SECONDS + " s", controller.isFinished());
+        assertTrue("Ran slower than real time, " + wallSeconds + " s for " + seconds + " s", wallSeconds < seconds);
+        return seconds;
+    }
+
+    @Test
+    public void blueDownstageParkingEndsAtBackdrop() {
+        controller = new AutonomousController(opMode, true, false, false, true);
+        runToCompletion();
+
+        // Nothing in front of the sensors is the middle spike mark: 32 out, 7 back, 85 left, then 20 forwards
+        SimDrivetrain drivetrain = opMode.getSimHardwareMap().getDrivetrain();
+        assertEquals(AutoPosition.SpikeMark.MIDDLE, controller.getSpikeMark());
+        assertEquals(45, drivetrain.getX(), POSITION_TOLERANCE);
+        assertEquals(85, drivetrain.getY(), POSITION_TOLERANCE);
+        assertEquals(0, drivetrain.getHeading(), HEADING_TOLERANCE);
+    }
+
+    @Test
+    public void blueDownstagePicksUpstageFromLeftSensor() {
+        opMode.getSimHardwareMap().getDistanceSensor(DistanceSensorConstants.LEFT_DISTANCE_SENSOR_NAME).setDistance(4);
+        controller = new AutonomousController(opMode, true, false, false, false);
+        runToCompletion();
+
+        assertEquals(AutoPosition.SpikeMark.UPSTAGE, controller.getSpikeMark());
+        assertEquals(0, opMode.getSimHardwareMap().getDrivetrain().getHeading(), HEADING_TOLERANCE);
+    }
+}
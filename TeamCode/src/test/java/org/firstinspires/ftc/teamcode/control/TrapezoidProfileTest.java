@@ -0,0 +1,116 @@
+package org.firstinspires.ftc.teamcode.control;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Plans many randomly generated moves and checks that every one of them keeps to the properties a trapezoidal
+ * profile promises. The random numbers are seeded, so a failure can be repeated.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class TrapezoidProfileTest {
+    private static final int CASES = 500;
+    private static final int SAMPLES = 1000;
+    private static final double EPSILON = 1e-6;
+
+    private final Random random = new Random(17);
+
+    /** One randomly generated move. */
+    private class Move {
+        final double distance = (random.nextDouble() * 2 - 1) * 100;
+        final double maxVelocity = 1 + random.nextDouble() * 60;
+        final double maxAcceleration = 1 + random.nextDouble() * 200;
+        // A quarter of the moves start from rest, the rest start at up to one and a half times the max velocity
+        final double startVelocity = random.nextInt(4) == 0 ? 0 : (random.nextDouble() * 2 - 1) * 1.5 * maxVelocity;
+
+        TrapezoidProfile plan(boolean fromRest) {
+            TrapezoidProfile profile = new TrapezoidProfile();
+            profile.plan(distance, fromRest ? 0 : startVelocity, maxVelocity, maxAcceleration);
+            return profile;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("distance %f, start velocity %f, max velocity %f, max acceleration %f",
+                    distance, startVelocity, maxVelocity, maxAcceleration);
+        }
+    }
+
+    /** Checks the profile ends where it should at rest, and never goes past its limits along the way. */
+    private static void assertKeepsLimits(Move move, TrapezoidProfile profile, double startVelocity) {
+        String message = move.toString();
+        double duration = profile.getDuration();
+        assertEquals(message, move.distance, profile.getPosition(duration), EPSILON * Math.max(1, Math.abs(move.distance)));
+        assertEquals(message, move.distance, profile.getEndPosition(), EPSILON * Math.max(1, Math.abs(move.distance)));
+        assertEquals(message, 0, profile.getVelocity(duration), EPSILON);
+        assertEquals(message, startVelocity, profile.getVelocity(1e-12), EPSILON * Math.max(1, Math.abs(startVelocity)));
+
+        double velocityLimit = Math.max(move.maxVelocity, Math.abs(startVelocity)) + EPSILON;
+        for (int i = 0; i <= SAMPLES; i++) {
+            double t = duration * i / SAMPLES;
+            assertTrue(message + " at " + t, Math.abs(profile.getVelocity(t)) <= velocityLimit);
+            assertTrue(message + " at " + t, Math.abs(profile.getAcceleration(t)) <= move.maxAcceleration + EPSILON);
+        }
+    }
+
+    @Test
+    public void endsAtTheDistanceWithinLimitsFromRest() {
+        for (int n = 0; n < CASES; n++) {
+            Move move = new Move();
+            assertKeepsLimits(move, move.plan(true), 0);
+        }
+    }
+
+    @Test
+    public void endsAtTheDistanceWithinLimitsFromAnyVelocity() {
+        for (int n = 0; n < CASES; n++) {
+            Move move = new Move();
+            assertKeepsLimits(move, move.plan(false), move.startVelocity);
+        }
+    }
+
+    @Test
+    public void positionOnlyMovesTowardsTheTargetFromRest() {
+        for (int n = 0; n < CASES; n++) {
+            Move move = new Move();
+            TrapezoidProfile profile = move.plan(true);
+            double direction = Math.signum(move.distance);
+            double last = 0;
+            for (int i = 1; i <= SAMPLES; i++) {
+                double position = direction * profile.getPosition(profile.getDuration() * i / SAMPLES);
+                assertTrue(move.toString(), position >= last - EPSILON);
+                last = position;
+            }
+        }
+    }
+
+    @Test
+    public void stretchToTakesExactlyTheNewDuration() {
+        for (int n = 0; n < CASES; n++) {
+            Move move = new Move();
+            TrapezoidProfile profile = move.plan(true);
+            if (profile.getDuration() <= 0) continue;
+            double newDuration = profile.getDuration() * (1 + random.nextDouble() * 3);
+            profile.stretchTo(newDuration);
+
+            assertEquals(move.toString(), newDuration, profile.getDuration(), EPSILON * newDuration);
+            assertKeepsLimits(move, profile, 0);
+        }
+    }
+
+    @Test
+    public void stretchToNeverShortensAMove() {
+        for (int n = 0; n < CASES; n++) {
+            Move move = new Move();
+            TrapezoidProfile profile = move.plan(true);
+            double duration = profile.getDuration();
+            profile.stretchTo(duration * random.nextDouble());
+            assertEquals(move.toString(), duration, profile.getDuration(), 0);
+        }
+    }
+}
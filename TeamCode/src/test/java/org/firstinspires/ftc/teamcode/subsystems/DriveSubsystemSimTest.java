@@ -0,0 +1,73 @@
+package org.firstinspires.ftc.teamcode.subsystems;
+
+import static org.firstinspires.ftc.teamcode.Constants.SimulationConstants.SIM_LOOP_DT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.teamcode.sim.SimDrivetrain;
+import org.firstinspires.ftc.teamcode.sim.SimOpMode;
+import org.firstinspires.ftc.teamcode.util.Clock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks how quickly the gyro can be re-zeroed, against the simulated IMU.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class DriveSubsystemSimTest {
+    private static final double HEADING_TOLERANCE = 1;
+
+    private SimOpMode opMode;
+    private SimDrivetrain drivetrain;
+    private DriveSubsystem driveSubsystem;
+
+    @Before
+    public void setUp() {
+        opMode = new SimOpMode();
+        drivetrain = opMode.getSimHardwareMap().getDrivetrain();
+        driveSubsystem = new DriveSubsystem(opMode.hardwareMap, opMode.telemetry);
+    }
+
+    @After
+    public void tearDown() {
+        driveSubsystem.stopHeadingService();
+        Clock.useSystemTime();
+    }
+
+    /** @return How far the simulated robot has turned since a heading, in degrees */
+    private double turnedSince(double startHeading) {
+        return Math.toDegrees(AngleUnit.normalizeRadians(drivetrain.getHeading() - startHeading));
+    }
+
+    @Test
+    public void resetGyroWhileStillReadsZeroStraightAway() {
+        driveSubsystem.drive(0, 0, 0.5, false, 1);
+        for (int i = 0; i < 25; i++) opMode.step();
+        driveSubsystem.stopMotors();
+        for (int i = 0; i < 50; i++) opMode.step();
+        assertTrue("The robot didn't turn", Math.abs(driveSubsystem.getHeading()) > 10);
+
+        driveSubsystem.resetGyro();
+        assertEquals(0, driveSubsystem.getHeading(), HEADING_TOLERANCE);
+    }
+
+    @Test
+    public void resetGyroWhileTurningIsUsableWithinOneLoop() {
+        driveSubsystem.drive(0, 0, 0.5, false, 1);
+        for (int i = 0; i < 50; i++) opMode.step();
+
+        long start = System.nanoTime();
+        driveSubsystem.resetGyro();
+        double resetMs = (System.nanoTime() - start) / 1e6;
+        double headingAtReset = drivetrain.getHeading();
+        assertTrue("resetGyro took " + resetMs + " ms", resetMs < SIM_LOOP_DT * 1000);
+
+        // One loop later the heading is only how far the robot has turned since the reset
+        opMode.step();
+        assertEquals(turnedSince(headingAtReset), driveSubsystem.getExtrapolatedHeading(), HEADING_TOLERANCE);
+        assertEquals(turnedSince(headingAtReset), driveSubsystem.getHeading(), HEADING_TOLERANCE);
+    }
+}
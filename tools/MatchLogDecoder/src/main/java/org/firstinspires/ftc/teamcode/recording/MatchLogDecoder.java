@@ -0,0 +1,182 @@
+package org.firstinspires.ftc.teamcode.recording;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns a log made by TeamCode's {@code MatchRecorder} into one CSV file per record type, each column being one field,
+ * ready for a spreadsheet, pandas or plotting. This runs on a laptop, not the robot, so it lives in its own module
+ * that isn't packaged into the robot app, and only uses the plain Java library. Pull the logs off the Control Hub
+ * with {@code adb pull /sdcard/FIRST/MatchLogs}, then run:
+ * <pre>
+ * ./gradlew :MatchLogDecoder:run --args="log.skplog [output folder]"
+ * </pre>
+ * The schema is read from the log itself, so old logs can still be decoded after the record types change.
+ * Times are in seconds since the first record. Commands are shown by name.
+ *
+ * @author Esquimalt Atom Smashers
+ */
+public class MatchLogDecoder {
+    // The same as in MatchRecorder, copied so this file doesn't need the robot's libraries
+    private static final String MAGIC = "SKPLOG";
+    private static final int VERSION = 1;
+
+    /** One field of a record type, as read from the log's schema. */
+    private static class Field {
+        String name;
+        char type;
+        String[] labels;
+    }
+
+    /** One record type, as read from the log's schema, and the CSV its records go into. */
+    private static class Type {
+        String name;
+        Field[] fields;
+        PrintWriter writer;
+        int rows;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: MatchLogDecoder <log.skplog> [output folder]");
+            System.exit(1);
+        }
+        File log = new File(args[0]);
+        String baseName = log.getName().replaceFirst("\\.skplog$", "");
+        File outputFolder = args.length > 1 ? new File(args[1]) : new File(log.getParentFile(), baseName);
+        //noinspection ResultOfMethodCallIgnored
+        outputFolder.mkdirs();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(log)))) {
+            Map<Integer, Type> types = readSchema(in);
+            decode(in, types, outputFolder);
+            for (Type type : types.values()) {
+                if (type.writer == null) continue;
+                type.writer.close();
+                System.out.println(type.name + ": " + type.rows + " rows");
+            }
+        }
+    }
+
+    /** Reads the header and the schema of every record type, keyed by id. */
+    private static Map<Integer, Type> readSchema(DataInputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length()];
+        in.readFully(magic);
+        if (!new String(magic, "US-ASCII").equals(MAGIC)) throw new IOException("Not a match log");
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unknown log version " + version);
+
+        Map<Integer, Type> types = new HashMap<>();
+        int typeCount = in.readUnsignedByte();
+        for (int i = 0; i < typeCount; i++) {
+            int id = in.readUnsignedByte();
+            Type type = new Type();
+            type.name = in.readUTF();
+            type.fields = new Field[in.readUnsignedByte()];
+            for (int j = 0; j < type.fields.length; j++) {
+                Field field = new Field();
+                field.name = in.readUTF();
+                field.type = (char) in.readUnsignedByte();
+                field.labels = new String[in.readUnsignedByte()];
+                for (int k = 0; k < field.labels.length; k++) {
+                    field.labels[k] = in.readUTF();
+                }
+                type.fields[j] = field;
+            }
+            types.put(id, type);
+        }
+        return types;
+    }
+
+    /** Reads records until the end of the log, a record cut off by the robot losing power is ignored. */
+    private static void decode(DataInputStream in, Map<Integer, Type> types, File outputFolder) throws IOException {
+        Map<Integer, String> commandNames = new HashMap<>();
+        long firstTimestamp = -1;
+        StringBuilder row = new StringBuilder();
+        String[] values = new String[256];
+
+        while (true) {
+            int id;
+            long timestamp;
+            Type type;
+            try {
+                id = in.read();
+                if (id < 0) return;
+                type = types.get(id);
+                if (type == null) throw new IOException("Unknown record type " + id);
+                timestamp = in.readLong();
+                for (int i = 0; i < type.fields.length; i++) {
+                    values[i] = readField(in, type.fields[i]);
+                }
+            } catch (EOFException e) {
+                return;
+            }
+
+            if (type.name.equals("COMMAND_NAME")) {
+                commandNames.put(Integer.parseInt(values[0]), values[1]);
+            }
+
+            if (firstTimestamp < 0) firstTimestamp = timestamp;
+            if (type.writer == null) type.writer = createCsv(outputFolder, type);
+
+            row.setLength(0);
+            row.append((timestamp - firstTimestamp) / 1e9);
+            for (int i = 0; i < type.fields.length; i++) {
+                String value = values[i];
+                if (type.fields[i].name.equals("command") && !type.name.equals("COMMAND_NAME")) {
+                    value = commandNames.getOrDefault(Integer.parseInt(value), value);
+                }
+                row.append(',').append(escape(value));
+            }
+            type.writer.println(row);
+            type.rows++;
+        }
+    }
+
+    private static String readField(DataInputStream in, Field field) throws IOException {
+        switch (field.type) {
+            case 'b':
+                return Byte.toString(in.readByte());
+            case 'e':
+                int ordinal = in.readByte();
+                return ordinal >= 0 && ordinal < field.labels.length ? field.labels[ordinal] : "";
+            case 's':
+                return Short.toString(in.readShort());
+            case 'i':
+                return Integer.toString(in.readInt());
+            case 'l':
+                return Long.toString(in.readLong());
+            case 'd':
+                return Double.toString(in.readDouble());
+            case 'u':
+                byte[] characters = new byte[in.readUnsignedByte()];
+                in.readFully(characters);
+                return new String(characters, "US-ASCII");
+            default:
+                throw new IOException("Unknown field type " + field.type);
+        }
+    }
+
+    private static PrintWriter createCsv(File outputFolder, Type type) throws IOException {
+        PrintWriter writer = new PrintWriter(new FileWriter(new File(outputFolder, type.name + ".csv")));
+        StringBuilder header = new StringBuilder("time");
+        for (Field field : type.fields) {
+            header.append(',').append(field.name);
+        }
+        writer.println(header);
+        return writer;
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}